@@ -54,6 +54,43 @@ abstract class CollectionResponse extends Response {
     	super(productResponse);
     }
 
+    /**
+     * Instantiates a new CollectionResponse bound by a streaming binder.
+     * 
+     * @param  connection HTTP connection used to place an API call
+     * @param  binder     Streaming binder or null to build the element tree
+     * @throws RemixException
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    protected CollectionResponse(HttpURLConnection connection, RemixStreamBinder<?> binder) throws RemixException {
+        super(connection, binder);
+    }
+
+    /**
+     * Instantiates a new CollectionResponse from an XML file bound by a streaming binder.
+     * 
+     * @param  productResponse XML file
+     * @param  binder          Streaming binder or null to build the element tree
+     * @throws RemixException
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    protected CollectionResponse(File productResponse, RemixStreamBinder<?> binder) throws RemixException {
+        super(productResponse, binder);
+    }
+
+    /**
+     * Instantiates a new CollectionResponse read from a snapshot.
+     * 
+     * @param  documentRoot Collection element carrying the paging attributes
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    CollectionResponse(Element documentRoot) {
+        super(documentRoot);
+    }
+
     /**
      * Results page represented by the response document.
      * 
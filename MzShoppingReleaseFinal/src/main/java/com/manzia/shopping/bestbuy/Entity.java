@@ -14,6 +14,8 @@ package com.manzia.shopping.bestbuy;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Generic entity consisting of uniquely named data fields.
@@ -27,6 +29,76 @@ public class Entity {
      */
     protected Map<String, Object> fields;
 
+    /**
+     * Decodes the raw value of one field into a typed value. Decoded values are memoized
+     * and shared by every caller, so they must be immutable.
+     */
+    protected static abstract class FieldDecoder<V> {
+        private final String key;
+
+        protected FieldDecoder(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @param  value Raw value of the field, a String, an {@link Element} or null
+         * @return Typed value
+         */
+        protected abstract V decode(Object value);
+    }
+
+    /**
+     * Decodes a String field into a Float, see {@link Float#valueOf(String)}.
+     */
+    protected static class FloatFieldDecoder extends FieldDecoder<Float> {
+        private final Float missingValue;
+
+        /**
+         * @param key          Field name identifier
+         * @param missingValue Value of a missing field, or null to fail like {@link Float#valueOf(String)}
+         */
+        protected FloatFieldDecoder(String key, Float missingValue) {
+            super(key);
+            this.missingValue = missingValue;
+        }
+
+        @Override
+        protected Float decode(Object value) {
+            if(null == value && null != missingValue) {
+                return missingValue;
+            }
+            return Float.valueOf((String) value);
+        }
+    }
+
+    /**
+     * Decodes a String field into an Integer, see {@link Integer#valueOf(String)}.
+     */
+    protected static class IntegerFieldDecoder extends FieldDecoder<Integer> {
+        protected IntegerFieldDecoder(String key) {
+            super(key);
+        }
+
+        @Override
+        protected Integer decode(Object value) {
+            return Integer.valueOf((String) value);
+        }
+    }
+
+    /**
+     * Stands in for a field that decoded to null
+     */
+    private static final Object NULL_DECODED = new Object();
+
+    /**
+     * Memoized decoded values by decoder, created when a field is first decoded
+     */
+    private volatile ConcurrentMap<FieldDecoder<?>, Object> decoded;
+
     /**
      * Creates a new entity.
      */
@@ -73,7 +145,68 @@ public class Entity {
      * @return Provides a fluent interface.
      */
     protected Entity setField(String key, Object value) {
-        fields.put(key, value);
+        synchronized(this) {
+            fields.put(key, value);
+            forgetDecoded(key);
+        }
         return this;
     }
+
+    /**
+     * Returns a field decoded into a typed value. Each field is decoded at most once per
+     * decoder, on first request; later requests return the memoized value without locking.
+     * A decoder that throws memoizes nothing, so the next request fails the same way.
+     * Decoding and {@link #setField(String, Object)} hold the entity's lock, so a value
+     * decoded from a field that is being replaced is never memoized.
+     * 
+     * @param  decoder Decoder of the field
+     * @return Decoded value of the field
+     */
+    @SuppressWarnings("unchecked")
+    protected <V> V getDecoded(FieldDecoder<V> decoder) {
+        ConcurrentMap<FieldDecoder<?>, Object> cache = decoded;
+        Object value = null == cache ? null : cache.get(decoder);
+        if(null == value) {
+            synchronized(this) {
+                if(null == decoded) {
+                    decoded = new ConcurrentHashMap<FieldDecoder<?>, Object>(8, 0.75f, 1);
+                }
+                value = decoded.get(decoder);
+                if(null == value) {
+                    V result = decoder.decode(getField(decoder.getKey()));
+                    decoded.put(decoder, null == result ? NULL_DECODED : result);
+                    return result;
+                }
+            }
+        }
+        return NULL_DECODED == value ? null : (V) value;
+    }
+
+    /**
+     * Drops the memoized decoded values of a field whose raw value changed.
+     * 
+     * @param key Field name identifier
+     */
+    protected void forgetDecoded(String key) {
+        ConcurrentMap<FieldDecoder<?>, Object> cache = decoded;
+        if(null != cache) {
+            for(FieldDecoder<?> decoder : cache.keySet()) {
+                if(decoder.getKey().equals(key)) {
+                    cache.remove(decoder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds a field read by a {@link RemixStreamBinder}. The value is the String value of a
+     * leaf element or the {@link Element} subtree of a nested one, exactly as
+     * {@link #Entity(Element)} would assign it.
+     * 
+     * @param key   Field name identifier
+     * @param value Data assigned to this field
+     */
+    void bindField(String key, Object value) {
+        setField(key, value);
+    }
 }
@@ -24,10 +24,121 @@ import java.util.Map;
  * Note that not all fields are populated on every response.
  * Be sure to check for null values, especially for lists, or complex child elements.
  * 
+ * The lists and maps returned by {@link #getDetails()}, {@link #getDetailsMap()}, {@link #getFeatures()},
+ * {@link #getCategoryPath()}, {@link #getOffers()} and {@link #getRelated()} are decoded once, on first
+ * request, and shared by every caller, so they cannot be modified: callers that need to add or remove
+ * entries must copy them first.
+ * 
  * @author  Matt Williams <matt@mattwilliamsnyc.com>
  * @version $Id$
  */
 public class Product extends Entity {
+    /**
+     * Decoders of the price, rating and count fields, each decoded once on first read
+     */
+    private static final FloatFieldDecoder REGULAR_PRICE = new FloatFieldDecoder("regularPrice", 0.0f);
+    private static final FloatFieldDecoder SALE_PRICE = new FloatFieldDecoder("salePrice", 0.0f);
+    private static final IntegerFieldDecoder CUSTOMER_REVIEW_COUNT = new IntegerFieldDecoder("customerReviewCount");
+    private static final FloatFieldDecoder CUSTOMER_REVIEW_AVERAGE = new FloatFieldDecoder("customerReviewAverage", null);
+    private static final FloatFieldDecoder SHIPPING_COST = new FloatFieldDecoder("shippingCost", null);
+    private static final FloatFieldDecoder DOLLAR_SAVINGS = new FloatFieldDecoder("dollarSavings", null);
+
+    /**
+     * Decoders of the nested fields, each decoded once into an unmodifiable structure
+     */
+    private static final FieldDecoder<List<Category>> CATEGORY_PATH = new FieldDecoder<List<Category>>("categoryPath") {
+        @Override
+        protected List<Category> decode(Object categoryPath) {
+            List<Category> categories = new ArrayList<Category>();
+            if(categoryPath instanceof Element && ((Element) categoryPath).hasChildren()) {
+                for(Element child : ((Element) categoryPath).getChildren()) {
+                    categories.add(new Category(child));
+                }
+            }
+            return Collections.unmodifiableList(categories);
+        }
+    };
+
+    private static final FieldDecoder<List<String>> DETAILS = new FieldDecoder<List<String>>("details") {
+        @Override
+        protected List<String> decode(Object field) {
+            return Collections.unmodifiableList(childValues(field));
+        }
+    };
+
+    private static final FieldDecoder<Map<String, String>> DETAILS_MAP = new FieldDecoder<Map<String, String>>("details") {
+        @Override
+        protected Map<String, String> decode(Object field) {
+            Map<String, String> detailsMap = new HashMap<String, String>();
+            if (field instanceof Element && ((Element) field).hasChildren()) {
+                for (Element example : ((Element) field).getChildren()) {
+                    // In this case, example corresponds to the "detail" property
+                    // which also has children
+                    if (example.hasChildren() && example.getChildren().size() == 2) {
+                        String detailKey = new String();
+                        String detailValue = new String();
+                        for (Element nameValues : example.getChildren()) {
+                            if (nameValues.getName().equalsIgnoreCase("name")) {
+                                detailKey = (String)nameValues.getValue();
+                            }
+                            if (nameValues.getName().equalsIgnoreCase("value")) {
+                                detailValue = (String)nameValues.getValue();
+                            }
+                        }
+                        if (!detailKey.isEmpty() && !detailValue.isEmpty()) {
+                            detailsMap.put(detailKey, detailValue);
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableMap(detailsMap);
+        }
+    };
+
+    private static final FieldDecoder<List<String>> FEATURES = new FieldDecoder<List<String>>("features") {
+        @Override
+        protected List<String> decode(Object field) {
+            return Collections.unmodifiableList(childValues(field));
+        }
+    };
+
+    private static final FieldDecoder<List<Offer>> OFFERS = new FieldDecoder<List<Offer>>("offers") {
+        @Override
+        protected List<Offer> decode(Object field) {
+            List<Offer> offers = new ArrayList<Offer>();
+            if(field instanceof Element && ((Element) field).hasChildren()) {
+                for(Element child : ((Element) field).getChildren()) {
+                    offers.add(new Offer(child));
+                }
+            }
+            return Collections.unmodifiableList(offers);
+        }
+    };
+
+    private static final FieldDecoder<List<RelatedItem>> RELATED = new FieldDecoder<List<RelatedItem>>("related") {
+        @Override
+        protected List<RelatedItem> decode(Object field) {
+            List<RelatedItem> items = new ArrayList<RelatedItem>();
+            if(field instanceof Element && ((Element) field).hasChildren()) {
+                for(Element child : ((Element) field).getChildren()) {
+                    items.add(new RelatedItem(child));
+                }
+            }
+            return Collections.unmodifiableList(items);
+        }
+    };
+
+    // values of the children of a nested field
+    private static List<String> childValues(Object field) {
+        List<String> values = new ArrayList<String>();
+        if(field instanceof Element && ((Element) field).hasChildren()) {
+            for(Element example : ((Element) field).getChildren()) {
+                values.add((String) example.getValue());
+            }
+        }
+        return values;
+    }
+
     /**
      * Creates a new Product containing no data.
      */
@@ -125,8 +236,7 @@ public class Product extends Entity {
      * @return Regular price of this product
      */
     public float getRegularPrice() {
-        String regularPrice = (String) getField("regularPrice");
-        return null == regularPrice ? 0.0f : Float.valueOf(regularPrice);
+        return getDecoded(REGULAR_PRICE);
     }
 
     /**
@@ -138,8 +248,7 @@ public class Product extends Entity {
      * @return Current sale price for this product
      */
     public float getSalePrice() {
-        String salePrice = (String) getField("salePrice");
-        return null == salePrice ? 0.0f : Float.valueOf(salePrice);
+        return getDecoded(SALE_PRICE);
     }
 
     /**
@@ -230,15 +339,7 @@ public class Product extends Entity {
      * @return List of categories that this product belongs to
      */
     public List<Category> getCategoryPath() {
-        Object categoryPath = getField("categoryPath");
-        List<Category> categories = new ArrayList<Category>();
-        if(null != categoryPath && categoryPath instanceof Element && ((Element) categoryPath).hasChildren()) {
-            categories = new ArrayList<Category>();
-            for(Element child : ((Element) categoryPath).getChildren()) {
-                categories.add(new Category(child));
-            }
-        }       
-        return categories;
+        return getDecoded(CATEGORY_PATH);
     }
 
     /**
@@ -247,8 +348,7 @@ public class Product extends Entity {
      * @return Number of customer reviews associated with this product 
      */
     public int getCustomerReviewCount() {
-        String customerReviewCount = (String) getField("customerReviewCount");
-        return Integer.valueOf(customerReviewCount);
+        return getDecoded(CUSTOMER_REVIEW_COUNT);
     }
 
     /**
@@ -257,8 +357,7 @@ public class Product extends Entity {
      * @return Average customer review rating for this product
      */
     public float getCustomerReviewAverage() {
-        String customerReviewAverage = (String) getField("customerReviewAverage");
-        return Float.valueOf(customerReviewAverage);
+        return getDecoded(CUSTOMER_REVIEW_AVERAGE);
     }
 
     /**
@@ -370,7 +469,7 @@ public class Product extends Entity {
      * @return Shipping cost for this product
      */
     public float getShippingCost() {
-        return Float.valueOf((String) getField("shippingCost"));
+        return getDecoded(SHIPPING_COST);
     }
 
     /**
@@ -622,7 +721,7 @@ public class Product extends Entity {
      * @return Dollar savings associated with this product
      */
     public float getDollarSavings() {
-        return Float.valueOf((String) getField("dollarSavings"));
+        return getDecoded(DOLLAR_SAVINGS);
     }
 
     /**
@@ -712,14 +811,7 @@ public class Product extends Entity {
      * @return Details associated with this product
      */
     public List<String> getDetails() {
-        List<String> details = new ArrayList<String>();
-        Object field = getField("details");
-        if(field instanceof Element && ((Element) field).hasChildren()) {
-            for(Element example : ((Element) field).getChildren()) {
-                details.add((String) example.getValue());
-            }
-        }
-        return details;
+        return getDecoded(DETAILS);
     }
     
     /**
@@ -733,32 +825,7 @@ public class Product extends Entity {
      * @author Roy Manzi Tumubweinee, Sept. 29, 2012, Manzia Corporation
      */
     public Map<String, String> getDetailsMap() {
-    	Map<String, String> detailsMap = Collections.synchronizedMap(new HashMap<String, String>());
-    	assert detailsMap != null;
-    	Object field = getField("details");
-    	if (field instanceof Element && ((Element) field).hasChildren()) {
-    		for (Element example : ((Element) field).getChildren()) {
-    			
-    			// In this case, example corresponds to the "detail" property
-    			// which also has children
-    			if (example.hasChildren() && example.getChildren().size() == 2) {
-    				String detailKey = new String();
-    				String detailValue = new String();
-    				for (Element nameValues : example.getChildren()) {
-    					if (nameValues.getName().equalsIgnoreCase("name")) {
-    						detailKey = (String)nameValues.getValue();
-    					}
-    					if (nameValues.getName().equalsIgnoreCase("value")) {
-    						detailValue = (String)nameValues.getValue();
-    					}
-    				}
-    				if (!detailKey.isEmpty() && !detailValue.isEmpty()) {
-    					detailsMap.put(detailKey, detailValue);
-    				}    				
-    			}
-    		}
-    	}
-    	return detailsMap;
+    	return getDecoded(DETAILS_MAP);
     }
 
     /**
@@ -767,14 +834,7 @@ public class Product extends Entity {
      * @return Features associated with this product
      */
     public List<String> getFeatures() {
-        List<String> features = new ArrayList<String>();
-        Object field = getField("features");
-        if(field instanceof Element && ((Element) field).hasChildren()) {
-            for(Element example : ((Element) field).getChildren()) {
-                features.add((String) example.getValue());
-            }
-        }
-        return features;
+        return getDecoded(FEATURES);
     }
 
     /**
@@ -783,14 +843,7 @@ public class Product extends Entity {
      * @return Offers associated with this product
      */
     public List<Offer> getOffers() {
-        Object field = getField("offers");
-        List<Offer> offers = new ArrayList<Offer>();
-        if(null != field && field instanceof Element && ((Element) field).hasChildren()) {
-            for(Element child : ((Element) field).getChildren()) {
-                offers.add(new Offer(child));
-            }
-        }       
-        return offers;
+        return getDecoded(OFFERS);
     }
 
     /**
@@ -799,13 +852,6 @@ public class Product extends Entity {
      * @return Items related to this product
      */
     public List<RelatedItem> getRelated() {
-        Object field = getField("related");
-        List<RelatedItem> items = new ArrayList<RelatedItem>();
-        if(null != field && field instanceof Element && ((Element) field).hasChildren()) {
-            for(Element child : ((Element) field).getChildren()) {
-                items.add(new RelatedItem(child));
-            }
-        }
-        return items;
+        return getDecoded(RELATED);
     }
 }
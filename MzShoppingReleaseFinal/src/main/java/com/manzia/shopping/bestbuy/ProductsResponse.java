@@ -29,6 +29,11 @@ public class ProductsResponse extends CollectionResponse {
      */
     private List<Product> products;
 
+    /**
+     * Streaming binder that bound this response or null if it was parsed into an element tree
+     */
+    private final RemixStreamBinder<Product> binder;
+
     /**
      * Creates a new ProductsResponse from an HTTP connection.
      * 
@@ -36,7 +41,26 @@ public class ProductsResponse extends CollectionResponse {
      * @throws RemixException Error parsing HTTP response
      */
     public ProductsResponse(HttpURLConnection connection) throws RemixException {
-        super(connection);
+        this(connection, false);
+    }
+
+    /**
+     * Creates a new ProductsResponse from an HTTP connection.
+     * 
+     * @param  connection HTTP connection used to retrieve this response
+     * @param  streaming  Whether to bind the products with a {@link RemixStreamBinder}
+     *                    instead of building an element tree
+     * @throws RemixException Error parsing HTTP response
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public ProductsResponse(HttpURLConnection connection, boolean streaming) throws RemixException {
+        this(connection, streaming ? RemixStreamBinder.forProducts() : null);
+    }
+
+    private ProductsResponse(HttpURLConnection connection, RemixStreamBinder<Product> binder) throws RemixException {
+        super(connection, binder);
+        this.binder = binder;
     }
     
     /**
@@ -49,7 +73,40 @@ public class ProductsResponse extends CollectionResponse {
      * 
      */
     public ProductsResponse(File productResponse) throws RemixException {
-    	super(productResponse);
+    	this(productResponse, false);
+    }
+    
+    /**
+     * Creates a new ProductsResponse from a product XML file
+     * 
+     * @param productResponse	product XML file
+     * @param streaming	whether to bind the products with a {@link RemixStreamBinder}
+     * instead of building an element tree
+     * @throws RemixException	thrown when there is an error parsing the product XML file
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public ProductsResponse(File productResponse, boolean streaming) throws RemixException {
+    	this(productResponse, streaming ? RemixStreamBinder.forProducts() : null);
+    }
+    
+    private ProductsResponse(File productResponse, RemixStreamBinder<Product> binder) throws RemixException {
+    	super(productResponse, binder);
+    	this.binder = binder;
+    }
+
+    /**
+     * Creates a new ProductsResponse from the products of a {@link RemixSnapshotReader snapshot}
+     * 
+     * @param documentRoot collection element carrying the paging attributes
+     * @param products     products read from the snapshot
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    ProductsResponse(Element documentRoot, List<Product> products) {
+        super(documentRoot);
+        this.binder = null;
+        this.products = products;
     }
 
     /**
@@ -58,7 +115,9 @@ public class ProductsResponse extends CollectionResponse {
      * @return List of {@link Product products} returned with this response
      */
     public List<Product> list() {
-        if(null == products) {
+        if(null == products && null != binder && binder.isBound()) {
+            products = binder.getEntities();
+        } else if(null == products) {
             products = new ArrayList<Product>();
             Element doc = getDocumentRoot();
             if(null != doc && doc.hasChildren()) {
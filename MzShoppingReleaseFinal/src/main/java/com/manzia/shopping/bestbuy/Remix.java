@@ -13,12 +13,14 @@
 package com.manzia.shopping.bestbuy;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +28,9 @@ import java.util.Map;
 /**
  * Client for submitting requests to Best Buy's Remix API.
  * 
+ * Every call passes the {@link RemixRateLimiter} of its API key before a connection is opened,
+ * unless it is answered from the {@link RemixResponseCache}.
+ * 
  * @link    http://remix.bestbuy.com/
  * @author  Modified BY: Roy Manzi Tumubweinee. Manzia Corporation.
  * @version $Id$
@@ -36,6 +41,12 @@ public class Remix {
      */
     public static final String ENTRY_POINT = "http://api.remix.bestbuy.com/v1/";
 
+    /**
+     * System property that overrides {@link #ENTRY_POINT} for all clients, e.g. to point
+     * them at a local stand-in server
+     */
+    public static final String ENTRY_POINT_PROPERTY = "remix.entryPoint";
+
     /**
      * Resource URI
      */
@@ -43,7 +54,8 @@ public class Remix {
         PATH_STORES   = "stores",
         PATH_STORE    = "stores/%s.xml",
         PATH_PRODUCTS = "products",
-        PATH_PRODUCT  = "products/%s.xml";
+        PATH_PRODUCT  = "products/%s.xml",
+        PATH_REVIEWS  = "reviews";
 
     /**
      * Default User-Agent string sent with each API request
@@ -66,14 +78,262 @@ public class Remix {
     private Map<String,String> headers = new HashMap<String,String>();
 
     /**
-     * Creates a new Remix API client.
+     * Transport shared by clients created without one
+     */
+    private static final RemixTransport DEFAULT_TRANSPORT = new RemixPooledTransport();
+
+    /**
+     * Transport used to open the connection for each API call
+     */
+    private final RemixTransport transport;
+
+    /**
+     * Whether collection responses are bound with a {@link RemixStreamBinder}
+     */
+    private boolean streaming = true;
+
+    /**
+     * Limiter shared by all clients of the API key
+     */
+    private final RemixRateLimiter limiter;
+
+    /**
+     * Entry point of the API calls placed by this client
+     */
+    private String entryPoint = getDefaultEntryPoint();
+
+    /**
+     * On-disk response cache or null to always place the call
+     */
+    private RemixResponseCache cache = RemixResponseCache.getDefault();
+
+    /**
+     * Status of a throttled call
+     */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Longest time a call queues for the limiter before it is rejected
+     */
+    private long queueTimeoutMillis = RemixRateLimiter.getDefaultQueueTimeoutMillis();
+
+    /**
+     * Priority of the calls placed by this client
+     */
+    private RemixRateLimiter.Priority priority = RemixRateLimiter.Priority.INTERACTIVE;
+
+    /**
+     * Creates the response of an API call from its connection
+     */
+    private static abstract class ResponseReader<R extends Response> {
+        abstract R read(HttpURLConnection connection) throws RemixException;
+    }
+
+    /**
+     * Creates a new Remix API client that uses the shared default transport.
      * 
      * API keys may be obtained after registering for a developer account with Best Buy.
      * 
      * @param apiKey Identifier used to authenticate API requests
      */
     public Remix(String apiKey) {
+        this(apiKey, DEFAULT_TRANSPORT);
+    }
+
+    /**
+     * Creates a new Remix API client.
+     * 
+     * @param apiKey    Identifier used to authenticate API requests
+     * @param transport Transport used to open the connection for each API call
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix(String apiKey, RemixTransport transport) {
+        this(apiKey, transport, RemixRateLimiter.forKey(apiKey));
+    }
+
+    /**
+     * Creates a new Remix API client.
+     * 
+     * @param apiKey    Identifier used to authenticate API requests
+     * @param transport Transport used to open the connection for each API call
+     * @param limiter   Limiter every API call must pass, normally shared by all clients of the key
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix(String apiKey, RemixTransport transport, RemixRateLimiter limiter) {
+        if(null == transport) {
+            throw new IllegalArgumentException("Remix transport cannot be null");
+        }
+        if(null == limiter) {
+            throw new IllegalArgumentException("Remix rate limiter cannot be null");
+        }
         this.apiKey = apiKey;
+        this.transport = transport;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Returns the transport shared by clients created without one.
+     * 
+     * @return Default transport
+     */
+    public static RemixTransport getDefaultTransport() {
+        return DEFAULT_TRANSPORT;
+    }
+
+    /**
+     * Returns the transport used by this client.
+     * 
+     * @return Transport used to open the connection for each API call
+     */
+    public RemixTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the entry point used by clients unless they set their own: the value of the
+     * {@link #ENTRY_POINT_PROPERTY} system property when set, otherwise {@link #ENTRY_POINT}.
+     * 
+     * @return Default entry point, ending with a slash
+     */
+    public static String getDefaultEntryPoint() {
+        String property = System.getProperty(ENTRY_POINT_PROPERTY);
+        return null == property || property.trim().isEmpty() ? ENTRY_POINT : withTrailingSlash(property.trim());
+    }
+
+    private static String withTrailingSlash(String entryPoint) {
+        return entryPoint.endsWith("/") ? entryPoint : entryPoint + "/";
+    }
+
+    /**
+     * Returns the entry point of the API calls placed by this client.
+     * 
+     * @return Entry point, ending with a slash
+     */
+    public String getEntryPoint() {
+        return entryPoint;
+    }
+
+    /**
+     * Sets the entry point of the API calls placed by this client.
+     * 
+     * @param  entryPoint Base URL of the API, e.g. "http://localhost:8089/v1/"
+     * @return Provides a fluent interface.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix setEntryPoint(String entryPoint) {
+        if(null == entryPoint || entryPoint.trim().isEmpty()) {
+            throw new IllegalArgumentException("Remix entry point cannot be empty");
+        }
+        this.entryPoint = withTrailingSlash(entryPoint.trim());
+        return this;
+    }
+
+    /**
+     * Returns the rate limiter used by this client.
+     * 
+     * @return Limiter every API call must pass
+     */
+    public RemixRateLimiter getRateLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Returns the on-disk response cache used by this client.
+     * 
+     * @return Response cache or null if responses are not cached
+     */
+    public RemixResponseCache getResponseCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the on-disk response cache consulted before each call. Clients use the default
+     * cache, see {@link RemixResponseCache#getDefault()}, unless they set their own.
+     * 
+     * @param  cache Response cache or null to always place the call
+     * @return Provides a fluent interface.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix setResponseCache(RemixResponseCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Returns the longest time a call queues for the rate limiter.
+     * 
+     * @return Queue timeout in milliseconds
+     */
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    /**
+     * Sets the longest time a call queues for the rate limiter before it fails
+     * with a {@link RemixException}.
+     * 
+     * @param  queueTimeoutMillis Queue timeout in milliseconds
+     * @return Provides a fluent interface.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix setQueueTimeoutMillis(long queueTimeoutMillis) {
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Returns the priority of the calls placed by this client.
+     * 
+     * @return Call priority
+     */
+    public RemixRateLimiter.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of the calls placed by this client. Clients used by bulk jobs such
+     * as catalogue crawls should use {@link RemixRateLimiter.Priority#BULK}, so that their
+     * calls wait while calls of live searches are queued for the same key.
+     * 
+     * @param  priority Call priority, {@link RemixRateLimiter.Priority#INTERACTIVE} by default
+     * @return Provides a fluent interface.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix setPriority(RemixRateLimiter.Priority priority) {
+        if(null == priority) {
+            throw new IllegalArgumentException("Remix call priority cannot be null");
+        }
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Indicates whether collection responses are bound with a {@link RemixStreamBinder}.
+     * 
+     * @return Whether collection responses are bound while streaming
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Selects how collection responses are parsed: bound with a {@link RemixStreamBinder}
+     * (the default) or parsed into an element tree.
+     * 
+     * @param  streaming Whether to bind collection responses while streaming
+     * @return Provides a fluent interface.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public Remix setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
     }
 
     /**
@@ -118,7 +378,12 @@ public class Remix {
      */
     public ProductResponse getProduct(String sku, Map<String,String> params) throws RemixException {
         String uri = new Formatter().format(PATH_PRODUCT, sku).toString();
-        return new ProductResponse(query("GET", uri, params));
+        return call(uri, params, new ResponseReader<ProductResponse>() {
+            @Override
+            ProductResponse read(HttpURLConnection connection) throws RemixException {
+                return new ProductResponse(connection);
+            }
+        });
     }
 
     /**
@@ -163,7 +428,32 @@ public class Remix {
      */
     public ProductsResponse getProducts(List<String> filters, Map<String,String> params) throws RemixException {
         String uri = PATH_PRODUCTS + RemixUtil.buildFilterString(filters);
-        return new ProductsResponse(query("GET", uri, params));
+        return call(uri, params, new ResponseReader<ProductsResponse>() {
+            @Override
+            ProductsResponse read(HttpURLConnection connection) throws RemixException {
+                return new ProductsResponse(connection, streaming);
+            }
+        });
+    }
+
+    /**
+     * Makes an API call to the "reviews" collection resource.
+     * 
+     * @param  filters List of filters to be applied to the reviews collection
+     * @param  params  Query string parameters
+     * @return API response
+     * @throws RemixException 
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public ReviewsResponse getReviews(List<String> filters, Map<String,String> params) throws RemixException {
+        String uri = PATH_REVIEWS + RemixUtil.buildFilterString(filters);
+        return call(uri, params, new ResponseReader<ReviewsResponse>() {
+            @Override
+            ReviewsResponse read(HttpURLConnection connection) throws RemixException {
+                return new ReviewsResponse(connection, streaming);
+            }
+        });
     }
 
     /**
@@ -198,7 +488,12 @@ public class Remix {
      */
     public StoreResponse getStore(String storeId, Map<String,String> params) throws RemixException {
         String uri = new Formatter().format(PATH_STORE, storeId).toString();
-        return new StoreResponse(query("GET", uri, params));
+        return call(uri, params, new ResponseReader<StoreResponse>() {
+            @Override
+            StoreResponse read(HttpURLConnection connection) throws RemixException {
+                return new StoreResponse(connection);
+            }
+        });
     }
 
     /**
@@ -243,7 +538,12 @@ public class Remix {
      */
     public StoresResponse getStores(List<String> filters, Map<String,String> params) throws RemixException {
         String uri = PATH_STORES + RemixUtil.buildFilterString(filters);
-        return new StoresResponse(query("GET", uri, params));
+        return call(uri, params, new ResponseReader<StoresResponse>() {
+            @Override
+            StoresResponse read(HttpURLConnection connection) throws RemixException {
+                return new StoresResponse(connection, streaming);
+            }
+        });
     }
 
     /**
@@ -274,7 +574,12 @@ public class Remix {
     ) throws RemixException {
         String uri = PATH_STORES   + RemixUtil.buildFilterString(storeFilters) + "+" +
                      PATH_PRODUCTS + RemixUtil.buildFilterString(productFilters);
-        return new StoresResponse(query("GET", uri, params));
+        return call(uri, params, new ResponseReader<StoresResponse>() {
+            @Override
+            StoresResponse read(HttpURLConnection connection) throws RemixException {
+                return new StoresResponse(connection, streaming);
+            }
+        });
     }
 
     /**
@@ -303,34 +608,209 @@ public class Remix {
     }
 
     /**
-     * Makes an HTTP request and returns the {@link HTTPURLConnection connection}.
+     * Places an API call once the rate limiter admits it and reads its response. The
+     * connection is handed back to the transport and the outcome reported to the limiter
+     * whether or not the call succeeded. The limiter is released once the response headers
+     * have arrived, so the latency it adapts to does not include parsing the body.
+     * 
+     * With a response cache, a fresh entry answers the call without a request, a stale one is
+     * revalidated with a conditional GET, and one within the max-staleness answers the call
+     * when the limiter, the network or the API fails it. A successful body is copied into the
+     * cache as it is parsed, and the entry is kept only once the body has been read to the end.
      * 
-     * @param  method HTTP method for this request
      * @param  uri    Resource URI targeted by this request
-     * @return HTTP Connection
-     * @throws RemixException
+     * @param  params Query string parameters
+     * @param  reader Creates the response from the connection
+     * @return API response
+     * @throws RemixException if the call was rejected by the limiter or failed
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
      */
-    private HttpURLConnection query(String method, String uri, Map<String,String> params) throws RemixException {
-        HttpURLConnection connection;
+    private <R extends Response> R call(String uri, Map<String,String> params, ResponseReader<R> reader)
+            throws RemixException {
+        URL url = buildUrl(uri, params);
+        RemixResponseCache.Entry cached = null;
+        if(null != cache) {
+            cached = cache.lookup(url);
+            if(null != cached && cache.isFresh(cached)) {
+                R response = readCached(url, cached, reader, false);
+                if(null != response) {
+                    return response;
+                }
+                // evicted since the lookup
+                cached = null;
+            }
+        }
+        boolean staleUsable = null != cached && cache.isUsableStale(cached);
+
+        long start;
+        try {
+            start = limiter.acquire(staleUsable ?
+                    Math.min(queueTimeoutMillis, cache.getStaleQueueTimeoutMillis()) : queueTimeoutMillis, priority);
+        } catch(RemixException e) {
+            R stale = staleUsable ? readCached(url, cached, reader, true) : null;
+            if(null != stale) {
+                return stale;
+            }
+            throw e;
+        }
+        int responseCode = -1;
+        boolean released = false;
+        HttpURLConnection connection = null;
         try {
-            if(null == params) {
-                params = new HashMap<String,String>();
+            connection = open(url, cached);
+            responseCode = connection.getResponseCode();
+            limiter.release(start, responseCode);
+            released = true;
+            if(null == cache) {
+                return reader.read(connection);
             }
-            params.put("apiKey", apiKey);
-            URL url = new URL(ENTRY_POINT + uri + RemixUtil.buildQueryString(params));
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod(method);
-            connection.addRequestProperty("User-Agent", USER_AGENT + " v" + VERSION);
-            for(String key : headers.keySet()) {
-                connection.addRequestProperty(key, headers.get(key));
+
+            if(HttpURLConnection.HTTP_NOT_MODIFIED == responseCode && null != cached) {
+                drain(connection.getInputStream());
+                R response = readCached(url, cache.revalidate(cached, connection.getHeaderFields()), reader, false);
+                if(null == response) {
+                    throw new RemixException("Cached response evicted: Please try again");
+                }
+                return response;
+            }
+            if(staleUsable && (HTTP_TOO_MANY_REQUESTS == responseCode
+                    || HttpURLConnection.HTTP_INTERNAL_ERROR <= responseCode)) {
+                R stale = readCached(url, cached, reader, true);
+                if(null != stale) {
+                    drain(connection.getErrorStream());
+                    return stale;
+                }
+            }
+            InputStream stream = HttpURLConnection.HTTP_BAD_REQUEST <= responseCode ?
+                    connection.getErrorStream() : connection.getInputStream();
+            RemixTransferStats.DecodedBody decoded =
+                    RemixTransferStats.decode(stream, connection.getContentEncoding());
+            Map<String,List<String>> responseHeaders = withoutContentEncoding(connection.getHeaderFields());
+            RemixResponseCache.PendingEntry pending = HttpURLConnection.HTTP_OK == responseCode ?
+                    cache.begin(url, responseHeaders) : null;
+            try {
+                R response = reader.read(new RemixCachedConnection(url, responseCode, responseHeaders,
+                        null == pending ? decoded.getStream() : pending.tee(decoded.getStream()), decoded));
+                RemixTransferStats.record(decoded.getWireBytes(), decoded.getDecodedBytes(), decoded.isEncoded());
+                if(null != pending) {
+                    pending.commit();
+                }
+                return response;
+            } finally {
+                if(null != pending) {
+                    pending.abandon();
+                }
+            }
+        } catch(IOException e) {
+            if(null != connection) {
+                // the connection is in an unknown state, do not let it be reused
+                connection.disconnect();
+            }
+            R stale = staleUsable ? readCached(url, cached, reader, true) : null;
+            if(null != stale) {
+                return stale;
+            }
+            throw new RemixException("IO Error: Please try again", e);
+        } finally {
+            transport.release(connection);
+            if(!released) {
+                limiter.release(start, responseCode);
             }
+        }
+    }
+
+    /**
+     * Reads the response of a call from a cache entry.
+     * 
+     * @return API response or null if the entry has been evicted
+     */
+    private <R extends Response> R readCached(URL url, RemixResponseCache.Entry cached, ResponseReader<R> reader,
+            boolean stale) throws RemixException {
+        try {
+            HttpURLConnection connection = stale ? cache.openStale(url, cached) : cache.openFresh(url, cached);
+            return null == connection ? null : reader.read(connection);
+        } catch(IOException e) {
+            throw new RemixException("Failed to read cached response", e);
+        }
+    }
+
+    // The body is replayed decoded, so the headers describing its encoding no longer apply
+    private static Map<String,List<String>> withoutContentEncoding(Map<String,List<String>> headers) {
+        Map<String,List<String>> decoded = new LinkedHashMap<String,List<String>>();
+        for(Map.Entry<String,List<String>> header : headers.entrySet()) {
+            if(null != header.getKey() && (header.getKey().equalsIgnoreCase("Content-Encoding")
+                    || header.getKey().equalsIgnoreCase("Content-Length"))) {
+                continue;
+            }
+            decoded.put(header.getKey(), header.getValue());
+        }
+        return decoded;
+    }
+
+    private static void drain(InputStream stream) {
+        if(null == stream) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            while(stream.read(buffer) != -1) {
+                // discard
+            }
+        } catch(IOException e) {
+            // nothing left to reuse
+        } finally {
+            try {
+                stream.close();
+            } catch(IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Builds the URL of an API call.
+     * 
+     * @param  uri    Resource URI targeted by this request
+     * @param  params Query string parameters
+     * @return Request URL, including the API key
+     * @throws RemixException
+     */
+    private URL buildUrl(String uri, Map<String,String> params) throws RemixException {
+        if(null == params) {
+            params = new HashMap<String,String>();
+        }
+        params.put("apiKey", apiKey);
+        try {
+            return new URL(entryPoint + uri + RemixUtil.buildQueryString(params));
         } catch (MalformedURLException e) {
             throw new RemixException("Invalid URL", e);
+        }
+    }
+
+    /**
+     * Opens the HTTP connection of an API call. The caller must hand the connection back
+     * to the transport once the response has been parsed.
+     * 
+     * @param  url    Request URL
+     * @param  cached Stale cache entry whose validators are sent, or null
+     * @return HTTP Connection
+     * @throws RemixException
+     */
+    private HttpURLConnection open(URL url, RemixResponseCache.Entry cached) throws RemixException {
+        try {
+            Map<String,String> requestHeaders = new LinkedHashMap<String,String>();
+            requestHeaders.put("User-Agent", USER_AGENT + " v" + VERSION);
+            requestHeaders.put("Accept-Encoding", RemixTransferStats.ACCEPT_ENCODING);
+            requestHeaders.putAll(headers);
+            if(null != cached) {
+                cache.addValidators(cached, requestHeaders);
+            }
+            return transport.open("GET", url, requestHeaders);
         } catch (ProtocolException e) {
             throw new RemixException("Invalid request protocol", e);
         } catch (IOException e) {
             throw new RemixException("IO Error: Please try again", e);
         }
-        return connection;
     }
 }
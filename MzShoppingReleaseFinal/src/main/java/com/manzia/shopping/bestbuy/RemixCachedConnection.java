@@ -0,0 +1,111 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection that replays a response already read from the network or from the
+ * {@link RemixResponseCache}, so it can be parsed by the {@link Response} classes exactly
+ * like a live connection. Nothing is sent over the network.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+class RemixCachedConnection extends HttpURLConnection {
+
+    private final int code;
+    private final Map<String,List<String>> headers;
+    private final InputStream body;
+    private final RemixTransferStats.DecodedBody decoded;
+
+    /**
+     * @param url     URL of the replayed request
+     * @param code    HTTP status of the response
+     * @param headers HTTP headers of the response
+     * @param body    Response body, returned as the input stream or, for error codes, the error stream
+     */
+    RemixCachedConnection(URL url, int code, Map<String,List<String>> headers, InputStream body) {
+        this(url, code, headers, body, null);
+    }
+
+    /**
+     * @param url     URL of the replayed request
+     * @param code    HTTP status of the response
+     * @param headers HTTP headers of the response, without any content encoding
+     * @param body    Decoded response body, read from the decoded network body
+     * @param decoded Network body whose wire bytes are counted as the response is read
+     */
+    RemixCachedConnection(URL url, int code, Map<String,List<String>> headers, InputStream body,
+            RemixTransferStats.DecodedBody decoded) {
+        super(url);
+        this.code = code;
+        this.headers = null == headers ? Collections.<String,List<String>>emptyMap() : headers;
+        this.body = body;
+        this.decoded = decoded;
+        this.responseCode = code;
+        this.connected = true;
+    }
+
+    /**
+     * @return Bytes the body took on the wire, 0 when it was not read from the network
+     */
+    long getWireBytes() {
+        return null == decoded ? 0 : decoded.getWireBytes();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return code;
+    }
+
+    @Override
+    public Map<String,List<String>> getHeaderFields() {
+        return headers;
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        for(Map.Entry<String,List<String>> header : headers.entrySet()) {
+            if(null != header.getKey() && header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                return header.getValue().get(header.getValue().size() - 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if(HTTP_BAD_REQUEST <= code) {
+            throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+        }
+        return body;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return HTTP_BAD_REQUEST <= code ? body : null;
+    }
+
+    @Override
+    public void connect() {
+        // already connected
+    }
+
+    @Override
+    public void disconnect() {
+        try {
+            body.close();
+        } catch(IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+}
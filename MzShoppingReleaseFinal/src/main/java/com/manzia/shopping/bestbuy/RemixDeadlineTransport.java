@@ -0,0 +1,62 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RemixTransport} that bounds the connect and read timeouts of the connections opened through
+ * another transport by the time left until a deadline, so that a call abandoned at its deadline ends
+ * soon after it instead of holding its connection for the full read timeout. Cancelling or interrupting
+ * the calling thread does not interrupt the blocking I/O of an HttpURLConnection, the timeouts do.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public class RemixDeadlineTransport implements RemixTransport {
+
+    private final RemixTransport transport;
+    private final long deadlineNanos;
+
+    /**
+     * @param transport     - transport opening the connections
+     * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock
+     */
+    public RemixDeadlineTransport(RemixTransport transport, long deadlineNanos) {
+        if (transport == null) {
+            throw new IllegalArgumentException("RemixDeadlineTransport requires a transport");
+        }
+        this.transport = transport;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public HttpURLConnection open(String method, URL url, Map<String,String> headers) throws IOException {
+        HttpURLConnection connection = transport.open(method, url, headers);
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMillis < 1) {
+            transport.release(connection);
+            throw new SocketTimeoutException("Deadline passed before the Remix call to " + url.getHost());
+        }
+        int timeout = (int) Math.min(remainingMillis, Integer.MAX_VALUE);
+        // a timeout of 0 means none
+        if (connection.getConnectTimeout() == 0 || connection.getConnectTimeout() > timeout) {
+            connection.setConnectTimeout(timeout);
+        }
+        if (connection.getReadTimeout() == 0 || connection.getReadTimeout() > timeout) {
+            connection.setReadTimeout(timeout);
+        }
+        return connection;
+    }
+
+    @Override
+    public void release(HttpURLConnection connection) {
+        transport.release(connection);
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+}
@@ -0,0 +1,269 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link RemixTransport} that bounds the number of connections in use, both in total and per host,
+ * and applies connect and read timeouts to every connection.
+ *
+ * Sockets are pooled by the JDK keep-alive cache: a {@link Response} drains and closes the response
+ * stream instead of disconnecting, so the socket is returned to the cache and reused by the next call
+ * to the same host. The cache keeps at most "http.maxConnections" idle sockets per host (5 by default).
+ * That system property is read once by the JDK and applies to the whole JVM, so it is a deployment-time
+ * option, e.g -Dhttp.maxConnections=8, and is never set here. A transport whose per-host limit exceeds
+ * it logs a warning, since the surplus connections are closed instead of being reused.
+ *
+ * When no connection is free a caller waits up to the acquire timeout; each such wait is counted as
+ * a saturation and each wait that times out as a rejection.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public class RemixPooledTransport implements RemixTransport {
+
+    //Logger
+    public static final Logger logger =
+            Logger.getLogger(RemixPooledTransport.class.getCanonicalName());
+
+    public static final int kDefaultMaxConnections = 32;
+    public static final int kDefaultMaxConnectionsPerHost = 8;
+    public static final int kDefaultConnectTimeoutMillis = 5000;
+    public static final int kDefaultReadTimeoutMillis = 15000;
+    public static final long kDefaultAcquireTimeoutMillis = 10000L;
+
+    /**
+     * JVM-wide system property bounding the idle sockets the JDK keeps alive per host
+     */
+    public static final String kKeepAliveProperty = "http.maxConnections";
+    public static final int kDefaultKeepAliveConnections = 5;
+
+    private final int maxConnections;
+    private final int maxConnectionsPerHost;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long acquireTimeoutMillis;
+
+    private final Semaphore connections;
+    private final ConcurrentMap<String, Semaphore> hostConnections = new ConcurrentHashMap<String, Semaphore>();
+
+    // Connections in use and the host they count against
+    private final ConcurrentMap<HttpURLConnection, String> inUse = new ConcurrentHashMap<HttpURLConnection, String>();
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong saturated = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    public RemixPooledTransport() {
+        this(kDefaultMaxConnections, kDefaultMaxConnectionsPerHost, kDefaultConnectTimeoutMillis,
+                kDefaultReadTimeoutMillis, kDefaultAcquireTimeoutMillis);
+    }
+
+    /**
+     * @param maxConnections        - maximum number of connections in use across all hosts
+     * @param maxConnectionsPerHost - maximum number of connections in use to a single host
+     * @param connectTimeoutMillis  - connect timeout of each connection
+     * @param readTimeoutMillis     - read timeout of each connection
+     * @param acquireTimeoutMillis  - maximum time a caller waits for a free connection
+     */
+    public RemixPooledTransport(int maxConnections, int maxConnectionsPerHost, int connectTimeoutMillis,
+            int readTimeoutMillis, long acquireTimeoutMillis) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1 || maxConnectionsPerHost > maxConnections) {
+            throw new IllegalArgumentException("Invalid connection limits: " + maxConnections + " total, "
+                    + maxConnectionsPerHost + " per host");
+        }
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeouts cannot be negative");
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.connections = new Semaphore(maxConnections, true);
+
+        int keepAliveConnections = getKeepAliveConnections();
+        if (keepAliveConnections < maxConnectionsPerHost) {
+            logger.log(Level.WARNING, "JVM keeps at most {0} idle connections per host but the Remix transport allows {1}.."
+                    + "start the JVM with -D{2}={1} to reuse them all",
+                    new Object[]{Integer.toString(keepAliveConnections), Integer.toString(maxConnectionsPerHost), kKeepAliveProperty});
+        }
+    }
+
+    /**
+     * @return - number of idle sockets the JDK keeps alive per host, see {@link #kKeepAliveProperty}
+     */
+    public static int getKeepAliveConnections() {
+        String value = System.getProperty(kKeepAliveProperty);
+        if (value == null) {
+            return kDefaultKeepAliveConnections;
+        }
+        try {
+            int keepAliveConnections = Integer.parseInt(value.trim());
+            return keepAliveConnections > 0 ? keepAliveConnections : kDefaultKeepAliveConnections;
+        } catch (NumberFormatException e) {
+            return kDefaultKeepAliveConnections;
+        }
+    }
+
+    @Override
+    public HttpURLConnection open(String method, URL url, Map<String,String> headers) throws IOException {
+        String host = getHostKey(url);
+        Semaphore hostPermits = getHostPermits(host);
+        long deadline = System.currentTimeMillis() + acquireTimeoutMillis;
+        acquire(connections, deadline, url);
+        try {
+            acquire(hostPermits, deadline, url);
+        } catch (IOException e) {
+            connections.release();
+            throw e;
+        }
+
+        HttpURLConnection connection;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setRequestMethod(method);
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.addRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+        } catch (IOException e) {
+            hostPermits.release();
+            connections.release();
+            throw e;
+        } catch (RuntimeException e) {
+            hostPermits.release();
+            connections.release();
+            throw e;
+        }
+
+        inUse.put(connection, host);
+        acquired.incrementAndGet();
+        int current = inUse.size();
+        int peak = peakInUse.get();
+        while (current > peak && !peakInUse.compareAndSet(peak, current)) {
+            peak = peakInUse.get();
+        }
+        return connection;
+    }
+
+    @Override
+    public void release(HttpURLConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        String host = inUse.remove(connection);
+        if (host == null) {
+            return;
+        }
+        getHostPermits(host).release();
+        connections.release();
+    }
+
+    // Waits for a permit until the deadline, counting the wait
+    private void acquire(Semaphore permits, long deadline, URL url) throws IOException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        saturated.incrementAndGet();
+        try {
+            long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+            if (permits.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a Remix connection to " + url.getHost());
+        }
+        rejected.incrementAndGet();
+        logger.log(Level.WARNING, "No Remix connection to {0} became free within {1} ms, {2} connections in use",
+                new Object[]{url.getHost(), Long.toString(acquireTimeoutMillis), Integer.toString(inUse.size())});
+        throw new IOException("Remix connection pool saturated for host: " + url.getHost());
+    }
+
+    private Semaphore getHostPermits(String host) {
+        Semaphore permits = hostConnections.get(host);
+        if (permits == null) {
+            Semaphore created = new Semaphore(maxConnectionsPerHost, true);
+            permits = hostConnections.putIfAbsent(host, created);
+            if (permits == null) {
+                permits = created;
+            }
+        }
+        return permits;
+    }
+
+    private static String getHostKey(URL url) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    /**
+     * @return - number of connections currently in use
+     */
+    public int getInUse() {
+        return inUse.size();
+    }
+
+    /**
+     * @return - highest number of connections in use at the same time
+     */
+    public int getPeakInUse() {
+        return peakInUse.get();
+    }
+
+    /**
+     * @return - number of connections handed out
+     */
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * @return - number of times a caller had to wait for a free connection
+     */
+    public long getSaturated() {
+        return saturated.get();
+    }
+
+    /**
+     * @return - number of times a caller gave up waiting for a free connection
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+}
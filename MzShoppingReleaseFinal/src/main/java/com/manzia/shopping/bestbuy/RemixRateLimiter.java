@@ -0,0 +1,408 @@
+package com.manzia.shopping.bestbuy;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client-side limiter for the calls placed with one Remix API key.
+ *
+ * A call must hold a token from a token bucket, refilled at the per-key call rate, and a
+ * slot under an adaptive concurrency limit. The concurrency limit follows AIMD: each call
+ * that completes within the latency target raises it by 1/limit, and a throttling response
+ * (403, 429 or 503) or a call slower than the target halves it, at most once per target
+ * interval. A throttling response also empties the bucket so callers back off for one refill.
+ *
+ * Callers that cannot proceed queue until their deadline and are rejected with a
+ * {@link RemixException} when it passes. All {@link Remix} clients created for the same key
+ * share the limiter returned by {@link #forKey(String)}, so bulk refreshes and live searches
+ * draw on the same quota. So that a bulk crawl cannot starve live searches, a
+ * {@link Priority#BULK} call does not start while an {@link Priority#INTERACTIVE} call is queued.
+ *
+ * The limits of the shared limiters are read from the "manzia.remix.*" system properties, e.g.
+ * -Dmanzia.remix.callsPerSecond=10, and fall back to the defaults below when a property is
+ * missing or invalid.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public class RemixRateLimiter {
+
+    //Logger
+    public static final Logger logger =
+            Logger.getLogger(RemixRateLimiter.class.getCanonicalName());
+
+    public static final double kDefaultCallsPerSecond = 5.0;
+    public static final int kDefaultBurst = 5;
+    public static final int kDefaultInitialConcurrency = 4;
+    public static final int kDefaultMaxConcurrency = 32;
+    public static final long kDefaultLatencyTargetMillis = 2000L;
+    public static final long kDefaultQueueTimeoutMillis = 30000L;
+
+    /**
+     * System properties setting the limits of the shared limiters, see {@link #forKey(String)}
+     */
+    public static final String kCallsPerSecondProperty = "manzia.remix.callsPerSecond";
+    public static final String kBurstProperty = "manzia.remix.burst";
+    public static final String kInitialConcurrencyProperty = "manzia.remix.initialConcurrency";
+    public static final String kMaxConcurrencyProperty = "manzia.remix.maxConcurrency";
+    public static final String kLatencyTargetProperty = "manzia.remix.latencyTargetMillis";
+    public static final String kQueueTimeoutProperty = "manzia.remix.queueTimeoutMillis";
+
+    /**
+     * Priority of a call. Bulk calls yield to queued interactive calls.
+     */
+    public static enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final double kDecreaseFactor = 0.5;
+    private static final long kNanosPerSecond = TimeUnit.SECONDS.toNanos(1);
+
+    // Limiter shared by all clients of an API key
+    private static final ConcurrentMap<String, RemixRateLimiter> keyLimiters =
+            new ConcurrentHashMap<String, RemixRateLimiter>();
+
+    private final double callsPerSecond;
+    private final int burst;
+    private final int maxConcurrency;
+    private final long latencyTargetNanos;
+
+    // guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+    private double concurrencyLimit;
+    private int inFlight = 0;
+    private int interactiveQueued = 0;
+    private long lastDecreaseNanos;
+    private long windowStartNanos;
+    private long windowGranted = 0;
+    private long lastWindowGranted = 0;
+
+    private long granted = 0;
+    private long queued = 0;
+    private long rejected = 0;
+    private long throttled = 0;
+    private long slow = 0;
+    private long yielded = 0;
+
+    /**
+     * Creates a limiter with the limits set by the "manzia.remix.*" system properties
+     */
+    public RemixRateLimiter() {
+        this(getDoubleProperty(kCallsPerSecondProperty, kDefaultCallsPerSecond),
+                (int) getLongProperty(kBurstProperty, kDefaultBurst),
+                (int) getLongProperty(kInitialConcurrencyProperty, kDefaultInitialConcurrency),
+                Math.max((int) getLongProperty(kInitialConcurrencyProperty, kDefaultInitialConcurrency),
+                        (int) getLongProperty(kMaxConcurrencyProperty, kDefaultMaxConcurrency)),
+                getLongProperty(kLatencyTargetProperty, kDefaultLatencyTargetMillis));
+    }
+
+    /**
+     * @param callsPerSecond      - rate at which the token bucket is refilled
+     * @param burst               - capacity of the token bucket
+     * @param initialConcurrency  - starting concurrency limit
+     * @param maxConcurrency      - highest concurrency limit
+     * @param latencyTargetMillis - calls slower than this lower the concurrency limit
+     */
+    public RemixRateLimiter(double callsPerSecond, int burst, int initialConcurrency, int maxConcurrency,
+            long latencyTargetMillis) {
+        if (callsPerSecond <= 0 || burst < 1 || initialConcurrency < 1 || maxConcurrency < initialConcurrency
+                || latencyTargetMillis < 1) {
+            throw new IllegalArgumentException("Invalid Remix rate limiter configuration");
+        }
+        this.callsPerSecond = callsPerSecond;
+        this.burst = burst;
+        this.maxConcurrency = maxConcurrency;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.tokens = burst;
+        this.concurrencyLimit = initialConcurrency;
+        long now = System.nanoTime();
+        this.lastRefillNanos = now;
+        this.windowStartNanos = now;
+        this.lastDecreaseNanos = now - latencyTargetNanos;
+    }
+
+    /**
+     * @param apiKey - Remix API key
+     * @return - limiter shared by all clients of the API key, created with the limits set by the
+     * "manzia.remix.*" system properties
+     */
+    public static RemixRateLimiter forKey(String apiKey) {
+        return forKey(apiKey, null);
+    }
+
+    /**
+     * @param apiKey  - Remix API key
+     * @param limiter - limiter to share for the API key if it has none yet, or null to create one
+     * with the limits set by the "manzia.remix.*" system properties
+     * @return - limiter shared by all clients of the API key
+     */
+    public static RemixRateLimiter forKey(String apiKey, RemixRateLimiter limiter) {
+        String key = apiKey == null ? "" : apiKey;
+        RemixRateLimiter shared = keyLimiters.get(key);
+        if (shared == null) {
+            RemixRateLimiter created = limiter != null ? limiter : new RemixRateLimiter();
+            shared = keyLimiters.putIfAbsent(key, created);
+            if (shared == null) {
+                shared = created;
+            } else if (limiter != null) {
+                logger.log(Level.WARNING, "Remix API key already has a rate limiter..ignoring the one supplied");
+            }
+        } else if (limiter != null && limiter != shared) {
+            logger.log(Level.WARNING, "Remix API key already has a rate limiter..ignoring the one supplied");
+        }
+        return shared;
+    }
+
+    /**
+     * @return - longest time a call queues for the limiter, set by the {@link #kQueueTimeoutProperty}
+     * system property
+     */
+    public static long getDefaultQueueTimeoutMillis() {
+        return getLongProperty(kQueueTimeoutProperty, kDefaultQueueTimeoutMillis);
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // logged below
+        }
+        logger.log(Level.WARNING, "Invalid value [{0}] of system property {1}..using {2}",
+                new Object[]{ value, name, Long.toString(defaultValue) });
+        return defaultValue;
+    }
+
+    private static double getDoubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (parsed > 0 && !Double.isInfinite(parsed)) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // logged below
+        }
+        logger.log(Level.WARNING, "Invalid value [{0}] of system property {1}..using {2}",
+                new Object[]{ value, name, Double.toString(defaultValue) });
+        return defaultValue;
+    }
+
+    /**
+     * Waits for a token and a concurrency slot, as an {@link Priority#INTERACTIVE} call.
+     *
+     * @see #acquire(long, Priority)
+     */
+    public long acquire(long timeoutMillis) throws RemixException {
+        return acquire(timeoutMillis, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Waits for a token and a concurrency slot. A bulk call also waits while an interactive
+     * call is queued. Every successful acquire must be followed by {@link #release(long, int)}.
+     *
+     * @param  timeoutMillis - longest time the call may queue
+     * @param  priority      - priority of the call
+     * @return - start time of the call, to be passed to {@link #release(long, int)}
+     * @throws RemixException - if the call could not start before its deadline
+     */
+    public synchronized long acquire(long timeoutMillis, Priority priority) throws RemixException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMillis));
+        boolean interactive = priority != Priority.BULK;
+        boolean waiting = false;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                boolean slotFree = inFlight < (int) concurrencyLimit;
+                boolean yielding = !interactive && interactiveQueued > 0;
+                if (slotFree && tokens >= 1.0 && !yielding) {
+                    tokens -= 1.0;
+                    ++inFlight;
+                    ++granted;
+                    ++windowGranted;
+                    return now;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    ++rejected;
+                    logger.log(Level.WARNING, "Remix {0} call rejected after queueing {1} ms, {2} calls in flight",
+                            new Object[]{ priority, Long.toString(timeoutMillis), Integer.toString(inFlight) });
+                    throw new RemixException("Remix call quota exhausted, no call slot within " + timeoutMillis + " ms");
+                }
+                if (!waiting) {
+                    ++queued;
+                    waiting = true;
+                    if (interactive) {
+                        ++interactiveQueued;
+                    }
+                }
+                if (yielding) {
+                    ++yielded;
+                }
+                long waitNanos = remaining;
+                if (slotFree && !yielding) {
+                    // only short of a token: sleep until the next one is due
+                    long refillNanos = (long) Math.ceil((1.0 - tokens) * kNanosPerSecond / callsPerSecond);
+                    waitNanos = Math.min(remaining, refillNanos);
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(1L, waitNanos));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RemixException("Interrupted waiting for a Remix call slot", e);
+                }
+            }
+        } finally {
+            if (waiting && interactive && --interactiveQueued == 0) {
+                // queued bulk calls may go again
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Ends a call started by {@link #acquire(long)} and adapts the limits to its outcome.
+     *
+     * @param startNanos   - value returned by {@link #acquire(long)}
+     * @param responseCode - HTTP status of the call, or -1 if no response was received
+     */
+    public synchronized void release(long startNanos, int responseCode) {
+        long now = System.nanoTime();
+        --inFlight;
+        if (isThrottling(responseCode)) {
+            ++throttled;
+            tokens = 0.0;
+            lastRefillNanos = now;
+            decrease(now, "throttled with HTTP " + responseCode);
+        } else if (now - startNanos > latencyTargetNanos) {
+            ++slow;
+            decrease(now, "slow call of " + TimeUnit.NANOSECONDS.toMillis(now - startNanos) + " ms");
+        } else if (responseCode >= 0) {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+        }
+        notifyAll();
+    }
+
+    private static boolean isThrottling(int responseCode) {
+        return responseCode == HTTP_TOO_MANY_REQUESTS || responseCode == HttpURLConnection.HTTP_FORBIDDEN
+                || responseCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    // Multiplicative decrease, at most once per latency target so one burst of failures counts once
+    private void decrease(long now, String reason) {
+        if (now - lastDecreaseNanos < latencyTargetNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        concurrencyLimit = Math.max(1.0, concurrencyLimit * kDecreaseFactor);
+        logger.log(Level.INFO, "Remix concurrency limit lowered to {0} after {1}",
+                new Object[]{ Integer.toString((int) concurrencyLimit), reason });
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * callsPerSecond / kNanosPerSecond);
+        lastRefillNanos = now;
+        rollWindow(now);
+    }
+
+    private void rollWindow(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= kNanosPerSecond) {
+            lastWindowGranted = elapsed < 2 * kNanosPerSecond ? windowGranted : 0;
+            windowGranted = 0;
+            windowStartNanos = now - elapsed % kNanosPerSecond;
+        }
+    }
+
+    /**
+     * @return - share of the per-key call rate used during the last full second
+     */
+    public synchronized double getQuotaUtilization() {
+        rollWindow(System.nanoTime());
+        return lastWindowGranted / callsPerSecond;
+    }
+
+    /**
+     * @return - current concurrency limit
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    /**
+     * @return - number of calls in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return - number of calls allowed to start
+     */
+    public synchronized long getGranted() {
+        return granted;
+    }
+
+    /**
+     * @return - number of calls that had to queue
+     */
+    public synchronized long getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return - number of calls rejected at their deadline
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return - number of times a bulk call waited for a queued interactive call
+     */
+    public synchronized long getYielded() {
+        return yielded;
+    }
+
+    /**
+     * @return - number of throttling responses received
+     */
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+
+    /**
+     * @return - number of calls slower than the latency target
+     */
+    public synchronized long getSlow() {
+        return slow;
+    }
+
+    public double getCallsPerSecond() {
+        return callsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -0,0 +1,875 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of successful Remix API responses, used by {@link Remix} before it places a call.
+ *
+ * Entries are keyed by the request URL with the "apiKey" parameter removed and the remaining
+ * parameters sorted, so clients with different keys and parameter orders share entries. Each
+ * entry is one file holding its metadata followed by the gzip-compressed body. The file is
+ * written under a temporary name while the response is parsed, see {@link #begin(URL, Map)},
+ * and renamed into place atomically once the body has been read to the end.
+ *
+ * Freshness follows the "Cache-Control" max-age (or "Expires") of the response, and "no-store"
+ * responses are not cached. A stale entry is revalidated with a conditional GET carrying its
+ * "ETag" and "Last-Modified" validators; a 304 response refreshes the entry without a body.
+ *
+ * An entry up to the max-staleness past its expiry may be served instead of the network when the
+ * call cannot get a slot from the {@link RemixRateLimiter} within the stale queue timeout, fails,
+ * or is answered with 429 or a 5xx status, so searches keep being served while the API is slow.
+ *
+ * The cache is bounded: entry files older than the max-age are deleted by the first lookup or store
+ * after they age out, and once the files exceed the max-bytes the oldest are deleted first. Only the
+ * most recently used entries are kept in memory.
+ *
+ * The default cache is enabled by the {@link #CACHE_DIR_PROPERTY} system property.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public class RemixResponseCache {
+
+    //Logger
+    public static final Logger logger =
+            Logger.getLogger(RemixResponseCache.class.getCanonicalName());
+
+    /**
+     * System property naming the directory of the default cache
+     */
+    public static final String CACHE_DIR_PROPERTY = "remix.cacheDir";
+
+    /**
+     * System property overriding the max-staleness of the default cache, in milliseconds
+     */
+    public static final String MAX_STALE_PROPERTY = "remix.cacheMaxStaleMillis";
+
+    /**
+     * System property overriding the disk space of the default cache, in bytes
+     */
+    public static final String MAX_BYTES_PROPERTY = "remix.cacheMaxBytes";
+
+    /**
+     * System property overriding how long the default cache keeps an entry file, in milliseconds
+     */
+    public static final String MAX_AGE_PROPERTY = "remix.cacheMaxAgeMillis";
+
+    /**
+     * System property overriding the number of entries the default cache keeps in memory
+     */
+    public static final String MAX_ENTRIES_PROPERTY = "remix.cacheMaxEntries";
+
+    public static final long kDefaultMaxStaleMillis = 3600000L;
+    public static final long kDefaultStaleQueueTimeoutMillis = 500L;
+    public static final long kDefaultMaxBytes = 256L * 1024L * 1024L;
+    public static final long kDefaultMaxAgeMillis = 24L * 3600000L;
+    public static final int kDefaultMaxEntries = 10000;
+
+    private static final String kEntrySuffix = ".remix";
+    private static final String kTempSuffix = ".tmp";
+    private static final int kMaxHeaderBytes = 64 * 1024;
+    private static final String kNoCacheHeader = "X-Remix-Cache";
+
+    // Default cache, created on first use
+    private static volatile RemixResponseCache defaultCache;
+    private static final Object defaultCacheLock = new Object();
+
+    /**
+     * Cached response
+     */
+    static final class Entry {
+        final String key;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        final long storedAt;
+        final long expiresAt;
+
+        Entry(String key, String etag, String lastModified, String contentType, long storedAt, long expiresAt) {
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Response being stored while it is read. The body read through {@link #tee(InputStream)} is
+     * written to a temporary file, which {@link #commit()} renames into place when the body was read
+     * to the end; otherwise, or on {@link #abandon()}, the temporary file is deleted. Used by one thread.
+     */
+    final class PendingEntry {
+        private final Entry entry;
+        private final File temp;
+        private OutputStream out;
+        private long written = 0;
+        private boolean complete = false;
+        private boolean done = false;
+
+        private PendingEntry(Entry entry) throws IOException {
+            this.entry = entry;
+            this.temp = File.createTempFile("entry", kTempSuffix, directory);
+            OutputStream file = null;
+            try {
+                file = new BufferedOutputStream(new FileOutputStream(temp), 8192);
+                writeHeader(file, entry);
+                this.out = new GZIPOutputStream(file, 8192);
+            } catch(IOException e) {
+                if (null != file) {
+                    file.close();
+                }
+                temp.delete();
+                throw e;
+            }
+        }
+
+        /**
+         * @return - stream returning the body while copying it into the entry
+         */
+        InputStream tee(InputStream body) {
+            return new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b == -1) {
+                        complete = true;
+                    } else {
+                        copy(new byte[]{ (byte) b }, 0, 1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read == -1) {
+                        complete = true;
+                    } else {
+                        copy(buffer, offset, read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    // skipped bytes are part of the body too
+                    byte[] buffer = new byte[(int) Math.min(n, 4096L)];
+                    int read = n > 0 ? read(buffer, 0, buffer.length) : 0;
+                    return Math.max(read, 0);
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+            };
+        }
+
+        private void copy(byte[] buffer, int offset, int length) {
+            if (null == out) {
+                return;
+            }
+            written += length;
+            if (written > maxBytes) {
+                logger.log(Level.INFO, "Remix response for {0} is too large to cache", new Object[]{ entry.key });
+                discard();
+                return;
+            }
+            try {
+                out.write(buffer, offset, length);
+            } catch(IOException e) {
+                logger.log(Level.WARNING, "Failed to cache Remix response for {0}: {1}",
+                        new Object[]{ entry.key, e.getLocalizedMessage() });
+                discard();
+            }
+        }
+
+        /**
+         * Puts the entry in place if its body was read to the end, otherwise drops it
+         */
+        void commit() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (!complete || null == out) {
+                discard();
+                return;
+            }
+            File file = entryFile(entry.key);
+            try {
+                out.close();
+                out = null;
+                long previous = file.length();
+                replace(temp, file);
+                diskBytes.addAndGet(file.length() - previous);
+                agesOutAt(file.lastModified());
+                index(entry);
+                stored.incrementAndGet();
+            } catch(IOException e) {
+                logger.log(Level.WARNING, "Failed to cache Remix response for {0}: {1}",
+                        new Object[]{ entry.key, e.getLocalizedMessage() });
+                temp.delete();
+                return;
+            }
+            if (diskBytes.get() > maxBytes) {
+                trim();
+            } else {
+                trimIfAged();
+            }
+        }
+
+        /**
+         * Drops the entry unless it was committed
+         */
+        void abandon() {
+            if (!done) {
+                done = true;
+                discard();
+            }
+        }
+
+        private void discard() {
+            if (null != out) {
+                try {
+                    out.close();
+                } catch(IOException e) {
+                    // deleted below
+                }
+                out = null;
+            }
+            temp.delete();
+        }
+    }
+
+    private final File directory;
+    private final long maxStaleMillis;
+    private final long staleQueueTimeoutMillis;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Map<String, Entry> entries;	// guarded by this
+    private final Object trimLock = new Object();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private volatile long nextTrimMillis = Long.MAX_VALUE;	// when the oldest file passes the max-age
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public RemixResponseCache(File directory) {
+        this(directory, kDefaultMaxStaleMillis, kDefaultStaleQueueTimeoutMillis);
+    }
+
+    /**
+     * @param directory               - directory of the cache entries, created if missing
+     * @param maxStaleMillis          - how long past its expiry an entry may still be served when the API is slow
+     * @param staleQueueTimeoutMillis - longest a call waits for the rate limiter when a stale entry can be served
+     */
+    public RemixResponseCache(File directory, long maxStaleMillis, long staleQueueTimeoutMillis) {
+        this(directory, maxStaleMillis, staleQueueTimeoutMillis, kDefaultMaxBytes, kDefaultMaxAgeMillis, kDefaultMaxEntries);
+    }
+
+    /**
+     * @param directory               - directory of the cache entries, created if missing
+     * @param maxStaleMillis          - how long past its expiry an entry may still be served when the API is slow
+     * @param staleQueueTimeoutMillis - longest a call waits for the rate limiter when a stale entry can be served
+     * @param maxBytes                - disk space of the entry files, the oldest are deleted first
+     * @param maxAgeMillis            - how long an entry file is kept after it was stored
+     * @param maxEntries              - number of entries kept in memory, the least recently used is dropped first
+     */
+    public RemixResponseCache(File directory, long maxStaleMillis, long staleQueueTimeoutMillis,
+            long maxBytes, long maxAgeMillis, final int maxEntries) {
+        if (null == directory || maxStaleMillis < 0 || staleQueueTimeoutMillis < 0
+                || maxBytes < 1 || maxAgeMillis < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid Remix response cache configuration");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create Remix response cache directory: " + directory);
+        }
+        this.directory = directory;
+        this.maxStaleMillis = maxStaleMillis;
+        this.staleQueueTimeoutMillis = staleQueueTimeoutMillis;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        trim();
+    }
+
+    /**
+     * @return - cache in the directory named by the {@link #CACHE_DIR_PROPERTY} system property, or
+     * null when the property is not set
+     */
+    public static RemixResponseCache getDefault() {
+        String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (null == cacheDir || cacheDir.trim().isEmpty()) {
+            return null;
+        }
+        RemixResponseCache cache = defaultCache;
+        if (null == cache) {
+            synchronized (defaultCacheLock) {
+                cache = defaultCache;
+                if (null == cache) {
+                    cache = new RemixResponseCache(new File(cacheDir.trim()),
+                            Long.getLong(MAX_STALE_PROPERTY, kDefaultMaxStaleMillis), kDefaultStaleQueueTimeoutMillis,
+                            Long.getLong(MAX_BYTES_PROPERTY, kDefaultMaxBytes),
+                            Long.getLong(MAX_AGE_PROPERTY, kDefaultMaxAgeMillis),
+                            Integer.getInteger(MAX_ENTRIES_PROPERTY, kDefaultMaxEntries));
+                    defaultCache = cache;
+                    logger.log(Level.INFO, "Caching Remix responses in {0}", new Object[]{ cache.directory });
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Normalizes a request URL into a cache key: host in lower case, "apiKey" removed
+     * and the remaining query parameters sorted
+     */
+    static String keyFor(URL url) {
+        StringBuilder key = new StringBuilder();
+        int port = -1 == url.getPort() ? url.getDefaultPort() : url.getPort();
+        key.append(url.getProtocol()).append("://").append(url.getHost().toLowerCase(Locale.ENGLISH))
+                .append(':').append(port).append(url.getPath());
+        if (null != url.getQuery()) {
+            List<String> params = new ArrayList<String>();
+            for (String param : url.getQuery().split("&")) {
+                if (!param.isEmpty() && !param.startsWith("apiKey=")) {
+                    params.add(param);
+                }
+            }
+            Collections.sort(params);
+            char separator = '?';
+            for (String param : params) {
+                key.append(separator).append(param);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return - cached entry for the request URL or null
+     */
+    Entry lookup(URL url) {
+        trimIfAged();
+        String key = keyFor(url);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (null == entry) {
+            entry = readEntry(key);
+            if (null != entry) {
+                synchronized (this) {
+                    Entry existing = entries.get(key);
+                    if (null == existing) {
+                        entries.put(key, entry);
+                    } else {
+                        entry = existing;
+                    }
+                }
+            }
+        }
+        if (null == entry) {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() < entry.expiresAt;
+    }
+
+    boolean isUsableStale(Entry entry) {
+        return System.currentTimeMillis() < entry.expiresAt + maxStaleMillis;
+    }
+
+    /**
+     * Adds the conditional request headers of a stale entry
+     */
+    void addValidators(Entry entry, Map<String,String> requestHeaders) {
+        if (null != entry.etag) {
+            requestHeaders.put("If-None-Match", entry.etag);
+        }
+        if (null != entry.lastModified) {
+            requestHeaders.put("If-Modified-Since", entry.lastModified);
+        }
+    }
+
+    /**
+     * @return - connection replaying a fresh entry, or null if its file was evicted
+     */
+    HttpURLConnection openFresh(URL url, Entry entry) throws IOException {
+        HttpURLConnection connection = open(url, entry, "hit");
+        if (null != connection) {
+            hits.incrementAndGet();
+        }
+        return connection;
+    }
+
+    /**
+     * @return - connection replaying an entry past its expiry, served because the API is slow,
+     * or null if its file was evicted
+     */
+    HttpURLConnection openStale(URL url, Entry entry) throws IOException {
+        HttpURLConnection connection = open(url, entry, "stale");
+        if (null != connection) {
+            staleServed.incrementAndGet();
+            logger.log(Level.INFO, "Serving stale Remix response for {0}", new Object[]{ entry.key });
+        }
+        return connection;
+    }
+
+    private HttpURLConnection open(URL url, Entry entry, String status) throws IOException {
+        Map<String,List<String>> headers = new HashMap<String,List<String>>();
+        if (null != entry.contentType) {
+            headers.put("Content-Type", Collections.singletonList(entry.contentType));
+        }
+        headers.put(kNoCacheHeader, Collections.singletonList(status));
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile(entry.key)), 8192));
+        } catch(FileNotFoundException e) {
+            forget(entry.key);
+            return null;
+        }
+        try {
+            readHeader(in);
+            return new RemixCachedConnection(url, HttpURLConnection.HTTP_OK, headers, new GZIPInputStream(in, 8192));
+        } catch(IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Refreshes the expiry of an entry confirmed by a 304 response
+     *
+     * @return - the refreshed entry
+     */
+    Entry revalidate(Entry entry, Map<String,List<String>> headers) {
+        revalidated.incrementAndGet();
+        long now = System.currentTimeMillis();
+        String etag = header(headers, "ETag");
+        String lastModified = header(headers, "Last-Modified");
+        Entry refreshed = new Entry(entry.key, null == etag ? entry.etag : etag,
+                null == lastModified ? entry.lastModified : lastModified, entry.contentType, now, expiresAt(headers, now));
+        try {
+            rewriteHeader(refreshed);
+        } catch(IOException e) {
+            logger.log(Level.WARNING, "Failed to refresh Remix cache entry {0}: {1}",
+                    new Object[]{ entry.key, e.getLocalizedMessage() });
+        }
+        index(refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Starts storing a successful response, unless it is marked "no-store". The caller reads the
+     * body through {@link PendingEntry#tee(InputStream)}, then commits or abandons the entry.
+     *
+     * @param url     - request URL
+     * @param headers - response headers
+     * @return - the entry being stored, or null if the response is not cached
+     */
+    PendingEntry begin(URL url, Map<String,List<String>> headers) {
+        String cacheControl = header(headers, "Cache-Control");
+        if (null != cacheControl && cacheControl.toLowerCase(Locale.ENGLISH).contains("no-store")) {
+            return null;
+        }
+        String key = keyFor(url);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, header(headers, "ETag"), header(headers, "Last-Modified"),
+                header(headers, "Content-Type"), now, expiresAt(headers, now));
+        try {
+            return new PendingEntry(entry);
+        } catch(IOException e) {
+            logger.log(Level.WARNING, "Failed to cache Remix response for {0}: {1}",
+                    new Object[]{ key, e.getLocalizedMessage() });
+            return null;
+        }
+    }
+
+    private synchronized void index(Entry entry) {
+        entries.put(entry.key, entry);
+    }
+
+    private synchronized void forget(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Trims once the oldest file has passed the max-age, even while the files fit in the max-bytes
+     */
+    private void trimIfAged() {
+        if (System.currentTimeMillis() >= nextTrimMillis) {
+            trim();
+        }
+    }
+
+    // A file last modified at the time passes the max-age at the time + max-age
+    private void agesOutAt(long modified) {
+        synchronized (trimLock) {
+            nextTrimMillis = Math.min(nextTrimMillis, modified + maxAgeMillis);
+        }
+    }
+
+    /**
+     * Deletes the entry files older than the max-age, then the oldest files until the rest
+     * fit in the max-bytes. Also deletes temporary files left behind for longer than the max-age.
+     */
+    private void trim() {
+        synchronized (trimLock) {
+            File[] files = directory.listFiles();
+            if (null == files) {
+                return;
+            }
+            long oldest = System.currentTimeMillis() - maxAgeMillis;
+            long oldestKept = Long.MAX_VALUE;
+            List<File> entryFiles = new ArrayList<File>();
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                if (file.getName().endsWith(kEntrySuffix)) {
+                    entryFiles.add(file);
+                } else if (file.lastModified() < oldest) {
+                    file.delete();
+                } else {
+                    oldestKept = Math.min(oldestKept, file.lastModified());
+                }
+            }
+            // oldest first
+            final Map<File, Long> modified = new HashMap<File, Long>();
+            for (File file : entryFiles) {
+                modified.put(file, file.lastModified());
+            }
+            Collections.sort(entryFiles, new Comparator<File>() {
+                @Override
+                public int compare(File first, File second) {
+                    return modified.get(first).compareTo(modified.get(second));
+                }
+            });
+            long total = 0;
+            for (File file : entryFiles) {
+                total += file.length();
+            }
+            Set<String> deleted = new HashSet<String>();
+            for (File file : entryFiles) {
+                if (modified.get(file) >= oldest && total <= maxBytes) {
+                    oldestKept = Math.min(oldestKept, modified.get(file));
+                    break;
+                }
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                    deleted.add(file.getName());
+                    evicted.incrementAndGet();
+                }
+            }
+            diskBytes.set(total);
+            nextTrimMillis = Long.MAX_VALUE == oldestKept ? Long.MAX_VALUE : oldestKept + maxAgeMillis;
+            if (!deleted.isEmpty()) {
+                synchronized (this) {
+                    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                        if (deleted.contains(entryFile(it.next().key).getName())) {
+                            it.remove();
+                        }
+                    }
+                }
+                logger.log(Level.INFO, "Evicted [{0}] Remix cache entries..[{1}] bytes left",
+                        new Object[]{ deleted.size(), total });
+            }
+        }
+    }
+
+    // Expiry from "Cache-Control" max-age, otherwise "Expires", otherwise immediately
+    private static long expiresAt(Map<String,List<String>> headers, long now) {
+        String cacheControl = header(headers, "Cache-Control");
+        if (null != cacheControl) {
+            for (String directive : cacheControl.toLowerCase(Locale.ENGLISH).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-cache")) {
+                    return now;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return now + 1000L * Long.parseLong(directive.substring(8).trim());
+                    } catch (NumberFormatException e) {
+                        return now;
+                    }
+                }
+            }
+        }
+        String expires = header(headers, "Expires");
+        if (null != expires) {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            try {
+                return format.parse(expires).getTime();
+            } catch (ParseException e) {
+                return now;
+            }
+        }
+        return now;
+    }
+
+    private static String header(Map<String,List<String>> headers, String name) {
+        if (null == headers) {
+            return null;
+        }
+        for (Map.Entry<String,List<String>> header : headers.entrySet()) {
+            if (null != header.getKey() && header.getKey().equalsIgnoreCase(name)
+                    && null != header.getValue() && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private Entry readEntry(String key) {
+        File file = entryFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            Properties props;
+            try {
+                props = readHeader(in);
+            } finally {
+                in.close();
+            }
+            if (!key.equals(props.getProperty("key"))) {
+                return null;
+            }
+            return new Entry(key, props.getProperty("etag"), props.getProperty("lastModified"),
+                    props.getProperty("contentType"), Long.parseLong(props.getProperty("storedAt")),
+                    Long.parseLong(props.getProperty("expiresAt")));
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Ignoring invalid Remix cache entry {0}", new Object[]{ file });
+            return null;
+        }
+    }
+
+    // Metadata of an entry as a length-prefixed properties block
+    private static void writeHeader(OutputStream out, Entry entry) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("key", entry.key);
+        if (null != entry.etag) props.setProperty("etag", entry.etag);
+        if (null != entry.lastModified) props.setProperty("lastModified", entry.lastModified);
+        if (null != entry.contentType) props.setProperty("contentType", entry.contentType);
+        props.setProperty("storedAt", Long.toString(entry.storedAt));
+        props.setProperty("expiresAt", Long.toString(entry.expiresAt));
+        ByteArrayOutputStream header = new ByteArrayOutputStream(512);
+        props.store(header, null);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(header.size());
+        header.writeTo(data);
+        data.flush();
+    }
+
+    private static Properties readHeader(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > kMaxHeaderBytes) {
+            throw new IOException("Invalid Remix cache entry header");
+        }
+        byte[] header = new byte[length];
+        in.readFully(header);
+        Properties props = new Properties();
+        props.load(new ByteArrayInputStream(header));
+        return props;
+    }
+
+    // Writes the entry file again with new metadata and the same body
+    private void rewriteHeader(Entry entry) throws IOException {
+        File file = entryFile(entry.key);
+        File temp = File.createTempFile("entry", kTempSuffix, directory);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 8192));
+            try {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 8192);
+                try {
+                    readHeader(in);
+                    writeHeader(out, entry);
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+            replace(temp, file);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    // Readers see either the old or the new file, never a missing or partial one
+    private static void replace(File temp, File target) throws IOException {
+        try {
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, fileName(key) + kEntrySuffix);
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxStaleMillis() {
+        return maxStaleMillis;
+    }
+
+    public long getStaleQueueTimeoutMillis() {
+        return staleQueueTimeoutMillis;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    /**
+     * @return - bytes taken by the entry files
+     */
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+
+    /**
+     * @return - number of entries held in memory
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return - number of calls served from a fresh entry without a request
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return - number of lookups without an entry
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return - number of stale entries confirmed by a 304 response
+     */
+    public long getRevalidated() {
+        return revalidated.get();
+    }
+
+    /**
+     * @return - number of calls served from a stale entry because the API was slow or failing
+     */
+    public long getStaleServed() {
+        return staleServed.get();
+    }
+
+    /**
+     * @return - number of responses stored
+     */
+    public long getStored() {
+        return stored.get();
+    }
+
+    /**
+     * @return - number of entry files deleted for their age or to free disk space
+     */
+    public long getEvicted() {
+        return evicted.get();
+    }
+}
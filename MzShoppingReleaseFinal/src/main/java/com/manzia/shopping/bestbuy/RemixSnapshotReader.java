@@ -0,0 +1,369 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a snapshot written by {@link RemixSnapshotWriter}. Entities can be read at random with
+ * {@link #get(int)}, which is safe for concurrent use, or all at once, in file order, with
+ * {@link #list()}. Each entity is bound exactly as it was when written, so a Product or Review
+ * read from a snapshot behaves like one parsed from the original XML.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public final class RemixSnapshotReader<T extends Entity> implements Closeable {
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final RemixStreamBinder.EntityFactory<T> factory;
+    private final boolean compressed;
+    private final String collection;
+    private final Map<String,String> attributes;
+    private final String[] strings;
+    private final long[] offsets;
+
+    private RemixSnapshotReader(File file, String expectedCollection, RemixStreamBinder.EntityFactory<T> factory)
+            throws IOException {
+        this.file = file;
+        this.factory = factory;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+        boolean opened = false;
+        try {
+            DataInputStream header = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 4096));
+            try {
+                if (RemixSnapshotWriter.MAGIC != header.readInt()) {
+                    throw new IOException("Not a Remix snapshot: " + file);
+                }
+                int version = header.readUnsignedByte();
+                if (RemixSnapshotWriter.VERSION != version) {
+                    throw new IOException("Unsupported Remix snapshot version " + version + ": " + file);
+                }
+                compressed = 0 != (header.readUnsignedByte() & RemixSnapshotWriter.FLAG_COMPRESSED);
+                collection = header.readUTF();
+                int attributeCount = header.readInt();
+                Map<String,String> rootAttributes = new HashMap<String,String>();
+                for (int i = 0; i < attributeCount; i++) {
+                    rootAttributes.put(header.readUTF(), header.readUTF());
+                }
+                attributes = Collections.unmodifiableMap(rootAttributes);
+            } finally {
+                header.close();
+            }
+            if (null != expectedCollection && !expectedCollection.equals(collection)) {
+                throw new IOException("Snapshot " + file + " holds " + collection + ", not " + expectedCollection);
+            }
+
+            long length = channel.size();
+            ByteBuffer trailer = readFully(length - 12, 12);
+            long footerOffset = trailer.getLong();
+            if (RemixSnapshotWriter.MAGIC != trailer.getInt() || footerOffset < 0 || footerOffset > length - 12) {
+                throw new IOException("Truncated Remix snapshot: " + file);
+            }
+            ByteBuffer table = readBlock(footerOffset);
+            strings = new String[readVarInt(table)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(table);
+            }
+            int tableLength = 8 + readFully(footerOffset, 4).getInt();
+            ByteBuffer index = readFully(footerOffset + tableLength, (int) (length - 12 - footerOffset - tableLength));
+            offsets = new long[index.getInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.getLong();
+            }
+            opened = true;
+        } finally {
+            if (!opened) {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Opens a snapshot of a "products" collection
+     */
+    public static RemixSnapshotReader<Product> openProducts(File file) throws IOException {
+        return new RemixSnapshotReader<Product>(file, Remix.PATH_PRODUCTS, new RemixStreamBinder.EntityFactory<Product>() {
+            @Override
+            public Product create() {
+                return new Product();
+            }
+        });
+    }
+
+    /**
+     * Opens a snapshot of a "reviews" collection
+     */
+    public static RemixSnapshotReader<Review> openReviews(File file) throws IOException {
+        return new RemixSnapshotReader<Review>(file, Remix.PATH_REVIEWS, new RemixStreamBinder.EntityFactory<Review>() {
+            @Override
+            public Review create() {
+                return new Review();
+            }
+        });
+    }
+
+    /**
+     * Reads a whole "products" snapshot into a ProductsResponse, as if its XML had been parsed
+     */
+    public static ProductsResponse readProducts(File file) throws IOException {
+        RemixSnapshotReader<Product> reader = openProducts(file);
+        try {
+            return new ProductsResponse(reader.createRoot(), reader.list());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads a whole "reviews" snapshot into a ReviewsResponse, as if its XML had been parsed
+     */
+    public static ReviewsResponse readReviews(File file) throws IOException {
+        RemixSnapshotReader<Review> reader = openReviews(file);
+        try {
+            return new ReviewsResponse(reader.createRoot(), reader.list());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param xmlFile - Remix collection XML file
+     * @return - snapshot file of the XML file, e.g products011.rmxs for products011.xml
+     */
+    public static File snapshotFileFor(File xmlFile) {
+        String name = xmlFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(xmlFile.getAbsoluteFile().getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + RemixSnapshotWriter.SUFFIX);
+    }
+
+    /**
+     * @param xmlFile - Remix collection XML file
+     * @return - snapshot of the XML file when one exists and is not older than it, otherwise null
+     */
+    public static File findSnapshot(File xmlFile) {
+        File snapshot = snapshotFileFor(xmlFile);
+        return snapshot.isFile() && snapshot.lastModified() >= xmlFile.lastModified() ? snapshot : null;
+    }
+
+    /**
+     * @return - number of entities in the snapshot
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @return - name of the collection element, e.g "products"
+     */
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * @return - attributes of the collection element, e.g "total" or "currentPage"
+     */
+    public Map<String,String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Reads one entity
+     *
+     * @param index - position of the entity, between 0 and size() - 1
+     */
+    public T get(int index) throws IOException {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("Entity " + index + " of " + offsets.length);
+        }
+        return readEntity(readBlock(offsets[index]));
+    }
+
+    /**
+     * Reads every entity with one sequential pass over the file
+     *
+     * @return - entities in the order they were written
+     */
+    public List<T> list() throws IOException {
+        List<T> entities = new ArrayList<T>(offsets.length);
+        if (0 == offsets.length) {
+            return entities;
+        }
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+            long skip = offsets[0];
+            while (skip > 0) {
+                long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new EOFException("Truncated Remix snapshot: " + file);
+                }
+                skip -= skipped;
+            }
+            Inflater inflater = compressed ? new Inflater() : null;
+            try {
+                for (int i = 0; i < offsets.length; i++) {
+                    byte[] stored = new byte[in.readInt()];
+                    int rawLength = in.readInt();
+                    in.readFully(stored);
+                    entities.add(readEntity(unpack(stored, rawLength, inflater)));
+                }
+            } finally {
+                if (null != inflater) {
+                    inflater.end();
+                }
+            }
+        } finally {
+            stream.close();
+        }
+        return entities;
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    // Root element carrying the collection attributes, with no children
+    private Element createRoot() {
+        Element root = new Element(collection);
+        for (Map.Entry<String,String> attribute : attributes.entrySet()) {
+            root.setAttribute(attribute.getKey(), attribute.getValue());
+        }
+        return root;
+    }
+
+    private T readEntity(ByteBuffer in) throws IOException {
+        T entity = factory.create();
+        int fieldCount = readVarInt(in);
+        for (int i = 0; i < fieldCount; i++) {
+            String key = shared(readVarInt(in));
+            entity.bindField(key, readValue(in));
+        }
+        return entity;
+    }
+
+    private Object readValue(ByteBuffer in) throws IOException {
+        int tag = in.get();
+        switch (tag) {
+            case RemixSnapshotWriter.TAG_NULL:
+                return null;
+            case RemixSnapshotWriter.TAG_SHARED:
+                return shared(readVarInt(in));
+            case RemixSnapshotWriter.TAG_INLINE:
+                return readString(in);
+            case RemixSnapshotWriter.TAG_ELEMENT:
+                Element element = new Element(shared(readVarInt(in)), readValue(in));
+                int attributeCount = readVarInt(in);
+                for (int i = 0; i < attributeCount; i++) {
+                    element.setAttribute(shared(readVarInt(in)), (String) readValue(in));
+                }
+                int childCount = readVarInt(in);
+                for (int i = 0; i < childCount; i++) {
+                    element.addChild((Element) readValue(in));
+                }
+                return element;
+            default:
+                throw new IOException("Corrupt Remix snapshot " + file + ": unknown value tag " + tag);
+        }
+    }
+
+    private String shared(int id) throws IOException {
+        if (id < 0 || id >= strings.length) {
+            throw new IOException("Corrupt Remix snapshot " + file + ": unknown string " + id);
+        }
+        return strings[id];
+    }
+
+    // Block at an offset, uncompressed
+    private ByteBuffer readBlock(long offset) throws IOException {
+        ByteBuffer lengths = readFully(offset, 8);
+        int storedLength = lengths.getInt();
+        int rawLength = lengths.getInt();
+        ByteBuffer stored = readFully(offset + 8, storedLength);
+        if (!compressed) {
+            return stored;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            return unpack(stored.array(), rawLength, inflater);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer unpack(byte[] stored, int rawLength, Inflater inflater) throws IOException {
+        if (null == inflater) {
+            return ByteBuffer.wrap(stored);
+        }
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(stored);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (0 == inflated && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupt Remix snapshot " + file + ": short block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt Remix snapshot " + file + ": " + e.getMessage());
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Corrupt Remix snapshot " + file + ": negative length");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Truncated Remix snapshot: " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, RemixSnapshotWriter.UTF8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (0 == (b & 0x80)) {
+                return value;
+            }
+        }
+    }
+}
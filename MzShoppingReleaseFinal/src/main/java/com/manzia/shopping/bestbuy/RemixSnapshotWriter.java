@@ -0,0 +1,371 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a collection of {@link Entity entities} (e.g. the products or reviews of one Remix
+ * XML dump) to a compact binary snapshot read back by {@link RemixSnapshotReader}, so offline
+ * tools do not have to re-parse the XML on every run.
+ *
+ * Layout of a snapshot file:
+ * - header: magic, version, flags, collection name and the attributes of the collection element
+ * - records: one per entity, each prefixed with its stored and uncompressed lengths, and
+ *   deflated on its own when the snapshot is compressed so it can still be read at random
+ * - footer: the string table, then the offset of every record
+ * - trailer: offset of the footer and the magic again
+ *
+ * Field names, element names and values of up to {@link #kMaxSharedLength} characters are
+ * written once to the string table and referenced by index; longer values (e.g. review
+ * comments) are written inline. Integers are written as unsigned varints.
+ *
+ * A writer is not safe for concurrent use.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public final class RemixSnapshotWriter implements Closeable {
+
+    public static final Logger logger =
+            Logger.getLogger(RemixSnapshotWriter.class.getCanonicalName());
+
+    /**
+     * Filename suffix of snapshot files
+     */
+    public static final String SUFFIX = ".rmxs";
+
+    static final int MAGIC = 0x524D5853;    // "RMXS"
+    static final int VERSION = 1;
+    static final int FLAG_COMPRESSED = 1;
+
+    // Value tags
+    static final int TAG_NULL = 0;
+    static final int TAG_SHARED = 1;
+    static final int TAG_INLINE = 2;
+    static final int TAG_ELEMENT = 3;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Longest value shared through the string table
+     */
+    static final int kMaxSharedLength = 256;
+
+    private final OutputStream out;
+    private final boolean compressed;
+    private final Deflater deflater;
+    private final Map<String,Integer> stringIds = new HashMap<String,Integer>();
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream(64 * 1024);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(4096);
+    private final byte[] deflated = new byte[8192];
+    private long[] offsets = new long[256];
+    private int count = 0;
+    private long position = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a snapshot file and writes its header
+     *
+     * @param file       - snapshot file, overwritten if it exists
+     * @param collection - name of the collection element, e.g "products" or "reviews"
+     * @param attributes - attributes of the collection element (paging information) or null
+     * @param compress   - whether to deflate every record and the string table
+     */
+    public RemixSnapshotWriter(File file, String collection, Map<String,String> attributes, boolean compress)
+            throws IOException {
+        if (null == collection || collection.isEmpty()) {
+            throw new IllegalArgumentException("Collection name is required");
+        }
+        this.compressed = compress;
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(compress ? FLAG_COMPRESSED : 0);
+        data.writeUTF(collection);
+        Map<String,String> rootAttributes = null == attributes ? Collections.<String,String>emptyMap() : attributes;
+        data.writeInt(rootAttributes.size());
+        for (Map.Entry<String,String> attribute : rootAttributes.entrySet()) {
+            data.writeUTF(attribute.getKey());
+            data.writeUTF(null == attribute.getValue() ? "" : attribute.getValue());
+        }
+        data.flush();
+        emit(header.toByteArray(), header.size());
+    }
+
+    /**
+     * Appends one entity
+     */
+    public void write(Entity entity) throws IOException {
+        if (closed) {
+            throw new IOException("Snapshot writer is closed");
+        }
+        record.reset();
+        writeVarInt(record, entity.fields.size());
+        for (Map.Entry<String,Object> field : entity.fields.entrySet()) {
+            writeVarInt(record, share(field.getKey()));
+            writeValue(record, field.getValue());
+        }
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * count);
+        }
+        offsets[count++] = position;
+        writeBlock(record);
+    }
+
+    /**
+     * @return - number of entities written so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Closes the file without writing the string table and the record index, leaving a file no
+     * reader accepts, e.g after a failed write. Does nothing once the writer is closed.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (null != deflater) {
+            deflater.end();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close aborted snapshot", e);
+        }
+    }
+
+    /**
+     * Writes the string table and the record index, then closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long footerOffset = position;
+            record.reset();
+            writeVarInt(record, stringIds.size());
+            strings.writeTo(record);
+            writeBlock(record);
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream(4 + 8 * count + 12);
+            DataOutputStream data = new DataOutputStream(index);
+            data.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                data.writeLong(offsets[i]);
+            }
+            data.writeLong(footerOffset);
+            data.writeInt(MAGIC);
+            data.flush();
+            emit(index.toByteArray(), index.size());
+        } finally {
+            if (null != deflater) {
+                deflater.end();
+            }
+            out.close();
+        }
+    }
+
+    private void writeValue(ByteArrayOutputStream target, Object value) {
+        if (null == value) {
+            target.write(TAG_NULL);
+        } else if (value instanceof String) {
+            String text = (String) value;
+            if (text.length() <= kMaxSharedLength) {
+                target.write(TAG_SHARED);
+                writeVarInt(target, share(text));
+            } else {
+                byte[] bytes = text.getBytes(UTF8);
+                target.write(TAG_INLINE);
+                writeVarInt(target, bytes.length);
+                target.write(bytes, 0, bytes.length);
+            }
+        } else if (value instanceof Element) {
+            Element element = (Element) value;
+            target.write(TAG_ELEMENT);
+            writeVarInt(target, share(element.getName()));
+            writeValue(target, element.getValue());
+            Map<String,String> attributes = element.getAttributes();
+            writeVarInt(target, null == attributes ? 0 : attributes.size());
+            if (null != attributes) {
+                for (Map.Entry<String,String> attribute : attributes.entrySet()) {
+                    writeVarInt(target, share(attribute.getKey()));
+                    writeValue(target, attribute.getValue());
+                }
+            }
+            List<Element> children = element.getChildren();
+            writeVarInt(target, null == children ? 0 : children.size());
+            if (null != children) {
+                for (Element child : children) {
+                    writeValue(target, child);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot write a field of type " + value.getClass().getName());
+        }
+    }
+
+    // Index of a string in the string table, added on first use
+    private int share(String text) {
+        Integer id = stringIds.get(text);
+        if (null == id) {
+            id = stringIds.size();
+            stringIds.put(text, id);
+            byte[] bytes = text.getBytes(UTF8);
+            writeVarInt(strings, bytes.length);
+            strings.write(bytes, 0, bytes.length);
+        }
+        return id;
+    }
+
+    // [stored length][uncompressed length][payload], deflated when compressed
+    private void writeBlock(ByteArrayOutputStream block) throws IOException {
+        byte[] raw = block.toByteArray();
+        byte[] payload = raw;
+        int stored = raw.length;
+        if (compressed) {
+            ByteArrayOutputStream packed = new ByteArrayOutputStream(raw.length / 2 + 16);
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int length = deflater.deflate(deflated);
+                packed.write(deflated, 0, length);
+            }
+            payload = packed.toByteArray();
+            stored = payload.length;
+        }
+        byte[] lengths = new byte[8];
+        putInt(lengths, 0, stored);
+        putInt(lengths, 4, raw.length);
+        emit(lengths, 8);
+        emit(payload, stored);
+    }
+
+    private void emit(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        position += length;
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    static void writeVarInt(ByteArrayOutputStream target, int value) {
+        while ((value & ~0x7F) != 0) {
+            target.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target.write(value);
+    }
+
+    /**
+     * Converts a Remix collection XML file, e.g a products or reviews dump, to a snapshot
+     *
+     * @param xmlFile  - collection XML file
+     * @param snapshot - snapshot file to write
+     * @param compress - whether to compress the snapshot
+     * @return - number of entities written
+     */
+    public static int convert(File xmlFile, File snapshot, boolean compress) throws IOException, RemixException {
+        RemixStreamBinder<Entity> binder = new RemixStreamBinder<Entity>(new RemixStreamBinder.EntityFactory<Entity>() {
+            @Override
+            public Entity create() {
+                return new Entity();
+            }
+        });
+        Element root;
+        Reader reader = new InputStreamReader(new FileInputStream(xmlFile), "UTF-8");
+        try {
+            root = binder.bind(reader);
+        } catch (Exception e) {
+            throw new RemixException("Error parsing XML file " + xmlFile, e);
+        } finally {
+            reader.close();
+        }
+
+        // write to a temporary file first so a failed conversion never leaves a partial snapshot,
+        // then replace the snapshot in one step so readers see either the old or the new one
+        File temp = new File(snapshot.getAbsoluteFile().getParentFile(), snapshot.getName() + ".tmp");
+        RemixSnapshotWriter writer = new RemixSnapshotWriter(temp, root.getName(), root.getAttributes(), compress);
+        boolean replaced = false;
+        try {
+            for (Entity entity : binder.getEntities()) {
+                writer.write(entity);
+            }
+            writer.close();
+            Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            replaced = true;
+        } finally {
+            if (!replaced) {
+                writer.abort();
+                temp.delete();
+            }
+        }
+        return writer.getCount();
+    }
+
+    /**
+     * Converts Remix collection XML files to snapshots written next to them, e.g products011.xml
+     * to products011.rmxs <br>
+     * Usage: RemixSnapshotWriter <xmlFile|xmlDir> [compress]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            logger.log(Level.SEVERE, "Usage: RemixSnapshotWriter <xmlFile|xmlDir> [compress]");
+            throw new IllegalArgumentException("RemixSnapshotWriter takes an XML file or directory and an optional compress flag");
+        }
+        File input = new File(args[0]);
+        boolean compress = args.length == 2 && Boolean.parseBoolean(args[1]);
+        File[] xmlFiles = input.isDirectory() ? input.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".xml");
+            }
+        }) : new File[]{ input };
+        if (null == xmlFiles) {
+            throw new IllegalArgumentException("Cannot list directory " + input);
+        }
+        for (File xmlFile : xmlFiles) {
+            File snapshot = RemixSnapshotReader.snapshotFileFor(xmlFile);
+            long start = System.currentTimeMillis();
+            int entities = convert(xmlFile, snapshot, compress);
+            logger.log(Level.INFO, "Converted [{0}] entities from {1} to {2} ({3} to {4} bytes) in {5} ms",
+                    new Object[]{ entities, xmlFile.getName(), snapshot.getName(), xmlFile.length(),
+                            snapshot.length(), System.currentTimeMillis() - start });
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming binder that reads a Remix API collection document (e.g. "products", "reviews",
+ * "stores") with StAX and fills one {@link Entity} per child of the document root.
+ *
+ * Unlike {@link XMLHandler}, no {@link Element} tree is built for the document: leaf fields of
+ * each entity are bound directly as Strings, see {@link Entity#bindField(String, Object)}, and
+ * are only decoded into typed values when first read, see {@link Entity#getDecoded}. Only
+ * nested fields (e.g. "details", "categoryPath") are kept as {@link Element} subtrees so the
+ * existing accessors keep working. Fields are bound exactly as {@link Entity#Entity(Element)}
+ * would bind them from the SAX tree.
+ *
+ * A binder is used for a single document and is not safe for concurrent use.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public final class RemixStreamBinder<T extends Entity> {
+
+    /**
+     * Creates the entity bound from each child of the document root
+     */
+    interface EntityFactory<T extends Entity> {
+        T create();
+    }
+
+    /**
+     * Shared factory, thread-safe once configured
+     */
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private final EntityFactory<T> factory;
+
+    /**
+     * Entities bound from the document, in document order
+     */
+    private final List<T> entities = new ArrayList<T>();
+
+    /**
+     * Whether a document has been bound
+     */
+    private boolean bound = false;
+
+    /**
+     * Whether any character data was read since the last end tag. XMLHandler collects text in
+     * one buffer that is only reset at an end tag, so an element without text of its own still
+     * gets an empty value when whitespace precedes it; this flag reproduces that.
+     */
+    private boolean textSinceEnd = false;
+
+    RemixStreamBinder(EntityFactory<T> factory) {
+        assert factory != null;
+        this.factory = factory;
+    }
+
+    /**
+     * @return Binder for a "products" collection document
+     */
+    public static RemixStreamBinder<Product> forProducts() {
+        return new RemixStreamBinder<Product>(new EntityFactory<Product>() {
+            @Override
+            public Product create() {
+                return new Product();
+            }
+        });
+    }
+
+    /**
+     * @return Binder for a "reviews" collection document
+     */
+    public static RemixStreamBinder<Review> forReviews() {
+        return new RemixStreamBinder<Review>(new EntityFactory<Review>() {
+            @Override
+            public Review create() {
+                return new Review();
+            }
+        });
+    }
+
+    /**
+     * @return Binder for a "stores" collection document
+     */
+    public static RemixStreamBinder<Store> forStores() {
+        return new RemixStreamBinder<Store>(new EntityFactory<Store>() {
+            @Override
+            public Store create() {
+                return new Store();
+            }
+        });
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Binds a collection document.
+     *
+     * @param  source Character stream of the document
+     * @return Document root element with its attributes (e.g. paging information) and no children
+     * @throws XMLStreamException if the document is not well formed
+     */
+    public Element bind(Reader source) throws XMLStreamException {
+        if(bound) {
+            throw new IllegalStateException("Binder has already bound a document");
+        }
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(source);
+        try {
+            while(reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // skip prolog
+            }
+            if(!reader.isStartElement()) {
+                throw new XMLStreamException("Document has no root element");
+            }
+            Element root = new Element(reader.getLocalName());
+            copyAttributes(reader, root);
+
+            int event;
+            while((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    entities.add(bindEntity(reader));
+                } else if(isText(event)) {
+                    textSinceEnd = true;
+                }
+            }
+            bound = true;
+            return root;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return Entities bound from the document, in document order
+     */
+    public List<T> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return Whether a document has been bound
+     */
+    public boolean isBound() {
+        return bound;
+    }
+
+    // reader is on the START_ELEMENT of the entity and is left on its END_ELEMENT
+    private T bindEntity(XMLStreamReader reader) throws XMLStreamException {
+        T entity = factory.create();
+        int event;
+        while((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if(event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                entity.bindField(name, readContent(reader, true));
+            } else if(isText(event)) {
+                textSinceEnd = true;
+            }
+        }
+        textSinceEnd = false;
+        return entity;
+    }
+
+    /**
+     * Reads an element and its content, leaving the reader on its END_ELEMENT.
+     *
+     * @param  leafAsString Whether an element without children is returned as its value alone
+     * @return The value of a leaf element when leafAsString is set, otherwise the element subtree
+     */
+    private Object readContent(XMLStreamReader reader, boolean leafAsString) throws XMLStreamException {
+        String name = reader.getLocalName();
+        Element element = null;
+        if(0 < reader.getAttributeCount()) {
+            element = new Element(name);
+            copyAttributes(reader, element);
+        }
+
+        // text since the last child, as XMLHandler captures it
+        boolean hasChildren = false;
+        String text = null;
+        StringBuilder buffer = null;
+        int event;
+        while((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            switch(event) {
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                textSinceEnd = true;
+                if(null == text) {
+                    text = reader.getText();
+                } else {
+                    if(null == buffer) {
+                        buffer = new StringBuilder(text);
+                    }
+                    buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+            case XMLStreamConstants.START_ELEMENT:
+                if(null == element) {
+                    element = new Element(name);
+                }
+                element.addChild((Element) readContent(reader, false));
+                hasChildren = true;
+                text = null;
+                buffer = null;
+                break;
+            default:
+                break;
+            }
+        }
+
+        String value = null;
+        if(null != text) {
+            value = (null == buffer ? text : buffer.toString()).replace("\n", "").trim();
+        } else if(textSinceEnd) {
+            value = "";
+        }
+        textSinceEnd = false;
+        if(leafAsString && !hasChildren) {
+            return value;
+        }
+        if(null == element) {
+            element = new Element(name);
+        }
+        if(null != value) {
+            element.setValue(value);
+        }
+        return element;
+    }
+
+    private static boolean isText(int event) {
+        return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE;
+    }
+
+    private static void copyAttributes(XMLStreamReader reader, Element element) {
+        for(int i = 0; i < reader.getAttributeCount(); ++i) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = reader.getAttributeLocalName(i);
+            element.setAttribute(null == prefix || prefix.isEmpty() ? name : prefix + ":" + name,
+                    reader.getAttributeValue(i));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes the "gzip" and "deflate" content encodings negotiated by {@link Remix} and counts the
+ * bytes of each response as received on the wire and after decoding. Each {@link Response}
+ * reports its own counts; the totals over all responses are kept here.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public final class RemixTransferStats {
+
+    /**
+     * Value of the "Accept-Encoding" header sent with every API call
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final AtomicLong responses = new AtomicLong();
+    private static final AtomicLong encodedResponses = new AtomicLong();
+    private static final AtomicLong wireBytes = new AtomicLong();
+    private static final AtomicLong decodedBytes = new AtomicLong();
+
+    private RemixTransferStats() {
+    }
+
+    /**
+     * Stream that counts the bytes read through it
+     */
+    static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                ++count;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Decoded body of one response
+     */
+    static final class DecodedBody {
+        private final CountingInputStream wire;
+        private final CountingInputStream decoded;
+        private final boolean encoded;
+
+        DecodedBody(CountingInputStream wire, CountingInputStream decoded, boolean encoded) {
+            this.wire = wire;
+            this.decoded = decoded;
+            this.encoded = encoded;
+        }
+
+        /**
+         * @return - decoded body
+         */
+        InputStream getStream() {
+            return decoded;
+        }
+
+        long getWireBytes() {
+            return wire.getCount();
+        }
+
+        long getDecodedBytes() {
+            return decoded.getCount();
+        }
+
+        boolean isEncoded() {
+            return encoded;
+        }
+    }
+
+    /**
+     * Wraps a response body in the decoder of its content encoding. An unknown or
+     * missing encoding is read as is.
+     *
+     * @param raw             - body as received
+     * @param contentEncoding - value of the "Content-Encoding" header or null
+     * @return - decoded body
+     */
+    static DecodedBody decode(InputStream raw, String contentEncoding) throws IOException {
+        if (null == raw) {
+            CountingInputStream empty = new CountingInputStream(new ByteArrayInputStream(new byte[0]));
+            return new DecodedBody(empty, empty, false);
+        }
+        CountingInputStream wire = new CountingInputStream(raw);
+        String encoding = null == contentEncoding ? "" : contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+        InputStream inner;
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            inner = new GZIPInputStream(wire, 8192);
+        } else if (encoding.equals("deflate")) {
+            // "deflate" is meant to be zlib-wrapped, but some servers send a raw deflate stream
+            BufferedInputStream buffered = new BufferedInputStream(wire, 8192);
+            buffered.mark(2);
+            int first = buffered.read();
+            int second = buffered.read();
+            buffered.reset();
+            boolean zlib = first != -1 && second != -1 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+            inner = new InflaterInputStream(buffered, new Inflater(!zlib), 8192);
+        } else {
+            return new DecodedBody(wire, new CountingInputStream(wire), false);
+        }
+        return new DecodedBody(wire, new CountingInputStream(inner), true);
+    }
+
+    /**
+     * Adds one response to the totals
+     */
+    static void record(long responseWireBytes, long responseDecodedBytes, boolean encoded) {
+        responses.incrementAndGet();
+        if (encoded) {
+            encodedResponses.incrementAndGet();
+        }
+        wireBytes.addAndGet(responseWireBytes);
+        decodedBytes.addAndGet(responseDecodedBytes);
+    }
+
+    /**
+     * @return - number of responses read from the network
+     */
+    public static long getResponses() {
+        return responses.get();
+    }
+
+    /**
+     * @return - number of responses received with a gzip or deflate encoding
+     */
+    public static long getEncodedResponses() {
+        return encodedResponses.get();
+    }
+
+    /**
+     * @return - body bytes received on the wire
+     */
+    public static long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    /**
+     * @return - body bytes after decoding
+     */
+    public static long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Opens the HTTP connections used by {@link Remix} to place API calls.
+ *
+ * Every connection returned by {@link #open(String, URL, Map)} must be handed back to
+ * {@link #release(HttpURLConnection)} once its {@link Response} has been parsed, whether
+ * or not the call succeeded, so the transport can reuse the underlying socket and account
+ * for it in its limits.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ * @see RemixPooledTransport
+ */
+public interface RemixTransport {
+
+    /**
+     * Opens a connection for an API call.
+     *
+     * @param  method  HTTP method for this request
+     * @param  url     Fully formed request URL
+     * @param  headers Request headers to be sent with the call
+     * @return HTTP connection, not yet connected
+     * @throws IOException if no connection could be obtained
+     */
+    HttpURLConnection open(String method, URL url, Map<String,String> headers) throws IOException;
+
+    /**
+     * Returns a connection obtained from {@link #open(String, URL, Map)}. Releasing the same
+     * connection more than once has no effect.
+     *
+     * @param connection HTTP connection whose response has been consumed
+     */
+    void release(HttpURLConnection connection);
+}
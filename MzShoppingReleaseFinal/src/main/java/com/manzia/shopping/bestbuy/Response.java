@@ -14,6 +14,7 @@ package com.manzia.shopping.bestbuy;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -55,37 +56,98 @@ public class Response {
      */
     private int responseCode;
 
+    /**
+     * Body bytes received on the wire, before content decoding
+     */
+    private long wireBytes;
+
+    /**
+     * Body bytes after content decoding
+     */
+    private long decodedBytes;
+
     /**
      * Creates a new Response from an HTTP connection.
      * 
+     * The response stream is read to the end and closed, not disconnected, so the
+     * underlying socket can be kept alive and reused by the next API call. A body
+     * sent with a gzip or deflate content encoding is decoded on the fly.
+     * 
      * @param  connection HTTP connection associated with a Remix API call
      * @throws RemixException Thrown if an error occurs during the API request/response
      */
     public Response(HttpURLConnection connection) throws RemixException {
+        this(connection, null);
+    }
+
+    /**
+     * Creates a new Response from an HTTP connection, binding a successful collection
+     * response with a {@link RemixStreamBinder} instead of building an element tree.
+     * Error responses are always parsed into an element tree for {@link #getError()}.
+     * 
+     * @param  connection HTTP connection associated with a Remix API call
+     * @param  binder     Streaming binder or null to build the element tree
+     * @throws RemixException Thrown if an error occurs during the API request/response
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    protected Response(HttpURLConnection connection, RemixStreamBinder<?> binder) throws RemixException {
+        InputStream productStream = null;
         try {
-            XMLReader  reader  = RemixUtil.createXMLReader();
-            XMLHandler handler = new XMLHandler();
-            reader.setContentHandler(handler);
-            reader.setErrorHandler(handler);
             responseCode = connection.getResponseCode();
             httpHeaders  = connection.getHeaderFields();
-            InputStream productStream = isError() ? connection.getErrorStream() : connection.getInputStream();
+            productStream = isError() ? connection.getErrorStream() : connection.getInputStream();
             assert productStream != null;
-            Reader productReader = new InputStreamReader(productStream, "UTF-8");
+            RemixTransferStats.DecodedBody body =
+                RemixTransferStats.decode(productStream, connection.getContentEncoding());
+            Reader productReader = new InputStreamReader(body.getStream(), "UTF-8");
             assert productReader != null;
-            InputSource productSource = new InputSource(productReader);
-            assert productSource != null;
-            productSource.setEncoding("UTF-8");
-            //reader.parse(new InputSource(isError() ? connection.getErrorStream() : connection.getInputStream()));
-            reader.parse(productSource);
-            documentRoot = handler.getDocumentRoot();
-            connection.disconnect();
+            documentRoot = parseDocument(productReader, isError() ? null : binder);
+            drainAndClose(body.getStream());
+            drainAndClose(productStream);
+            decodedBytes = body.getDecodedBytes();
+            if(connection instanceof RemixCachedConnection) {
+                // already decoded, and counted, by whoever read it from the network
+                wireBytes = ((RemixCachedConnection) connection).getWireBytes();
+            } else {
+                wireBytes = body.getWireBytes();
+                RemixTransferStats.record(wireBytes, decodedBytes, body.isEncoded());
+            }
         } catch(Exception e) {
             e.printStackTrace();
+            // the connection is in an unknown state, do not let it be reused
+            connection.disconnect();
             throw new RemixException("Error parsing HTTP response", e);
         }
     }
-    
+
+    /**
+     * Reads any bytes left after the document and closes the stream, which returns
+     * the socket to the keep-alive cache. The parser may already have closed the
+     * stream at the end of the document, in which case there is nothing left to do.
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    private static void drainAndClose(InputStream stream) {
+        if(null == stream) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[4096];
+            while(stream.read(buffer) != -1) {
+                // discard
+            }
+        } catch(IOException e) {
+            // already closed by the parser
+        } finally {
+            try {
+                stream.close();
+            } catch(IOException e) {
+                // ignore
+            }
+        }
+    }
+
     /**
      * Creates a new Response from an XML file of products (this applies
      * to cases where we already product XML files on disk and are not
@@ -97,6 +159,21 @@ public class Response {
      * @author Roy Manzi Tumubweinee - added Sept.27, 2012, Manzia Corporation
      */
     public Response(File productsResponse) throws RemixException
+    {
+    	this(productsResponse, null);
+    }
+    
+    /**
+     * Creates a new Response from an XML file, binding it with a {@link RemixStreamBinder}
+     * instead of building an element tree
+     * 
+     * @param productsResponse the absolute filename of the XML file
+     * @param binder streaming binder or null to build the element tree
+     * @throws RemixException thrown if an error occurs during the XML parsing
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    protected Response(File productsResponse, RemixStreamBinder<?> binder) throws RemixException
     {
     	// check the input File
     	if (!productsResponse.isFile()) {
@@ -104,29 +181,56 @@ public class Response {
     	}
     	
     	try {
-    		XMLReader reader = RemixUtil.createXMLReader();
-    		assert reader != null;
-    		XMLHandler handler = new XMLHandler();
-    		assert handler != null;
-    		reader.setContentHandler(handler);
-    		reader.setErrorHandler(handler);
     		this.responseCode = HttpURLConnection.HTTP_OK;	// hardcode the HTTP Response Code as Success
     		this.httpHeaders = new HashMap<String, List<String>>();		//assign empty Headers
     		InputStream productStream = new FileInputStream(productsResponse);
     		assert productStream != null;
-    		Reader utf8Reader = new InputStreamReader(productStream, "UTF-8");    		
-    		assert utf8Reader != null;
-    		InputSource productSource = new InputSource(utf8Reader);
-    		assert productSource != null;
-    		productSource.setEncoding("UTF-8");
-    		reader.parse(productSource);
-    		this.documentRoot = handler.getDocumentRoot();    		
-    		productStream.close();
+    		try {
+    			Reader utf8Reader = new InputStreamReader(productStream, "UTF-8");    		
+    			assert utf8Reader != null;
+    			this.documentRoot = parseDocument(utf8Reader, binder);
+    		} finally {
+    			productStream.close();
+    		}
     	} catch(Exception e) {
     		e.printStackTrace();
     		throw new RemixException("Error parsing XML file", e);
     	} 
     }
+    
+    /**
+     * Creates a new Response whose document was read from a {@link RemixSnapshotReader snapshot}
+     * 
+     * @param documentRoot root element of the document
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    Response(Element documentRoot)
+    {
+    	this.responseCode = HttpURLConnection.HTTP_OK;
+    	this.httpHeaders = new HashMap<String, List<String>>();
+    	this.documentRoot = documentRoot;
+    }
+    
+    /**
+     * Parses a UTF-8 document into an element tree or, when a binder is given, binds it
+     * 
+     * @return root element of the document
+     */
+    private static Element parseDocument(Reader utf8Reader, RemixStreamBinder<?> binder) throws Exception {
+    	if (binder != null) {
+    		return binder.bind(utf8Reader);
+    	}
+    	XMLReader reader = RemixUtil.createXMLReader();
+    	assert reader != null;
+    	XMLHandler handler = new XMLHandler();
+    	reader.setContentHandler(handler);
+    	reader.setErrorHandler(handler);
+    	InputSource productSource = new InputSource(utf8Reader);
+    	productSource.setEncoding("UTF-8");
+    	reader.parse(productSource);
+    	return handler.getDocumentRoot();
+    }
 
     /**
      * Returns an attribute of the response document's root element (the collection element).
@@ -188,6 +292,29 @@ public class Response {
         return responseCode;
     }
 
+    /**
+     * Returns the number of body bytes received on the wire for this response, which
+     * is 0 when it was served from the response cache or read from a file.
+     * 
+     * @return Body bytes before content decoding
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Returns the number of body bytes of this response after content decoding.
+     * 
+     * @return Decoded body bytes
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+
     /**
      * Indicates whether an API call resulted in an error.
      * 
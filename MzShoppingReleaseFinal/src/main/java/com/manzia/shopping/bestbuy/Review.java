@@ -15,6 +15,11 @@ import java.util.List;
 
 public class Review extends Entity {
 	
+	/**
+	 * Decoder of the rating, decoded once on first read
+	 */
+	private static final FloatFieldDecoder RATING = new FloatFieldDecoder("rating", null);
+	
 	/**
      * Creates a new Review containing no data.
      */
@@ -30,7 +35,7 @@ public class Review extends Entity {
     public Review(Element element) {
         super(element);
     }
-    
+
     /**
      * Returns the "SKU" property associated with this review.
      * 
@@ -55,7 +60,7 @@ public class Review extends Entity {
      * @return rating value of this review e.g 5.0
      */
     public float getRating() {
-        return Float.valueOf((String) getField("rating"));
+        return getDecoded(RATING);
     }
     
     /**
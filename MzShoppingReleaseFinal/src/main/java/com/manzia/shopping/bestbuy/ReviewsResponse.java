@@ -1,6 +1,7 @@
 package com.manzia.shopping.bestbuy;
 
 import java.io.File;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,6 +11,11 @@ public class ReviewsResponse extends CollectionResponse {
      * List of {@link Review reviews} returned with this response 
      */
     private List<Review> reviews;
+    
+    /**
+     * Streaming binder that bound this response or null if it was parsed into an element tree
+     */
+    private final RemixStreamBinder<Review> binder;
 
 	/**
      * Creates a new ReviewsResponse from a reviews XML file
@@ -22,7 +28,59 @@ public class ReviewsResponse extends CollectionResponse {
      */
 	
 	public ReviewsResponse(File reviewsResponse) throws RemixException {
-		super(reviewsResponse);		
+		this(reviewsResponse, false);		
+	}
+	
+	/**
+     * Creates a new ReviewsResponse from a reviews XML file
+     * 
+     * @param reviewsResponse	reviews XML file
+     * @param streaming	whether to bind the reviews with a {@link RemixStreamBinder}
+     * instead of building an element tree
+     * @throws RemixException	thrown when there is an error parsing the reviews XML file
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+	public ReviewsResponse(File reviewsResponse, boolean streaming) throws RemixException {
+		this(reviewsResponse, streaming ? RemixStreamBinder.forReviews() : null);
+	}
+	
+	private ReviewsResponse(File reviewsResponse, RemixStreamBinder<Review> binder) throws RemixException {
+		super(reviewsResponse, binder);
+		this.binder = binder;
+	}
+	
+	/**
+     * Creates a new ReviewsResponse from an HTTP connection
+     * 
+     * @param connection	HTTP connection used to retrieve this response
+     * @param streaming	whether to bind the reviews with a {@link RemixStreamBinder}
+     * instead of building an element tree
+     * @throws RemixException	thrown when there is an error parsing the HTTP response
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+	public ReviewsResponse(HttpURLConnection connection, boolean streaming) throws RemixException {
+		this(connection, streaming ? RemixStreamBinder.forReviews() : null);
+	}
+	
+	private ReviewsResponse(HttpURLConnection connection, RemixStreamBinder<Review> binder) throws RemixException {
+		super(connection, binder);
+		this.binder = binder;
+	}
+	
+	/**
+     * Creates a new ReviewsResponse from the reviews of a {@link RemixSnapshotReader snapshot}
+     * 
+     * @param documentRoot	collection element carrying the paging attributes
+     * @param reviews	reviews read from the snapshot
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+	ReviewsResponse(Element documentRoot, List<Review> reviews) {
+		super(documentRoot);
+		this.binder = null;
+		this.reviews = reviews;
 	}
 	
 	/**
@@ -32,7 +90,9 @@ public class ReviewsResponse extends CollectionResponse {
      */
 	@Override
 	public List<Review> list() {
-		if(null == reviews) {
+		if(null == reviews && null != binder && binder.isBound()) {
+			reviews = binder.getEntities();
+		} else if(null == reviews) {
             reviews = new ArrayList<Review>();
             Element doc = getDocumentRoot();
             if(null != doc && doc.hasChildren()) {
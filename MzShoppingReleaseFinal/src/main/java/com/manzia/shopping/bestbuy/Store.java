@@ -27,6 +27,11 @@ public class Store extends Entity {
      */
     private List<Product> products;
 
+    /**
+     * Decoder of the distance, decoded once on first read
+     */
+    private static final FloatFieldDecoder DISTANCE = new FloatFieldDecoder("distance", null);
+
     /**
      * Creates a new Store containing no data.
      */
@@ -157,7 +162,7 @@ public class Store extends Entity {
      * @return Distance to this store in miles (returned when filtering by location)
      */
     public float getDistance() {
-        return Float.valueOf((String) getField("distance"));
+        return getDecoded(DISTANCE);
     }
 
     /**
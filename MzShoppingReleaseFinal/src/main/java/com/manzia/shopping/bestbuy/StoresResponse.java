@@ -28,6 +28,11 @@ public class StoresResponse extends CollectionResponse {
      */
     private List<Store> stores;
 
+    /**
+     * Streaming binder that bound this response or null if it was parsed into an element tree
+     */
+    private final RemixStreamBinder<Store> binder;
+
     /**
      * Creates a new StoresResponse from an HTTP connection.
      * 
@@ -35,7 +40,26 @@ public class StoresResponse extends CollectionResponse {
      * @throws RemixException Error parsing HTTP response
      */
     public StoresResponse(HttpURLConnection connection) throws RemixException {
-        super(connection);
+        this(connection, false);
+    }
+
+    /**
+     * Creates a new StoresResponse from an HTTP connection.
+     * 
+     * @param  connection HTTP connection used to retrieve this response
+     * @param  streaming  Whether to bind the stores with a {@link RemixStreamBinder}
+     *                    instead of building an element tree
+     * @throws RemixException Error parsing HTTP response
+     * 
+     * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+     */
+    public StoresResponse(HttpURLConnection connection, boolean streaming) throws RemixException {
+        this(connection, streaming ? RemixStreamBinder.forStores() : null);
+    }
+
+    private StoresResponse(HttpURLConnection connection, RemixStreamBinder<Store> binder) throws RemixException {
+        super(connection, binder);
+        this.binder = binder;
     }
 
     /**
@@ -44,7 +68,9 @@ public class StoresResponse extends CollectionResponse {
      * @return List of {@link Store stores} returned with this response. 
      */
     public List<Store> list() {
-        if(null == stores) {
+        if(null == stores && null != binder && binder.isBound()) {
+            stores = binder.getEntities();
+        } else if(null == stores) {
             stores = new ArrayList<Store>();
             Element doc = getDocumentRoot();
             if(null != doc && doc.hasChildren()) {
@@ -0,0 +1,245 @@
+package com.manzia.shopping.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+
+/**
+ * <p>Computes the rank of a product for every sub-query of a ranking request with two requests to the
+ * {@link SolrServer}, whatever the number of sub-queries, instead of one request per sub-query: <br>
+ * 1- the score of the product for each sub-query, as "query()" function values of the product document <br>
+ * 2- for each sub-query, the number of documents scoring higher than the product, as one "frange"
+ * facet query per sub-query <br>
+ * The rank of the product is that number, or -1 when the product does not match the sub-query or would not
+ * be among the rows returned by the sub-query.</p>
+ *
+ * <p>Each sub-query is parsed with the query parser (defType) and the parameters (qf, pf, mm, fq...) of the
+ * per-query requests, so the ranks are those the per-query requests would compute, except that a product
+ * tied in score with other documents gets the best of the tied positions.</p>
+ *
+ * <p>When given a {@link MzSubQueryExecutor} and a deadline, both requests are sent through the executor and
+ * abandoned at the deadline like the sub-queries of the per-query requests, see
+ * {@link #computeRanks(SolrServer, String, List, MzSubQueryExecutor, long)}.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzBatchRankQuery {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzBatchRankQuery.class.getCanonicalName());
+
+	// Sku Field
+	private static final String skuKey = "sku";
+
+	// Request parameters and response keys, suffixed with the index of the sub-query
+	static final String kQueryTextParam = "rt";		// text of the sub-query
+	static final String kQueryParam = "rq";			// sub-query parsed like the q of a per-query request
+	static final String kScoreAlias = "rs";			// score of the product for the sub-query
+	static final String kCountKey = "rc";			// number of documents scoring higher than the product
+
+	// Parameters that each sub-query sets on its own, all others must be the same across sub-queries
+	private static final Set<String> kQueryOwnParams = new HashSet<String>(Arrays.asList(
+			CommonParams.Q, CommonParams.ROWS, CommonParams.START, CommonParams.FL, CommonParams.SORT));
+
+	// Only sort order the ranks can be computed for
+	private static final String kScoreSort = "score desc";
+
+	// Rows returned by Solr when the sub-query does not set them
+	private static final int kDefaultRows = 10;
+
+	/**
+	 * Computes the ranks of the product for the sub-queries, waiting for the {@link SolrServer} without a deadline
+	 *
+	 * @param server - {@link SolrServer} to query
+	 * @param productSku - product SKU value
+	 * @param subQueries - {@link List} of {@link SolrQuery}, one per sub-query
+	 * @return - rank of the product for each sub-query, in the order of the sub-queries, or null when the
+	 * sub-queries cannot be batched or the server does not return the function values
+	 * @throws SolrServerException - thrown when a request to the {@link SolrServer} fails
+	 */
+	public List<Integer> computeRanks( SolrServer server, String productSku, List<SolrQuery> subQueries )
+			throws SolrServerException {
+
+		return computeRanks(server, productSku, subQueries, null, 0L);
+	}
+
+	/**
+	 * Computes the ranks of the product for the sub-queries, sending the requests through the executor
+	 *
+	 * @param server - {@link SolrServer} to query
+	 * @param productSku - product SKU value
+	 * @param subQueries - {@link List} of {@link SolrQuery}, one per sub-query
+	 * @param executor - {@link MzSubQueryExecutor} sending the requests, NULL to send them on the calling thread
+	 * without a deadline
+	 * @param deadlineNanos - deadline of the ranking request on the {@link System#nanoTime()} clock
+	 * @return - rank of the product for each sub-query, in the order of the sub-queries, a null rank for every
+	 * sub-query when a request did not answer before the deadline, or null when the sub-queries cannot be
+	 * batched or the server does not return the function values
+	 * @throws SolrServerException - thrown when a request to the {@link SolrServer} fails
+	 */
+	public List<Integer> computeRanks( SolrServer server, String productSku, List<SolrQuery> subQueries,
+			MzSubQueryExecutor executor, long deadlineNanos ) throws SolrServerException {
+
+		// check Inputs
+		if (subQueries.isEmpty()) {
+			return new ArrayList<Integer>();
+		}
+		ModifiableSolrParams common = createCommonParams(subQueries);
+		if (common == null) {
+			logger.log(Level.INFO, "Sub-Queries differ in more than their query text..cannot batch them");
+			return null;
+		}
+		int rows = subQueries.get(0).getInt(CommonParams.ROWS, kDefaultRows);
+		for (int i = 0; i < subQueries.size(); i++) {
+			common.set(kQueryTextParam + i, subQueries.get(i).getQuery());
+			common.set(kQueryParam + i, "{!type=$defType v=$" + kQueryTextParam + i + "}");
+		}
+
+		// 1- Score of the product for each sub-query
+		ModifiableSolrParams scoreParams = new ModifiableSolrParams(common);
+		scoreParams.set(CommonParams.Q, "{!term f=" + skuKey + "}" + productSku);
+		scoreParams.set(CommonParams.ROWS, 1);
+		StringBuilder fields = new StringBuilder(skuKey);
+		for (int i = 0; i < subQueries.size(); i++) {
+			fields.append(',').append(kScoreAlias).append(i)
+			.append(":query($").append(kQueryParam).append(i).append(",0)");
+		}
+		scoreParams.set(CommonParams.FL, fields.toString());
+		QueryResponse scoreResponse = query(server, scoreParams, executor, deadlineNanos);
+		if (scoreResponse == null) {
+			return createMissedRanks(subQueries.size());
+		}
+		SolrDocumentList products = scoreResponse.getResults();
+
+		List<Integer> ranks = new ArrayList<Integer>(Collections.nCopies(subQueries.size(), Integer.valueOf(-1)));
+		if (products == null || products.isEmpty()) {
+			logger.log(Level.INFO, "Product SKU: {0} not found..cannot compute Rank", productSku);
+			return ranks;
+		}
+		SolrDocument product = products.get(0);
+		float[] scores = new float[subQueries.size()];
+		for (int i = 0; i < scores.length; i++) {
+			Object score = product.getFieldValue(kScoreAlias + i);
+			if (!(score instanceof Number)) {
+				logger.log(Level.WARNING, "Solr Server did not return function values..cannot batch Sub-Queries");
+				return null;
+			}
+			scores[i] = ((Number) score).floatValue();
+		}
+
+		// 2- Number of documents scoring higher than the product for each sub-query it matches
+		ModifiableSolrParams countParams = new ModifiableSolrParams(common);
+		countParams.set(CommonParams.Q, "{!lucene}*:*");
+		countParams.set(CommonParams.ROWS, 0);
+		countParams.set(FacetParams.FACET, true);
+		boolean matched = false;
+		for (int i = 0; i < scores.length; i++) {
+			if (scores[i] > 0f) {
+				countParams.add(FacetParams.FACET_QUERY, "{!frange key=" + kCountKey + i + " l=" + Float.toString(scores[i])
+						+ " incl=false}query($" + kQueryParam + i + ",0)");
+				matched = true;
+			}
+		}
+		if (!matched) {
+			return ranks;
+		}
+		QueryResponse countResponse = query(server, countParams, executor, deadlineNanos);
+		if (countResponse == null) {
+			return createMissedRanks(subQueries.size());
+		}
+		Map<String, Integer> counts = countResponse.getFacetQuery();
+		for (int i = 0; i < scores.length; i++) {
+			if (scores[i] > 0f) {
+				Integer higher = counts == null ? null : counts.get(kCountKey + i);
+				if (higher == null) {
+					logger.log(Level.WARNING, "Solr Server did not return facet query counts..cannot batch Sub-Queries");
+					return null;
+				}
+				ranks.set(i, higher.intValue() < rows ? higher : Integer.valueOf(-1));
+			}
+		}
+		return ranks;
+	}
+
+	// Response to one request, or null if it did not answer before the deadline
+	private static QueryResponse query( SolrServer server, SolrParams params, MzSubQueryExecutor executor,
+			long deadlineNanos ) throws SolrServerException {
+
+		if (executor == null) {
+			return server.query(params);
+		}
+		return executor.queryAll(server, Collections.singletonList(params), deadlineNanos).get(0);
+	}
+
+	// Ranks of sub-queries that did not answer before the deadline
+	private static List<Integer> createMissedRanks( int size ) {
+		logger.log(Level.WARNING, "Batch rank request did not answer before the deadline..leaving out {0} Sub-Queries",
+				new Object[]{ size });
+		return new ArrayList<Integer>(Collections.<Integer>nCopies(size, null));
+	}
+
+	// Parameters shared by all the sub-queries, or null if they differ in more than their own parameters
+	private static ModifiableSolrParams createCommonParams( List<SolrQuery> subQueries ) {
+
+		// the position of a product is only its number of higher scoring documents when sorted on score
+		SolrQuery first = subQueries.get(0);
+		String sort = first.get(CommonParams.SORT);
+		if (sort != null && !kScoreSort.equals(sort.trim())) {
+			return null;
+		}
+		ModifiableSolrParams common = new ModifiableSolrParams();
+		for (Iterator<String> names = first.getParameterNamesIterator(); names.hasNext();) {
+			String name = names.next();
+			if (!kQueryOwnParams.contains(name)) {
+				common.set(name, first.getParams(name));
+			}
+		}
+		for (SolrQuery query : subQueries) {
+			if (!sameParams(common, query) || !equalValues(first.getParams(CommonParams.SORT), query.getParams(CommonParams.SORT))
+					|| !equalValues(first.getParams(CommonParams.ROWS), query.getParams(CommonParams.ROWS))) {
+				return null;
+			}
+		}
+		return common;
+	}
+
+	private static boolean sameParams( SolrParams common, SolrParams query ) {
+		for (Iterator<String> names = query.getParameterNamesIterator(); names.hasNext();) {
+			String name = names.next();
+			if (!kQueryOwnParams.contains(name) && !equalValues(common.getParams(name), query.getParams(name))) {
+				return false;
+			}
+		}
+		for (Iterator<String> names = common.getParameterNamesIterator(); names.hasNext();) {
+			String name = names.next();
+			if (query.getParams(name) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean equalValues( String[] first, String[] second ) {
+		return Arrays.equals(first, second);
+	}
+}
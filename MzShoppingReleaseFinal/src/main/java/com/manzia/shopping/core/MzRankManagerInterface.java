@@ -43,6 +43,19 @@ public interface MzRankManagerInterface {
 	public RankResults getRankingDataForSKU( Map<String, String> queryMap, MzSolrService indexService) 
 	throws SolrServerException;
 	
+	/**
+	 * Given a product SKU value and a {@link Map} of Query Parameters
+	 * compute and return the relevant Ranking Data in the specified {@link MzRankMode}. <br>
+	 * 
+	 * @param queryMap - {@link Map} of Query Parameters
+	 * @param indexService - {@link MzSolrService}
+	 * @param mode - {@link MzRankMode}
+	 * @return - {@link RankResults}
+	 * @throws SolrServerException - thrown when querying the {@link SolrServer} fails
+	 */
+	public RankResults getRankingDataForSKU( Map<String, String> queryMap, MzSolrService indexService, MzRankMode mode ) 
+	throws SolrServerException;
+	
 	/**
 	 * Computes the Rank of the Product (given the product SKU) for a specific query <br>
 	 * 
@@ -1,8 +1,14 @@
 package com.manzia.shopping.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,6 +22,7 @@ import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrDocumentList;
 
 import com.manzia.shopping.ranking.RankResultType;
@@ -33,16 +40,39 @@ import com.manzia.shopping.searches.MzSimpleQueryValidator;
 @MzRankCoreService
 public class MzRankManagerService implements MzRankManagerInterface {
 	
+	//Logger, declared first as the static settings below log through it
+	public static final Logger logger = 
+			Logger.getLogger(MzRankManagerService.class.getCanonicalName());
+	
 	// SolrServer instance
 	@Inject @MzSolrServerOne
 	private MzSolrService solrService;
 	
+	// Concurrent sub-queries, shared by all instances of this bean
+	@Inject @MzSubQuerying
+	private MzSubQueryService subQueryService;
+	
 	// Sku Key value
 	private static final String skuKey = "sku";	
 	
-	//Logger
-	public static final Logger logger = 
-			Logger.getLogger(MzRankManagerService.class.getCanonicalName());
+	// Deadline of the sub-queries of one request, a sub-query answered later is left out of the RankResults
+	public static final String kRankDeadlineProperty = "manzia.rank.deadlineMillis";
+	private static final long rankDeadlineMillis = Long.getLong(kRankDeadlineProperty, 3000L);
+	
+	// How the ranks are computed by default
+	public static final String kRankModeProperty = "manzia.rank.mode";
+	private static final MzRankMode rankMode = parseRankMode(System.getProperty(kRankModeProperty));
+	
+	// Ranks for all the sub-queries at once
+	private final MzBatchRankQuery batchRankQuery = new MzBatchRankQuery();
+	
+	// Precomputed ranks, see MzRankTableBuilder; the file is checked for a new table at most once a minute
+	public static final String kRankTableProperty = "manzia.rank.table";
+	private static final long kRankTableCheckMillis = 60000L;
+	private static File rankTableFile = 
+			System.getProperty(kRankTableProperty) == null ? null : new File(System.getProperty(kRankTableProperty));
+	private static volatile MzRankTable rankTable;
+	private static volatile long rankTableCheckedMillis = 0L;
 
     /**
      * Default constructor. 
@@ -67,7 +97,10 @@ public class MzRankManagerService implements MzRankManagerInterface {
      * as follows: <br>
      * 1- get the associated product SKU value from the {@link Map}<br>
      * 2- generate a {@link SolrQuery} for each sub-query in the input {@link Map} <br>
-     * 3- Get the Top-50 sorted results {@link SolrDocumentList} for each sub-query from the {@link SolrServer} <br>
+     * 3- Get the precomputed rank of each sub-query from the {@link MzRankTable} if any, see {@link #kRankTableProperty}.
+     * For the other sub-queries get the Top-50 sorted results {@link SolrDocumentList} for each sub-query from the {@link SolrServer}; the
+     * sub-queries are sent concurrently and those that do not answer before the deadline are left out,
+     * see {@link #kRankDeadlineProperty} <br>
      * 4- the rank of the product with SKU in step 1 along each sub-query is its position in the sorted results. <br>
      * If the product is not found we assign a rank of >50 <br>
      * 5- Create and return a {@link RankResults} object <br>
@@ -80,6 +113,24 @@ public class MzRankManagerService implements MzRankManagerInterface {
 	public RankResults getRankingDataForSKU(Map<String, String> queryMap,
 			MzSolrService indexService) throws SolrServerException {
 		
+		return getRankingDataForSKU(queryMap, indexService, rankMode);
+	}
+	
+	/**
+	 * Same as {@link MzRankManagerService#getRankingDataForSKU(Map, MzSolrService)}, where the
+	 * {@link MzRankMode} decides how step 3 and 4 are performed. In {@link MzRankMode#BATCH_REQUEST} mode
+	 * the ranks for all the sub-queries are computed with {@link MzBatchRankQuery}, falling back to one
+	 * {@link SolrQuery} per sub-query when the {@link SolrServer} does not support it. <br>
+	 * 
+	 * @param queryMap - {@link Map} of Query Parameters
+	 * @param indexService - {@link MzSolrService} active Solr Server that will be queried
+	 * @param mode - {@link MzRankMode}
+	 * @throws SolrServerException  - thrown when the Query to the {@link SolrServer} fails
+	 */
+	@Override
+	public RankResults getRankingDataForSKU(Map<String, String> queryMap,
+			MzSolrService indexService, MzRankMode mode) throws SolrServerException {
+		
 		// Output
 		RankResults rankResults = new com.manzia.shopping.ranking.ObjectFactory().createRankResults();
 
@@ -106,32 +157,58 @@ public class MzRankManagerService implements MzRankManagerInterface {
 			if (!queryList.isEmpty()) {
 				SolrServer solrServer = indexService.getSolrServer();
 				assert solrServer != null;
-				SolrDocumentList docList;
 				String productSku = queryMap.get(skuKey);
 
 				if (productSku != null && !productSku.isEmpty()) {
+					
+					// Drop the empty sub-queries
+					List<SolrQuery> subQueries = new ArrayList<SolrQuery>();
 					for (SolrQuery query : queryList) {
-
-						// compute the Rank and populate the RankResults object
 						if (query.getQuery() != null && !query.getQuery().isEmpty()) {
-							System.out.println("Sub-Query submitted to Server: " + query.getQuery());
-							QueryResponse queryResponse = solrServer.query(query);
-							assert queryResponse != null;
-							docList = queryResponse.getResults();
-							assert docList != null;
-							Integer productRank = computeRankForQuery(productSku, docList);
-							RankResultType rankResultType = 
-									new com.manzia.shopping.ranking.ObjectFactory().createRankResultType();
-							rankResultType.setRankQuality(simpleValidator.extractQueryTerms(query.getQuery()));
-
-							// Note that we add 1 to the computed Rank such that it will always range from 0
-							// where a product Rank of 0 is interpreted as not found or greater than 25 (because
-							// each SolrDocumentList has 25 SolrDocuments). We assume that if a Product's Rank > 25
-							// then an end-user is not likely to care that much for what exactly the rank was.
-							rankResultType.setRankRating(new BigDecimal(productRank.intValue()+1));
-							rankResults.getRankResult().add(rankResultType);			        	       	
+							subQueries.add(query);
+						}
+					}
+					
+					// Answer from the precomputed ranks where possible, send the other sub-queries to the server
+					List<Integer> ranks = new ArrayList<Integer>(Collections.<Integer>nCopies(subQueries.size(), null));
+					List<SolrQuery> liveQueries = new ArrayList<SolrQuery>();
+					List<Integer> liveIndexes = new ArrayList<Integer>();
+					MzRankTable table = getRankTable();
+					for (int i = 0; i < subQueries.size(); i++) {
+						Integer tableRank = table == null ? null : table.getRank(searchQuery.getCategoryName(), productSku, 
+								simpleValidator.extractQueryTerms(subQueries.get(i).getQuery()));
+						if (tableRank != null) {
+							ranks.set(i, tableRank);
+						} else {
+							liveQueries.add(subQueries.get(i));
+							liveIndexes.add(Integer.valueOf(i));
+						}
+					}
+					if (!liveQueries.isEmpty()) {
+						List<Integer> liveRanks = computeLiveRanks(solrServer, productSku, liveQueries, mode);
+						for (int i = 0; i < liveIndexes.size(); i++) {
+							ranks.set(liveIndexes.get(i).intValue(), liveRanks.get(i));
 						}
 					}
+					
+					// populate the RankResults object, in the order of the sub-queries
+					for (int i = 0; i < subQueries.size(); i++) {
+						SolrQuery query = subQueries.get(i);
+						Integer productRank = ranks.get(i);
+						if (productRank == null) {
+							continue;	// did not answer before the deadline
+						}
+						RankResultType rankResultType = 
+								new com.manzia.shopping.ranking.ObjectFactory().createRankResultType();
+						rankResultType.setRankQuality(simpleValidator.extractQueryTerms(query.getQuery()));
+
+						// Note that we add 1 to the computed Rank such that it will always range from 0
+						// where a product Rank of 0 is interpreted as not found or greater than 25 (because
+						// each SolrDocumentList has 25 SolrDocuments). We assume that if a Product's Rank > 25
+						// then an end-user is not likely to care that much for what exactly the rank was.
+						rankResultType.setRankRating(new BigDecimal(productRank.intValue()+1));
+						rankResults.getRankResult().add(rankResultType);
+					}
 					// log
 					logger.log(Level.INFO, "Computed: [{0}] rankings for Product SKU: {1}", 
 							new Object[]{ rankResults.getRankResult().size(), productSku}); 
@@ -149,6 +226,60 @@ public class MzRankManagerService implements MzRankManagerInterface {
 		return rankResults;
 	}
 	
+	// Ranks computed by the server in the specified mode, a null rank for sub-queries that did not answer in time.
+	// Both modes send their requests through the sub-query executor and share the deadline of the request.
+	private List<Integer> computeLiveRanks( SolrServer solrServer, String productSku, List<SolrQuery> subQueries,
+			MzRankMode mode ) throws SolrServerException {
+		
+		long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rankDeadlineMillis);
+		MzSubQueryExecutor executor = subQueryService != null ? subQueryService.getExecutor() : null;
+		boolean requestExecutor = executor == null;
+		if (requestExecutor) {
+			// not running in the container, send them through an executor of this request
+			executor = new MzSubQueryExecutor("MzRankManagerService-query", 
+					Math.max(1, Math.min(subQueries.size(), MzSubQueryExecutor.kDefaultThreads)), MzSubQueryExecutor.kDefaultQueueSize);
+		}
+		try {
+			List<Integer> ranks = null;
+			if (mode == MzRankMode.BATCH_REQUEST) {
+				try {
+					ranks = batchRankQuery.computeRanks(solrServer, productSku, subQueries, executor, deadlineNanos);
+				} catch (SolrException e) {
+					logger.log(Level.WARNING, "Batch rank request failed: {0}", e.getLocalizedMessage());
+				}
+				if (ranks == null) {
+					logger.log(Level.INFO, "Falling back to one request per Sub-Query for Product SKU: {0}", productSku);
+				}
+			}
+			if (ranks == null) {
+				ranks = computeRanksPerQuery(solrServer, productSku, subQueries, executor, deadlineNanos);
+			}
+			return ranks;
+		} finally {
+			if (requestExecutor) {
+				executor.shutdown();
+			}
+		}
+	}
+	
+	// Sends one SolrQuery per sub-query concurrently, a null rank for those that did not answer before the deadline
+	private List<Integer> computeRanksPerQuery( SolrServer solrServer, String productSku, List<SolrQuery> subQueries,
+			MzSubQueryExecutor executor, long deadlineNanos ) throws SolrServerException {
+		
+		List<QueryResponse> responses = executor.queryAll(solrServer, subQueries, deadlineNanos);
+		List<Integer> ranks = new ArrayList<Integer>(responses.size());
+		for (QueryResponse queryResponse : responses) {
+			if (queryResponse == null) {
+				ranks.add(null);
+			} else {
+				SolrDocumentList docList = queryResponse.getResults();
+				assert docList != null;
+				ranks.add(computeRankForQuery(productSku, docList));
+			}
+		}
+		return ranks;
+	}
+	
 	/**
 	 * Method iterates through the {@link SolrDocumentList} and returns the position of the
 	 * first {@link SolrDocument} whose "sku" value matches the input {@link String} productSku.<br>
@@ -175,21 +306,95 @@ public class MzRankManagerService implements MzRankManagerInterface {
 			logger.log(Level.WARNING, "Null or Empty SolrDocumentList specified..cannot compute Rank");
 			return productRank;
 		}
-		boolean success = false;
 				
 		// NOTE: In order to get an "accurate" ranking, the SolrDocumentList must be sorted in ascending order
 		// and sorted on relevance score
-		//int count = -1;
+		Integer position = createSkuPositions(resultList).get(productSku);
+		return position != null ? position : productRank;		
+	}
+	
+	/**
+	 * Maps the "sku" value of each {@link SolrDocument} to its position in the {@link SolrDocumentList},
+	 * in one pass. When a SKU appears more than once its first position is kept.
+	 * 
+	 * @param resultList - {@link SolrDocumentList} query results
+	 * @return - {@link Map} of product SKU to position
+	 */
+	public static Map<String, Integer> createSkuPositions( SolrDocumentList resultList ) {
+		
+		Map<String, Integer> positions = new HashMap<String, Integer>(2 * resultList.size());
+		int position = 0;
 		for (SolrDocument doc : resultList) {
-			//count++;
-			success = doc.getFieldValue(skuKey).equals(productSku) ? true : false;
-			if (success) {
-				productRank = Integer.valueOf(resultList.indexOf(doc));
-				break;
+			Object sku = doc.getFieldValue(skuKey);
+			if (sku != null && !positions.containsKey(sku.toString())) {
+				positions.put(sku.toString(), Integer.valueOf(position));
 			}
-			
+			position++;
 		}
-		return productRank;		
-	}	
+		return positions;
+	}
+	
+	/**
+	 * Parses a {@link MzRankMode} ignoring case and surrounding whitespace, see {@link #kRankModeProperty}
+	 * 
+	 * @param value - name of the mode, null for the default
+	 * @return - the mode, or {@link MzRankMode#PER_QUERY} if the value is missing or unknown
+	 */
+	static MzRankMode parseRankMode( String value ) {
+		
+		if (value == null || value.trim().isEmpty()) {
+			return MzRankMode.PER_QUERY;
+		}
+		for (MzRankMode mode : MzRankMode.values()) {
+			if (mode.name().equalsIgnoreCase(value.trim())) {
+				return mode;
+			}
+		}
+		logger.log(Level.WARNING, "Unknown rank mode [{0}] in {1}..will use {2}", 
+				new Object[]{ value, kRankModeProperty, MzRankMode.PER_QUERY });
+		return MzRankMode.PER_QUERY;
+	}
+	
+	/**
+	 * Sets the file of the precomputed ranks, null to always compute the ranks from the Solr Server
+	 * 
+	 * @param tableFile - table file written by {@link MzRankTableBuilder}
+	 */
+	public static void setRankTableFile( File tableFile ) {
+		synchronized (MzRankManagerService.class) {
+			rankTableFile = tableFile;
+			rankTable = null;
+			rankTableCheckedMillis = 0L;
+		}
+	}
+	
+	/**
+	 * @return - precomputed ranks, mapped again when the table file has been rebuilt, or null if there are none
+	 */
+	public static MzRankTable getRankTable() {
+		
+		long now = System.currentTimeMillis();
+		if (now - rankTableCheckedMillis >= kRankTableCheckMillis) {
+			synchronized (MzRankManagerService.class) {
+				if (rankTableFile != null && now - rankTableCheckedMillis >= kRankTableCheckMillis) {
+					rankTableCheckedMillis = now;
+					MzRankTable current = rankTable;
+					if (!rankTableFile.isFile()) {
+						rankTable = null;
+					} else if (current == null || current.getLastModified() != rankTableFile.lastModified()) {
+						try {
+							rankTable = MzRankTable.open(rankTableFile);
+							logger.log(Level.INFO, "Loaded rank table {0} with [{1}] qualities and [{2}] ranks", 
+									new Object[]{ rankTableFile, rankTable.getQualityCount(), rankTable.getEntryCount() });
+						} catch (IOException e) {
+							logger.log(Level.WARNING, "Failed to load rank table {0}: {1}", 
+									new Object[]{ rankTableFile, e.getLocalizedMessage() });
+						}
+					}
+				}
+			}
+		}
+		return rankTable;
+	}
 
 }
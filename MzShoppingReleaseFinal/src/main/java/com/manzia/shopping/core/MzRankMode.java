@@ -0,0 +1,15 @@
+package com.manzia.shopping.core;
+
+/**
+ * How {@link MzRankManagerService} computes the ranks of a product for the sub-queries of a request <br>
+ * PER_QUERY - one {@link org.apache.solr.client.solrj.SolrQuery} per sub-query, sent concurrently <br>
+ * BATCH_REQUEST - the ranks for all sub-queries from a fixed number of requests, see {@link MzBatchRankQuery}.
+ * Falls back to PER_QUERY when the Solr Server does not support it <br>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public enum MzRankMode {
+	PER_QUERY,
+	BATCH_REQUEST
+}
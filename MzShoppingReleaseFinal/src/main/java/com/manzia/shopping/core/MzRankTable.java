@@ -0,0 +1,300 @@
+package com.manzia.shopping.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Memory-mapped table of precomputed product ranks, (category, product SKU, quality) to the rank of
+ * the product among the results of the quality sub-query, as computed by
+ * {@link MzRankManagerService#computeRankForQuery(String, org.apache.solr.common.SolrDocumentList)}.
+ * The table also records which qualities were precomputed for each category, so that a product missing
+ * from the results of a precomputed quality is known to be unranked rather than unseen.</p>
+ *
+ * <p>Layout of a table file: magic, version, build time, then two sections, the (category, quality)
+ * keys and the (category, SKU, quality) keys with their rank. Each section holds the byte offsets of its
+ * sorted UTF-8 keys, followed by the keys themselves, and is searched in place with a binary search.
+ * A table is immutable and safe for concurrent use. Tables are built by {@link MzRankTableBuilder}.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzRankTable {
+
+	/**
+	 * Rank of a product that is not among the results of a precomputed quality
+	 */
+	public static final int kNotRanked = -1;
+
+	static final int MAGIC = 0x4D5A5254;	// "MZRT"
+	static final int VERSION = 1;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// Separates the parts of a key
+	private static final char kKeySeparator = '\u0000';
+
+	private final File file;
+	private final long lastModified;
+	private final long builtAtMillis;
+	private final MappedByteBuffer buffer;
+	private final Section qualities;
+	private final Section entries;
+
+	// Sorted keys at an offset of the table: count, key offsets [and values], key bytes
+	private static final class Section {
+		private final int count;
+		private final int index;
+		private final int stride;
+		private final int keys;
+		private final int keysLength;
+
+		Section( MappedByteBuffer buffer, int position, boolean withValues ) throws IOException {
+			this.count = buffer.getInt(position);
+			this.stride = withValues ? 8 : 4;
+			this.index = position + 4;
+			this.keysLength = buffer.getInt(index + count * stride);
+			this.keys = index + count * stride + 4;
+			if (count < 0 || keysLength < 0 || keys + keysLength > buffer.capacity()) {
+				throw new IOException("Corrupt rank table section at " + position);
+			}
+		}
+
+		int end() {
+			return keys + keysLength;
+		}
+	}
+
+	private MzRankTable( File file ) throws IOException {
+		this.file = file;
+		this.lastModified = file.lastModified();
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();	// the mapping stays valid
+		}
+		if (buffer.capacity() < 16 || MAGIC != buffer.getInt(0)) {
+			throw new IOException("Not a rank table: " + file);
+		}
+		if (VERSION != buffer.getInt(4)) {
+			throw new IOException("Unsupported rank table version " + buffer.getInt(4) + ": " + file);
+		}
+		this.builtAtMillis = buffer.getLong(8);
+		try {
+			this.qualities = new Section(buffer, 16, false);
+			this.entries = new Section(buffer, qualities.end(), true);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Truncated rank table: " + file);
+		}
+	}
+
+	/**
+	 * Maps a table file into memory
+	 *
+	 * @param file - table file written by {@link MzRankTableBuilder}
+	 * @return - {@link MzRankTable}
+	 * @throws IOException - thrown when the file cannot be read or is not a rank table
+	 */
+	public static MzRankTable open( File file ) throws IOException {
+		return new MzRankTable(file);
+	}
+
+	/**
+	 * Looks up the precomputed rank of a product for a quality
+	 *
+	 * @param category - category of the product
+	 * @param productSku - product SKU value
+	 * @param quality - quality terms of the sub-query, see
+	 * {@link com.manzia.shopping.searches.MzSimpleQueryValidator#extractQueryTerms(String)}
+	 * @return - rank of the product, {@link #kNotRanked} if the product is not among the results, or null
+	 * if the quality was not precomputed for the category
+	 */
+	public Integer getRank( String category, String productSku, String quality ) {
+
+		if (category == null || productSku == null || quality == null) {
+			return null;
+		}
+		String normalized = normalize(quality);
+		if (find(qualities, key(category, normalized)) < 0) {
+			return null;
+		}
+		int entry = find(entries, key(category, productSku, normalized));
+		return Integer.valueOf(entry < 0 ? kNotRanked : buffer.getInt(entries.index + entry * entries.stride + 4));
+	}
+
+	/**
+	 * @return - whether the quality was precomputed for the category
+	 */
+	public boolean hasQuality( String category, String quality ) {
+		return category != null && quality != null && find(qualities, key(category, normalize(quality))) >= 0;
+	}
+
+	/**
+	 * @return - number of precomputed (category, quality) pairs
+	 */
+	public int getQualityCount() {
+		return qualities.count;
+	}
+
+	/**
+	 * @return - number of ranked (category, product SKU, quality) entries
+	 */
+	public int getEntryCount() {
+		return entries.count;
+	}
+
+	/**
+	 * @return - time the table was built, in milliseconds since the epoch
+	 */
+	public long getBuiltAtMillis() {
+		return builtAtMillis;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return - modification time of the file when it was mapped
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Normalizes quality terms, lower case with single spaces, so that lookups do not depend on how a
+	 * quality was typed
+	 */
+	public static String normalize( String quality ) {
+		return quality.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ENGLISH);
+	}
+
+	static String key( String... parts ) {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				key.append(kKeySeparator);
+			}
+			key.append(parts[i]);
+		}
+		return key.toString();
+	}
+
+	// Position of the key in the section, or -1
+	private int find( Section section, String key ) {
+		byte[] target = key.getBytes(UTF8);
+		int low = 0;
+		int high = section.count - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compared = compareKey(section, middle, target);
+			if (compared < 0) {
+				low = middle + 1;
+			} else if (compared > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private int compareKey( Section section, int position, byte[] target ) {
+		int start = section.keys + buffer.getInt(section.index + position * section.stride);
+		int end = position + 1 < section.count
+				? section.keys + buffer.getInt(section.index + (position + 1) * section.stride) : section.end();
+		int length = Math.min(end - start, target.length);
+		for (int i = 0; i < length; i++) {
+			int compared = (buffer.get(start + i) & 0xFF) - (target[i] & 0xFF);
+			if (compared != 0) {
+				return compared;
+			}
+		}
+		return (end - start) - target.length;
+	}
+
+	/**
+	 * Writes a table file, replacing the file atomically only once it is complete
+	 *
+	 * @param file - table file
+	 * @param qualityKeys - (category, normalized quality) keys, see {@link #key(String...)}
+	 * @param ranks - (category, product SKU, normalized quality) keys to rank
+	 */
+	static void write( File file, Collection<String> qualityKeys, Map<String, Integer> ranks ) throws IOException {
+
+		List<byte[]> qualityBytes = sortedKeys(qualityKeys);
+		List<byte[]> rankBytes = sortedKeys(ranks.keySet());
+		File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(System.currentTimeMillis());
+			writeSection(out, qualityBytes, null);
+			writeSection(out, rankBytes, ranks);
+		} finally {
+			out.close();
+		}
+		try {
+			// readers map either the old or the new table, the file is never missing
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+	}
+
+	private static void writeSection( DataOutputStream out, List<byte[]> keys, Map<String, Integer> values )
+			throws IOException {
+		out.writeInt(keys.size());
+		int offset = 0;
+		for (byte[] key : keys) {
+			out.writeInt(offset);
+			if (values != null) {
+				out.writeInt(values.get(new String(key, UTF8)).intValue());
+			}
+			offset += key.length;
+		}
+		out.writeInt(offset);
+		for (byte[] key : keys) {
+			out.write(key);
+		}
+	}
+
+	private static List<byte[]> sortedKeys( Collection<String> keys ) {
+		List<byte[]> sorted = new ArrayList<byte[]>(keys.size());
+		for (String key : keys) {
+			sorted.add(key.getBytes(UTF8));
+		}
+		Collections.sort(sorted, new Comparator<byte[]>() {
+			@Override
+			public int compare( byte[] first, byte[] second ) {
+				int length = Math.min(first.length, second.length);
+				for (int i = 0; i < length; i++) {
+					int compared = (first[i] & 0xFF) - (second[i] & 0xFF);
+					if (compared != 0) {
+						return compared;
+					}
+				}
+				return first.length - second.length;
+			}
+		});
+		return sorted;
+	}
+}
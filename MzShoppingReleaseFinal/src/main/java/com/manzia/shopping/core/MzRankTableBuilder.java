@@ -0,0 +1,181 @@
+package com.manzia.shopping.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+
+import com.manzia.shopping.searches.MzQueryTranslator;
+import com.manzia.shopping.searches.MzSearchQuery;
+import com.manzia.shopping.searches.MzSimpleQueryValidator;
+
+/**
+ * <p>Offline job that builds the {@link MzRankTable} of a quality vocabulary: for each category and each
+ * quality of the category it runs the sub-query {@link MzRankManagerService} would run for that quality,
+ * and records the rank of every product in the results. Run after the reviews are re-indexed, e.g by
+ * {@link com.manzia.shopping.reviews.MzBBReviewsIndexer}, since the ranks only change then.</p>
+ *
+ * <p>The vocabulary file holds one "category&lt;TAB&gt;quality" per line, e.g "Tablets	battery life";
+ * blank lines and lines starting with "#" are ignored.</p>
+ *
+ * Usage: MzRankTableBuilder &lt;vocabularyFile&gt; &lt;tableFile&gt; &lt;solrUrl&gt;
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzRankTableBuilder {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzRankTableBuilder.class.getCanonicalName());
+
+	/**
+	 * System property naming the vocabulary file, the table is built after indexing when it is set
+	 */
+	public static final String kVocabularyProperty = "manzia.rank.vocabulary";
+
+	// Keys of the query parameters of a ranking request
+	private static final String kCategoryKey = "Category";
+	private static final String kQualityKey = "q1";
+
+	// Sub-queries sent at once, and the time allowed to each category
+	private static final int kThreads = 4;
+	private static final long kCategoryTimeoutMinutes = 10L;
+
+	private MzRankTableBuilder() {
+	}
+
+	/**
+	 * @param args - the vocabulary file, the table file to write and the URL of the Solr Server <br>
+	 * Usage: MzRankTableBuilder &lt;vocabularyFile&gt; &lt;tableFile&gt; &lt;solrUrl&gt;
+	 */
+	public static void main( String[] args ) throws Exception {
+		if (args.length != 3) {
+			logger.log(Level.SEVERE, "Usage: MzRankTableBuilder <vocabularyFile> <tableFile> <solrUrl>");
+			throw new IllegalArgumentException("MzRankTableBuilder takes a vocabulary file, a table file and a Solr URL");
+		}
+		SolrServer server = new HttpSolrServer(args[2]);
+		try {
+			build(server, loadVocabulary(new File(args[0])), new File(args[1]));
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	/**
+	 * Reads a vocabulary file, ignoring qualities of unknown categories
+	 *
+	 * @param vocabularyFile - vocabulary file
+	 * @return - {@link Map} of category to its qualities, in file order
+	 * @throws IOException - thrown when the file cannot be read
+	 */
+	public static Map<String, List<String>> loadVocabulary( File vocabularyFile ) throws IOException {
+
+		Map<String, List<String>> vocabulary = new LinkedHashMap<String, List<String>>();
+		MzSimpleQueryValidator validator = new MzSimpleQueryValidator();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(vocabularyFile), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] parts = line.split("\t", 2);
+				if (parts.length != 2 || parts[1].trim().isEmpty() || !validator.verifyQueryCategory(parts[0].trim())) {
+					logger.log(Level.WARNING, "Skipping invalid vocabulary line: {0}", line);
+					continue;
+				}
+				List<String> qualities = vocabulary.get(parts[0].trim());
+				if (qualities == null) {
+					qualities = new ArrayList<String>();
+					vocabulary.put(parts[0].trim(), qualities);
+				}
+				qualities.add(parts[1].trim());
+			}
+		} finally {
+			reader.close();
+		}
+		return vocabulary;
+	}
+
+	/**
+	 * Runs the sub-query of every quality of the vocabulary and writes the ranks to the table file
+	 *
+	 * @param server - {@link SolrServer} holding the indexed reviews
+	 * @param vocabulary - {@link Map} of category to its qualities
+	 * @param tableFile - table file to write, replaced once complete
+	 * @return - the new {@link MzRankTable}
+	 * @throws SolrServerException - thrown when a sub-query fails
+	 * @throws IOException - thrown when the table cannot be written
+	 */
+	public static MzRankTable build( SolrServer server, Map<String, List<String>> vocabulary, File tableFile )
+			throws SolrServerException, IOException {
+
+		long start = System.currentTimeMillis();
+		Set<String> qualityKeys = new HashSet<String>();
+		Map<String, Integer> ranks = new HashMap<String, Integer>();
+		MzQueryTranslator translator = new MzQueryTranslator();
+		MzSimpleQueryValidator validator = new MzSimpleQueryValidator();
+		MzSubQueryExecutor executor = new MzSubQueryExecutor("MzRankTableBuilder", kThreads, MzSubQueryExecutor.kDefaultQueueSize);
+		try {
+			for (Map.Entry<String, List<String>> category : vocabulary.entrySet()) {
+
+				// The same sub-query as a ranking request for the quality
+				List<SolrQuery> queries = new ArrayList<SolrQuery>();
+				for (String quality : category.getValue()) {
+					Map<String, String> queryMap = new HashMap<String, String>();
+					queryMap.put(kCategoryKey, category.getKey());
+					queryMap.put(kQualityKey, quality);
+					MzSearchQuery searchQuery = MzSearchQuery.generateSearchQuery(queryMap);
+					List<SolrQuery> subQueries = searchQuery == null
+							? new ArrayList<SolrQuery>() : translator.translateQueryList(searchQuery);
+					if (subQueries.size() == 1) {
+						queries.add(subQueries.get(0));
+					} else {
+						logger.log(Level.WARNING, "Cannot create a Sub-Query for quality: {0} of category: {1}",
+								new Object[]{ quality, category.getKey() });
+					}
+				}
+
+				long deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(kCategoryTimeoutMinutes);
+				List<QueryResponse> responses = executor.queryAll(server, queries, deadlineNanos);
+				for (int i = 0; i < queries.size(); i++) {
+					if (responses.get(i) == null) {
+						continue;	// left to the live Sub-Query
+					}
+					String quality = MzRankTable.normalize(validator.extractQueryTerms(queries.get(i).getQuery()));
+					qualityKeys.add(MzRankTable.key(category.getKey(), quality));
+					Map<String, Integer> positions = MzRankManagerService.createSkuPositions(responses.get(i).getResults());
+					for (Map.Entry<String, Integer> position : positions.entrySet()) {
+						ranks.put(MzRankTable.key(category.getKey(), position.getKey(), quality), position.getValue());
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		MzRankTable.write(tableFile, qualityKeys, ranks);
+		logger.log(Level.INFO, "Built rank table {0} with [{1}] qualities and [{2}] ranks in {3} ms",
+				new Object[]{ tableFile, qualityKeys.size(), ranks.size(), System.currentTimeMillis() - start });
+		return MzRankTable.open(tableFile);
+	}
+}
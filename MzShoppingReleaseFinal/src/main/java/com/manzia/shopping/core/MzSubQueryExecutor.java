@@ -0,0 +1,167 @@
+package com.manzia.shopping.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+
+import com.manzia.shopping.util.MzDaemonThreadFactory;
+
+/**
+ * Sends the sub-queries of one ranking request to the {@link SolrServer} concurrently, on a
+ * bounded pool of threads shared by all requests, and waits for them no longer than the
+ * deadline of the request. When the pool and its queue are full the sub-query is rejected and
+ * left out like a sub-query that did not answer before the deadline, so an overloaded server
+ * never makes a request wait past its deadline.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzSubQueryExecutor {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzSubQueryExecutor.class.getCanonicalName());
+
+	public static final int kDefaultThreads = 8;
+	public static final int kDefaultQueueSize = 64;
+
+	private final ThreadPoolExecutor executor;
+
+	// Metrics
+	private final AtomicLong subQueries = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	public MzSubQueryExecutor() {
+		this("MzSubQueryExecutor", kDefaultThreads, kDefaultQueueSize);
+	}
+
+	/**
+	 * @param name - name prefix of the query threads
+	 * @param threads - most sub-queries sent to Solr at once
+	 * @param queueSize - most sub-queries waiting for a thread
+	 */
+	public MzSubQueryExecutor( String name, int threads, int queueSize ) {
+		if (threads < 1 || queueSize < 1) {
+			throw new IllegalArgumentException("Invalid sub-query executor settings");
+		}
+		this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new MzDaemonThreadFactory(name),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Sends the queries concurrently and waits for their responses until the deadline
+	 *
+	 * @param server - Solr server, which must be safe for concurrent use
+	 * @param queries - sub-queries of one request, or the requests of a batched rank query
+	 * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock
+	 * @return - responses in the order of the queries, null for a query that did not answer
+	 * before the deadline or was rejected by the full pool
+	 * @throws SolrServerException - the failure of the first query that failed
+	 */
+	public List<QueryResponse> queryAll( final SolrServer server, List<? extends SolrParams> queries, long deadlineNanos )
+			throws SolrServerException {
+
+		subQueries.addAndGet(queries.size());
+		List<Future<QueryResponse>> futures = new ArrayList<Future<QueryResponse>>(queries.size());
+		for (final SolrParams query : queries) {
+			try {
+				futures.add(executor.submit(new Callable<QueryResponse>() {
+					@Override
+					public QueryResponse call() throws SolrServerException {
+						return server.query(query);
+					}
+				}));
+			} catch (RejectedExecutionException e) {
+				logger.log(Level.WARNING, "Sub-Query rejected by the full query pool: {0}", new Object[]{ query.get(CommonParams.Q) });
+				rejected.incrementAndGet();
+				futures.add(null);
+			}
+		}
+
+		List<QueryResponse> responses = new ArrayList<QueryResponse>(futures.size());
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				Future<QueryResponse> future = futures.get(i);
+				if (future == null) {
+					responses.add(null);
+					continue;
+				}
+				try {
+					responses.add(future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					logger.log(Level.WARNING, "Sub-Query did not answer before the deadline: {0}",
+							new Object[]{ queries.get(i).get(CommonParams.Q) });
+					timedOut.incrementAndGet();
+					responses.add(null);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SolrServerException("Interrupted while querying Solr", e);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SolrServerException) {
+						throw (SolrServerException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new SolrServerException(cause);
+				}
+			}
+		} finally {
+			// the sub-queries not waited for are of no use anymore
+			for (Future<QueryResponse> future : futures) {
+				if (future != null) {
+					future.cancel(true);
+				}
+			}
+		}
+		return responses;
+	}
+
+	/**
+	 * @return - number of sub-queries sent
+	 */
+	public long getSubQueries() {
+		return subQueries.get();
+	}
+
+	/**
+	 * @return - number of sub-queries abandoned at their deadline
+	 */
+	public long getTimedOut() {
+		return timedOut.get();
+	}
+
+	/**
+	 * @return - number of sub-queries rejected because the pool and its queue were full
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * Interrupts the running sub-queries and stops the query threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,67 @@
+package com.manzia.shopping.core;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+
+/**
+ * Session Bean implementation class MzSubQueryService
+ * 
+ * MzSubQueryService singleton bean holds the {@link MzSubQueryExecutor} shared by all
+ * ranking requests, so that its query threads are created once and stopped when the
+ * application is undeployed.
+ * 
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@MzSubQuerying
+public class MzSubQueryService {
+	
+	//Logger
+	public static final Logger logger = 
+			Logger.getLogger(MzSubQueryService.class.getCanonicalName());
+	
+	// Executor, created once the bean is constructed
+	private MzSubQueryExecutor executor;
+
+    /**
+     * Default constructor. 
+     */
+    public MzSubQueryService() {
+    }
+    
+    @PostConstruct
+    public void startExecutor() {
+    	
+    	executor = new MzSubQueryExecutor();
+    	logger.log(Level.INFO, "Started sub-query executor with {0} threads and a queue of {1}", 
+    			new Object[]{ MzSubQueryExecutor.kDefaultThreads, MzSubQueryExecutor.kDefaultQueueSize });
+    }
+    
+    @PreDestroy
+    public void stopExecutor() {
+    	
+    	if (executor != null) {
+    		executor.shutdown();
+    		logger.log(Level.INFO, "Stopped sub-query executor after {0} sub-queries, {1} timed out and {2} rejected", 
+    				new Object[]{ executor.getSubQueries(), executor.getTimedOut(), executor.getRejected() });
+    	}
+    }
+    
+    public MzSubQueryExecutor getExecutor() {
+    	
+    	if (executor == null) {
+    		throw new IllegalStateException("Sub-query executor has not been started");
+    	}
+    	return executor;
+    }
+
+}
@@ -450,10 +450,11 @@ public class MzTaskManagerService implements MzTaskManagerServiceInterface {
     		logger.log(Level.WARNING, "Cannot group product Skus by Retailer Name...specified Data Access Object, MzProductSkusDao is NULL");
     		return retailerSkus;
     	}
-    	// Iterate
+    	// Retrieve all the product Skus at once, then Iterate
+    	Map<String, MzProductSkus> productSkus = skuDao.getMzProductSkus(skuList);
     	for (Iterator<String> skuIter = skuList.iterator(); skuIter.hasNext();) {
     		String skuString = skuIter.next();
-    		MzProductSkus productSku = skuDao.getMzProductSku(skuString);
+    		MzProductSkus productSku = productSkus.get(skuString);
     		if (productSku != null) {
     			String retailerKey = productSku.getRetailerName();
     			if (retailerKey != null && !retailerKey.isEmpty()) {
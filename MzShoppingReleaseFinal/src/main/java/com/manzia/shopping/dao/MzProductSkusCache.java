@@ -0,0 +1,264 @@
+package com.manzia.shopping.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.manzia.shopping.model.MzProductSkus;
+
+/**
+ * <p>Bounded, least-recently-used cache of rows of the product_skus table keyed by product SKU. A SKU
+ * that is not in the table is cached as {@link #kNotInTable}, so that the many reviews of a product that
+ * was never imported do not each go to the database.</p>
+ *
+ * <p>Rows expire after the time-to-live, so that rows written by other processes are eventually seen,
+ * and SKUs not in the table after the shorter negative time-to-live. A row loaded from the table is
+ * put with the load token taken before the load, see {@link #beginLoad()}, and is dropped if the SKU
+ * was invalidated while it was being loaded, so that a racing load never puts back the state the
+ * invalidation removed.</p>
+ *
+ * <p>Cached {@link MzProductSkus} instances are detached and shared, callers must not modify them.
+ * The cache is safe for concurrent use.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzProductSkusCache {
+
+	/**
+	 * System property setting the maximum number of cached SKUs
+	 */
+	public static final String kMaxEntriesProperty = "manzia.sku.cacheSize";
+	public static final int kDefaultMaxEntries = 50000;
+
+	/**
+	 * System property setting how long, in milliseconds, a row is cached
+	 */
+	public static final String kTtlProperty = "manzia.sku.cacheTtlMillis";
+	public static final long kDefaultTtlMillis = 600000L;
+
+	/**
+	 * System property setting how long, in milliseconds, a SKU not in the table is cached
+	 */
+	public static final String kNegativeTtlProperty = "manzia.sku.cacheNegativeTtlMillis";
+	public static final long kDefaultNegativeTtlMillis = 30000L;
+
+	// Most recent invalidations remembered to check the loads against
+	private static final int kMaxInvalidations = 1024;
+
+	/**
+	 * Cached for a product SKU that is not in the product_skus table
+	 */
+	public static final MzProductSkus kNotInTable = new MzProductSkus();
+
+	// Cached row and when it expires on the System.nanoTime() clock
+	private static final class Cached {
+		final MzProductSkus productSkus;
+		final long expiresNanos;
+
+		Cached( MzProductSkus productSkus, long expiresNanos ) {
+			this.productSkus = productSkus;
+			this.expiresNanos = expiresNanos;
+		}
+	}
+
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final long negativeTtlNanos;
+	private final Map<String, Cached> entries;	// guarded by this
+	private final Map<String, Long> invalidatedAt;	// guarded by this
+	private long epoch = 0;	// guarded by this, incremented by each invalidation
+	private long forgottenEpoch = 0;	// guarded by this, latest invalidation no longer in invalidatedAt
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong stalePuts = new AtomicLong();
+
+	public MzProductSkusCache() {
+		this(Integer.getInteger(kMaxEntriesProperty, kDefaultMaxEntries).intValue(),
+				Long.getLong(kTtlProperty, kDefaultTtlMillis).longValue(),
+				Long.getLong(kNegativeTtlProperty, kDefaultNegativeTtlMillis).longValue());
+	}
+
+	/**
+	 * @param maxEntries - maximum number of cached SKUs, the least recently used is evicted first
+	 */
+	public MzProductSkusCache( final int maxEntries ) {
+		this(maxEntries, kDefaultTtlMillis, kDefaultNegativeTtlMillis);
+	}
+
+	/**
+	 * @param maxEntries - maximum number of cached SKUs, the least recently used is evicted first
+	 * @param ttlMillis - how long a row is cached
+	 * @param negativeTtlMillis - how long a SKU not in the table is cached
+	 */
+	public MzProductSkusCache( final int maxEntries, long ttlMillis, long negativeTtlMillis ) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Product SKU cache requires at least 1 entry, got: " + maxEntries);
+		}
+		if (ttlMillis < 1 || negativeTtlMillis < 1) {
+			throw new IllegalArgumentException("Product SKU cache requires positive time-to-live values");
+		}
+		this.maxEntries = maxEntries;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+		this.entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, Cached> eldest ) {
+				if (size() > maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+		this.invalidatedAt = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, Long> eldest ) {
+				if (size() > kMaxInvalidations) {
+					forgottenEpoch = Math.max(forgottenEpoch, eldest.getValue().longValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param productSku - product SKU
+	 * @return - the cached {@link MzProductSkus}, {@link #kNotInTable} if the SKU is known not to be in
+	 * the table, or NULL if the SKU is not cached or its entry has expired
+	 */
+	public MzProductSkus get( String productSku ) {
+		MzProductSkus productSkus = null;
+		synchronized (this) {
+			Cached cached = entries.get(productSku);
+			if (cached != null) {
+				if (cached.expiresNanos - System.nanoTime() > 0) {
+					productSkus = cached.productSkus;
+				} else {
+					entries.remove(productSku);
+					expirations.incrementAndGet();
+				}
+			}
+		}
+		if (productSkus == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return productSkus;
+	}
+
+	/**
+	 * @return - load token to pass to {@link #put(String, MzProductSkus, long)}, taken before reading the table
+	 */
+	public synchronized long beginLoad() {
+		return epoch;
+	}
+
+	/**
+	 * Caches a row read from the table, unless the SKU was invalidated since the load began
+	 *
+	 * @param productSku - product SKU
+	 * @param productSkus - row of the SKU, or NULL if the SKU is not in the table
+	 * @param loadToken - token returned by {@link #beginLoad()} before the row was read
+	 * @return - true if the row was cached
+	 */
+	public boolean put( String productSku, MzProductSkus productSkus, long loadToken ) {
+		assert productSku != null;
+		boolean notInTable = productSkus == null || productSkus == kNotInTable;
+		long expiresNanos = System.nanoTime() + (notInTable ? negativeTtlNanos : ttlNanos);
+		synchronized (this) {
+			if (epoch != loadToken) {
+				Long invalidated = invalidatedAt.get(productSku);
+				if ((invalidated != null && invalidated.longValue() > loadToken) || forgottenEpoch > loadToken) {
+					stalePuts.incrementAndGet();
+					return false;
+				}
+			}
+			entries.put(productSku, new Cached(notInTable ? kNotInTable : productSkus, expiresNanos));
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the cached row of a SKU, e.g once it is added to or deleted from the table, and
+	 * keeps the loads already under way from caching it again
+	 */
+	public void invalidate( String productSku ) {
+		if (productSku == null) return;
+		synchronized (this) {
+			epoch++;
+			invalidatedAt.remove(productSku);
+			invalidatedAt.put(productSku, Long.valueOf(epoch));
+			if (entries.remove(productSku) != null) {
+				invalidations.incrementAndGet();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTtlMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+	}
+
+	public long getNegativeTtlMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(negativeTtlNanos);
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return - number of rows not cached because their SKU was invalidated while they were loaded
+	 */
+	public long getStalePuts() {
+		return stalePuts.get();
+	}
+
+	/**
+	 * @return - share of the lookups answered from the cache, 0 before the first lookup
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long lookups = hitCount + misses.get();
+		return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+	}
+
+}
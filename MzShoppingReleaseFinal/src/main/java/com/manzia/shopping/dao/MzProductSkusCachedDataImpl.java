@@ -0,0 +1,266 @@
+package com.manzia.shopping.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.manzia.shopping.model.MzProductSkus;
+
+/**
+ * Read-through caching implementation of the {@link MzProductSkusDao} Interface. <br>
+ * Lookups of single SKUs, i.e {@link #getCategoryForSKU(String)}, {@link #getMzProductSku(String)} and
+ * {@link #getMzProductSkus(Collection)}, are answered from a {@link MzProductSkusCache} and only the
+ * SKUs missing from the cache, or whose entry has expired, are read from the delegate {@link MzProductSkusDao}. All other methods go
+ * straight to the delegate. Adding or deleting a SKU invalidates its cached row, and invalidates it again
+ * once the transaction commits, so that a lookup made before the commit does not keep the old row. <br>
+ * Note: Injected through the {@link MzProductSkuTable} qualifier, all the instances created by CDI share
+ * one cache, see {@link #getSharedCache()}.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+@MzProductSkuTable
+public class MzProductSkusCachedDataImpl implements MzProductSkusDao {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzProductSkusCachedDataImpl.class.getCanonicalName());
+
+	// Cache shared by the injected instances
+	private static final MzProductSkusCache sharedCache = new MzProductSkusCache();
+
+	// Rows read per query by warmUp()
+	public static final int kWarmUpPageSize = 1000;
+
+	private final MzProductSkusDao delegate;
+	private final MzProductSkusCache cache;
+
+	// Registry of the current JTA transaction, null when not running in the container
+	@Resource private TransactionSynchronizationRegistry txRegistry;
+
+	/**
+	 * Constructor used by CDI, caches in the shared cache
+	 * @param delegate - {@link MzProductSkusDataImpl} reading the product_skus table
+	 */
+	@Inject
+	public MzProductSkusCachedDataImpl( MzProductSkusDataImpl delegate ) {
+		this(delegate, sharedCache);
+	}
+
+	/**
+	 * @param delegate - {@link MzProductSkusDao} reading the product_skus table
+	 * @param cache - {@link MzProductSkusCache} to cache the rows in
+	 */
+	public MzProductSkusCachedDataImpl( MzProductSkusDao delegate, MzProductSkusCache cache ) {
+		if (delegate == null || cache == null) {
+			throw new IllegalArgumentException("MzProductSkusCachedDataImpl requires a delegate MzProductSkusDao and a MzProductSkusCache");
+		}
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return - {@link MzProductSkusCache} shared by the instances created by CDI
+	 */
+	public static MzProductSkusCache getSharedCache() {
+		return sharedCache;
+	}
+
+	public MzProductSkusCache getCache() {
+		return cache;
+	}
+
+	void setTransactionRegistry( TransactionSynchronizationRegistry txRegistry ) {
+		this.txRegistry = txRegistry;
+	}
+
+	/**
+	 * Loads the rows of the product_skus table into the cache, up to the size of the cache, one page
+	 * of {@link #kWarmUpPageSize} rows at a time. Worth calling before a bulk job such as a reviews
+	 * import that looks up most of the SKUs.
+	 * @return - number of rows loaded
+	 */
+	public int warmUp() {
+		long start = System.currentTimeMillis();
+		int loaded = 0;
+		int read = 0;
+		while (loaded < cache.getMaxEntries()) {
+			int pageSize = Math.min(kWarmUpPageSize, cache.getMaxEntries() - loaded);
+			long loadToken = cache.beginLoad();
+			List<MzProductSkus> page = delegate.getMzProductSkusPage(read, pageSize);
+			for (MzProductSkus product : page) {
+				if (product != null && product.getProductSku() != null
+						&& cache.put(product.getProductSku(), product, loadToken)) {
+					loaded++;
+				}
+			}
+			read += page.size();
+			if (page.size() < pageSize) {
+				break;
+			}
+		}
+		if (loaded >= cache.getMaxEntries()) {
+			logger.log(Level.WARNING, "Product SKU cache is full..loaded [{0}] product SKUs", new Object[]{ loaded });
+		}
+		logger.log(Level.INFO, "Loaded [{0}] product SKUs into the cache in {1} ms",
+				new Object[]{ loaded, System.currentTimeMillis() - start });
+		return loaded;
+	}
+
+	@Override
+	public void setEntityManager(EntityManager newEntityManager) {
+		delegate.setEntityManager(newEntityManager);
+	}
+
+	@Override
+	public List<MzProductSkus> getSkusByModelAndBrand(String prodModel, String prodBrand) {
+		return delegate.getSkusByModelAndBrand(prodModel, prodBrand);
+	}
+
+	@Override
+	public List<MzProductSkus> getSkusByModels(Collection<String> prodModels) {
+		return delegate.getSkusByModels(prodModels);
+	}
+
+	@Override
+	public List<String> getProductSkusByCategory(String prodCategory) {
+		return delegate.getProductSkusByCategory(prodCategory);
+	}
+
+	@Override
+	public String getCategoryForSKU(String productSKU) {
+		// invalid inputs are left to the delegate
+		if (productSKU == null || productSKU.length() < 1) {
+			return delegate.getCategoryForSKU(productSKU);
+		}
+		MzProductSkus productSkus = this.getMzProductSku(productSKU);
+		return productSkus == null ? null : productSkus.getProductCategory();
+	}
+
+	@Override
+	public List<String> getAllProductCategories() {
+		return delegate.getAllProductCategories();
+	}
+
+	@Override
+	public List<MzProductSkus> getAllMzProductSkus() {
+		return delegate.getAllMzProductSkus();
+	}
+
+	@Override
+	public List<MzProductSkus> getMzProductSkusPage(int firstResult, int maxResults) {
+		return delegate.getMzProductSkusPage(firstResult, maxResults);
+	}
+
+	@Override
+	public MzProductSkus getMzProductSku(String productSKU) {
+		// invalid inputs are left to the delegate
+		if (productSKU == null || productSKU.length() < 1) {
+			return delegate.getMzProductSku(productSKU);
+		}
+		MzProductSkus productSkus = cache.get(productSKU);
+		if (productSkus == null) {
+			long loadToken = cache.beginLoad();
+			productSkus = delegate.getMzProductSku(productSKU);
+			cache.put(productSKU, productSkus, loadToken);
+		}
+		return productSkus == MzProductSkusCache.kNotInTable ? null : productSkus;
+	}
+
+	@Override
+	public Map<String, MzProductSkus> getMzProductSkus(Collection<String> productSKUs) {
+		// invalid inputs are left to the delegate
+		if (productSKUs == null) {
+			return delegate.getMzProductSkus(productSKUs);
+		}
+
+		// Output
+		Map<String, MzProductSkus> productSkus = new HashMap<String, MzProductSkus>();
+		List<String> missingSkus = new ArrayList<String>();
+		for (String productSKU : productSKUs) {
+			if (productSKU == null || productSKU.length() < 1 || productSkus.containsKey(productSKU)) {
+				continue;
+			}
+			MzProductSkus product = cache.get(productSKU);
+			if (product == null) {
+				missingSkus.add(productSKU);
+			} else if (product != MzProductSkusCache.kNotInTable) {
+				productSkus.put(productSKU, product);
+			}
+		}
+
+		// Read the missing SKUs at once
+		if (!missingSkus.isEmpty()) {
+			long loadToken = cache.beginLoad();
+			Map<String, MzProductSkus> missingProducts = delegate.getMzProductSkus(missingSkus);
+			for (String productSKU : missingSkus) {
+				MzProductSkus product = missingProducts.get(productSKU);
+				cache.put(productSKU, product, loadToken);
+				if (product != null) {
+					productSkus.put(productSKU, product);
+				}
+			}
+		}
+		return productSkus;
+	}
+
+	@Override
+	public boolean addMzProductSku(MzProductSkus product) {
+		try {
+			return delegate.addMzProductSku(product);
+		} finally {
+			if (product != null) {
+				invalidate(product.getProductSku());
+			}
+		}
+	}
+
+	@Override
+	public void deleteMzProductSku(String productSKU) {
+		try {
+			delegate.deleteMzProductSku(productSKU);
+		} finally {
+			invalidate(productSKU);
+		}
+	}
+
+	/**
+	 * Invalidates the cached row of a SKU now, and again after the current transaction completes,
+	 * since until then a concurrent lookup still reads the row as it was before this transaction
+	 */
+	private void invalidate( final String productSKU ) {
+		cache.invalidate(productSKU);
+		if (productSKU == null || txRegistry == null) {
+			return;
+		}
+		try {
+			if (txRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+				txRegistry.registerInterposedSynchronization(new Synchronization() {
+					@Override
+					public void beforeCompletion() {
+					}
+
+					@Override
+					public void afterCompletion( int status ) {
+						cache.invalidate(productSKU);
+					}
+				});
+			}
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Failed to register the product SKU cache with the transaction..cannot invalidate {0} after commit: {1}",
+					new Object[]{ productSKU, e.getLocalizedMessage() });
+		}
+	}
+
+}
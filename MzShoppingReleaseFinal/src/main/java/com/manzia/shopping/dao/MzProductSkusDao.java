@@ -1,6 +1,8 @@
 package com.manzia.shopping.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 
@@ -30,6 +32,14 @@ public interface MzProductSkusDao {
 	 */
 	public List<MzProductSkus> getSkusByModelAndBrand( String prodModel, String prodBrand);
 	
+	/**
+	 * Method that retrieves all the associated MzProductSkus instances for a collection of
+	 * product Models, of any Brand, with as few queries as possible
+	 * @param prodModels - the product Models, null and empty Models are ignored
+	 * @return - List of MzProductSkus that match any of the specified models
+	 */
+	public List<MzProductSkus> getSkusByModels( Collection<String> prodModels );
+	
 	/**
 	 * Method that retrieves all the associated MzProductSkus instances for a given
 	 * product category
@@ -51,6 +61,21 @@ public interface MzProductSkusDao {
 	 */
 	public List<String> getAllProductCategories();
 	
+	/**
+	 * Method that retrieves all the MzProductSkus instances in the MzProductSkus table
+	 * @return - List of all persisted MzProductSkus
+	 */
+	public List<MzProductSkus> getAllMzProductSkus();
+	
+	/**
+	 * Method that retrieves one page of the MzProductSkus instances in the MzProductSkus table,
+	 * ordered by product SKU
+	 * @param firstResult - position of the first MzProductSkus of the page
+	 * @param maxResults - most MzProductSkus in the page
+	 * @return - List of the persisted MzProductSkus in the page, empty past the last page
+	 */
+	public List<MzProductSkus> getMzProductSkusPage( int firstResult, int maxResults );
+	
 	/**
 	 * Retrieve the MzProductSkus instance associated with specified product SKU
 	 * @param productSKU - the product SKU
@@ -58,6 +83,14 @@ public interface MzProductSkusDao {
 	 */
 	public MzProductSkus getMzProductSku( String productSKU );
 	
+	/**
+	 * Retrieve the MzProductSkus instances associated with a collection of product SKUs, with
+	 * as few queries as possible
+	 * @param productSKUs - the product SKUs, null and empty SKUs are ignored
+	 * @return - Map of product SKU to its MzProductSkus instance, SKUs not in the table have no entry
+	 */
+	public Map<String, MzProductSkus> getMzProductSkus( Collection<String> productSKUs );
+	
 	/**
 	 * Persist a new MzProductSkus instance to the MzProductSkus table
 	 * @param product - the MzProductSkus instance to persist
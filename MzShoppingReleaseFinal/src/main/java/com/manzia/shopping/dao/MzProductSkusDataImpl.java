@@ -1,6 +1,12 @@
 package com.manzia.shopping.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,12 +20,12 @@ import com.manzia.shopping.model.MzProductSkus;
 /**
  * Data Access Implementation for {@link MzProductSkusDao} Interface. <br>
  * Note: We use the default CDI scope @Dependent so the liefcycle of instances of this
- * class depends on the lifecycle of the client  
+ * class depends on the lifecycle of the client. Clients inject the {@link MzProductSkuTable}
+ * qualified {@link MzProductSkusCachedDataImpl}, which reads through to this class.
  * 
  * @author Roy Manzi Tumubweinee, Feb 06, 2013, Manzia Corporation
  *
  */
-@MzProductSkuTable
 public class MzProductSkusDataImpl implements MzProductSkusDao {
 	
 	// Instance variables
@@ -27,6 +33,9 @@ public class MzProductSkusDataImpl implements MzProductSkusDao {
 		public static final Logger logger = 
 				Logger.getLogger(MzProductSkusDataImpl.class.getCanonicalName());
 	
+		// Most SKUs in the IN list of a single query
+		public static final int kMaxSkusPerQuery = 500;
+	
 		// Options
 		//@Inject Instance<MzProductSkusDataImpl> skuDaoInstance;
 
@@ -62,6 +71,41 @@ public class MzProductSkusDataImpl implements MzProductSkusDao {
 		return prodList;
 	}
 
+	@Override
+	public List<MzProductSkus> getSkusByModels(Collection<String> prodModels) {
+		
+		// Output
+		List<MzProductSkus> productSkus = new ArrayList<MzProductSkus>();
+		
+		//check input
+		if (prodModels == null) {
+			logger.log(Level.WARNING, "Invalid prodModels argument..cannot retrieve associated MzProductSkus instances!");
+			throw new IllegalArgumentException("Invalid product Models argument for MzProductSkus retrieval specified!");
+		}
+		if (this.entityManager == null) {
+			logger.log(Level.WARNING, "EntityManager has not been set..will NOT return MzProductSkus for Models!");
+			throw new RuntimeException("Attempted to retrieve MzProductSkus for Models with NULL EntityManager!");
+		}
+		Set<String> modelSet = new LinkedHashSet<String>();
+		for (String prodModel : prodModels) {
+			if (prodModel != null && prodModel.length() > 0) {
+				modelSet.add(prodModel);
+			}
+		}
+		
+		// One query per chunk of Models, so that long lists do not exceed the database limits
+		List<String> modelList = new ArrayList<String>(modelSet);
+		for (int start = 0; start < modelList.size(); start += kMaxSkusPerQuery) {
+			List<String> chunk = modelList.subList(start, Math.min(start + kMaxSkusPerQuery, modelList.size()));
+			@SuppressWarnings("unchecked")
+			List<MzProductSkus> prodList = this.entityManager.createNamedQuery("findSkusByModels").
+					setParameter("productModels", chunk).getResultList();
+			assert prodList != null;
+			productSkus.addAll(prodList);
+		}
+		return productSkus;
+	}
+
 	@Override
 	public List<String> getProductSkusByCategory(String prodCategory) {
 		// check inputs
@@ -121,6 +165,40 @@ public class MzProductSkusDataImpl implements MzProductSkusDao {
 		return categories;
 	}
 
+	@Override
+	public List<MzProductSkus> getAllMzProductSkus() {
+		
+		if (this.entityManager == null) {
+			logger.log(Level.WARNING, "EntityManager has not been set..will NOT return MzProductSkus List!");
+			throw new RuntimeException("Attempted to retrieve all MzProductSkus with NULL EntityManager!");
+		}
+				
+		@SuppressWarnings("unchecked")
+		List<MzProductSkus> prodList = this.entityManager.createNamedQuery("findAllProductSkus").getResultList();
+		assert prodList != null;
+		return prodList;
+	}
+
+	@Override
+	public List<MzProductSkus> getMzProductSkusPage(int firstResult, int maxResults) {
+		
+		//check input
+		if (firstResult < 0 || maxResults < 1) {
+			logger.log(Level.WARNING, "Invalid page arguments..cannot retrieve MzProductSkus page!");
+			throw new IllegalArgumentException("Invalid page of MzProductSkus specified!");
+		}
+		if (this.entityManager == null) {
+			logger.log(Level.WARNING, "EntityManager has not been set..will NOT return MzProductSkus List!");
+			throw new RuntimeException("Attempted to retrieve a page of MzProductSkus with NULL EntityManager!");
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<MzProductSkus> prodList = this.entityManager.createNamedQuery("findAllProductSkusBySku").
+				setFirstResult(firstResult).setMaxResults(maxResults).getResultList();
+		assert prodList != null;
+		return prodList;
+	}
+
 	@Override
 	public MzProductSkus getMzProductSku(String productSKU) {
 		MzProductSkus productSkus;
@@ -145,6 +223,43 @@ public class MzProductSkusDataImpl implements MzProductSkusDao {
 		return productSkus;
 	}
 
+	@Override
+	public Map<String, MzProductSkus> getMzProductSkus(Collection<String> productSKUs) {
+		
+		// Output
+		Map<String, MzProductSkus> productSkus = new HashMap<String, MzProductSkus>();
+		
+		//check input
+		if (productSKUs == null) {
+			logger.log(Level.WARNING, "Invalid productSKUs argument..cannot retrieve associated MzProductSkus instances!");
+			throw new IllegalArgumentException("Invalid productSKUs argument for retrieval specified!");
+		}
+		if (this.entityManager == null) {
+			logger.log(Level.WARNING, "EntityManager has not been set..will NOT return MzProductSkus!");
+			throw new RuntimeException("Attempted to retrieve MzProductSkus instances with NULL EntityManager!");
+		}
+		Set<String> skuSet = new LinkedHashSet<String>();
+		for (String productSKU : productSKUs) {
+			if (productSKU != null && productSKU.length() > 0) {
+				skuSet.add(productSKU);
+			}
+		}
+		
+		// One query per chunk of SKUs, so that long lists do not exceed the database limits
+		List<String> skuList = new ArrayList<String>(skuSet);
+		for (int start = 0; start < skuList.size(); start += kMaxSkusPerQuery) {
+			List<String> chunk = skuList.subList(start, Math.min(start + kMaxSkusPerQuery, skuList.size()));
+			@SuppressWarnings("unchecked")
+			List<MzProductSkus> prodList = this.entityManager.createNamedQuery("findProductSkusBySkus").
+					setParameter("productSkus", chunk).getResultList();
+			assert prodList != null;
+			for (MzProductSkus product : prodList) {
+				productSkus.put(product.getProductSku(), product);
+			}
+		}
+		return productSkus;
+	}
+
 	@Override
 	public boolean addMzProductSku(MzProductSkus product) {
 		
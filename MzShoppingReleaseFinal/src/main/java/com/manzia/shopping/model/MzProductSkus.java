@@ -15,8 +15,14 @@ import javax.persistence.*;
 @NamedQueries({
     @NamedQuery(name = "findAllProductSkus",query = "SELECT p "
     + "FROM MzProductSkus p")
+    , @NamedQuery(name = "findAllProductSkusBySku",query = "SELECT p "
+    + "FROM MzProductSkus p " + "ORDER BY p.productSku")
     , @NamedQuery(name = "findSkusByModelAndBrand", query = "SELECT DISTINCT p FROM MzProductSkus p "
     + "WHERE p.productModel = :productModel AND p.productBrand = :productBrand " + "ORDER BY p.productSku")
+    , @NamedQuery(name = "findSkusByModels", query = "SELECT DISTINCT p FROM MzProductSkus p "
+    + "WHERE p.productModel IN :productModels " + "ORDER BY p.productSku")
+    , @NamedQuery(name = "findProductSkusBySkus", query = "SELECT p FROM MzProductSkus p "
+    + "WHERE p.productSku IN :productSkus")
     , @NamedQuery(name = "findProductCategoryForSku", query = "SELECT DISTINCT p.productCategory FROM MzProductSkus p "
     + "WHERE p.productSku = :productSku")
     , @NamedQuery(name = "findAllProductCategories", query = "SELECT DISTINCT p.productCategory FROM MzProductSkus p "
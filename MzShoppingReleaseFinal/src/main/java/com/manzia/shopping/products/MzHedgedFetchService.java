@@ -0,0 +1,81 @@
+package com.manzia.shopping.products;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+
+/**
+ * Session Bean implementation class MzHedgedFetchService
+ *
+ * MzHedgedFetchService singleton bean holds the {@link MzHedgedFetcher} shared by all
+ * in-flight searches, so that its fetch threads are created once and stopped when the
+ * application is undeployed.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@MzHedgedFetching
+public class MzHedgedFetchService {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzHedgedFetchService.class.getCanonicalName());
+
+	// Fetcher, created once the bean is constructed
+	private MzHedgedFetcher fetcher;
+
+    /**
+     * Default constructor.
+     */
+    public MzHedgedFetchService() {
+    }
+
+    @PostConstruct
+    public void startFetcher() {
+
+    	fetcher = new MzHedgedFetcher("MzHedgedFetchService", MzHedgedFetcher.kDefaultThreads,
+    			MzHedgedFetcher.kDefaultHedgeDelayMillis);
+    	logger.log(Level.INFO, "Started hedged fetcher with {0} threads", new Object[]{ MzHedgedFetcher.kDefaultThreads });
+    }
+
+    @PreDestroy
+    public void stopFetcher() {
+
+    	if (fetcher != null) {
+    		fetcher.shutdown();
+    		logger.log(Level.INFO, "Stopped hedged fetcher after {0} fetches, {1} hedges and {2} deadline misses",
+    				new Object[]{ fetcher.getFetches(), fetcher.getHedges(), fetcher.getDeadlineMisses() });
+    	}
+    }
+
+    /**
+     * Runs the fetches in parallel until the deadline, see {@link MzHedgedFetcher#fetchAll(Map, long)}
+     *
+     * @param tasks - fetches by key
+     * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock
+     * @return - results of the fetches that completed before the deadline
+     */
+    public <K, V> Map<K, V> fetchAll( Map<K, ? extends Callable<V>> tasks, long deadlineNanos ) {
+
+    	if (fetcher == null) {
+    		throw new IllegalStateException("Hedged fetcher has not been started");
+    	}
+    	return fetcher.fetchAll(tasks, deadlineNanos);
+    }
+
+    public MzHedgedFetcher getFetcher() {
+
+    	return fetcher;
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.manzia.shopping.products;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.manzia.shopping.util.MzDaemonThreadFactory;
+
+/**
+ * <p>Runs a set of independent fetches, e.g one BestBuy API call per model number, in parallel
+ * against a common deadline. A fetch still running when the 95th percentile of recent fetch
+ * latencies has passed is hedged: a duplicate is sent and whichever answers first wins. A fetch
+ * that fails is sent again once. At the deadline the fetches still running are abandoned and
+ * the results gathered so far are returned, so a slow call never stalls the whole request.</p>
+ *
+ * <p>Until enough latencies have been recorded the default hedge delay is used. The fetcher is
+ * safe for concurrent use.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzHedgedFetcher {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzHedgedFetcher.class.getCanonicalName());
+
+	public static final int kDefaultThreads = 16;
+	public static final long kDefaultHedgeDelayMillis = 1000L;
+	public static final long kMinHedgeDelayMillis = 20L;
+
+	// Latencies kept for the percentile, and how many are needed before it is trusted
+	private static final int kLatencyWindow = 512;
+	private static final int kMinLatencySamples = 20;
+	private static final int kPercentileInterval = 16;
+	private static final double kHedgePercentile = 0.95;
+
+	// A fetch is sent at most twice, as a hedge or as a retry after a failure
+	private static final int kMaxAttempts = 2;
+
+	// One attempt of a fetch, never completes exceptionally
+	private static final class Attempt<K, V> implements Callable<Attempt<K, V>> {
+		private final K key;
+		private final Callable<V> task;
+		private final boolean hedge;
+		private long latencyNanos;
+		private V result;
+		private Exception failure;
+
+		Attempt( K key, Callable<V> task, boolean hedge ) {
+			this.key = key;
+			this.task = task;
+			this.hedge = hedge;
+		}
+
+		@Override
+		public Attempt<K, V> call() {
+			long start = System.nanoTime();
+			try {
+				result = task.call();
+			} catch (Exception e) {
+				failure = e;
+			}
+			latencyNanos = System.nanoTime() - start;
+			return this;
+		}
+	}
+
+	// Attempts of one fetch that has not completed yet
+	private static final class Pending<K, V> {
+		private final Callable<V> task;
+		private final long firstSentNanos;
+		private final List<Future<Attempt<K, V>>> attempts = new ArrayList<Future<Attempt<K, V>>>(kMaxAttempts);
+		private int outstanding = 0;
+
+		Pending( Callable<V> task, long firstSentNanos ) {
+			this.task = task;
+			this.firstSentNanos = firstSentNanos;
+		}
+
+		void cancel() {
+			for (Future<Attempt<K, V>> attempt : attempts) {
+				attempt.cancel(true);
+			}
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+	private final long defaultHedgeDelayNanos;
+
+	// guarded by latencies
+	private final long[] latencies = new long[kLatencyWindow];
+	private int latencyCount = 0;
+	private int nextLatency = 0;
+	private volatile long hedgeDelayNanos;
+
+	// Metrics
+	private final AtomicLong fetches = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong deadlineMisses = new AtomicLong();
+
+	public MzHedgedFetcher() {
+		this("MzHedgedFetcher", kDefaultThreads, kDefaultHedgeDelayMillis);
+	}
+
+	/**
+	 * @param name - name prefix of the fetch threads
+	 * @param threads - most fetches running at once, the others queue
+	 * @param defaultHedgeDelayMillis - hedge delay used until enough latencies have been recorded
+	 */
+	public MzHedgedFetcher( String name, int threads, long defaultHedgeDelayMillis ) {
+		if (threads < 1 || defaultHedgeDelayMillis < 0) {
+			throw new IllegalArgumentException("Invalid hedged fetcher settings");
+		}
+		this.defaultHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(defaultHedgeDelayMillis);
+		this.hedgeDelayNanos = defaultHedgeDelayNanos;
+		this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new MzDaemonThreadFactory(name));
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs the fetches in parallel until they have all completed or the deadline has passed
+	 *
+	 * @param tasks - fetches by key
+	 * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock
+	 * @return - results of the fetches that completed before the deadline, in the order of the
+	 * tasks; failed and abandoned fetches have no entry
+	 */
+	public <K, V> Map<K, V> fetchAll( Map<K, ? extends Callable<V>> tasks, long deadlineNanos ) {
+
+		Map<K, V> results = new LinkedHashMap<K, V>();
+		Map<K, Pending<K, V>> pending = new LinkedHashMap<K, Pending<K, V>>();
+		CompletionService<Attempt<K, V>> completion = new ExecutorCompletionService<Attempt<K, V>>(executor);
+		long start = System.nanoTime();
+		for (Map.Entry<K, ? extends Callable<V>> task : tasks.entrySet()) {
+			Pending<K, V> fetch = new Pending<K, V>(task.getValue(), start);
+			pending.put(task.getKey(), fetch);
+			send(completion, task.getKey(), fetch, false);
+			fetches.incrementAndGet();
+		}
+
+		try {
+			while (!pending.isEmpty()) {
+				long now = System.nanoTime();
+				if (now - deadlineNanos >= 0) {
+					break;
+				}
+
+				// Hedge the fetches slower than the percentile, and wake up for the next one due. Nothing
+				// is hedged while fetches queue for a thread, duplicates would only queue behind them.
+				long hedgeDelay = hedgeDelayNanos;
+				long wakeAt = deadlineNanos;
+				boolean saturated = !executor.getQueue().isEmpty();
+				for (Map.Entry<K, Pending<K, V>> fetch : pending.entrySet()) {
+					Pending<K, V> waiting = fetch.getValue();
+					if (!saturated && waiting.attempts.size() < kMaxAttempts) {
+						long hedgeAt = waiting.firstSentNanos + hedgeDelay;
+						if (hedgeAt - now <= 0) {
+							send(completion, fetch.getKey(), waiting, true);
+							hedges.incrementAndGet();
+						} else if (hedgeAt - wakeAt < 0) {
+							wakeAt = hedgeAt;
+						}
+					}
+				}
+
+				Future<Attempt<K, V>> done = completion.poll(Math.max(0L, wakeAt - now), TimeUnit.NANOSECONDS);
+				if (done == null || done.isCancelled()) {
+					continue;
+				}
+				Attempt<K, V> attempt;
+				try {
+					attempt = done.get();
+				} catch (CancellationException e) {
+					continue;
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Attempts never fail", e);
+				}
+				Pending<K, V> fetch = pending.get(attempt.key);
+				if (fetch == null) {
+					continue;	// the other attempt already answered
+				}
+				fetch.outstanding--;
+				if (attempt.failure == null) {
+					recordLatency(attempt.latencyNanos);
+					results.put(attempt.key, attempt.result);
+					if (attempt.hedge) {
+						hedgeWins.incrementAndGet();
+					}
+					pending.remove(attempt.key);
+					fetch.cancel();
+				} else if (fetch.outstanding == 0) {
+					if (fetch.attempts.size() < kMaxAttempts && System.nanoTime() - deadlineNanos < 0) {
+						logger.log(Level.INFO, "Fetch {0} failed, sending it again: {1}",
+								new Object[]{ attempt.key, attempt.failure.getLocalizedMessage() });
+						send(completion, attempt.key, fetch, false);
+						retries.incrementAndGet();
+					} else {
+						logger.log(Level.WARNING, "Fetch {0} failed: {1}",
+								new Object[]{ attempt.key, attempt.failure.getLocalizedMessage() });
+						failures.incrementAndGet();
+						pending.remove(attempt.key);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Abandon whatever has not answered by the deadline
+		if (!pending.isEmpty()) {
+			logger.log(Level.WARNING, "Abandoning {0} of {1} fetches at the deadline: {2}",
+					new Object[]{ pending.size(), tasks.size(), pending.keySet() });
+			for (Pending<K, V> fetch : pending.values()) {
+				fetch.cancel();
+				deadlineMisses.incrementAndGet();
+			}
+		}
+		return results;
+	}
+
+	private <K, V> void send( CompletionService<Attempt<K, V>> completion, K key, Pending<K, V> fetch, boolean hedge ) {
+		fetch.attempts.add(completion.submit(new Attempt<K, V>(key, fetch.task, hedge)));
+		fetch.outstanding++;
+	}
+
+	// Adds a latency to the window and refreshes the hedge delay every few samples
+	private void recordLatency( long latencyNanos ) {
+		synchronized (latencies) {
+			latencies[nextLatency] = latencyNanos;
+			nextLatency = (nextLatency + 1) % kLatencyWindow;
+			latencyCount++;
+			if (latencyCount >= kMinLatencySamples && latencyCount % kPercentileInterval == 0) {
+				int samples = Math.min(latencyCount, kLatencyWindow);
+				long[] sorted = Arrays.copyOf(latencies, samples);
+				Arrays.sort(sorted);
+				long percentile = sorted[Math.min(samples - 1, (int) Math.ceil(kHedgePercentile * samples) - 1)];
+				hedgeDelayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(kMinHedgeDelayMillis), percentile);
+			}
+		}
+	}
+
+	/**
+	 * @return - current hedge delay, the 95th percentile of recent fetch latencies or the default
+	 */
+	public long getHedgeDelayMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos);
+	}
+
+	public long getDefaultHedgeDelayMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(defaultHedgeDelayNanos);
+	}
+
+	/**
+	 * @return - number of fetches requested
+	 */
+	public long getFetches() {
+		return fetches.get();
+	}
+
+	/**
+	 * @return - number of duplicate requests sent for slow fetches
+	 */
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	/**
+	 * @return - number of fetches answered by their duplicate request
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * @return - number of requests sent again after a failure
+	 */
+	public long getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * @return - number of fetches whose every attempt failed
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return - number of fetches abandoned at their deadline
+	 */
+	public long getDeadlineMisses() {
+		return deadlineMisses.get();
+	}
+
+	/**
+	 * Interrupts the running fetches and stops the fetch threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,48 @@
+package com.manzia.shopping.products;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.manzia.shopping.bestbuy.Product;
+import com.manzia.shopping.model.MzModelNumberPK;
+
+/**
+ * Products fetched for a list of model numbers within a latency budget, see
+ * {@link MzProductServiceBean#fetchProductsForModelNumbersByPK(List, long)}. The result is
+ * partial when some model numbers could not be fetched before the deadline.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzProductFetchResult {
+
+	private final List<Product> products;
+	private final List<MzModelNumberPK> missingModels;
+
+	public MzProductFetchResult( List<Product> products, List<MzModelNumberPK> missingModels ) {
+		assert products != null && missingModels != null;
+		this.products = products;
+		this.missingModels = Collections.unmodifiableList(missingModels);
+	}
+
+	/**
+	 * @return - Products fetched before the deadline
+	 */
+	public List<Product> getProducts() {
+		return products;
+	}
+
+	/**
+	 * @return - model numbers whose fetch failed or did not complete before the deadline
+	 */
+	public List<MzModelNumberPK> getMissingModels() {
+		return missingModels;
+	}
+
+	/**
+	 * @return - whether every model number was fetched
+	 */
+	public boolean isComplete() {
+		return missingModels.isEmpty();
+	}
+}
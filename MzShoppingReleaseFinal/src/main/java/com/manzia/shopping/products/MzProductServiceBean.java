@@ -3,22 +3,30 @@ package com.manzia.shopping.products;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import javax.annotation.Resource;
 import javax.ejb.AsyncResult;
 import javax.ejb.Asynchronous;
 import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -29,13 +37,18 @@ import com.manzia.shopping.bestbuy.Product;
 import com.manzia.shopping.bestbuy.ProductResponse;
 import com.manzia.shopping.bestbuy.ProductsResponse;
 import com.manzia.shopping.bestbuy.Remix;
+import com.manzia.shopping.bestbuy.RemixDeadlineTransport;
 import com.manzia.shopping.bestbuy.RemixException;
+import com.manzia.shopping.bestbuy.RemixTransport;
 import com.manzia.shopping.dao.MzModelNumberDao;
 import com.manzia.shopping.dao.MzModelNumberDataImpl;
 import com.manzia.shopping.dao.MzProdDatabase;
+import com.manzia.shopping.dao.MzProductSkuTable;
+import com.manzia.shopping.dao.MzProductSkusDao;
 import com.manzia.shopping.model.MzModelNumber;
 import com.manzia.shopping.model.MzModelNumberPK;
 import com.manzia.shopping.model.MzProductResult;
+import com.manzia.shopping.model.MzProductSkus;
 import com.manzia.shopping.services.MzItemSearchType;
 
 /**
@@ -59,18 +72,41 @@ public class MzProductServiceBean {
 	
 	@Inject @MzProdDatabase private EntityManager emanager;
 	
+	// Shared, pooled transport for the BestBuy API
+	@Inject @MzRemixTransport private MzRemixTransportService remixTransport;
+	
+	// Shared batcher of product SKU lookups
+	@Inject @MzSkuBatching private MzSkuBatchService skuBatches;
+	
+	// Data Access Object
+	@Inject @MzProductSkuTable private MzProductSkusDao skuDao;
+	
+	// Shared hedged per-model fetches within a deadline
+	@Inject @MzHedgedFetching private MzHedgedFetchService modelFetches;
+	
+	// Container proxy of this bean, needed to call its @Asynchronous methods
+	@Resource private SessionContext sessionContext;
+	
+	/**
+	 * System property setting how long, in milliseconds, {@link #fetchProductsForModelNumbersByPK(List)}
+	 * waits for the batched SKU lookup
+	 */
+	public static final String kFetchBudgetProperty = "manzia.products.fetchBudgetMillis";
+	private static final long fetchBudgetMillis = Long.getLong(kFetchBudgetProperty, 10000L);
+	
+	// Retailer name of BestBuy SKUs in the product_skus table
+	private static final String RETAILER_BESTBUY = "Best Buy";
+	
 	//BestBuy API access key
-	private static final String bestBuyKey = "4qabs35wxz465mfpmjvsg3c7";
+	static final String bestBuyKey = "4qabs35wxz465mfpmjvsg3c7";
 	
 	//Logger
 	public static final Logger logger = 
 			Logger.getLogger(MzProductServiceBean.class.getCanonicalName());
 	
 	// Alphanumeric pattern for Brand
-	private final Pattern alphanums = Pattern.compile("[^A-Za-z0-9]");
+	private static final Pattern alphanums = Pattern.compile("[^A-Za-z0-9]");
 	
-	// Separator
-	private static final String skuSeparator = ",";
 
     /**
      * Default constructor. 
@@ -134,7 +170,7 @@ public class MzProductServiceBean {
     	//ProductResponse itemResponse;
     	
     	// create the Remix instance
-    	Remix fetchModel = new Remix(bestBuyKey);
+    	Remix fetchModel = createRemix();
     	assert fetchModel != null;
     	
     	//Create the list to hold the product search terms
@@ -209,11 +245,18 @@ public class MzProductServiceBean {
     @Asynchronous
     public Future<ProductsResponse> fetchProductsForModelNumber(MzModelNumber model) {
     	
+    	return new AsyncResult<ProductsResponse>(fetchModelProducts(model, createRemix()));
+    }
+    
+    /**
+     * Retrieves the products matching a model through the given Remix client
+     * 
+     * @see MzProductServiceBean#fetchProductsForModelNumber(MzModelNumber)
+     */
+    private static ProductsResponse fetchModelProducts(MzModelNumber model, Remix fetchModel) {
+    	
     	ProductsResponse modelResponse;
     	ProductResponse itemResponse;
-    	
-    	// create the Remix instance
-    	Remix fetchModel = new Remix(bestBuyKey);
     	assert fetchModel != null;
     	
     	//Create the list to hold the product search terms
@@ -238,7 +281,7 @@ public class MzProductServiceBean {
     		modelBrandString = "*";
     	}
     	//String encodedModelNum = URLEncoder.encode(modelNumString, "UTF-8").replace("+", "%20");
-    	String encodedModelNum = quoteStringForURL(modelNumString);
+    	String encodedModelNum = quoteForURL(modelNumString);
     	assert encodedModelNum != null;
     	productFilter.add("modelNumber=" + encodedModelNum);
     	productFilter.add("manufacturer=" + modelBrandString);
@@ -295,7 +338,7 @@ public class MzProductServiceBean {
     		}
     	} 	
     	
-    	return new AsyncResult<ProductsResponse>(modelResponse);
+    	return modelResponse;
     }
     
     /**
@@ -377,12 +420,17 @@ public class MzProductServiceBean {
      * @throws Exception - throws an Exception for any network related failures or HTTP bad 
      * requests during the retrieval of any of the Products
      *
+     * Model numbers whose BestBuy SKUs are known from the product_skus table are looked up
+     * by SKU through the shared {@link MzSkuBatchService}, batched with the lookups of other
+     * searches, and waited for no longer than {@link #kFetchBudgetProperty} milliseconds. The
+     * remaining model numbers, and those whose SKUs returned no Products, are fetched one at a
+     * time by modelNumber and manufacturer.
+     *
      * @see MzProductServiceBean#fetchProductsForModelNumber(MzModelNumber)
      */
     public Future<List<Product>>fetchProductsForModelNumbersByPK(List<MzModelNumberPK> modelList) throws Exception
     {
     	List<Product> productsResponse;
-    	Set<Future<ProductsResponse>> futureSet;
     	assert modelList != null;
     	
     	// Return if modelList is null
@@ -390,57 +438,293 @@ public class MzProductServiceBean {
     		logger.log(Level.INFO, "List of ModelNumbers (PrimaryKeys) to retreive is empty..Return!");
     		productsResponse = new ArrayList<Product>();	// return empty List
     		return new AsyncResult<List<Product>>(productsResponse);
-    	} else {
-    		
-    		// Interate through the modelList and instantiate the Future objects
-    		futureSet = Collections.synchronizedSet( new HashSet<Future<ProductsResponse>>());
-    		assert futureSet != null;
-    		    		
-    		if (!modelList.isEmpty()) {
-    			ListIterator<MzModelNumberPK> modelIterator = modelList.listIterator();
-    			MzModelNumberPK modelPrimaryKey;
-    			MzModelNumber modelNumber;
-    			while (modelIterator.hasNext()) {
-    				modelPrimaryKey = modelIterator.next();
-    				modelNumber = new MzModelNumber(modelPrimaryKey, null, null, null, null, null);
-    				assert modelNumber != null;
-    				Future<ProductsResponse> futureResponse = fetchProductsForModelNumber(modelNumber);
-    				assert futureResponse != null;
-    				futureSet.add(futureResponse);
+    	}
+    	
+    	// Batched SKU lookup
+    	productsResponse = Collections.synchronizedList( new ArrayList<Product>());
+    	long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fetchBudgetMillis);
+    	List<MzModelNumberPK> unresolvedModels = fetchProductsBySku(modelList, productsResponse, deadlineNanos);
+    	
+    	// Fetch the rest by ModelNumber
+    	if (!unresolvedModels.isEmpty()) {
+    		productsResponse.addAll(fetchProductsForModelKeys(unresolvedModels));
+    	}
+    	
+    	//Log
+    	logger.log(Level.INFO, "Success fetching  {0} Products for {1} ModelNumbers provided!", 
+    			new Object[]{ productsResponse.size(), modelList.size()});
+    				
+    	return new AsyncResult<List<Product>>(productsResponse);
+    }
+    
+    /**
+     * Fetches Products from the BestBuy API like {@link #fetchProductsForModelNumbersByPK(List)},
+     * within the latency budget of a search. The batched SKU lookup is waited for until the deadline
+     * at most. The remaining model numbers are fetched in parallel through the shared
+     * {@link MzHedgedFetchService}, which sends a duplicate request for a fetch slower than the 95th
+     * percentile and sends a failed fetch again once, instead of retrying the whole list. The
+     * Remix calls of these fetches queue for the rate limiter, connect and read no longer than
+     * the time left, see {@link ModelFetch}.
+     * 
+     * @param modelList - the list of MzModelNumberPK objects for which Products will be retrieved
+     * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock
+     * @return - Products fetched before the deadline, and the model numbers that were not
+     */
+    public MzProductFetchResult fetchProductsForModelNumbersByPK(List<MzModelNumberPK> modelList, final long deadlineNanos)
+    {
+    	assert modelList != null;
+    	List<Product> products = Collections.synchronizedList( new ArrayList<Product>());
+    	List<MzModelNumberPK> missingModels = new ArrayList<MzModelNumberPK>();
+    	if (modelList.isEmpty()) {
+    		return new MzProductFetchResult(products, missingModels);
+    	}
+    	
+    	// Batched SKU lookup
+    	List<MzModelNumberPK> unresolvedModels = fetchProductsBySku(modelList, products, deadlineNanos);
+    	
+    	// Hedged fetches of the rest by ModelNumber
+    	if (!unresolvedModels.isEmpty()) {
+    		RemixTransport transport = remixTransport != null ? remixTransport.getTransport() : Remix.getDefaultTransport();
+    		Map<MzModelNumberPK, ModelFetch> fetches = new LinkedHashMap<MzModelNumberPK, ModelFetch>();
+    		for (MzModelNumberPK modelPrimaryKey : unresolvedModels) {
+    			fetches.put(modelPrimaryKey, new ModelFetch(
+    					new MzModelNumber(modelPrimaryKey, null, null, null, null, null), transport, deadlineNanos));
+    		}
+    		Map<MzModelNumberPK, ProductsResponse> modelResponses;
+    		if (modelFetches != null) {
+    			modelResponses = modelFetches.fetchAll(fetches, deadlineNanos);
+    		} else {
+    			// not running in the container, fetch through a fetcher of this call
+    			MzHedgedFetcher fetcher = new MzHedgedFetcher("MzProductServiceBean-fetch", 
+    					Math.min(fetches.size(), MzHedgedFetcher.kDefaultThreads), MzHedgedFetcher.kDefaultHedgeDelayMillis);
+    			try {
+    				modelResponses = fetcher.fetchAll(fetches, deadlineNanos);
+    			} finally {
+    				fetcher.shutdown();
     			}
-    			// Log
-    			logger.log(Level.INFO, "Fetch Requests for {0} ModelNumbers from BestBuy are scheduled!", 
-    					new Object[]{futureSet.size()});
+    		}
+    		for (MzModelNumberPK modelPrimaryKey : unresolvedModels) {
+    			ProductsResponse modelResponse = modelResponses.get(modelPrimaryKey);
+    			if (modelResponse != null) {
+    				products.addAll(modelResponse.list());
+    			} else {
+    				missingModels.add(modelPrimaryKey);
+    			}
+    		}
+    	}
+    	
+    	//Log
+    	logger.log(Level.INFO, "Fetched {0} Products for {1} of {2} ModelNumbers within the deadline!", 
+    			new Object[]{ products.size(), modelList.size() - missingModels.size(), modelList.size()});
+    	return new MzProductFetchResult(products, missingModels);
+    }
+    
+    /**
+     * One per-model fetch of {@link #fetchProductsForModelNumbersByPK(List, long)}. It holds only the
+     * inputs of the fetch, so an attempt abandoned at the deadline keeps no bean instance reachable,
+     * and its calls connect and read through a {@link RemixDeadlineTransport}, since cancelling an
+     * attempt does not interrupt its blocking I/O.
+     */
+    static final class ModelFetch implements Callable<ProductsResponse> {
+    	
+    	private final MzModelNumber model;
+    	private final RemixTransport transport;
+    	private final long deadlineNanos;
+    	
+    	ModelFetch( MzModelNumber model, RemixTransport transport, long deadlineNanos ) {
+    		this.model = model;
+    		this.transport = transport;
+    		this.deadlineNanos = deadlineNanos;
+    	}
+    	
+    	@Override
+    	public ProductsResponse call() throws RemixException {
+    		Remix fetchModel = new Remix(bestBuyKey, new RemixDeadlineTransport(transport, deadlineNanos));
+    		long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    		fetchModel.setQueueTimeoutMillis(Math.max(1L, Math.min(fetchModel.getQueueTimeoutMillis(), remainingMillis)));
+    		ProductsResponse modelResponse = fetchModelProducts(model, fetchModel);
+    		if (modelResponse.isError()) {
+    			// let the fetcher send it again
+    			throw new RemixException("BestBuy API returned HTTP " + modelResponse.getResponseCode());
+    		}
+    		return modelResponse;
+    	}
+    }
+    
+    /**
+     * Looks up the Products of the model numbers whose BestBuy SKUs are known through the
+     * shared {@link MzSkuBatchService}
+     * 
+     * @param modelList - primary keys of the MzModelNumbers
+     * @param products - list the Products found are added to
+     * @param deadlineNanos - deadline on the {@link System#nanoTime()} clock, the lookup is not waited for longer
+     * @return - model numbers left to fetch by modelNumber and manufacturer
+     */
+    private List<MzModelNumberPK> fetchProductsBySku( List<MzModelNumberPK> modelList, List<Product> products, 
+    		long deadlineNanos ) {
+    	
+    	// Resolve the ModelNumbers to BestBuy SKUs
+    	Map<MzModelNumberPK, List<String>> modelSkus = resolveBestBuySkus(modelList);
+    	List<MzModelNumberPK> unresolvedModels = new ArrayList<MzModelNumberPK>();
+    	for (MzModelNumberPK modelPrimaryKey : modelList) {
+    		if (!modelSkus.containsKey(modelPrimaryKey)) {
+    			unresolvedModels.add(modelPrimaryKey);
+    		}
+    	}
+    	
+    	// Batched SKU lookup
+    	if (!modelSkus.isEmpty()) {
+    		Set<String> batchSkus = new LinkedHashSet<String>();
+    		for (List<String> skus : modelSkus.values()) {
+    			batchSkus.addAll(skus);
+    		}
+    		List<Product> batchProducts = null;
+    		try {
+    			Future<List<Product>> batch = skuBatches.fetch(batchSkus);
+    			batchProducts = batch.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    		} catch (InterruptedException e) {
+    			logger.log(Level.SEVERE, "Interrupted exception while fetching Products for SKUs!");
+    			Thread.currentThread().interrupt();
+    		} catch (ExecutionException e) {
+    			logger.log(Level.WARNING, "Batched SKU lookup failed, fetching by ModelNumber instead: {0}", 
+    					new Object[]{ e.getCause() != null ? e.getCause().getLocalizedMessage() : e.getLocalizedMessage() });
+    		} catch (TimeoutException e) {
+    			logger.log(Level.WARNING, "Batched SKU lookup did not return before the deadline!");
     		}
     		
-    		// Get the ProductsResponses from the scheduled Futures
-    		productsResponse = Collections.synchronizedList( new ArrayList<Product>());
-    		ProductsResponse modelResponse;
-    		for (Future<ProductsResponse> response : futureSet) {
-    			//if (response.isDone()) {
-    				try {
-						modelResponse = response.get();
-						if (modelResponse != null) {
-	    					productsResponse.addAll(modelResponse.list());
-	    					
-	    				}
-					} catch (InterruptedException e) {
-						logger.log(Level.SEVERE, "Interrupted exception while fetching Products!");
-						modelResponse = null;
-					} catch (ExecutionException e) {
-						logger.log(Level.SEVERE, "Execution exception while fetching Products!");
-						e.printStackTrace();
-						throw new RuntimeException("Execution exception fetching products " + e.getLocalizedMessage());
-					}
-    				
-    			//}
+    		if (batchProducts == null) {
+    			unresolvedModels.addAll(modelSkus.keySet());
+    		} else {
+    			products.addAll(batchProducts);
+    			Set<String> foundSkus = new HashSet<String>();
+    			for (Product product : batchProducts) {
+    				foundSkus.add(product.getSku());
+    			}
+    			for (Map.Entry<MzModelNumberPK, List<String>> entry : modelSkus.entrySet()) {
+    				if (Collections.disjoint(foundSkus, entry.getValue())) {
+    					unresolvedModels.add(entry.getKey());
+    				}
+    			}
     		}
-    		//Log
-    		logger.log(Level.INFO, "Success fetching  {0} Products for {1} ModelNumbers provided!", 
-    				new Object[]{ productsResponse.size(), modelList.size()});
+    		logger.log(Level.INFO, "Batched SKU lookup returned {0} Products for {1} ModelNumbers!", 
+    				new Object[]{ batchProducts == null ? 0 : batchProducts.size(), modelSkus.size()});
     	}
-    				
-    	return new AsyncResult<List<Product>>(productsResponse);
+    	
+    	return unresolvedModels;
+    }
+    
+    /**
+     * Resolves model numbers to their BestBuy SKUs with one bulk query of the product_skus table
+     * 
+     * @param modelList - primary keys of the MzModelNumbers
+     * @return - BestBuy SKUs of each model that has any, in the order of the modelList; empty if 
+     * the table could not be read
+     */
+    private Map<MzModelNumberPK, List<String>> resolveBestBuySkus( List<MzModelNumberPK> modelList ) {
+    	
+    	Map<MzModelNumberPK, List<String>> modelSkus = new LinkedHashMap<MzModelNumberPK, List<String>>();
+    	if (skuDao == null || skuBatches == null) {
+    		return modelSkus;
+    	}
+    	Set<String> modelNums = new LinkedHashSet<String>();
+    	for (MzModelNumberPK modelPrimaryKey : modelList) {
+    		String modelNum = modelPrimaryKey.getModelNum();
+    		String modelBrand = modelPrimaryKey.getModelBrand();
+    		if (modelNum != null && !modelNum.isEmpty() && modelBrand != null && !modelBrand.isEmpty()) {
+    			modelNums.add(modelNum);
+    		}
+    	}
+    	if (modelNums.isEmpty()) {
+    		return modelSkus;
+    	}
+    	
+    	// Group the BestBuy SKUs of all the models by model and brand
+    	Map<List<String>, List<String>> skusByModelAndBrand = new HashMap<List<String>, List<String>>();
+    	try {
+    		for (MzProductSkus productSku : skuDao.getSkusByModels(modelNums)) {
+    			if (RETAILER_BESTBUY.equalsIgnoreCase(productSku.getRetailerName()) && productSku.getProductSku() != null) {
+    				List<String> modelAndBrand = Arrays.asList(productSku.getProductModel(), productSku.getProductBrand());
+    				List<String> skus = skusByModelAndBrand.get(modelAndBrand);
+    				if (skus == null) {
+    					skus = new ArrayList<String>();
+    					skusByModelAndBrand.put(modelAndBrand, skus);
+    				}
+    				skus.add(productSku.getProductSku());
+    			}
+    		}
+    	} catch (RuntimeException e) {
+    		logger.log(Level.WARNING, "Failed to resolve SKUs for {0} ModelNumbers, {1}", 
+    				new Object[]{ modelNums.size(), e.getLocalizedMessage() });
+    		return modelSkus;
+    	}
+    	for (MzModelNumberPK modelPrimaryKey : modelList) {
+    		List<String> skus = skusByModelAndBrand.get(
+    				Arrays.asList(modelPrimaryKey.getModelNum(), modelPrimaryKey.getModelBrand()));
+    		if (skus != null) {
+    			modelSkus.put(modelPrimaryKey, skus);
+    		}
+    	}
+    	return modelSkus;
+    }
+    
+    /**
+     * Fetches the Products of each model by modelNumber and manufacturer
+     * 
+     * @see MzProductServiceBean#fetchProductsForModelNumber(MzModelNumber)
+     */
+    private List<Product> fetchProductsForModelKeys( List<MzModelNumberPK> modelList ) {
+    	
+    	// Interate through the modelList and instantiate the Future objects
+    	Set<Future<ProductsResponse>> futureSet = Collections.synchronizedSet( new HashSet<Future<ProductsResponse>>());
+    	assert futureSet != null;
+    	
+    	// Call through the container's proxy so that the @Asynchronous fetches run concurrently, a call
+    	// on this would run them one after another on the calling thread
+    	MzProductServiceBean asyncFetches = sessionContext != null ? 
+    			sessionContext.getBusinessObject(MzProductServiceBean.class) : this;
+    	ListIterator<MzModelNumberPK> modelIterator = modelList.listIterator();
+    	MzModelNumberPK modelPrimaryKey;
+    	MzModelNumber modelNumber;
+    	while (modelIterator.hasNext()) {
+    		modelPrimaryKey = modelIterator.next();
+    		modelNumber = new MzModelNumber(modelPrimaryKey, null, null, null, null, null);
+    		assert modelNumber != null;
+    		Future<ProductsResponse> futureResponse = asyncFetches.fetchProductsForModelNumber(modelNumber);
+    		assert futureResponse != null;
+    		futureSet.add(futureResponse);
+    	}
+    	// Log
+    	logger.log(Level.INFO, "Fetch Requests for {0} ModelNumbers from BestBuy are scheduled!", 
+    			new Object[]{futureSet.size()});
+    	
+    	// Get the ProductsResponses from the scheduled Futures
+    	List<Product> productsResponse = new ArrayList<Product>();
+    	ProductsResponse modelResponse;
+    	for (Future<ProductsResponse> response : futureSet) {
+    		try {
+    			modelResponse = response.get();
+    			if (modelResponse != null) {
+    				productsResponse.addAll(modelResponse.list());
+    			}
+    		} catch (InterruptedException e) {
+    			logger.log(Level.SEVERE, "Interrupted exception while fetching Products!");
+    			modelResponse = null;
+    		} catch (ExecutionException e) {
+    			logger.log(Level.SEVERE, "Execution exception while fetching Products!");
+    			e.printStackTrace();
+    			throw new RuntimeException("Execution exception fetching products " + e.getLocalizedMessage());
+    		}
+    	}
+    	return productsResponse;
+    }
+    
+    /**
+     * @return - Remix client that places its calls through the shared transport, or
+     * through the default transport when no transport was injected
+     */
+    private Remix createRemix() {
+    	
+    	return remixTransport != null ? remixTransport.createRemix(bestBuyKey) : new Remix(bestBuyKey);
     }
     
     /**
@@ -458,18 +742,7 @@ public class MzProductServiceBean {
     		return new String();
     	}
     	
-    	// Iterate
-    	StringBuffer skuBuffer = new StringBuffer();
-    	skuBuffer.append("sku in(");
-    	for(Iterator<String> iter = skuList.iterator(); iter.hasNext();) {
-            skuBuffer.append(iter.next());
-            if(iter.hasNext()) {
-                skuBuffer.append(skuSeparator);
-            }
-        }
-    	skuBuffer.append(")");
-    	    	
-    	return skuBuffer.toString().replaceAll("\\s", "%20");   // replace all Spaces before we return 	
+    	return MzSkuBatcher.createSkuFilter(skuList);
     }
     
     /**
@@ -484,6 +757,12 @@ public class MzProductServiceBean {
      */
     public final String quoteStringForURL( String quoteURL ) {
 		
+    	return quoteForURL(quoteURL);
+    }
+    
+    // see quoteStringForURL
+    private static String quoteForURL( String quoteURL ) {
+    	
     	// check input
     	if ( quoteURL == null ){
     		return null;
@@ -116,7 +116,8 @@ public class MzProductsConverterImpl implements MzProductsConverter {
 		//Price Type
 		PriceType productPrice = rankedTypeFactory.createPriceType();
 		assert productPrice != null;
-		float price = productItem.getSalePrice() > 0 ? productItem.getSalePrice() : productItem.getRegularPrice();
+		float salePrice = productItem.getSalePrice();
+		float price = salePrice > 0 ? salePrice : productItem.getRegularPrice();
 		productPrice.setUnit("usd");
 		productPrice.setValue(Float.toString(price));
 		rankedProductType.setPrice(productPrice);
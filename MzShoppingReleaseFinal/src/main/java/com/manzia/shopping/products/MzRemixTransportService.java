@@ -0,0 +1,58 @@
+package com.manzia.shopping.products;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+
+import com.manzia.shopping.bestbuy.Remix;
+import com.manzia.shopping.bestbuy.RemixPooledTransport;
+
+/**
+ * Session Bean implementation class MzRemixTransportService
+ * 
+ * MzRemixTransportService singleton bean maintains a single pooled
+ * {@link RemixPooledTransport} that is shared across calls to the BestBuy API
+ * so that connections are kept alive and reused, and so that the number of
+ * connections to the BestBuy API is bounded for the whole application.
+ * 
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+@Singleton
+@LocalBean
+@MzRemixTransport
+public class MzRemixTransportService {
+	
+	//Logger
+	public static final Logger logger = 
+			Logger.getLogger(MzRemixTransportService.class.getCanonicalName());
+	
+	// Shared transport
+	private final RemixPooledTransport transport;
+
+    /**
+     * Default constructor. 
+     */
+    public MzRemixTransportService() {
+    	
+    	transport = new RemixPooledTransport();
+    	logger.log(Level.INFO, "Created Remix transport with {0} connections, {1} per host", 
+    			new Object[]{ transport.getMaxConnections(), transport.getMaxConnectionsPerHost() });
+    }
+    
+    public RemixPooledTransport getTransport() {
+    	
+    	return transport;
+    }
+    
+    /**
+     * @param apiKey - BestBuy API access key
+     * @return - new Remix client that places its calls through the shared transport
+     */
+    public Remix createRemix( String apiKey ) {
+    	
+    	return new Remix(apiKey, transport);
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.manzia.shopping.products;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+
+import com.manzia.shopping.bestbuy.BestBuyServiceParameters;
+import com.manzia.shopping.bestbuy.ErrorDocument;
+import com.manzia.shopping.bestbuy.Product;
+import com.manzia.shopping.bestbuy.ProductsResponse;
+import com.manzia.shopping.bestbuy.Remix;
+import com.manzia.shopping.bestbuy.RemixException;
+import com.manzia.shopping.services.MzItemSearchType;
+
+/**
+ * Session Bean implementation class MzSkuBatchService
+ *
+ * MzSkuBatchService singleton bean holds the {@link MzSkuBatcher} shared by all
+ * in-flight searches, so that product SKU lookups made at about the same time
+ * are sent to the BestBuy API as a single "sku in(...)" request per batch.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@MzSkuBatching
+public class MzSkuBatchService {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzSkuBatchService.class.getCanonicalName());
+
+	// Shared, pooled transport for the BestBuy API
+	@Inject @MzRemixTransport private MzRemixTransportService remixTransport;
+
+	// Batcher, created once the transport is injected
+	private MzSkuBatcher batcher;
+
+    /**
+     * Default constructor.
+     */
+    public MzSkuBatchService() {
+    }
+
+    @PostConstruct
+    public void startBatcher() {
+
+    	final Remix remix = remixTransport != null ?
+    			remixTransport.createRemix(MzProductServiceBean.bestBuyKey) : new Remix(MzProductServiceBean.bestBuyKey);
+    	batcher = new MzSkuBatcher(new MzSkuBatcher.SkuFetcher() {
+
+			@Override
+			public List<Product> fetchProducts(List<String> skus) throws Exception {
+				return fetchProductsForBatch(remix, skus);
+			}
+		});
+    	logger.log(Level.INFO, "Started SKU batcher with a {0} ms window and batches of {1} SKUs",
+    			new Object[]{ batcher.getWindowMillis(), batcher.getBatchSize() });
+    }
+
+    @PreDestroy
+    public void stopBatcher() {
+
+    	if (batcher != null) {
+    		batcher.shutdown();
+    		logger.log(Level.INFO, "Stopped SKU batcher after {0} lookups of {1} SKUs sent as {2} requests of {3} SKUs",
+    				new Object[]{ batcher.getLookups(), batcher.getRequestedSkus(), batcher.getBatches(), batcher.getFetchedSkus() });
+    	}
+    }
+
+    /**
+     * Looks up the Products for the product SKUs, batched with the lookups of other searches
+     *
+     * @param skus - BestBuy product SKUs
+     * @return - Future of the Products found for the SKUs
+     */
+    public Future<List<Product>> fetch( Collection<String> skus ) {
+
+    	if (batcher == null) {
+    		throw new IllegalStateException("SKU batcher has not been started");
+    	}
+    	return batcher.fetch(skus);
+    }
+
+    public MzSkuBatcher getBatcher() {
+
+    	return batcher;
+    }
+
+    // Sends one "sku in(...)" request for a batch of SKUs
+    private static List<Product> fetchProductsForBatch( Remix remix, List<String> skus ) throws RemixException {
+
+    	Map<String, String> skuParams =
+    			new BestBuyServiceParameters().getItemSearchParameters(MzItemSearchType.BESTBUY_PRODUCTSKU);
+    	assert skuParams != null;
+    	skuParams.put("pageSize", Integer.toString(skus.size()));
+
+    	ProductsResponse skuResponse = remix.getProducts(
+    			Collections.singletonList(MzSkuBatcher.createSkuFilter(skus)), skuParams);
+    	if (skuResponse.isError()) {
+    		ErrorDocument skuError = skuResponse.getError();
+    		String message = skuError != null ? skuError.getStatus() + " " + skuError.getMessage() :
+    			Integer.toString(skuResponse.getResponseCode());
+    		throw new RemixException("Failed to retrieve a batch of product SKUs: " + message);
+    	}
+    	return skuResponse.list();
+    }
+
+}
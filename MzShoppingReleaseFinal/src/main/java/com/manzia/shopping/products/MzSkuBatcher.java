@@ -0,0 +1,340 @@
+package com.manzia.shopping.products;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.manzia.shopping.bestbuy.Product;
+import com.manzia.shopping.util.MzDaemonThreadFactory;
+
+/**
+ * <p>Coalesces concurrent product SKU lookups into batched BestBuy API requests. Lookups that
+ * arrive within a short window, from any number of in-flight searches, are merged into a single
+ * set of distinct SKUs which is fetched with one "sku in(...)" request per batch of up to the
+ * batch size. Each lookup's {@link Future} then receives the Products for its own SKUs.</p>
+ *
+ * <p>A batch is sent when the window of its first lookup closes or as soon as it holds batch size
+ * distinct SKUs, whichever comes first. When a request fails, every lookup with a SKU in that
+ * request fails with the same cause. The batcher is safe for concurrent use.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzSkuBatcher {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzSkuBatcher.class.getCanonicalName());
+
+	public static final long kDefaultWindowMillis = 5L;
+	public static final int kDefaultBatchSize = 100;	// largest page size accepted by the BestBuy API
+	public static final int kDefaultFetchThreads = 4;
+	public static final long kShutdownMillis = 5000L;
+
+	// Separator
+	private static final String skuSeparator = ",";
+
+	/**
+	 * Fetches the Products for one batch of product SKUs
+	 */
+	public interface SkuFetcher {
+
+		/**
+		 * @param skus - distinct product SKUs, at most batch size of them
+		 * @return - Products found for the SKUs, in any order
+		 * @throws Exception - if the request failed
+		 */
+		List<Product> fetchProducts( List<String> skus ) throws Exception;
+	}
+
+	// Future of one lookup, completed when the last request holding one of its SKUs returns
+	private static final class Lookup extends FutureTask<List<Product>> {
+		private final Set<String> skus;
+		private final Set<String> remaining;				// guarded by this
+		private final List<Product> found = new ArrayList<Product>();	// guarded by this
+
+		Lookup( Set<String> skus ) {
+			super(new Callable<List<Product>>() {
+				@Override
+				public List<Product> call() {
+					throw new IllegalStateException("Lookups are completed by their batch");
+				}
+			});
+			this.skus = skus;
+			this.remaining = new LinkedHashSet<String>(skus);
+		}
+
+		// Adds the Products of the requested SKUs, completing the lookup once all its SKUs returned
+		synchronized void collect( Set<String> requested, Map<String, List<Product>> productsBySku ) {
+			for (String sku : skus) {
+				if (requested.contains(sku) && remaining.remove(sku)) {
+					List<Product> skuProducts = productsBySku.get(sku);
+					if (skuProducts != null) {
+						found.addAll(skuProducts);
+					}
+				}
+			}
+			if (remaining.isEmpty()) {
+				set(new ArrayList<Product>(found));
+			}
+		}
+
+		void completeEmpty() {
+			set(new ArrayList<Product>());
+		}
+
+		void fail( Throwable cause ) {
+			setException(cause);
+		}
+	}
+
+	private final SkuFetcher fetcher;
+	private final long windowMillis;
+	private final int batchSize;
+	private final ScheduledExecutorService timer;
+	private final ExecutorService fetchers;
+
+	// guarded by this
+	private List<Lookup> pendingLookups = new ArrayList<Lookup>();
+	private Set<String> pendingSkus = new LinkedHashSet<String>();
+	private boolean flushScheduled = false;
+
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong requestedSkus = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong fetchedSkus = new AtomicLong();
+
+	public MzSkuBatcher( SkuFetcher fetcher ) {
+		this(fetcher, kDefaultWindowMillis, kDefaultBatchSize, kDefaultFetchThreads);
+	}
+
+	/**
+	 * @param fetcher - fetches the Products for one batch of SKUs
+	 * @param windowMillis - time a lookup waits for other lookups to join its batch
+	 * @param batchSize - maximum number of SKUs in one request
+	 * @param fetchThreads - number of requests that may be in flight at the same time
+	 */
+	public MzSkuBatcher( SkuFetcher fetcher, long windowMillis, int batchSize, int fetchThreads ) {
+		if (fetcher == null || windowMillis < 0 || batchSize < 1 || fetchThreads < 1) {
+			throw new IllegalArgumentException("Invalid SKU batcher configuration");
+		}
+		this.fetcher = fetcher;
+		this.windowMillis = windowMillis;
+		this.batchSize = batchSize;
+		this.timer = Executors.newSingleThreadScheduledExecutor(new MzDaemonThreadFactory("MzSkuBatcher-timer"));
+		this.fetchers = Executors.newFixedThreadPool(fetchThreads, new MzDaemonThreadFactory("MzSkuBatcher-fetch"));
+	}
+
+	/**
+	 * Creates a SKU query string that is acceptable to the BestBuy API by concatenating
+	 * the product SKUs e.g "sku in(5067889,4647789,3838388)"
+	 *
+	 * @param skus - product SKU strings
+	 * @return - SKU query string with spaces replaced by %20
+	 */
+	public static String createSkuFilter( Collection<String> skus ) {
+		StringBuilder skuBuffer = new StringBuilder();
+		skuBuffer.append("sku in(");
+		for (Iterator<String> iter = skus.iterator(); iter.hasNext();) {
+			skuBuffer.append(iter.next());
+			if (iter.hasNext()) {
+				skuBuffer.append(skuSeparator);
+			}
+		}
+		skuBuffer.append(")");
+		return skuBuffer.toString().replaceAll("\\s", "%20");
+	}
+
+	/**
+	 * Looks up the Products for a set of product SKUs together with any other lookups that
+	 * arrive within the batching window
+	 *
+	 * @param skus - product SKUs
+	 * @return - Future of the Products found for the SKUs, empty if none were found
+	 */
+	public Future<List<Product>> fetch( Collection<String> skus ) {
+		Set<String> lookupSkus = new LinkedHashSet<String>();
+		if (skus != null) {
+			for (String sku : skus) {
+				if (sku != null && sku.trim().length() > 0) {
+					lookupSkus.add(sku.trim());
+				}
+			}
+		}
+		Lookup lookup = new Lookup(Collections.unmodifiableSet(lookupSkus));
+		if (lookupSkus.isEmpty()) {
+			lookup.completeEmpty();
+			return lookup;
+		}
+		lookups.incrementAndGet();
+		requestedSkus.addAndGet(lookupSkus.size());
+
+		boolean flushNow = false;
+		synchronized (this) {
+			pendingLookups.add(lookup);
+			pendingSkus.addAll(lookupSkus);
+			if (pendingSkus.size() >= batchSize) {
+				flushNow = true;
+			} else if (!flushScheduled) {
+				flushScheduled = true;
+				timer.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				}, windowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (flushNow) {
+			flush();
+		}
+		return lookup;
+	}
+
+	// Hands the pending lookups to a fetch thread
+	private void flush() {
+		final List<Lookup> batchLookups;
+		final List<String> batchSkus;
+		synchronized (this) {
+			flushScheduled = false;
+			if (pendingLookups.isEmpty()) {
+				return;
+			}
+			batchLookups = pendingLookups;
+			batchSkus = new ArrayList<String>(pendingSkus);
+			pendingLookups = new ArrayList<Lookup>();
+			pendingSkus = new LinkedHashSet<String>();
+		}
+		for (int start = 0; start < batchSkus.size(); start += batchSize) {
+			final List<String> requestSkus = batchSkus.subList(start, Math.min(start + batchSize, batchSkus.size()));
+			final List<Lookup> requestLookups = new ArrayList<Lookup>();
+			for (Lookup lookup : batchLookups) {
+				if (!Collections.disjoint(lookup.skus, requestSkus)) {
+					requestLookups.add(lookup);
+				}
+			}
+			fetchers.execute(new Runnable() {
+				@Override
+				public void run() {
+					fetchBatch(requestSkus, requestLookups);
+				}
+			});
+		}
+	}
+
+	// Fetches one request and fans the Products out to the lookups holding its SKUs
+	private void fetchBatch( List<String> requestSkus, List<Lookup> requestLookups ) {
+		List<Product> products;
+		try {
+			batches.incrementAndGet();
+			products = fetcher.fetchProducts(requestSkus);
+			if (products == null) {
+				products = Collections.emptyList();
+			}
+		} catch (Throwable t) {
+			logger.log(Level.WARNING, "Failed to fetch a batch of {0} product SKUs: {1}",
+					new Object[]{ Integer.toString(requestSkus.size()), t.getLocalizedMessage() });
+			for (Lookup lookup : requestLookups) {
+				lookup.fail(t);
+			}
+			return;
+		}
+		fetchedSkus.addAndGet(requestSkus.size());
+
+		Map<String, List<Product>> productsBySku = new HashMap<String, List<Product>>();
+		for (Product product : products) {
+			if (product == null || product.getSku() == null) continue;
+			List<Product> skuProducts = productsBySku.get(product.getSku());
+			if (skuProducts == null) {
+				skuProducts = new ArrayList<Product>(1);
+				productsBySku.put(product.getSku(), skuProducts);
+			}
+			skuProducts.add(product);
+		}
+		Set<String> requested = new LinkedHashSet<String>(requestSkus);
+		for (Lookup lookup : requestLookups) {
+			lookup.collect(requested, productsBySku);
+		}
+	}
+
+	/**
+	 * @return - number of lookups made
+	 */
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	/**
+	 * @return - number of SKUs asked for, counting a SKU once per lookup
+	 */
+	public long getRequestedSkus() {
+		return requestedSkus.get();
+	}
+
+	/**
+	 * @return - number of requests sent to the fetcher
+	 */
+	public long getBatches() {
+		return batches.get();
+	}
+
+	/**
+	 * @return - number of SKUs sent to the fetcher, counting a SKU once per request
+	 */
+	public long getFetchedSkus() {
+		return fetchedSkus.get();
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Stops the batcher; lookups that have not been sent are cancelled, requests in flight are
+	 * waited for up to {@link #kShutdownMillis} and then interrupted
+	 */
+	public void shutdown() {
+		List<Lookup> cancelled;
+		synchronized (this) {
+			cancelled = pendingLookups;
+			pendingLookups = new ArrayList<Lookup>();
+			pendingSkus = new LinkedHashSet<String>();
+		}
+		for (Lookup lookup : cancelled) {
+			lookup.cancel(false);
+		}
+		timer.shutdownNow();
+		fetchers.shutdown();
+		try {
+			if (!fetchers.awaitTermination(kShutdownMillis, TimeUnit.MILLISECONDS)) {
+				logger.log(Level.WARNING, "SKU batch requests still in flight after {0} ms..interrupting them",
+						new Object[]{ kShutdownMillis });
+				fetchers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			fetchers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
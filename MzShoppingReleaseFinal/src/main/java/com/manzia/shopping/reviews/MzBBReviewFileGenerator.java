@@ -20,8 +20,11 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
 import com.manzia.shopping.bestbuy.RemixException;
+import com.manzia.shopping.bestbuy.RemixSnapshotReader;
 import com.manzia.shopping.bestbuy.Review;
 import com.manzia.shopping.bestbuy.ReviewsResponse;
+import com.manzia.shopping.dao.MzProductSkusCache;
+import com.manzia.shopping.dao.MzProductSkusCachedDataImpl;
 import com.manzia.shopping.dao.MzProductSkusDao;
 import com.manzia.shopping.dao.MzProductSkusDataImpl;
 
@@ -122,10 +125,14 @@ public class MzBBReviewFileGenerator {
 		assert manager != null;	
 		//manager.getTransaction().begin();
 		
-		// Setup the data access object
-		skuDao = new MzProductSkusDataImpl();
+		// Setup the data access object, every review looks up the category of its SKU
+		// so the product_skus table is cached up front
+		MzProductSkusDataImpl tableDao = new MzProductSkusDataImpl();
+		tableDao.setEntityManager(manager);
+		MzProductSkusCachedDataImpl cachedDao = new MzProductSkusCachedDataImpl(tableDao, new MzProductSkusCache());
+		cachedDao.warmUp();
+		skuDao = cachedDao;
 		assert skuDao != null;
-		skuDao.setEntityManager(manager);
 	}
 	
 	/**
@@ -133,6 +140,13 @@ public class MzBBReviewFileGenerator {
 	 */
 	public static void closeDatabase() {
 		
+		// Report the product SKU lookups
+		if (skuDao instanceof MzProductSkusCachedDataImpl) {
+			MzProductSkusCache skuCache = ((MzProductSkusCachedDataImpl) skuDao).getCache();
+			logger.log(Level.INFO, "Product SKU cache answered [{0}] of [{1}] lookups, hit ratio: {2}", 
+					new Object[]{ skuCache.getHits(), skuCache.getHits() + skuCache.getMisses(), skuCache.getHitRatio()});
+		}
+		
 		//close the EntityManager
 		if (manager != null) {
 			//manager.getTransaction().commit();
@@ -248,7 +262,8 @@ public class MzBBReviewFileGenerator {
 	}
 	
 	/**
-	 * Method loads each reviews XML file into a List <br>
+	 * Method loads each reviews XML file into a List, reading the {@link RemixSnapshotReader snapshot}
+	 * of an XML file instead when it is not older than the XML file <br>
 	 * @param reviewDirectory - directory containing the reviews XML files
 	 * @return - List of ReviewsResponse object each representing a reviews XML file. Note that if
 	 * the reviews Directory has no valid reviews XML files, an empty List is returned.
@@ -271,7 +286,17 @@ public class MzBBReviewFileGenerator {
 		List<ReviewsResponse> reviewsList = Collections.synchronizedList(new ArrayList<ReviewsResponse>());
 		if (xmlFiles.size() > 0) {
 			for (File reviewXML : xmlFiles) {
-				ReviewsResponse reviewResponse = new ReviewsResponse(reviewXML);
+				File snapshot = RemixSnapshotReader.findSnapshot(reviewXML);
+				ReviewsResponse reviewResponse;
+				if (snapshot != null) {
+					try {
+						reviewResponse = RemixSnapshotReader.readReviews(snapshot);
+					} catch (IOException e) {
+						throw new RemixException("Failed to read reviews snapshot " + snapshot, e);
+					}
+				} else {
+					reviewResponse = new ReviewsResponse(reviewXML);
+				}
 				assert reviewResponse != null;
 				reviewsList.add(reviewResponse);
 			}
@@ -25,6 +25,8 @@ import org.apache.solr.common.SolrInputDocument;
 import com.manzia.shopping.bestbuy.RemixException;
 import com.manzia.shopping.bestbuy.Review;
 import com.manzia.shopping.bestbuy.ReviewsResponse;
+import com.manzia.shopping.core.MzRankManagerService;
+import com.manzia.shopping.core.MzRankTableBuilder;
 import com.manzia.shopping.dao.MzProductSkusDao;
 import com.manzia.shopping.dao.MzProductSkusDataImpl;
 
@@ -38,6 +40,8 @@ import com.manzia.shopping.dao.MzProductSkusDataImpl;
  * 
  * Usage: MzReviewsIndexer -inputReviewsDir 
  * 
+ * <p> After a successful run the precomputed product ranks are rebuilt, see {@link #buildRankTable(SolrServer)} </p>
+ * 
  * 
  * @author Roy Manzi Tumubweinee, Jan 26, 2013, Manzia Corporation
  *
@@ -120,6 +124,7 @@ public final class MzBBReviewsIndexer extends MzBBReviewFileGenerator {
 		}
 		if (success) {
 			logger.log(Level.INFO, "Success Indexing all Reviews!");
+			buildRankTable(solrServer);
 		} else {
 			logger.log(Level.INFO, "Failed to Index Reviews!");
 		}
@@ -129,6 +134,32 @@ public final class MzBBReviewsIndexer extends MzBBReviewFileGenerator {
 
 	}
 	
+	/**
+	 * Rebuilds the precomputed product ranks from the newly indexed reviews when both the
+	 * {@link MzRankTableBuilder#kVocabularyProperty} and {@link MzRankManagerService#kRankTableProperty}
+	 * system properties are set <br>
+	 * 
+	 * @param server - {@link SolrServer} instance holding the indexed reviews
+	 */
+	protected static void buildRankTable( SolrServer server ) {
+		
+		String vocabularyPath = System.getProperty(MzRankTableBuilder.kVocabularyProperty);
+		String tablePath = System.getProperty(MzRankManagerService.kRankTableProperty);
+		if (vocabularyPath == null || tablePath == null) {
+			logger.log(Level.INFO, "No quality vocabulary or rank table specified..skipping the rank table");
+			return;
+		}
+		try {
+			MzRankTableBuilder.build(server, MzRankTableBuilder.loadVocabulary(new File(vocabularyPath)), new File(tablePath));
+		} catch (SolrServerException se) {
+			logger.log(Level.SEVERE, "SolrServerException - during building of the rank table");
+			throw new RuntimeException("Failed to build the rank table " + se.getLocalizedMessage());
+		} catch (IOException ie) {
+			logger.log(Level.SEVERE, "IOException - during building of the rank table");
+			throw new RuntimeException("Failed to build the rank table " + ie.getLocalizedMessage());
+		}
+	}
+	
 	/**
 	 * Method converts Review objects to Document objects and adds them to the Index "managed" by
 	 * the specified SolrServer instance. <br>
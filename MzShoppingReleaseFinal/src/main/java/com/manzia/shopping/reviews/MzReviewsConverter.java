@@ -6,8 +6,10 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,9 +42,9 @@ public class MzReviewsConverter {
 	 * Method converts {@link SolrDocumentList} type to {@link com.manzia.shopping.reviews.ReviewMatches} type <br>
 	 * 
 	 * @param docList - {@link org.apache.solr.common.SolrDocumentList} to convert
-	 * @param skuDao - {@link MzProductSkusDao} data access object. Required since for every {@link SolrDocument}
+	 * @param skuDao - {@link MzProductSkusDao} data access object. Required since for the {@link SolrDocument}s
 	 * returned from the Index we have to query the database (product_sku table) to determine the associated
-	 * review's source i.e Best Buy, Amazon etc
+	 * review's source i.e Best Buy, Amazon etc. All the product SKUs are retrieved at once.
 	 * 
 	 * @return - converted {@link ReviewMatches} object
 	 */
@@ -64,10 +66,19 @@ public class MzReviewsConverter {
 			return reviewMatches;
 		}
 		
+		// Retrieve the product Skus of all the reviews at once
+		List<String> reviewSkus = new ArrayList<String>();
+		for (SolrDocument doc : docList) {
+			if (doc.getFieldValue("sku") instanceof String) {
+				reviewSkus.add((String)doc.getFieldValue("sku"));
+			}
+		}
+		Map<String, MzProductSkus> productSkus = skuDao.getMzProductSkus(reviewSkus);
+		
 		// Iterate
 		for (SolrDocument doc : docList) {
 			try {
-				ReviewMatchType reviewType = this.convertReviewMatchType(doc, skuDao);
+				ReviewMatchType reviewType = this.convertReviewMatchType(doc, productSkus);
 				if (reviewType != null) {
 					reviewMatches.getReviewMatch().add(reviewType);
 				}
@@ -93,10 +104,36 @@ public class MzReviewsConverter {
 	 * @return - converted {@link ReviewMatchType} object 
 	 * @throws DatatypeConfigurationException - thrown by {@link DataTypeFactory} instance method
 	 */
-	@SuppressWarnings("unchecked")
 	protected ReviewMatchType convertReviewMatchType( SolrDocument solrDoc, MzProductSkusDao skuDao ) 
 			throws DatatypeConfigurationException {
 		
+		// check inputs
+		if (solrDoc == null) {
+			logger.log(Level.WARNING, "Null SolrDocument specified..cannot convert to ReviewMatchType!");
+			return null;
+		}
+		Map<String, MzProductSkus> productSkus = new HashMap<String, MzProductSkus>();
+		String reviewSku = (String)solrDoc.getFieldValue("sku");
+		MzProductSkus prodSku = reviewSku == null || skuDao == null ? null : skuDao.getMzProductSku(reviewSku);
+		if (prodSku != null) {
+			productSkus.put(reviewSku, prodSku);
+		}
+		return convertReviewMatchType(solrDoc, productSkus);
+	}
+	
+	/**
+	 * Helper method that converts {@link SolrDocument} type to {@link ReviewMatchType} type <br>
+	 * 
+	 * @param solrDoc - {@link SolrDocument} to convert
+	 * @param productSkus - {@link Map} of product SKU to its {@link MzProductSkus}, which provides the
+	 * review's source i.e Best Buy, Amazon etc
+	 * @return - converted {@link ReviewMatchType} object 
+	 * @throws DatatypeConfigurationException - thrown by {@link DataTypeFactory} instance method
+	 */
+	@SuppressWarnings("unchecked")
+	protected ReviewMatchType convertReviewMatchType( SolrDocument solrDoc, Map<String, MzProductSkus> productSkus ) 
+			throws DatatypeConfigurationException {
+		
 		// check inputs
 		if (solrDoc == null) {
 			logger.log(Level.WARNING, "Null SolrDocument specified..cannot convert to ReviewMatchType!");
@@ -134,7 +171,7 @@ public class MzReviewsConverter {
 		if (reviewTime == null ) System.out.println("Review Time is null"); */
 		
 		// reviewSource
-		MzProductSkus prodSku = skuDao.getMzProductSku(reviewSku);
+		MzProductSkus prodSku = reviewSku == null || productSkus == null ? null : productSkus.get(reviewSku);
 		
 		if (reviewAuthor != null && !reviewAuthor.isEmpty() && reviewTitle != null && !reviewTitle.isEmpty()
 				&& reviewSku != null && !reviewSku.isEmpty() && reviewCategory != null && !reviewCategory.isEmpty()
@@ -0,0 +1,292 @@
+package com.manzia.shopping.searches;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.manzia.shopping.bestbuy.Product;
+import com.manzia.shopping.products.RankedProducts;
+
+/**
+ * <p>Cache of marshalled {@link RankedProducts} responses keyed by the canonical form of the query
+ * parameters, see {@link MzSearchVectorCache#canonicalize(Map)}. Each entry records the price and item
+ * update dates of the Products it was built from and is dropped when:</p>
+ * <ul>
+ * <li>its time-to-live expires</li>
+ * <li>any of its Products is seen again, see {@link #observe(Collection)}, with a different
+ * priceUpdateDate or itemUpdateDate</li>
+ * <li>the total size of the marshalled responses exceeds the byte bound, least recently used first</li>
+ * </ul>
+ *
+ * <p>A hit is served without re-checking its Products: the BestBuy API is the only source of prices and
+ * availability and a Product is only seen again when a later miss fetches it. A hit may therefore carry a
+ * price or availability up to the time-to-live old, which is why the default, see {@link #kTtlProperty},
+ * is kept short.</p>
+ *
+ * <p>Responses are stored marshalled so a hit always returns a fresh, caller-owned instance and the
+ * byte bound reflects the real size of the entries. The cache is safe for concurrent use.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzRankedProductsCache {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzRankedProductsCache.class.getCanonicalName());
+
+	/**
+	 * System property setting how long, in milliseconds, a response is cached. This bounds how stale the
+	 * prices and availability of a cached response can be
+	 */
+	public static final String kTtlProperty = "manzia.search.responseCacheTtlMillis";
+	public static final long kDefaultTimeToLiveMillis = 60L * 1000L;	// 1 minute
+	public static final long kDefaultMaxBytes = 16L * 1024L * 1024L;		// 16 MB
+
+	// Marshalled response and the update dates of the Products in it
+	private static final class Entry {
+		private final byte[] payload;
+		private final long expiresAt;
+		private final Map<String, String> skuStamps;
+
+		Entry( byte[] payload, long expiresAt, Map<String, String> skuStamps ) {
+			this.payload = payload;
+			this.expiresAt = expiresAt;
+			this.skuStamps = skuStamps;
+		}
+	}
+
+	private final long timeToLiveMillis;
+	private final long maxBytes;
+
+	// all guarded by this
+	private final LinkedHashMap<SortedMap<String, String>, Entry> entries =
+			new LinkedHashMap<SortedMap<String, String>, Entry>(16, 0.75f, true);
+	private final Map<String, Set<SortedMap<String, String>>> skuIndex =
+			new HashMap<String, Set<SortedMap<String, String>>>();
+	private long totalBytes = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	public MzRankedProductsCache() {
+		this(Long.getLong(kTtlProperty, kDefaultTimeToLiveMillis).longValue(), kDefaultMaxBytes);
+	}
+
+	/**
+	 * @param timeToLiveMillis - time after which an entry expires
+	 * @param maxBytes - bound on the total size of the marshalled responses
+	 */
+	public MzRankedProductsCache( long timeToLiveMillis, long maxBytes ) {
+		if (timeToLiveMillis <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException("Response cache requires a positive TTL and byte bound");
+		}
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param canonicalParams - query parameters in canonical form
+	 * @return - the cached response, unmarshalled into a new instance, or NULL if none is cached
+	 */
+	public RankedProducts get( SortedMap<String, String> canonicalParams ) {
+		byte[] payload = getBytes(canonicalParams);
+		if (payload == null) {
+			return null;
+		}
+		RankedProducts rankedProducts = MzRankedProductsMarshaller.unmarshal(payload);
+		if (rankedProducts == null) {
+			remove(canonicalParams);
+		}
+		return rankedProducts;
+	}
+
+	/**
+	 * Caches a response together with the update dates of the Products it was built from
+	 *
+	 * @param canonicalParams - query parameters in canonical form
+	 * @param rankedProducts - response
+	 * @param products - Products the response was built from
+	 */
+	public void put( SortedMap<String, String> canonicalParams, RankedProducts rankedProducts, Collection<Product> products ) {
+		assert rankedProducts != null;
+		byte[] payload = MzRankedProductsMarshaller.marshal(rankedProducts);
+		if (payload != null) {
+			putBytes(canonicalParams, payload, getSkuStamps(products));
+		}
+	}
+
+	/**
+	 * Records the current update dates of a set of freshly fetched Products and drops every entry that
+	 * was built from an older version of any of them
+	 *
+	 * @param products - freshly fetched Products
+	 * @return - number of entries dropped
+	 */
+	public int observe( Collection<Product> products ) {
+		return observeStamps(getSkuStamps(products));
+	}
+
+	/**
+	 * @param canonicalParams - query parameters in canonical form
+	 * @return - marshalled response or NULL if none is cached or it expired
+	 */
+	byte[] getBytes( SortedMap<String, String> canonicalParams ) {
+		synchronized (this) {
+			Entry entry = entries.get(canonicalParams);
+			if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+				hits.incrementAndGet();
+				return entry.payload;
+			}
+			if (entry != null) {
+				removeEntry(canonicalParams);
+				expirations.incrementAndGet();
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * @param canonicalParams - query parameters in canonical form
+	 * @param payload - marshalled response
+	 * @param skuStamps - update dates of the Products in the response, by SKU
+	 */
+	void putBytes( SortedMap<String, String> canonicalParams, byte[] payload, Map<String, String> skuStamps ) {
+		assert canonicalParams != null;
+		assert payload != null;
+		if (payload.length > maxBytes) {
+			logger.log(Level.INFO, "Response of {0} bytes exceeds the cache bound, not cached", new Object[]{Integer.toString(payload.length)});
+			return;
+		}
+		Entry entry = new Entry(payload, System.currentTimeMillis() + timeToLiveMillis, Collections.unmodifiableMap(skuStamps));
+		synchronized (this) {
+			removeEntry(canonicalParams);
+			entries.put(canonicalParams, entry);
+			totalBytes += payload.length;
+			for (String sku : skuStamps.keySet()) {
+				Set<SortedMap<String, String>> keys = skuIndex.get(sku);
+				if (keys == null) {
+					keys = new HashSet<SortedMap<String, String>>();
+					skuIndex.put(sku, keys);
+				}
+				keys.add(canonicalParams);
+			}
+
+			// Evict least recently used entries until within the bound
+			while (totalBytes > maxBytes && !entries.isEmpty()) {
+				removeEntry(entries.keySet().iterator().next());
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	int observeStamps( Map<String, String> skuStamps ) {
+		int dropped = 0;
+		synchronized (this) {
+			for (Map.Entry<String, String> stamp : skuStamps.entrySet()) {
+				Set<SortedMap<String, String>> keys = skuIndex.get(stamp.getKey());
+				if (keys == null) continue;
+				for (SortedMap<String, String> key : new ArrayList<SortedMap<String, String>>(keys)) {
+					Entry entry = entries.get(key);
+					if (entry != null && !stamp.getValue().equals(entry.skuStamps.get(stamp.getKey()))) {
+						removeEntry(key);
+						dropped++;
+					}
+				}
+			}
+		}
+		if (dropped > 0) {
+			invalidations.addAndGet(dropped);
+			logger.log(Level.INFO, "Invalidated {0} cached responses with updated Products", new Object[]{Integer.toString(dropped)});
+		}
+		return dropped;
+	}
+
+	public synchronized void remove( SortedMap<String, String> canonicalParams ) {
+		removeEntry(canonicalParams);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		skuIndex.clear();
+		totalBytes = 0;
+	}
+
+	// caller holds the lock
+	private void removeEntry( SortedMap<String, String> canonicalParams ) {
+		Entry entry = entries.remove(canonicalParams);
+		if (entry == null) {
+			return;
+		}
+		totalBytes -= entry.payload.length;
+		for (String sku : entry.skuStamps.keySet()) {
+			Set<SortedMap<String, String>> keys = skuIndex.get(sku);
+			if (keys != null && keys.remove(canonicalParams) && keys.isEmpty()) {
+				skuIndex.remove(sku);
+			}
+		}
+	}
+
+	// SKU -> "priceUpdateDate|itemUpdateDate" of each Product
+	private static Map<String, String> getSkuStamps( Collection<Product> products ) {
+		Map<String, String> skuStamps = new HashMap<String, String>();
+		if (products == null) {
+			return skuStamps;
+		}
+		for (Product product : products) {
+			if (product == null || product.getSku() == null) continue;
+			skuStamps.put(product.getSku(), product.getPriceUpdateDate() + "|" + product.getItemUpdateDate());
+		}
+		return skuStamps;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getTimeToLiveMillis() {
+		return timeToLiveMillis;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+}
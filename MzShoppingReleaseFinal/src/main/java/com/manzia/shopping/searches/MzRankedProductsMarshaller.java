@@ -0,0 +1,69 @@
+package com.manzia.shopping.searches;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import com.manzia.shopping.products.RankedProducts;
+
+/**
+ * Marshals {@link RankedProducts} responses to and from XML bytes for the {@link MzRankedProductsCache}.
+ * The JAXBContext is created once, Marshallers and Unmarshallers are not thread-safe and are
+ * created per call.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+final class MzRankedProductsMarshaller {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzRankedProductsMarshaller.class.getCanonicalName());
+
+	private static volatile JAXBContext jaxbContext;
+
+	private MzRankedProductsMarshaller() {
+	}
+
+	/**
+	 * @param rankedProducts - response to marshal
+	 * @return - XML bytes or NULL if the response could not be marshalled
+	 */
+	static byte[] marshal( RankedProducts rankedProducts ) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			getJAXBContext().createMarshaller().marshal(rankedProducts, out);
+		} catch (JAXBException e) {
+			logger.log(Level.WARNING, "Failed to marshal RankedProducts: {0}", new Object[]{e.getLocalizedMessage()});
+			return null;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param payload - XML bytes
+	 * @return - new RankedProducts instance or NULL if the bytes could not be unmarshalled
+	 */
+	static RankedProducts unmarshal( byte[] payload ) {
+		try {
+			return (RankedProducts) getJAXBContext().createUnmarshaller().unmarshal(new ByteArrayInputStream(payload));
+		} catch (JAXBException e) {
+			logger.log(Level.WARNING, "Failed to unmarshal RankedProducts: {0}", new Object[]{e.getLocalizedMessage()});
+			return null;
+		}
+	}
+
+	private static JAXBContext getJAXBContext() throws JAXBException {
+		JAXBContext context = jaxbContext;
+		if (context == null) {
+			context = JAXBContext.newInstance(RankedProducts.class);
+			jaxbContext = context;
+		}
+		return context;
+	}
+
+}
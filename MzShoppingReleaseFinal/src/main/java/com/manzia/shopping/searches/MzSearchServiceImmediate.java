@@ -6,15 +6,18 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,12 +37,13 @@ import com.manzia.shopping.bestbuy.Product;
 import com.manzia.shopping.dao.MzUserDeviceDao;
 import com.manzia.shopping.model.MzModelNumberPK;
 import com.manzia.shopping.products.BestBuyService;
+import com.manzia.shopping.products.MzProductFetchResult;
 import com.manzia.shopping.products.MzProductServiceBean;
 import com.manzia.shopping.products.MzProductsConverter;
 import com.manzia.shopping.products.MzProductsConverterImpl;
 import com.manzia.shopping.products.ObjectFactory;
 import com.manzia.shopping.products.RankedProducts;
-import com.manzia.shopping.vectorize.MzCosineDistance;
+import com.manzia.shopping.vectorize.MzInMemoryCosine;
 import com.manzia.shopping.vectorize.MzRankingService;
 import com.manzia.shopping.vectorize.MzSequenceFileGenerator;
 
@@ -73,12 +77,36 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 	private static final String KBrandKey = MzSequenceFileGenerator.kBrandFeatureName;
 	private static final String KNullValue = "null";
 	
+	// Latency budget of one search, Products fetched after it has been spent are left out
+	public static final String kSearchBudgetProperty = "manzia.search.budgetMillis";
+	private static final long searchBudgetMillis = Long.getLong(kSearchBudgetProperty, 2500L);
+	
 	// Default Number of Products to Search
 	private static final int topKProducts = 4;		// For testing purposes
 	
+	// Reversed Properties File, loaded once
+	private static final class ReversePropertiesTable {
+		private final String fileName;
+		private final Map<String, String> featureNames;
+		
+		ReversePropertiesTable( String fileName, Map<String, String> featureNames ) {
+			this.fileName = fileName;
+			this.featureNames = featureNames;
+		}
+	}
+	private static volatile ReversePropertiesTable reversePropertiesTable;
+	
+	// Search Vectors and feature encoders, shared by all instances of this bean
+	private static final MzSearchVectorCache searchVectorCache = new MzSearchVectorCache();
+	private static final ConcurrentMap<String, FeatureVectorEncoder> featureEncoders = 
+			new ConcurrentHashMap<String, FeatureVectorEncoder>();
+	
+	// End-to-end responses, shared by all instances of this bean
+	private static final MzRankedProductsCache rankedProductsCache = new MzRankedProductsCache();
+	
 		
 	// RankingService implementation
-	@Inject @MzCosineDistance 
+	@Inject @MzInMemoryCosine
 	private MzRankingService rankingService;
 	
 	// ProductService Implementation
@@ -94,10 +122,13 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
     
     /**
      * Implementation flow:
+     * 0- return the cached response if the same query was answered recently, see {@link MzRankedProductsCache}
      * 1- create a search Vector from the queryParameters map
      * 2- get the List of ModelNumbers + Brand that are "closest" to the search Vector
-     * 3- For all retailer APIs, get a List of Products matching the modelNumbers, we make
-     * make two attempts before aborting
+     * 3- For all retailer APIs, get a List of Products matching the modelNumbers within the latency
+     * budget of the search, see {@link #kSearchBudgetProperty}. Slow fetches are hedged and failed ones
+     * sent again; the response holds the Products that arrived before the deadline and, when partial,
+     * is not cached
      * 4- Rank the retrieved Products by Price and return the "best" as a RankedProducts object
      * 
      */
@@ -116,6 +147,17 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 			return null;
 		} else {
 			
+			// The latency budget of the whole search starts now
+			long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchBudgetMillis);
+			
+			// Serve a repeated query from the response cache
+			SortedMap<String, String> canonicalParams = MzSearchVectorCache.canonicalize(queryParameters);
+			RankedProducts cachedProducts = rankedProductsCache.get(canonicalParams);
+			if (cachedProducts != null) {
+				logger.log(Level.INFO, "Returning cached RankedProducts for query: {0}", new Object[]{canonicalParams});
+				return cachedProducts;
+			}
+			
 			// Create the Search Vector
 			NamedVector searchVector = createSearchVector(queryParameters);
 			assert searchVector != null;
@@ -163,49 +205,32 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 					}						
 				}
 				
-				// Get the Products from the Retailer APIs using modelNumbers & associated modelBrands
-				Future<List<Product>> futureBestBuyList;
+				// Get the Products from the Retailer APIs using modelNumbers & associated modelBrands, within
+				// what is left of the search budget. Products that arrive late are left out of the response.
 				List<Product> bestBuyList = new ArrayList<Product>(); // Instantiate so we return empty List on failure!!
+				boolean completeList = false;
 				try {
 					
 					//Retrieve from the BestBuy API
 					logger.log(Level.INFO, "Will submit {0} modelNumbers to the BestBuy API", 
 							new Object[]{Integer.toString(primaryKeyList.size())});
-					logger.log(Level.INFO, "First modelNumber submitted is {0}", new Object[] {primaryKeyList.get(0)});
-					futureBestBuyList = productService.fetchProductsForModelNumbersByPK(primaryKeyList);					
-					
-				} catch (Exception e) {
-					logger.log(Level.WARNING, "Exception on first attempt retrieving Products from the Best Buy API! {0}", 
-							new Object[]{e.getLocalizedMessage()});
-					futureBestBuyList = null;
-					
-					// try a second time
-					try {
-						futureBestBuyList = productService.fetchProductsForModelNumbersByPK(primaryKeyList);
-					} catch (Exception e1) {
-						logger.log(Level.WARNING, "Exception on second attempt retrieving Products from the Best Buy API! {0}", 
-								new Object[]{e1.getLocalizedMessage()});
-						futureBestBuyList = null;						
+					MzProductFetchResult fetchResult = productService.fetchProductsForModelNumbersByPK(primaryKeyList, deadlineNanos);
+					bestBuyList = fetchResult.getProducts();
+					completeList = fetchResult.isComplete();
+					if (!completeList) {
+						logger.log(Level.WARNING, "Search budget exhausted, returning partial results without ModelNumbers: {0}", 
+								new Object[]{ fetchResult.getMissingModels() });
 					}
-				}
-				if (futureBestBuyList != null) {
-					try {
-						bestBuyList = futureBestBuyList.get(); // In production, check future.isDone() first before get()!!
-					} catch (InterruptedException e) {
-						logger.log(Level.SEVERE, "Interrupted exception while getting Products from BestBuy API: {0}", 
-								new Object[]{ e.getLocalizedMessage()});
-						
-					} catch (ExecutionException e) {
-						logger.log(Level.SEVERE, "Execution exception while getting Products from BestBuy API: {0}", 
-								new Object[]{ e.getLocalizedMessage()});
-						throw new RuntimeException("Execution exception getting Products from BestBuy API "+ e.getLocalizedMessage());
-					}
-				} else {
-					logger.log(Level.WARNING, "Failed to retrieve Products from BestBuy API!");
+				} catch (RuntimeException e) {
+					logger.log(Level.WARNING, "Exception retrieving Products from the Best Buy API! {0}", 
+							new Object[]{e.getLocalizedMessage()});
 				}
 				if (!bestBuyList.isEmpty()) {
 					logger.log(Level.INFO, "Retrieved {0} Products from BestBuy API!", new Object[]{ Integer.toString(bestBuyList.size())} );
 					
+					// Drop cached responses built from older prices or details of these Products
+					rankedProductsCache.observe(bestBuyList);
+					
 					// convert the List of Product into a RankedProducts object
 					MzProductsConverter productConverter = new MzProductsConverterImpl();
 					String salePrice = queryParameters.get(KSalePriceKey);
@@ -213,6 +238,9 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 					Float queryPrice = salePrice != null ? Float.valueOf(salePrice) : Float.valueOf(regularPrice);
 					rankedProducts = productConverter.convertToRankedProducts(bestBuyList, queryPrice, topKProducts);
 					assert rankedProducts != null;
+					if (completeList) {
+						rankedProductsCache.put(canonicalParams, rankedProducts, bestBuyList);
+					}
 				}
 			}
 		}	
@@ -247,7 +275,8 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 	}
 		
 	/**
-	 * Method that generates a Vector from a set of query parameters
+	 * Method that generates a Vector from a set of query parameters. Vectors are cached by the canonical
+	 * form of the query parameters, so a repeated query is not encoded again.
 	 * 
 	 * @param queryParams - Map of query parameters
 	 * @return - encoded Vector
@@ -264,25 +293,39 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 			return null;
 		}
 		
+		// Load the reverse Properties first, a new Properties File also empties the cache
+		Map<String, String> vectorProps = getReverseProperties();
+		SortedMap<String, String> canonicalParams = MzSearchVectorCache.canonicalize(queryParams);
+		NamedVector searchVector = searchVectorCache.get(canonicalParams);
+		if (searchVector == null) {
+			searchVector = encodeSearchVector(canonicalParams, vectorProps);
+			if (searchVector != null) {
+				searchVectorCache.put(canonicalParams, searchVector);
+			}
+		}
+		return searchVector;
+	}
+	
+	/**
+	 * Method that encodes a Vector from a set of query parameters
+	 * 
+	 * @param queryParams - Map of query parameters
+	 * @param vectorProps - reversed Properties File, see {@link #getReverseProperties()}
+	 * @return - encoded Vector
+	 */
+	private NamedVector encodeSearchVector( Map<String, String> queryParams, Map<String, String> vectorProps ) {
+		
 		// Initialize the search Vector, the Vector is given the name of the Category Key
 		String categoryValue = queryParams.get(kCategoryKey);
 		assert categoryValue != null;
 		NamedVector searchVector = new NamedVector( 
 				new SequentialAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE), categoryValue);
 		assert searchVector != null;
-		Map<String, Set<Integer>> traceDictionary = new TreeMap<String, Set<Integer>>();		
 		// Initialize the StringBuffer that will captures all the query values as one string to be
 		// encoded as a separate feature
 		List<String> features = new ArrayList<String>();
 		
-		// Assign relationsMap
-		//Map<String, String>	relationsMap = Collections.synchronizedMap( new HashMap<String, String>());
-		//relationsMap.putAll(queryParams);
-		//relationsMap.remove(kCategoryKey);
-		//relationsMap.remove(KRegularPriceKey);
-		//relationsMap.remove(KSalePriceKey);
-		
-		/* Initialize the Properties File - NOTE that we MUST use the same Properties file that was
+		/* NOTE that we MUST use the same Properties file that was
 		// used to generate the SequenceFile we'll be comparing the search Vector against.
 		 * NOTE: The following is assumed
 		 * 1- The String values of the Keys in the Map of Query Parameters are equal to the String values of the
@@ -292,7 +335,6 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 		 * 2- Becoz of 1 above, we actually reverse the Properties File used to generate SequenceFile before we
 		 * can use it to generate Search Vectors
 		*/
-		Properties vectorProps = reverseProperties(MzSequenceFileGenerator.getPropertiesFileName());
 		assert vectorProps != null;
 				
 		// Iterate over the Map and encode each entry
@@ -301,19 +343,12 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 			String brandValue = null;
 			String regPriceValue = null;
 			String salePriceValue = null;
-			Set<String> querySet = queryParams.keySet();
-			assert querySet != null;
-			Iterator<String> queryIterator = querySet.iterator();
-			assert queryIterator != null;
 			
-			while (queryIterator.hasNext()) {
-				String queryKey = new String(queryIterator.next());
-				assert queryKey != null;
-				String queryValue = queryParams.get(queryKey);
+			for (Map.Entry<String, String> queryEntry : queryParams.entrySet()) {
+				String queryKey = queryEntry.getKey();
+				String queryValue = queryEntry.getValue();
 				assert queryValue != null;
-				String featureName = vectorProps.getProperty(queryKey);
-				//System.out.printf("QueryKey: %s\t\t QueryValue: %s\t\t Feature Name: %s\n", queryKey, queryValue, featureName);
-				assert featureName != null;
+				String featureName = vectorProps.get(queryKey);
 				
 				// Set the Price, Brand
 				if (queryKey.equals(KBrandKey)) {
@@ -328,22 +363,15 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 				features.add(queryValue);
 				
 				// Encode only those details.name elements in our vectorMap
-				if (featureName.length() > 0) {
-					FeatureVectorEncoder encoder = new StaticWordValueEncoder(featureName);
-					assert encoder != null;
-					encoder.setProbes(2);
-					encoder.setTraceDictionary(traceDictionary);
-					encoder.addToVector(queryValue, MzSequenceFileGenerator.kMediumWeight ,searchVector);
+				if (featureName != null && featureName.length() > 0) {
+					getWordEncoder(featureName, 2).addToVector(queryValue, MzSequenceFileGenerator.kMediumWeight ,searchVector);
 				} else {
-					logger.log(Level.WARNING, "Properties File has empty Feature Name!");
+					logger.log(Level.WARNING, "Properties File has empty Feature Name for query key: {0}", new Object[]{queryKey});
 				}				
 			}
 			
 			// Encode all the queryValues as one feature
-			FeatureVectorEncoder featureEncoder = new StaticWordValueEncoder(MzSequenceFileGenerator.kProductFeaturesName);
-			assert featureEncoder != null;
-			featureEncoder.setTraceDictionary(traceDictionary);
-			featureEncoder.setProbes(2);
+			FeatureVectorEncoder featureEncoder = getWordEncoder(MzSequenceFileGenerator.kProductFeaturesName, 2);
 			for (String feature : features) {
 				featureEncoder.addToVector(feature, MzSequenceFileGenerator.kSmallWeight, searchVector);
 			}			
@@ -351,17 +379,10 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 			// Encode the Price, Brand and Category features separately. These features are given a significant
 			// weighting in order to influence the Vector Similarity Metric.
 			if (brandValue != null && brandValue.length() > 0) {
-				FeatureVectorEncoder encoder = new StaticWordValueEncoder(MzSequenceFileGenerator.kBrandFeatureName);
-				assert encoder != null;
-				encoder.setTraceDictionary(traceDictionary);
-				encoder.setProbes(2);
-				encoder.addToVector(brandValue, MzSequenceFileGenerator.kLargeWeight ,searchVector);
+				getWordEncoder(MzSequenceFileGenerator.kBrandFeatureName, 2).addToVector(brandValue, MzSequenceFileGenerator.kLargeWeight ,searchVector);
 			}
 			
-			FeatureVectorEncoder categoryEncoder = new StaticWordValueEncoder(MzSequenceFileGenerator.kCategoryFeatureName);
-			assert categoryEncoder != null;
-			categoryEncoder.setTraceDictionary(traceDictionary);
-			categoryEncoder.addToVector(categoryValue, searchVector);
+			getWordEncoder(MzSequenceFileGenerator.kCategoryFeatureName, 1).addToVector(categoryValue, searchVector);
 			
 			// Encode the Price
 			if (regPriceValue != null) {
@@ -373,46 +394,14 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 				float medianPrice = MzFeatureUtils.getPriceRangeMedian(userPrice);
 				regPriceValue = Float.toString(medianPrice);
 				if (regPriceValue.length() > 0) {
-					//relationsMap.put(MzSequenceFileGenerator.kPriceFeatureName, regPriceValue);
-					FeatureVectorEncoder priceEncoder = new ContinuousValueEncoder(MzSequenceFileGenerator.kPriceFeatureName);
-					assert priceEncoder != null;
-					priceEncoder.setTraceDictionary(traceDictionary);
-					priceEncoder.setProbes(2);
-					priceEncoder.addToVector(regPriceValue, MzSequenceFileGenerator.kLargeWeight, searchVector);
+					getContinuousEncoder(MzSequenceFileGenerator.kPriceFeatureName, 2).addToVector(regPriceValue, MzSequenceFileGenerator.kLargeWeight, searchVector);
 				}
 			}
 			
 			// Encode the combination of Brand and Price
 			String brandPriceFeature = KBrandKey + MzSequenceFileGenerator.kPriceFeatureName;
 			String brandPriceValue = brandValue + regPriceValue;
-			FeatureVectorEncoder brandPriceEncoder = new StaticWordValueEncoder(brandPriceFeature);
-			brandPriceEncoder.setTraceDictionary(traceDictionary);
-			brandPriceEncoder.setProbes(2);
-			brandPriceEncoder.addToVector(brandPriceValue, MzSequenceFileGenerator.kXLargeWeight, searchVector);
-			
-			/* Encode the relation Features
-			Map<String, String> relatedFeatures = MzFeatureUtils.getRelationFeatures(relationsMap);
-			assert relatedFeatures != null;
-			if (!relatedFeatures.isEmpty()) {
-				Set<String> relationSet = relatedFeatures.keySet();
-				Iterator<String> relationIterator = relationSet.iterator();
-				assert relationIterator != null;
-				while (relationIterator.hasNext()) {
-					String key = relationIterator.next();
-					if (key.startsWith(KBrandKey) && 
-							key.endsWith(MzSequenceFileGenerator.kPriceFeatureName)) {
-						FeatureVectorEncoder tripleEncoder = new StaticWordValueEncoder(key);
-						tripleEncoder.setTraceDictionary(traceDictionary);
-						tripleEncoder.setProbes(2);
-						tripleEncoder.addToVector(relatedFeatures.get(key), MzSequenceFileGenerator.kXXLargeWeight, searchVector);
-					} else if (key.startsWith(KBrandKey)) {
-						FeatureVectorEncoder doubleEncoder = new StaticWordValueEncoder(key);
-						doubleEncoder.setTraceDictionary(traceDictionary);
-						doubleEncoder.setProbes(2);
-						doubleEncoder.addToVector(relatedFeatures.get(key), MzSequenceFileGenerator.kXLargeWeight, searchVector);
-					}
-				}
-			}*/				
+			getWordEncoder(brandPriceFeature, 2).addToVector(brandPriceValue, MzSequenceFileGenerator.kXLargeWeight, searchVector);
 			
 		} else {
 			logger.log(Level.WARNING, "Empty Properties File was created...cannot encode Search Vector!");
@@ -421,6 +410,73 @@ public class MzSearchServiceImmediate implements MzSearchImmediateInterface {
 		return searchVector;		
 	}
 	
+	// Encoders are immutable once configured, so one instance per feature name is shared by all searches
+	private static FeatureVectorEncoder getWordEncoder( String featureName, int probes ) {
+		String key = "word:" + probes + ":" + featureName;
+		FeatureVectorEncoder encoder = featureEncoders.get(key);
+		if (encoder == null) {
+			encoder = new StaticWordValueEncoder(featureName);
+			encoder.setProbes(probes);
+			FeatureVectorEncoder existing = featureEncoders.putIfAbsent(key, encoder);
+			encoder = existing != null ? existing : encoder;
+		}
+		return encoder;
+	}
+	
+	private static FeatureVectorEncoder getContinuousEncoder( String featureName, int probes ) {
+		String key = "continuous:" + probes + ":" + featureName;
+		FeatureVectorEncoder encoder = featureEncoders.get(key);
+		if (encoder == null) {
+			encoder = new ContinuousValueEncoder(featureName);
+			encoder.setProbes(probes);
+			FeatureVectorEncoder existing = featureEncoders.putIfAbsent(key, encoder);
+			encoder = existing != null ? existing : encoder;
+		}
+		return encoder;
+	}
+	
+	/**
+	 * Returns the reversed Properties File used to generate the SequenceFiles, see {@link #reverseProperties(String)}.
+	 * The File is read once and the table shared by all searches; it is only read again if the name of the
+	 * Properties File changes, in which case the cached search Vectors are discarded as well.
+	 * 
+	 * @return - unmodifiable Map of query parameter keys to feature names
+	 */
+	public Map<String, String> getReverseProperties() {
+		String propertiesFileName = MzSequenceFileGenerator.getPropertiesFileName();
+		ReversePropertiesTable table = reversePropertiesTable;
+		if (table == null || !table.fileName.equals(propertiesFileName)) {
+			synchronized (MzSearchServiceImmediate.class) {
+				table = reversePropertiesTable;
+				if (table == null || !table.fileName.equals(propertiesFileName)) {
+					Properties vectorProps = reverseProperties(propertiesFileName);
+					Map<String, String> featureNames = new HashMap<String, String>();
+					for (String queryKey : vectorProps.stringPropertyNames()) {
+						featureNames.put(queryKey, vectorProps.getProperty(queryKey));
+					}
+					table = new ReversePropertiesTable(propertiesFileName, Collections.unmodifiableMap(featureNames));
+					reversePropertiesTable = table;
+					searchVectorCache.clear();
+				}
+			}
+		}
+		return table.featureNames;
+	}
+	
+	/**
+	 * @return - cache of RankedProducts responses shared by all instances of this bean
+	 */
+	public static MzRankedProductsCache getRankedProductsCache() {
+		return rankedProductsCache;
+	}
+	
+	/**
+	 * @return - cache of search Vectors shared by all instances of this bean
+	 */
+	public static MzSearchVectorCache getSearchVectorCache() {
+		return searchVectorCache;
+	}
+	
 	/**
 	 * Method reads in a Properties file whose Keys are feature "names" that will be
 	 * used to encode the search Vector and then reverses the Keys and Values. This is 
@@ -0,0 +1,123 @@
+package com.manzia.shopping.searches;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mahout.math.NamedVector;
+
+/**
+ * <p>Bounded, least-recently-used cache of encoded search Vectors keyed by the canonical form of the
+ * query parameters they were encoded from, see {@link #canonicalize(Map)}. Two queries that differ only
+ * in parameter order share an entry.</p>
+ *
+ * <p>Vectors are copied on the way in and on the way out so callers can never modify a cached Vector.
+ * The cache is safe for concurrent use.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzSearchVectorCache {
+
+	public static final int kDefaultMaxEntries = 512;
+
+	private final int maxEntries;
+	private final Map<SortedMap<String, String>, NamedVector> entries;	// guarded by this
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public MzSearchVectorCache() {
+		this(kDefaultMaxEntries);
+	}
+
+	/**
+	 * @param maxEntries - maximum number of cached Vectors, the least recently used is evicted first
+	 */
+	public MzSearchVectorCache( final int maxEntries ) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Search Vector cache requires at least 1 entry, got: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<SortedMap<String, String>, NamedVector>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<SortedMap<String, String>, NamedVector> eldest ) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Canonical form of a Map of query parameters: the keys are sorted. Keys and values are kept exactly as
+	 * given, they are encoded as is and trimming them would change the hashed features, making search
+	 * Vectors incomparable with the Vectors already in the SequenceFiles. Entries with NULL keys or values
+	 * are dropped.
+	 *
+	 * @param queryParams - Map of query parameters
+	 * @return - unmodifiable, sorted copy of the query parameters
+	 */
+	public static SortedMap<String, String> canonicalize( Map<String, String> queryParams ) {
+		assert queryParams != null;
+		SortedMap<String, String> canonicalParams = new TreeMap<String, String>();
+		for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+			if (entry.getKey() == null || entry.getValue() == null) continue;
+			canonicalParams.put(entry.getKey(), entry.getValue());
+		}
+		return Collections.unmodifiableSortedMap(canonicalParams);
+	}
+
+	/**
+	 * @param canonicalParams - query parameters in canonical form
+	 * @return - copy of the cached search Vector or NULL if none is cached
+	 */
+	public NamedVector get( SortedMap<String, String> canonicalParams ) {
+		NamedVector searchVector;
+		synchronized (this) {
+			searchVector = entries.get(canonicalParams);
+		}
+		if (searchVector == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return searchVector.clone();
+	}
+
+	/**
+	 * @param canonicalParams - query parameters in canonical form
+	 * @param searchVector - search Vector encoded from the query parameters
+	 */
+	public void put( SortedMap<String, String> canonicalParams, NamedVector searchVector ) {
+		assert canonicalParams != null;
+		assert searchVector != null;
+		NamedVector copy = searchVector.clone();
+		synchronized (this) {
+			entries.put(canonicalParams, copy);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.manzia.shopping.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ThreadFactory} of daemon threads named after their pool, e.g MzSkuBatcher-fetch-1,
+ * MzSkuBatcher-fetch-2... Daemon threads never keep the JVM of a command line tool or test
+ * running; the beans that own a pool must still stop it when they are destroyed.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzDaemonThreadFactory implements ThreadFactory {
+
+	private final String name;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @param name - name prefix of the threads
+	 */
+	public MzDaemonThreadFactory( String name ) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Thread name prefix is required");
+		}
+		this.name = name;
+	}
+
+	@Override
+	public Thread newThread( Runnable runnable ) {
+		Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
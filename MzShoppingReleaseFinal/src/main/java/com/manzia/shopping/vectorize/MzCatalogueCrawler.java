@@ -0,0 +1,411 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.manzia.shopping.attributes.MzAttributeMapper;
+import com.manzia.shopping.attributes.MzAttributeMapperImpl;
+import com.manzia.shopping.bestbuy.ErrorDocument;
+import com.manzia.shopping.bestbuy.ProductsResponse;
+import com.manzia.shopping.bestbuy.Remix;
+import com.manzia.shopping.bestbuy.RemixException;
+import com.manzia.shopping.bestbuy.RemixRateLimiter;
+import com.manzia.shopping.util.MzDaemonThreadFactory;
+
+/**
+ * <p>Crawls every page of a BestBuy API product listing, e.g a whole category, with
+ * {@link Remix#getProducts(List, Map)}. Up to pagesInFlight pages are fetched and parsed
+ * concurrently ahead of the page being handed to the {@link PageSink}, so the next pages are
+ * already prefetched while the current one is consumed. Pages reach the sink in page order.</p>
+ *
+ * <p>When a checkpoint file is given, the last page handed to the sink is recorded after each
+ * page and a later crawl resumes from the page after it. The fetch and sink time of each page
+ * is recorded, see {@link #getPageTimings()}.</p>
+ *
+ * Usage: MzCatalogueCrawler categoryId sequenceFileDir [pagesInFlight [apiKey]] crawls the category
+ * straight into SequenceFiles, see {@link MzSequenceFileGenerator}. The BestBuy API key is taken
+ * from the last argument or else from the {@link #kApiKeyProperty} system property.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzCatalogueCrawler {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzCatalogueCrawler.class.getCanonicalName());
+
+	public static final int kDefaultPagesInFlight = 4;
+	public static final int kDefaultPageSize = 100;		// largest page size accepted by the BestBuy API
+	public static final int kDefaultPageAttempts = 3;
+
+	// Checkpoint properties
+	private static final String kLastPageKey = "lastCompletedPage";
+	private static final String kTotalPagesKey = "totalPages";
+	private static final String kFiltersKey = "filters";
+
+	/**
+	 * System property holding the BestBuy API access key used by main
+	 */
+	public static final String kApiKeyProperty = "manzia.bestbuy.apiKey";
+
+	/**
+	 * Consumes the crawled pages, in page order
+	 */
+	public interface PageSink {
+
+		/**
+		 * @param page - page number, starting at 1
+		 * @param response - Products of the page
+		 * @throws Exception - stops the crawl, the page is not recorded as completed
+		 */
+		void consume( int page, ProductsResponse response ) throws Exception;
+	}
+
+	/**
+	 * Time spent on one page
+	 */
+	public static final class PageTiming {
+		private final int page;
+		private final int products;
+		private final long fetchMillis;
+		private final long waitMillis;
+		private final long sinkMillis;
+
+		PageTiming( int page, int products, long fetchMillis, long waitMillis, long sinkMillis ) {
+			this.page = page;
+			this.products = products;
+			this.fetchMillis = fetchMillis;
+			this.waitMillis = waitMillis;
+			this.sinkMillis = sinkMillis;
+		}
+
+		public int getPage() { return page; }
+		public int getProducts() { return products; }
+		/** @return - time to fetch and parse the page, including retries */
+		public long getFetchMillis() { return fetchMillis; }
+		/** @return - time the crawler waited for the page after the previous page was consumed */
+		public long getWaitMillis() { return waitMillis; }
+		public long getSinkMillis() { return sinkMillis; }
+
+		@Override
+		public String toString() {
+			return "page " + page + ": " + products + " products, fetch " + fetchMillis + " ms, wait "
+					+ waitMillis + " ms, sink " + sinkMillis + " ms";
+		}
+	}
+
+	// Fetched page and its fetch time
+	private static final class FetchedPage {
+		final ProductsResponse response;
+		final long fetchMillis;
+
+		FetchedPage( ProductsResponse response, long fetchMillis ) {
+			this.response = response;
+			this.fetchMillis = fetchMillis;
+		}
+	}
+
+	private final Remix remix;
+	private final List<String> filters;
+	private final Map<String, String> params;
+	private final int pagesInFlight;
+	private final File checkpointFile;
+	private final List<PageTiming> pageTimings = Collections.synchronizedList(new ArrayList<PageTiming>());
+	private volatile int totalPages = -1;
+
+	/**
+	 * @param remix - client used to fetch the pages
+	 * @param filters - filters of the product listing, e.g "categoryPath.id=abcat0502000"
+	 * @param params - query string parameters; pageSize defaults to {@link #kDefaultPageSize}
+	 * @param pagesInFlight - maximum number of pages fetched ahead of the sink
+	 * @param checkpointFile - file recording the last completed page, or null to always start at page 1
+	 */
+	public MzCatalogueCrawler( Remix remix, List<String> filters, Map<String, String> params,
+			int pagesInFlight, File checkpointFile ) {
+		if (remix == null || pagesInFlight < 1) {
+			throw new IllegalArgumentException("Invalid catalogue crawler configuration");
+		}
+		this.remix = remix;
+		this.filters = filters == null ? new ArrayList<String>() : new ArrayList<String>(filters);
+		this.params = params == null ? new HashMap<String, String>() : new HashMap<String, String>(params);
+		if (!this.params.containsKey("pageSize")) {
+			this.params.put("pageSize", Integer.toString(kDefaultPageSize));
+		}
+		this.pagesInFlight = pagesInFlight;
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * Crawls the listing from the page after the last completed page
+	 *
+	 * @param sink - consumer of the pages
+	 * @return - number of pages handed to the sink by this crawl
+	 * @throws RemixException - if a page could not be fetched
+	 * @throws IOException - if the checkpoint could not be written
+	 */
+	public int crawl( PageSink sink ) throws RemixException, IOException {
+		int firstPage = readLastCompletedPage() + 1;
+		if (totalPages > 0 && firstPage > totalPages) {
+			logger.log(Level.INFO, "Catalogue crawl already completed all {0} pages", new Object[]{ totalPages });
+			return 0;
+		}
+
+		ExecutorService fetchers = Executors.newFixedThreadPool(pagesInFlight, new MzDaemonThreadFactory("MzCatalogueCrawler"));
+		LinkedList<Future<FetchedPage>> inFlight = new LinkedList<Future<FetchedPage>>();
+		int crawled = 0;
+		try {
+			// the first page tells how many pages there are
+			FetchedPage first = fetchPage(firstPage);
+			totalPages = Math.max(1, parseTotalPages(first.response));
+			int nextPage = firstPage + 1;
+			while (nextPage <= totalPages && inFlight.size() < pagesInFlight) {
+				inFlight.add(fetchers.submit(pageFetch(nextPage++)));
+			}
+
+			consumePage(sink, firstPage, first, 0L);
+			crawled++;
+			for (int page = firstPage + 1; page <= totalPages; page++) {
+				long waitStart = System.nanoTime();
+				FetchedPage fetched = await(inFlight.removeFirst());
+				long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+				if (nextPage <= totalPages) {
+					inFlight.add(fetchers.submit(pageFetch(nextPage++)));
+				}
+				consumePage(sink, page, fetched, waitMillis);
+				crawled++;
+			}
+		} finally {
+			for (Future<FetchedPage> pending : inFlight) {
+				pending.cancel(true);
+			}
+			fetchers.shutdownNow();
+		}
+		logger.log(Level.INFO, "Catalogue crawl of {0} pages completed", new Object[]{ crawled });
+		return crawled;
+	}
+
+	private void consumePage( PageSink sink, int page, FetchedPage fetched, long waitMillis ) throws IOException {
+		long sinkStart = System.nanoTime();
+		try {
+			sink.consume(page, fetched.response);
+		} catch (Exception e) {
+			throw new IOException("Page sink failed on page " + page + ": " + e.getLocalizedMessage(), e);
+		}
+		long sinkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sinkStart);
+		writeCheckpoint(page);
+
+		PageTiming timing = new PageTiming(page, fetched.response.list().size(), fetched.fetchMillis, waitMillis, sinkMillis);
+		pageTimings.add(timing);
+		logger.log(Level.INFO, "Crawled {0} of {1}", new Object[]{ timing, totalPages });
+	}
+
+	private Callable<FetchedPage> pageFetch( final int page ) {
+		return new Callable<FetchedPage>() {
+			@Override
+			public FetchedPage call() throws Exception {
+				return fetchPage(page);
+			}
+		};
+	}
+
+	// Fetches and parses one page, retrying error responses
+	private FetchedPage fetchPage( int page ) throws RemixException {
+		long start = System.nanoTime();
+		RemixException failure = null;
+		for (int attempt = 1; attempt <= kDefaultPageAttempts; attempt++) {
+			Map<String, String> pageParams = new HashMap<String, String>(params);
+			pageParams.put("page", Integer.toString(page));
+			try {
+				ProductsResponse response = remix.getProducts(filters, pageParams);
+				if (!response.isError()) {
+					return new FetchedPage(response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				}
+				ErrorDocument error = response.getError();
+				failure = new RemixException("Error response for page " + page + ": "
+						+ (error != null ? error.getStatus() : Integer.toString(response.getResponseCode())));
+			} catch (RemixException e) {
+				failure = e;
+			}
+			logger.log(Level.WARNING, "Attempt {0} to fetch page {1} failed: {2}",
+					new Object[]{ attempt, page, failure.getLocalizedMessage() });
+		}
+		throw failure;
+	}
+
+	private static FetchedPage await( Future<FetchedPage> future ) throws RemixException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemixException("Interrupted waiting for a page", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RemixException) {
+				throw (RemixException) e.getCause();
+			}
+			throw new RemixException("Failed to fetch a page", e);
+		}
+	}
+
+	private static int parseTotalPages( ProductsResponse response ) {
+		String total = response.getAttribute("totalPages");
+		try {
+			return total == null ? 1 : Integer.parseInt(total.trim());
+		} catch (NumberFormatException e) {
+			logger.log(Level.WARNING, "Invalid totalPages attribute: {0}", new Object[]{ total });
+			return 1;
+		}
+	}
+
+	/**
+	 * @return - last page completed by this listing's previous crawls, 0 if none
+	 */
+	private int readLastCompletedPage() throws IOException {
+		if (checkpointFile == null || !checkpointFile.isFile()) {
+			return 0;
+		}
+		Properties checkpoint = new Properties();
+		InputStream in = new FileInputStream(checkpointFile);
+		try {
+			checkpoint.load(in);
+		} finally {
+			in.close();
+		}
+		if (!filters.toString().equals(checkpoint.getProperty(kFiltersKey))) {
+			logger.log(Level.WARNING, "Checkpoint {0} belongs to another listing, starting at page 1", new Object[]{ checkpointFile });
+			return 0;
+		}
+		try {
+			totalPages = Integer.parseInt(checkpoint.getProperty(kTotalPagesKey, "-1"));
+			int lastPage = Integer.parseInt(checkpoint.getProperty(kLastPageKey, "0"));
+			logger.log(Level.INFO, "Resuming catalogue crawl after page {0} of {1}", new Object[]{ lastPage, totalPages });
+			return lastPage;
+		} catch (NumberFormatException e) {
+			logger.log(Level.WARNING, "Invalid checkpoint {0}, starting at page 1", new Object[]{ checkpointFile });
+			totalPages = -1;
+			return 0;
+		}
+	}
+
+	// Records the last completed page, replacing the checkpoint file in one atomic move
+	private void writeCheckpoint( int page ) throws IOException {
+		if (checkpointFile == null) {
+			return;
+		}
+		Properties checkpoint = new Properties();
+		checkpoint.setProperty(kLastPageKey, Integer.toString(page));
+		checkpoint.setProperty(kTotalPagesKey, Integer.toString(totalPages));
+		checkpoint.setProperty(kFiltersKey, filters.toString());
+		File parent = checkpointFile.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		File temp = new File(parent, checkpointFile.getName() + ".tmp");
+		try {
+			OutputStream out = new FileOutputStream(temp);
+			try {
+				checkpoint.store(out, "MzCatalogueCrawler checkpoint");
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), checkpointFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			temp.delete();
+			throw new IOException("Failed to write crawl checkpoint: " + checkpointFile, e);
+		}
+	}
+
+	/**
+	 * @return - timing of each page consumed by this crawler, in page order
+	 */
+	public List<PageTiming> getPageTimings() {
+		synchronized (pageTimings) {
+			return new ArrayList<PageTiming>(pageTimings);
+		}
+	}
+
+	/**
+	 * @return - number of pages of the listing, -1 until known
+	 */
+	public int getTotalPages() {
+		return totalPages;
+	}
+
+	/**
+	 * Page sink that vectorizes each page straight into a SequenceFile. A page with Products for
+	 * which no SequenceFile is written fails the crawl, so the page is not recorded as completed.
+	 */
+	public static PageSink createSequenceFileSink() {
+		return new PageSink() {
+			@Override
+			public void consume( int page, ProductsResponse response ) throws Exception {
+				boolean generated = MzSequenceFileGenerator.generateSequenceFile(response, MzSequenceFileGenerator.getProperties(),
+						MzSequenceFileGenerator.getAttributeMapper(), MzSequenceFileGenerator.getFeatureWeights());
+				if (!generated && !response.list().isEmpty()) {
+					throw new IOException("Failed to write a SequenceFile for page " + page + " with " 
+							+ response.list().size() + " Products");
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param args - the BestBuy category id (e.g abcat0502000), the SequenceFile directory and
+	 * optionally the number of pages in flight
+	 */
+	public static void main( String[] args ) throws Exception {
+		if (args.length < 2 || args.length > 4) {
+			throw new IllegalArgumentException
+			("Class MzCatalogueCrawler.java takes a category id and a SequenceFile directory e.g abcat0502000 /dir/seqFiles " +
+					"and optionally the number of pages in flight and the BestBuy API key");
+		}
+		String categoryId = args[0];
+		File seqDir = new File(args[1]);
+		int pagesInFlight = args.length >= 3 ? Integer.parseInt(args[2]) : kDefaultPagesInFlight;
+		String bestBuyKey = args.length == 4 ? args[3] : System.getProperty(kApiKeyProperty);
+		if (bestBuyKey == null || bestBuyKey.trim().isEmpty()) {
+			throw new IllegalArgumentException("BestBuy API key missing..pass it as the fourth argument or set -D" 
+					+ kApiKeyProperty);
+		}
+
+		// Set up the vector generation pipeline as MzSequenceFileGenerator.main does
+		MzSequenceFileGenerator.getProperties();
+		MzAttributeMapper attributeMapper = new MzAttributeMapperImpl();
+		attributeMapper.setAttributesFile(null);	// Use the default ManziaAttributes file.
+		MzSequenceFileGenerator.setAttributeMapper(attributeMapper);
+		Properties featureWeights = MzWeightsUtil.getCurrentWeightsMap();
+		if (featureWeights == null) {
+			featureWeights = MzWeightsUtil.getInitialWeightsMap();
+		}
+		MzSequenceFileGenerator.setFeatureWeights(featureWeights);
+		MzSequenceFileGenerator.setSeqFileDirectory(seqDir.getAbsolutePath());
+
+		MzCatalogueCrawler crawler = new MzCatalogueCrawler(new Remix(bestBuyKey.trim()).setPriority(RemixRateLimiter.Priority.BULK),
+				Collections.singletonList("categoryPath.id=" + categoryId), null, pagesInFlight,
+				new File(seqDir, "crawl-" + categoryId + ".properties"));
+		crawler.crawl(createSequenceFileSink());
+		MzSequenceFileGenerator.mergeAndWriteStores(seqDir);
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.manzia.shopping.util.MzDaemonThreadFactory;
+
+/**
+ * <p>Versioned snapshots of the category Vectors that follow the files in the
+ * {@link MzSequenceFileGenerator#getMergeFileDirectory()} directory. Each category is held as an
+ * immutable {@link Snapshot}; when the merged SequenceFile (seqFile-category) or the Vector store
+ * (vecStore-category) of a loaded category changes, {@link #refresh()} loads the next generation
+ * off the search path and swaps it in with a single compare-and-set.</p>
+ *
+ * <p>Searches read the current snapshot once and use it to the end, so a swap neither blocks them
+ * nor changes the Vectors under them. A new generation is only loaded once its files have not been
+ * modified for the settle interval, so a catalogue that is still being written is never read; if the
+ * load fails anyway the current generation is kept and the load is retried on the next refresh.</p>
+ *
+ * <p>{@link #refresh()} is meant to be called by a container timer, see {@link MzRankingServiceInMemory};
+ * outside a container {@link #start(long)} polls on a thread of its own, which {@link #close()} stops.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzCategorySnapshots implements Closeable {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzCategorySnapshots.class.getCanonicalName());
+
+	public static final long kDefaultPollMillis = 30000L;		// How often the merge directory is checked
+	public static final long kDefaultSettleMillis = 5000L;		// How long files must be unchanged before loading
+
+	/**
+	 * Immutable generation of the Vectors of one category
+	 */
+	public static final class Snapshot {
+		private final long generation;
+		private final long sourceModified;
+		private final MzProductVectors vectors;
+
+		Snapshot( long generation, long sourceModified, MzProductVectors vectors ) {
+			this.generation = generation;
+			this.sourceModified = sourceModified;
+			this.vectors = vectors;
+		}
+
+		/**
+		 * @return - generation number, starts at 1 and increases by 1 on each swap
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * @return - last modified time of the files the Vectors were loaded from
+		 */
+		public long getSourceModified() {
+			return sourceModified;
+		}
+
+		public MzProductVectors getVectors() {
+			return vectors;
+		}
+	}
+
+	private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+	private final long settleMillis;
+	private ScheduledExecutorService poller;
+
+	public MzCategorySnapshots() {
+		this(kDefaultSettleMillis);
+	}
+
+	/**
+	 * @param settleMillis - how long the category files must be unchanged before a new generation is loaded
+	 */
+	public MzCategorySnapshots( long settleMillis ) {
+		this.settleMillis = settleMillis;
+	}
+
+	/**
+	 * Returns the current snapshot of a category, loading the first generation if the category has not
+	 * been requested before. Callers must use the returned snapshot for the whole search.
+	 *
+	 * @param category - category name, assumed to be valid
+	 * @return - current {@link Snapshot} of the category
+	 * @throws IOException - thrown if the first generation cannot be loaded
+	 */
+	public Snapshot getSnapshot( String category ) throws IOException {
+		assert category != null;
+		Snapshot snapshot = snapshots.get(category);
+		if (snapshot == null) {
+
+			// Concurrent first searches may both load, the first one stored wins
+			long modified = getSourceModified(category);
+			snapshot = new Snapshot(1L, modified, MzMappedVectorStore.loadCategory(category));
+			Snapshot existing = snapshots.putIfAbsent(category, snapshot);
+			snapshot = existing != null ? existing : snapshot;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Checks every loaded category for changed files and swaps in a new generation where needed.
+	 * Runs on the poller thread when started, it can also be called directly.
+	 *
+	 * @return - number of categories that were swapped
+	 */
+	public int refresh() {
+		int swapped = 0;
+		for (Snapshot current : snapshots.values()) {
+			String category = current.getVectors().getCategory();
+			long modified = getSourceModified(category);
+			if (modified <= current.getSourceModified()) continue;
+			if (System.currentTimeMillis() - modified < settleMillis) {
+				logger.log(Level.FINE, "Files of category: {0} changed recently, waiting for them to settle", new Object[]{category});
+				continue;
+			}
+
+			Snapshot next;
+			try {
+				next = new Snapshot(current.getGeneration() + 1, modified, MzMappedVectorStore.loadCategory(category));
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Failed to load new Vectors for category: {0}, keeping generation {1}: {2}",
+						new Object[]{category, Long.toString(current.getGeneration()), e.getLocalizedMessage()});
+				continue;
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Failed to load new Vectors for category: {0}, keeping generation {1}: {2}",
+						new Object[]{category, Long.toString(current.getGeneration()), e.getLocalizedMessage()});
+				continue;
+			}
+			if (snapshots.replace(category, current, next)) {
+				swapped++;
+				logger.log(Level.INFO, "Swapped in generation {0} of category: {1} with {2} Vectors",
+						new Object[]{Long.toString(next.getGeneration()), category, Integer.toString(next.getVectors().size())});
+			}
+		}
+		return swapped;
+	}
+
+	/**
+	 * Starts polling the merge directory on a background daemon thread, for use outside a container.
+	 * The thread runs until {@link #stop()} or {@link #close()}.
+	 *
+	 * @param pollMillis - time between two refreshes
+	 */
+	public synchronized void start( long pollMillis ) {
+		if (poller != null) {
+			return;
+		}
+		poller = Executors.newSingleThreadScheduledExecutor(new MzDaemonThreadFactory("MzCategorySnapshots-poller"));
+		poller.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					refresh();
+				} catch (RuntimeException e) {
+					// never let an exception cancel the polling
+					logger.log(Level.SEVERE, "Failed to refresh category snapshots: {0}", new Object[]{e.getLocalizedMessage()});
+				}
+			}
+		}, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+		logger.log(Level.INFO, "Polling the merge directory for new category Vectors every {0} ms", new Object[]{Long.toString(pollMillis)});
+	}
+
+	/**
+	 * Stops polling and waits briefly for a running refresh to finish, the current snapshots stay usable
+	 */
+	public synchronized void stop() {
+		if (poller != null) {
+			poller.shutdownNow();
+			try {
+				if (!poller.awaitTermination(kDefaultSettleMillis, TimeUnit.MILLISECONDS)) {
+					logger.log(Level.WARNING, "Category snapshot poller did not stop within {0} ms", new Object[]{Long.toString(kDefaultSettleMillis)});
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			poller = null;
+		}
+	}
+
+	/**
+	 * @return - true while the background poller is running
+	 */
+	public synchronized boolean isPolling() {
+		return poller != null;
+	}
+
+	/**
+	 * Stops polling, see {@link #stop()}
+	 */
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * Drops all snapshots so each category is loaded again on its next request
+	 */
+	public void clear() {
+		snapshots.clear();
+	}
+
+	// Latest modification of the files a category can be loaded from
+	private static long getSourceModified( String category ) {
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(category);
+		File storeFile = MzMappedVectorStore.getCategoryStoreFile(category);
+		return Math.max(seqFile.lastModified(), storeFile.lastModified());
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ * <p>Immutable, in-memory copy of all the product Vectors of a single category as
+ * stored in the merged category SequenceFile (seqFile-category) created by
+ * {@link MzSequenceFileGenerator#mergeSequenceFilesByCategory(File)}.</p>
+ *
+ * <p>The Vectors are held in compressed sparse row (CSR) form i.e one array of
+ * feature indexes and one array of feature values shared by all the Vectors, with the
+ * L2 norm of each Vector pre-computed, so that a search Vector can be compared against
+ * the whole category without allocating any objects per product Vector.</p>
+ *
+ * <p>The arrays are also exposed to {@link MzMappedVectorStore} which writes them to disk as is.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzCategoryVectors implements MzProductVectors {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzCategoryVectors.class.getCanonicalName());
+
+	// Prefix of the merged category SequenceFiles
+	public static final String kMergeSeqFilePrefix = "seqFile-";
+
+	private final String category;
+	private final String[] names;		// category:modelNumber:brand name of each Vector
+	private final int[] rowOffsets;		// rowOffsets[i] to rowOffsets[i+1] are the entries of Vector i
+	private final int[] indexes;
+	private final double[] values;
+	private final double[] norms;
+	private final int cardinality;
+
+	/**
+	 * Constructor - arrays are NOT copied, callers must not modify them afterwards
+	 */
+	MzCategoryVectors(String category, String[] names, int[] rowOffsets, int[] indexes,
+			double[] values, double[] norms, int cardinality) {
+		assert names.length + 1 == rowOffsets.length;
+		assert names.length == norms.length;
+		this.category = category;
+		this.names = names;
+		this.rowOffsets = rowOffsets;
+		this.indexes = indexes;
+		this.values = values;
+		this.norms = norms;
+		this.cardinality = cardinality;
+	}
+
+	@Override
+	public String getCategory() {
+		return category;
+	}
+
+	@Override
+	public int size() {
+		return names.length;
+	}
+
+	@Override
+	public int getCardinality() {
+		return cardinality;
+	}
+
+	@Override
+	public String getName( int row ) {
+		return names[row];
+	}
+
+	@Override
+	public double getNorm( int row ) {
+		return norms[row];
+	}
+
+	@Override
+	public double dot( int row, double[] denseVector ) {
+		double sum = 0.0;
+		int end = rowOffsets[row + 1];
+		for (int i = rowOffsets[row]; i < end; i++) {
+			int index = indexes[i];
+			if (index < denseVector.length) {
+				sum += values[i] * denseVector[index];
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public void dotBlock( int row, double[] denseBlock, int blockSize, double[] dots ) {
+		for (int q = 0; q < blockSize; q++) {
+			dots[q] = 0.0;
+		}
+		int features = denseBlock.length / blockSize;
+		int end = rowOffsets[row + 1];
+		for (int i = rowOffsets[row]; i < end; i++) {
+			int index = indexes[i];
+			if (index < features) {
+				double value = values[i];
+				int base = index * blockSize;
+				for (int q = 0; q < blockSize; q++) {
+					dots[q] += value * denseBlock[base + q];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void copyInto( int row, double[] denseVector ) {
+		int end = rowOffsets[row + 1];
+		for (int i = rowOffsets[row]; i < end; i++) {
+			denseVector[indexes[i]] = values[i];
+		}
+	}
+
+	// Package-private access to the CSR arrays for MzMappedVectorStore
+	int[] getRowOffsets() {
+		return rowOffsets;
+	}
+
+	int[] getIndexes() {
+		return indexes;
+	}
+
+	double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the File of the merged category SequenceFile for the given category in the
+	 * directory of merged SequenceFiles i.e {@link MzSequenceFileGenerator#getMergeFileDirectory()}
+	 *
+	 * @param category - category name e.g Laptops
+	 * @return - the category SequenceFile, which may not exist
+	 */
+	public static File getCategorySequenceFile( String category ) {
+		assert category != null;
+		String mergePath = MzSequenceFileGenerator.getMergeFileDirectory();
+		File mergeDir = mergePath.equals(MzSequenceFileGenerator.MERGE_SEQFILE_DIR) ?
+				new File(System.getProperty("user.dir"), mergePath) : new File(mergePath);
+		return new File(mergeDir, kMergeSeqFilePrefix + category);
+	}
+
+	/**
+	 * Loads all the Vectors of a merged category SequenceFile of the format &lt;Text, VectorWritable&gt;
+	 * into memory.
+	 *
+	 * @param category - category of the Vectors in the SequenceFile
+	 * @param sequenceFile - the merged category SequenceFile
+	 * @return - {@link MzCategoryVectors} holding all the Vectors in the SequenceFile
+	 * @throws IOException - thrown if the SequenceFile cannot be read
+	 */
+	public static MzCategoryVectors loadFromSequenceFile( String category, File sequenceFile ) throws IOException {
+
+		// check inputs
+		if (sequenceFile == null || !sequenceFile.isFile()) {
+			logger.log(Level.WARNING, "Invalid category SequenceFile: {0}", new Object[]{sequenceFile});
+			throw new IOException("Invalid category SequenceFile: " + sequenceFile);
+		}
+
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(sequenceFile.getAbsolutePath()), conf);
+
+		Builder builder = new Builder(category);
+		try {
+			Text key = new Text();
+			VectorWritable value = new VectorWritable();
+			while (reader.next(key, value)) {
+				builder.add(key.toString(), value.get());
+			}
+		} finally {
+			reader.close();
+		}
+		MzCategoryVectors vectors = builder.build();
+		logger.log(Level.INFO, "Loaded {0} Vectors for category: {1} from SequenceFile: {2}",
+				new Object[]{Integer.toString(vectors.size()), category, sequenceFile.getName()});
+		return vectors;
+	}
+
+	/**
+	 * Accumulates Vectors into growable CSR arrays
+	 */
+	static final class Builder {
+
+		private final String category;
+		private String[] names = new String[64];
+		private int[] rowOffsets = new int[65];
+		private int[] indexes = new int[1024];
+		private double[] values = new double[1024];
+		private double[] norms = new double[64];
+		private int rows = 0;
+		private int entries = 0;
+		private int cardinality = MzSequenceFileGenerator.VECTOR_SIZE;
+
+		Builder(String category) {
+			this.category = category;
+		}
+
+		void add(String name, Vector vector) {
+			if (rows == names.length) {
+				names = Arrays.copyOf(names, rows * 2);
+				norms = Arrays.copyOf(norms, rows * 2);
+				rowOffsets = Arrays.copyOf(rowOffsets, rows * 2 + 1);
+			}
+			cardinality = Math.max(cardinality, vector.size());
+
+			// Copy the non-zero elements in index order
+			int start = entries;
+			double sumSquares = 0.0;
+			Iterator<Vector.Element> elements = vector.iterateNonZero();
+			while (elements.hasNext()) {
+				Vector.Element element = elements.next();
+				double value = element.get();
+				if (value == 0.0) continue;
+				if (entries == indexes.length) {
+					indexes = Arrays.copyOf(indexes, entries * 2);
+					values = Arrays.copyOf(values, entries * 2);
+				}
+				indexes[entries] = element.index();
+				values[entries] = value;
+				sumSquares += value * value;
+				entries++;
+			}
+			sortRow(start, entries);
+
+			names[rows] = name.intern();
+			norms[rows] = Math.sqrt(sumSquares);
+			rows++;
+			rowOffsets[rows] = entries;
+		}
+
+		// Random access Vectors do not iterate in index order, insertion sort is fine for our row lengths
+		private void sortRow(int start, int end) {
+			for (int i = start + 1; i < end; i++) {
+				int index = indexes[i];
+				double value = values[i];
+				int j = i - 1;
+				while (j >= start && indexes[j] > index) {
+					indexes[j + 1] = indexes[j];
+					values[j + 1] = values[j];
+					j--;
+				}
+				indexes[j + 1] = index;
+				values[j + 1] = value;
+			}
+		}
+
+		MzCategoryVectors build() {
+			return new MzCategoryVectors(category, Arrays.copyOf(names, rows), Arrays.copyOf(rowOffsets, rows + 1),
+					Arrays.copyOf(indexes, entries), Arrays.copyOf(values, entries), Arrays.copyOf(norms, rows), cardinality);
+		}
+	}
+}
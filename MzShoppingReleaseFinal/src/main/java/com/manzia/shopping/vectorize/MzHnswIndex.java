@@ -0,0 +1,519 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Hierarchical Navigable Small World (HNSW) graph index over the product Vectors of a single
+ * category, used for approximate Cosine nearest-neighbour search when a category is too large
+ * for the brute-force scan of {@link MzRankingServiceInMemory}.</p>
+ *
+ * <p>The index only stores the graph, i.e the neighbour rows of each product Vector on each
+ * layer, and is always searched together with the {@link MzProductVectors} it was built from.
+ * It is built offline by {@link #main(String[])} and written as hnswIndex-category next to the
+ * merged category SequenceFile. The header records the fingerprint of the Vectors the index was
+ * built from, see {@link #fingerprint(MzProductVectors)}, so an index is never searched with the
+ * Vectors of a regenerated catalogue, even one with the same number of products.</p>
+ *
+ * <p>Tuning: M is the number of neighbours per node (2M on the bottom layer) and is fixed when
+ * the index is built; efConstruction is the candidate list size while building; efSearch is the
+ * candidate list size while searching and trades recall against latency per query.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzHnswIndex {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzHnswIndex.class.getCanonicalName());
+
+	// Prefix of the category index files
+	public static final String kIndexFilePrefix = "hnswIndex-";
+
+	// Defaults
+	public static final int kDefaultM = 16;
+	public static final int kDefaultEfConstruction = 100;
+	public static final int kDefaultEfSearch = 50;
+
+	private static final int kMagic = 0x4D7A484E;		// "MzHN"
+	private static final int kVersion = 2;		// 2 adds the fingerprint of the source Vectors
+	private static final long kFingerprintProbeSeed = 0x4D7A46504CL;
+	private static final Charset kUTF8 = Charset.forName("UTF-8");
+
+	private final int m;
+	private final int size;
+	private final long sourceFingerprint;
+	private final int[][][] neighbours;		// neighbours[row][layer] = neighbour rows
+	private int entryPoint;
+	private int maxLayer;
+
+	private MzHnswIndex( int m, int size, long sourceFingerprint, int[][][] neighbours, int entryPoint, int maxLayer ) {
+		this.m = m;
+		this.size = size;
+		this.sourceFingerprint = sourceFingerprint;
+		this.neighbours = neighbours;
+		this.entryPoint = entryPoint;
+		this.maxLayer = maxLayer;
+	}
+
+	public int getM() {
+		return m;
+	}
+
+	/**
+	 * @return - number of product Vectors in the index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return - fingerprint of the product Vectors the index was built from
+	 */
+	public long getSourceFingerprint() {
+		return sourceFingerprint;
+	}
+
+	/**
+	 * @param vectors - category Vectors
+	 * @return - true if the index was built from these Vectors, i.e its rows are theirs
+	 */
+	public boolean matches( MzProductVectors vectors ) {
+		return vectors.size() == size && fingerprint(vectors) == sourceFingerprint;
+	}
+
+	/**
+	 * Fingerprint of category Vectors: a 64 bit FNV-1a hash of the name, the norm and the dot product
+	 * with a fixed pseudo-random probe of every row, in row order. Vectors regenerated from a different
+	 * catalogue differ in at least one of these even with the same number of rows. Costs about as much
+	 * as one exact scan of the category.
+	 *
+	 * @param vectors - category Vectors
+	 * @return - the fingerprint
+	 */
+	public static long fingerprint( MzProductVectors vectors ) {
+		double[] probe = new double[vectors.getCardinality()];
+		Random random = new Random(kFingerprintProbeSeed);
+		for (int i = 0; i < probe.length; i++) {
+			probe[i] = random.nextDouble() - 0.5;
+		}
+		long hash = 0xcbf29ce484222325L;
+		hash = fnv(hash, vectors.size());
+		hash = fnv(hash, vectors.getCardinality());
+		for (int row = 0; row < vectors.size(); row++) {
+			for (byte b : vectors.getName(row).getBytes(kUTF8)) {
+				hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+			}
+			hash = fnv(hash, Double.doubleToLongBits(vectors.getNorm(row)));
+			hash = fnv(hash, Double.doubleToLongBits(vectors.dot(row, probe)));
+		}
+		return hash;
+	}
+
+	private static long fnv( long hash, long value ) {
+		for (int shift = 0; shift < 64; shift += 8) {
+			hash = (hash ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Candidate product Vector and its Cosine similarity to the Vector being searched for
+	 */
+	private static final class Candidate {
+		final int row;
+		final double similarity;
+
+		Candidate(int row, double similarity) {
+			this.row = row;
+			this.similarity = similarity;
+		}
+	}
+
+	// Closest first, ties broken by row
+	private static final Comparator<Candidate> kClosestFirst = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate first, Candidate second) {
+			int result = Double.compare(second.similarity, first.similarity);
+			return result != 0 ? result : first.row - second.row;
+		}
+	};
+
+	// Furthest first, ties broken by row
+	private static final Comparator<Candidate> kFurthestFirst = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate first, Candidate second) {
+			return kClosestFirst.compare(second, first);
+		}
+	};
+
+	private static double similarity( MzProductVectors vectors, int row, double[] query, double queryNorm ) {
+		double norm = vectors.getNorm(row);
+		if (norm == 0.0 || queryNorm == 0.0) return -1.0;
+		return vectors.dot(row, query) / (norm * queryNorm);
+	}
+
+	/**
+	 * Builds an HNSW index over all the product Vectors of a category
+	 *
+	 * @param vectors - category Vectors
+	 * @param m - number of neighbours per node, bottom layer nodes have 2M neighbours
+	 * @param efConstruction - candidate list size while building
+	 * @param seed - seed for the random layer assignment, so builds are reproducible
+	 * @return - the index
+	 */
+	public static MzHnswIndex build( MzProductVectors vectors, int m, int efConstruction, long seed ) {
+
+		if (m < 2 || efConstruction < m) {
+			throw new IllegalArgumentException("Invalid HNSW parameters, M must be >= 2 and efConstruction >= M");
+		}
+		int size = vectors.size();
+		MzHnswIndex index = new MzHnswIndex(m, size, fingerprint(vectors), new int[size][][], -1, -1);
+		double levelMultiplier = 1.0 / Math.log(m);
+		Random random = new Random(seed);
+		double[] query = new double[vectors.getCardinality()];
+
+		for (int row = 0; row < size; row++) {
+			int layer = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+			index.neighbours[row] = new int[layer + 1][0];
+			Arrays.fill(query, 0.0);
+			vectors.copyInto(row, query);
+			index.insert(vectors, row, layer, query, vectors.getNorm(row), efConstruction);
+		}
+		logger.log(Level.INFO, "Built HNSW index over {0} Vectors for category: {1} with {2} layers",
+				new Object[]{Integer.toString(size), vectors.getCategory(), Integer.toString(index.maxLayer + 1)});
+		return index;
+	}
+
+	private void insert( MzProductVectors vectors, int row, int layer, double[] query, double queryNorm, int efConstruction ) {
+
+		if (entryPoint < 0) {
+			entryPoint = row;
+			maxLayer = layer;
+			return;
+		}
+
+		// Greedy descent through the layers above the new node's top layer
+		Candidate current = new Candidate(entryPoint, similarity(vectors, entryPoint, query, queryNorm));
+		for (int l = maxLayer; l > layer; l--) {
+			current = greedyClosest(vectors, current, query, queryNorm, l);
+		}
+
+		// Connect the new node on each of its layers
+		List<Candidate> entryPoints = new ArrayList<Candidate>();
+		entryPoints.add(current);
+		double[] neighbourQuery = new double[query.length];
+		for (int l = Math.min(layer, maxLayer); l >= 0; l--) {
+			List<Candidate> closest = searchLayer(vectors, entryPoints, query, queryNorm, efConstruction, l);
+			int maxNeighbours = l == 0 ? 2 * m : m;
+			int count = Math.min(m, closest.size());
+			int[] selected = new int[count];
+			for (int i = 0; i < count; i++) {
+				selected[i] = closest.get(i).row;
+			}
+			neighbours[row][l] = selected;
+
+			// Back-links, pruning the neighbour's list to its closest maxNeighbours
+			for (int neighbour : selected) {
+				int[] links = neighbours[neighbour][l];
+				int[] extended = Arrays.copyOf(links, links.length + 1);
+				extended[links.length] = row;
+				if (extended.length > maxNeighbours) {
+					Arrays.fill(neighbourQuery, 0.0);
+					vectors.copyInto(neighbour, neighbourQuery);
+					double neighbourNorm = vectors.getNorm(neighbour);
+					Candidate[] ranked = new Candidate[extended.length];
+					for (int i = 0; i < extended.length; i++) {
+						ranked[i] = new Candidate(extended[i], similarity(vectors, extended[i], neighbourQuery, neighbourNorm));
+					}
+					Arrays.sort(ranked, kClosestFirst);
+					extended = new int[maxNeighbours];
+					for (int i = 0; i < maxNeighbours; i++) {
+						extended[i] = ranked[i].row;
+					}
+				}
+				neighbours[neighbour][l] = extended;
+			}
+			entryPoints = closest;
+		}
+
+		if (layer > maxLayer) {
+			entryPoint = row;
+			maxLayer = layer;
+		}
+	}
+
+	private Candidate greedyClosest( MzProductVectors vectors, Candidate start, double[] query, double queryNorm, int layer ) {
+		Candidate current = start;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int neighbour : neighbours[current.row][layer]) {
+				double similarity = similarity(vectors, neighbour, query, queryNorm);
+				if (similarity > current.similarity) {
+					current = new Candidate(neighbour, similarity);
+					changed = true;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Best-first search of a single layer
+	 *
+	 * @return - up to ef closest Candidates, closest first
+	 */
+	private List<Candidate> searchLayer( MzProductVectors vectors, List<Candidate> entryPoints, double[] query,
+			double queryNorm, int ef, int layer ) {
+
+		Set<Integer> visited = new HashSet<Integer>();
+		PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>(ef + 1, kClosestFirst);
+		PriorityQueue<Candidate> results = new PriorityQueue<Candidate>(ef + 1, kFurthestFirst);
+		for (Candidate entry : entryPoints) {
+			if (visited.add(entry.row)) {
+				candidates.add(entry);
+				results.add(entry);
+			}
+		}
+		while (results.size() > ef) results.poll();
+
+		while (!candidates.isEmpty()) {
+			Candidate closest = candidates.poll();
+			if (results.size() >= ef && closest.similarity < results.peek().similarity) {
+				break;
+			}
+			int[] links = layer < neighbours[closest.row].length ? neighbours[closest.row][layer] : new int[0];
+			for (int neighbour : links) {
+				if (!visited.add(neighbour)) continue;
+				double similarity = similarity(vectors, neighbour, query, queryNorm);
+				if (results.size() < ef || similarity > results.peek().similarity) {
+					Candidate candidate = new Candidate(neighbour, similarity);
+					candidates.add(candidate);
+					results.add(candidate);
+					if (results.size() > ef) results.poll();
+				}
+			}
+		}
+
+		List<Candidate> closestFirst = new ArrayList<Candidate>(results);
+		Collections.sort(closestFirst, kClosestFirst);
+		return closestFirst;
+	}
+
+	/**
+	 * Searches the index for the Top-K product Vectors closest to a dense search Vector
+	 *
+	 * @param vectors - category Vectors the index was built from, checked once with {@link #matches(MzProductVectors)}
+	 * @param query - dense search Vector
+	 * @param queryNorm - L2 norm of the search Vector
+	 * @param topK - number of rows to return
+	 * @param efSearch - candidate list size, values below topK are raised to topK
+	 * @return - rows of the closest product Vectors, closest first
+	 */
+	public int[] search( MzProductVectors vectors, double[] query, double queryNorm, int topK, int efSearch ) {
+
+		if (vectors.size() != size) {
+			throw new IllegalStateException("HNSW index was built for " + size + " Vectors but category has " + vectors.size());
+		}
+		if (entryPoint < 0 || topK <= 0) {
+			return new int[0];
+		}
+		Candidate current = new Candidate(entryPoint, similarity(vectors, entryPoint, query, queryNorm));
+		for (int l = maxLayer; l > 0; l--) {
+			current = greedyClosest(vectors, current, query, queryNorm, l);
+		}
+		List<Candidate> entryPoints = new ArrayList<Candidate>();
+		entryPoints.add(current);
+		List<Candidate> closest = searchLayer(vectors, entryPoints, query, queryNorm, Math.max(efSearch, topK), 0);
+
+		int[] rows = new int[Math.min(topK, closest.size())];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = closest.get(i).row;
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the index File for the given category, next to the merged category SequenceFile
+	 *
+	 * @param category - category name e.g Laptops
+	 * @return - the category index File, which may not exist
+	 */
+	public static File getCategoryIndexFile( String category ) {
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(category);
+		return new File(seqFile.getParentFile(), kIndexFilePrefix + category);
+	}
+
+	/**
+	 * Writes the index to a File, replacing the File only once it is complete
+	 *
+	 * @param indexFile - destination File
+	 * @throws IOException - thrown if writing fails
+	 */
+	public void write( File indexFile ) throws IOException {
+		// a temp File of its own, so that concurrent writers of the same index do not interleave
+		File temp = File.createTempFile(indexFile.getName() + ".", ".tmp", indexFile.getAbsoluteFile().getParentFile());
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+			try {
+				out.writeInt(kMagic);
+				out.writeInt(kVersion);
+				out.writeInt(m);
+				out.writeInt(size);
+				out.writeLong(sourceFingerprint);
+				out.writeInt(entryPoint);
+				out.writeInt(maxLayer);
+				for (int row = 0; row < size; row++) {
+					out.writeInt(neighbours[row].length);
+					for (int[] links : neighbours[row]) {
+						out.writeInt(links.length);
+						for (int link : links) out.writeInt(link);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads an index written by {@link #write(File)}
+	 *
+	 * @param indexFile - index File
+	 * @return - the index
+	 * @throws IOException - thrown if the File cannot be read or is not a valid index
+	 */
+	public static MzHnswIndex read( File indexFile ) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024));
+		try {
+			if (in.readInt() != kMagic || in.readInt() != kVersion) {
+				throw new IOException("Invalid HNSW index header: " + indexFile.getName());
+			}
+			int m = in.readInt();
+			int size = in.readInt();
+			long sourceFingerprint = in.readLong();
+			int entryPoint = in.readInt();
+			int maxLayer = in.readInt();
+			int[][][] neighbours = new int[size][][];
+			for (int row = 0; row < size; row++) {
+				neighbours[row] = new int[in.readInt()][];
+				for (int l = 0; l < neighbours[row].length; l++) {
+					int[] links = new int[in.readInt()];
+					for (int i = 0; i < links.length; i++) links[i] = in.readInt();
+					neighbours[row][l] = links;
+				}
+			}
+			return new MzHnswIndex(m, size, sourceFingerprint, neighbours, entryPoint, maxLayer);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Measures the mean recall@K of the index against the exact brute-force scan, using product
+	 * Vectors of the category itself as search Vectors. The search Vector's own row, found at
+	 * distance 0 by both searches, is left out of both results so it does not inflate the recall.
+	 *
+	 * @param vectors - category Vectors the index was built from
+	 * @param numQueries - number of product Vectors, evenly spaced, to use as search Vectors
+	 * @param topK - K
+	 * @param efSearch - candidate list size
+	 * @return - mean fraction of the exact Top-K found by the index, 0.0 to 1.0
+	 */
+	public double measureRecall( MzProductVectors vectors, int numQueries, int topK, int efSearch ) {
+		numQueries = Math.min(numQueries, vectors.size());
+		if (numQueries <= 0) return 1.0;
+		double[] query = new double[vectors.getCardinality()];
+		double totalRecall = 0.0;
+		int step = vectors.size() / numQueries;
+		for (int q = 0; q < numQueries; q++) {
+			int row = q * step;
+			Arrays.fill(query, 0.0);
+			vectors.copyInto(row, query);
+			double queryNorm = vectors.getNorm(row);
+
+			Set<Integer> exact = new HashSet<Integer>();
+			for (int exactRow : MzRankingServiceInMemory.computeTopKRows(vectors, query, queryNorm, topK + 1)) {
+				if (exactRow != row && exact.size() < topK) exact.add(exactRow);
+			}
+			int found = 0;
+			int returned = 0;
+			for (int approximateRow : search(vectors, query, queryNorm, topK + 1, efSearch)) {
+				if (approximateRow == row || returned == topK) continue;
+				returned++;
+				if (exact.contains(approximateRow)) found++;
+			}
+			totalRecall += exact.isEmpty() ? 1.0 : (double) found / exact.size();
+		}
+		return totalRecall / numQueries;
+	}
+
+	/**
+	 * Builds the HNSW index of every category in {@link MzSequenceFileGenerator#getCategoryList()} and
+	 * logs a recall-vs-exact report for a range of efSearch values.
+	 *
+	 * @param args - optional arguments: mergeDirectory [M [efConstruction]]
+	 * @throws IOException - thrown if the category Vectors cannot be loaded or an index cannot be written
+	 */
+	public static void main( String[] args ) throws IOException {
+
+		if (args.length > 0) {
+			MzSequenceFileGenerator.setMergeFileDirectory(args[0]);
+		}
+		int m = args.length > 1 ? Integer.parseInt(args[1]) : kDefaultM;
+		int efConstruction = args.length > 2 ? Integer.parseInt(args[2]) : kDefaultEfConstruction;
+		int[] efSearchValues = { 10, 25, 50, 100, 200 };
+		int topK = 5;
+
+		for (String category : MzSequenceFileGenerator.getCategoryList()) {
+			if (!MzCategoryVectors.getCategorySequenceFile(category).isFile()) {
+				logger.log(Level.WARNING, "No merged Sequence File for category: {0}", new Object[]{category});
+				continue;
+			}
+			MzProductVectors vectors = MzMappedVectorStore.loadCategory(category);
+			long start = System.nanoTime();
+			MzHnswIndex index = build(vectors, m, efConstruction, category.hashCode());
+			long buildMillis = (System.nanoTime() - start) / 1000000L;
+			index.write(getCategoryIndexFile(category));
+
+			StringBuilder report = new StringBuilder();
+			report.append("HNSW report for category: ").append(category)
+				.append(", Vectors: ").append(vectors.size())
+				.append(", M: ").append(m)
+				.append(", efConstruction: ").append(efConstruction)
+				.append(", build ms: ").append(buildMillis);
+			for (int efSearch : efSearchValues) {
+				report.append(String.format("%n  efSearch: %d, recall@%d: %.4f", efSearch, topK,
+						index.measureRecall(vectors, 200, topK, efSearch)));
+			}
+			logger.log(Level.INFO, report.toString());
+		}
+	}
+
+}
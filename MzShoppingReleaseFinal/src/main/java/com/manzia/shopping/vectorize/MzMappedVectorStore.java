@@ -0,0 +1,323 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Compact, memory-mapped store of the product Vectors of a single category. The store file
+ * (vecStore-category) is written next to the merged category SequenceFile (seqFile-category)
+ * in the {@link MzSequenceFileGenerator#getMergeFileDirectory()} directory and is read through a
+ * {@link MappedByteBuffer}, so the Vectors live in the OS page cache instead of the heap and
+ * are shared by all the app server instances on the same box.</p>
+ *
+ * <p>File layout (big-endian):</p>
+ * <pre>
+ * int magic, int version, int rows, int entries, int cardinality, int nameCount, int nameBytes
+ * int[rows + 1]      rowOffsets	- entries of Vector i are rowOffsets[i] to rowOffsets[i+1]
+ * double[rows]       norms		- pre-computed L2 norm of each Vector
+ * int[entries]       indexes
+ * double[entries]    values
+ * int[rows]          nameIds		- index of each Vector's name in the name table
+ * int[nameCount + 1] nameOffsets	- name table, names are de-duplicated
+ * byte[nameBytes]    names		- UTF-8
+ * </pre>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzMappedVectorStore implements MzProductVectors {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzMappedVectorStore.class.getCanonicalName());
+
+	// Prefix of the category store files
+	public static final String kStoreFilePrefix = "vecStore-";
+
+	private static final int kMagic = 0x4D7A5653;		// "MzVS"
+	private static final int kVersion = 1;
+	private static final int kHeaderBytes = 7 * 4;
+	private static final Charset kUTF8 = Charset.forName("UTF-8");
+
+	private final String category;
+	private final ByteBuffer buffer;		// read with absolute gets only, so safe for concurrent readers
+	private final int rows;
+	private final int cardinality;
+	private final int rowOffsetsPos;
+	private final int normsPos;
+	private final int indexesPos;
+	private final int valuesPos;
+	private final int nameIdsPos;
+	private final int nameOffsetsPos;
+	private final int namesPos;
+
+	private MzMappedVectorStore( String category, ByteBuffer buffer ) throws IOException {
+		this.category = category;
+		this.buffer = buffer;
+		if (buffer.capacity() < kHeaderBytes || buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion) {
+			throw new IOException("Invalid Vector store header for category: " + category);
+		}
+		rows = buffer.getInt(8);
+		int entries = buffer.getInt(12);
+		cardinality = buffer.getInt(16);
+		int nameCount = buffer.getInt(20);
+		int nameBytes = buffer.getInt(24);
+
+		rowOffsetsPos = kHeaderBytes;
+		normsPos = rowOffsetsPos + (rows + 1) * 4;
+		indexesPos = normsPos + rows * 8;
+		valuesPos = indexesPos + entries * 4;
+		nameIdsPos = valuesPos + entries * 8;
+		nameOffsetsPos = nameIdsPos + rows * 4;
+		namesPos = nameOffsetsPos + (nameCount + 1) * 4;
+		if (namesPos + nameBytes != buffer.capacity()) {
+			throw new IOException("Truncated or corrupt Vector store for category: " + category);
+		}
+	}
+
+	@Override
+	public String getCategory() {
+		return category;
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public int getCardinality() {
+		return cardinality;
+	}
+
+	@Override
+	public String getName( int row ) {
+		int nameId = buffer.getInt(nameIdsPos + row * 4);
+		int start = buffer.getInt(nameOffsetsPos + nameId * 4);
+		int end = buffer.getInt(nameOffsetsPos + (nameId + 1) * 4);
+		byte[] nameBytes = new byte[end - start];
+		for (int i = 0; i < nameBytes.length; i++) {
+			nameBytes[i] = buffer.get(namesPos + start + i);
+		}
+		return new String(nameBytes, kUTF8);
+	}
+
+	@Override
+	public double getNorm( int row ) {
+		return buffer.getDouble(normsPos + row * 8);
+	}
+
+	@Override
+	public double dot( int row, double[] denseVector ) {
+		double sum = 0.0;
+		int end = buffer.getInt(rowOffsetsPos + (row + 1) * 4);
+		for (int i = buffer.getInt(rowOffsetsPos + row * 4); i < end; i++) {
+			int index = buffer.getInt(indexesPos + i * 4);
+			if (index < denseVector.length) {
+				sum += buffer.getDouble(valuesPos + i * 8) * denseVector[index];
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public void dotBlock( int row, double[] denseBlock, int blockSize, double[] dots ) {
+		for (int q = 0; q < blockSize; q++) {
+			dots[q] = 0.0;
+		}
+		int features = denseBlock.length / blockSize;
+		int end = buffer.getInt(rowOffsetsPos + (row + 1) * 4);
+		for (int i = buffer.getInt(rowOffsetsPos + row * 4); i < end; i++) {
+			int index = buffer.getInt(indexesPos + i * 4);
+			if (index < features) {
+				double value = buffer.getDouble(valuesPos + i * 8);
+				int base = index * blockSize;
+				for (int q = 0; q < blockSize; q++) {
+					dots[q] += value * denseBlock[base + q];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void copyInto( int row, double[] denseVector ) {
+		int end = buffer.getInt(rowOffsetsPos + (row + 1) * 4);
+		for (int i = buffer.getInt(rowOffsetsPos + row * 4); i < end; i++) {
+			denseVector[buffer.getInt(indexesPos + i * 4)] = buffer.getDouble(valuesPos + i * 8);
+		}
+	}
+
+	/**
+	 * Returns the store File for the given category, next to the merged category SequenceFile
+	 *
+	 * @param category - category name e.g Laptops
+	 * @return - the category store File, which may not exist
+	 */
+	public static File getCategoryStoreFile( String category ) {
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(category);
+		return new File(seqFile.getParentFile(), kStoreFilePrefix + category);
+	}
+
+	/**
+	 * Memory-maps a category store File. The File handle is closed once mapped, the mapping
+	 * stays valid until the returned object is garbage collected.
+	 *
+	 * @param category - category of the Vectors in the store
+	 * @param storeFile - store File written by {@link #write(MzCategoryVectors, File)}
+	 * @return - the mapped store
+	 * @throws IOException - thrown if the File cannot be mapped or is not a valid store
+	 */
+	public static MzMappedVectorStore open( String category, File storeFile ) throws IOException {
+
+		RandomAccessFile storeAccess = new RandomAccessFile(storeFile, "r");
+		try {
+			FileChannel channel = storeAccess.getChannel();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			MzMappedVectorStore store = new MzMappedVectorStore(category, mapped);
+			logger.log(Level.INFO, "Mapped {0} Vectors for category: {1} from store File: {2}",
+					new Object[]{Integer.toString(store.size()), category, storeFile.getName()});
+			return store;
+		} finally {
+			storeAccess.close();
+		}
+	}
+
+	/**
+	 * Writes the Vectors of a category to a store File. The File is first written to a
+	 * temporary File in the same directory and then renamed, so readers never see a partial store.
+	 *
+	 * @param vectors - category Vectors
+	 * @param storeFile - destination store File
+	 * @throws IOException - thrown if writing fails
+	 */
+	public static void write( MzCategoryVectors vectors, File storeFile ) throws IOException {
+
+		assert vectors != null;
+		assert storeFile != null;
+
+		// De-duplicate the names
+		int rows = vectors.size();
+		int[] nameIds = new int[rows];
+		Map<String, Integer> nameTable = new HashMap<String, Integer>();
+		List<byte[]> nameList = new ArrayList<byte[]>();
+		int nameBytes = 0;
+		for (int row = 0; row < rows; row++) {
+			String name = vectors.getName(row);
+			Integer nameId = nameTable.get(name);
+			if (nameId == null) {
+				nameId = Integer.valueOf(nameList.size());
+				nameTable.put(name, nameId);
+				byte[] encoded = name.getBytes(kUTF8);
+				nameList.add(encoded);
+				nameBytes += encoded.length;
+			}
+			nameIds[row] = nameId.intValue();
+		}
+
+		int[] rowOffsets = vectors.getRowOffsets();
+		int[] indexes = vectors.getIndexes();
+		double[] values = vectors.getValues();
+		int entries = rowOffsets[rows];
+		long totalBytes = (long) kHeaderBytes + (rows + 1) * 4L + rows * 8L + entries * 12L + rows * 4L
+				+ (nameList.size() + 1) * 4L + nameBytes;
+		if (totalBytes > Integer.MAX_VALUE) {
+			throw new IOException("Vector store for category " + vectors.getCategory() + " exceeds 2GB");
+		}
+
+		File tempFile = new File(storeFile.getParentFile(), storeFile.getName() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+			try {
+				out.writeInt(kMagic);
+				out.writeInt(kVersion);
+				out.writeInt(rows);
+				out.writeInt(entries);
+				out.writeInt(vectors.getCardinality());
+				out.writeInt(nameList.size());
+				out.writeInt(nameBytes);
+				for (int i = 0; i <= rows; i++) out.writeInt(rowOffsets[i]);
+				for (int i = 0; i < rows; i++) out.writeDouble(vectors.getNorm(i));
+				for (int i = 0; i < entries; i++) out.writeInt(indexes[i]);
+				for (int i = 0; i < entries; i++) out.writeDouble(values[i]);
+				for (int i = 0; i < rows; i++) out.writeInt(nameIds[i]);
+				int offset = 0;
+				out.writeInt(offset);
+				for (byte[] encoded : nameList) {
+					offset += encoded.length;
+					out.writeInt(offset);
+				}
+				for (byte[] encoded : nameList) out.write(encoded);
+			} finally {
+				out.close();
+			}
+
+			// Replace any existing store in one step, readers see either the old or the new store
+			Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+		logger.log(Level.INFO, "Wrote {0} Vectors for category: {1} to store File: {2}",
+				new Object[]{Integer.toString(rows), vectors.getCategory(), storeFile.getAbsolutePath()});
+	}
+
+	/**
+	 * Writes a store File for every category in {@link MzSequenceFileGenerator#getCategoryList()} that
+	 * has a merged category SequenceFile. Called after the SequenceFiles are merged by category.
+	 *
+	 * @return - number of store Files written
+	 * @throws IOException - thrown if reading a SequenceFile or writing a store fails
+	 */
+	public static int writeStoresForCategories() throws IOException {
+		int count = 0;
+		for (String category : MzSequenceFileGenerator.getCategoryList()) {
+			File seqFile = MzCategoryVectors.getCategorySequenceFile(category);
+			if (!seqFile.isFile()) {
+				logger.log(Level.WARNING, "No merged Sequence File for category: {0}", new Object[]{category});
+				continue;
+			}
+			write(MzCategoryVectors.loadFromSequenceFile(category, seqFile), getCategoryStoreFile(category));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Loads the Vectors of a category, preferring the mapped store File when it is at least as
+	 * recent as the merged category SequenceFile.
+	 *
+	 * @param category - category name e.g Laptops
+	 * @return - category Vectors
+	 * @throws IOException - thrown if neither the store nor the SequenceFile can be read
+	 */
+	public static MzProductVectors loadCategory( String category ) throws IOException {
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(category);
+		File storeFile = getCategoryStoreFile(category);
+		if (storeFile.isFile() && (!seqFile.isFile() || storeFile.lastModified() >= seqFile.lastModified())) {
+			try {
+				return open(category, storeFile);
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Failed to map Vector store {0}, will load the Sequence File: {1}",
+						new Object[]{storeFile.getName(), e.getLocalizedMessage()});
+			}
+		}
+		return MzCategoryVectors.loadFromSequenceFile(category, seqFile);
+	}
+
+}
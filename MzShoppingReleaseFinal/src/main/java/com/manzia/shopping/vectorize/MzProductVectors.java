@@ -0,0 +1,70 @@
+package com.manzia.shopping.vectorize;
+
+/**
+ * Read-only view of the product Vectors of a single category that the
+ * in-memory {@link MzRankingService} implementations scan when ranking a search Vector.
+ * Implementations must be safe for concurrent reads.
+ * 
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public interface MzProductVectors {
+	
+	/**
+	 * @return - category of the product Vectors e.g Laptops
+	 */
+	public String getCategory();
+	
+	/**
+	 * @return - number of product Vectors
+	 */
+	public int size();
+	
+	/**
+	 * @return - cardinality (size) of the product Vectors, typically {@link MzSequenceFileGenerator#VECTOR_SIZE}
+	 */
+	public int getCardinality();
+	
+	/**
+	 * @param row - index of the product Vector
+	 * @return - name of the product Vector in category:modelNumber:brand format
+	 */
+	public String getName( int row );
+	
+	/**
+	 * @param row - index of the product Vector
+	 * @return - pre-computed L2 norm of the product Vector
+	 */
+	public double getNorm( int row );
+	
+	/**
+	 * Computes the dot product of the product Vector at the given row and a dense search Vector
+	 * 
+	 * @param row - index of the product Vector
+	 * @param denseVector - dense search Vector, indexed by feature
+	 * @return - dot product
+	 */
+	public double dot( int row, double[] denseVector );
+	
+	/**
+	 * Computes the dot products of the product Vector at the given row and a block of dense search Vectors
+	 * in a single pass over the product Vector. The block is stored feature-major, i.e element f of search
+	 * Vector q is at denseBlock[f * blockSize + q], so the search Vectors sharing a feature are adjacent.
+	 * 
+	 * @param row - index of the product Vector
+	 * @param denseBlock - block of dense search Vectors, feature-major
+	 * @param blockSize - number of search Vectors in the block
+	 * @param dots - receives the dot product with each search Vector of the block, at least blockSize long
+	 */
+	public void dotBlock( int row, double[] denseBlock, int blockSize, double[] dots );
+	
+	/**
+	 * Copies the non-zero elements of the product Vector at the given row into a dense Vector.
+	 * Elements of the dense Vector not in the product Vector are left unchanged.
+	 * 
+	 * @param row - index of the product Vector
+	 * @param denseVector - dense Vector, indexed by feature
+	 */
+	public void copyInto( int row, double[] denseVector );
+
+}
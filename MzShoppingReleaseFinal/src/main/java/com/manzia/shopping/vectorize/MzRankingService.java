@@ -22,5 +22,16 @@ public interface MzRankingService {
 	 */
 	
 	public List<String> computeModelNumbersForVector(NamedVector searchVector, int numClosest);
+	
+	/**
+	 * Method that returns, for each of a batch of search Vectors, the same List of modelNumbers as
+	 * {@link #computeModelNumbersForVector(NamedVector, int)}. The category Vectors are scanned once
+	 * for all the search Vectors of the same category instead of once per search Vector.
+	 * 
+	 * @param searchVectors - Vectors for which ModelNumbers will be computed, of one or more categories
+	 * @param numClosest - how many ModelNumbers to return per search Vector. Default value is 5
+	 * @return - one List of ModelNumbers per search Vector in the same order, empty for invalid search Vectors
+	 */
+	public List<List<String>> computeModelNumbersForVectors(List<NamedVector> searchVectors, int numClosest);
 
 }
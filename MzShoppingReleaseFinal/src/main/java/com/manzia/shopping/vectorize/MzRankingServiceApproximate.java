@@ -0,0 +1,258 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+
+import org.apache.mahout.math.NamedVector;
+
+/**
+ * Session Bean implementation class MzRankingServiceApproximate
+ * This bean performs the following main tasks:
+ * 1- loads the HNSW graph index (hnswIndex-category) built offline by {@link MzHnswIndex#main(String[])}
+ * the first time a search Vector of that category is ranked
+ * 2- searches the index for the approximate Top-K "closest" category Vectors
+ * 3- falls back to the exact scan of {@link MzRankingServiceInMemory} for categories with fewer
+ * than exactSearchThreshold Vectors, or without a usable index
+ *
+ * Both the category Vectors and the exact scan are shared with the injected {@link MzRankingServiceInMemory}.
+ * An index is cached together with the generation of the category Vectors it was checked against, so a
+ * regenerated category causes its index to be read again. An index File built from other Vectors, i.e whose
+ * fingerprint does not match, is never rebuilt here: searches of the category use the exact scan until
+ * {@link MzHnswIndex#main(String[])} writes a matching index, which is picked up within indexRecheckMillis.
+ * Searches also use the exact scan while the index is being read and checked.
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@MzApproximateCosine
+public class MzRankingServiceApproximate implements MzRankingService {
+
+	//Logger
+	public static final Logger logger =
+				Logger.getLogger(MzRankingServiceApproximate.class.getCanonicalName());
+
+	// Categories smaller than this are always searched exactly
+	public static final int kDefaultExactSearchThreshold = 5000;
+
+	// How often a category without a usable index checks its index File again
+	public static final long kDefaultIndexRecheckMillis = 60000L;
+
+	private volatile int efSearch = MzHnswIndex.kDefaultEfSearch;
+	private volatile int exactSearchThreshold = kDefaultExactSearchThreshold;
+	private volatile long indexRecheckMillis = kDefaultIndexRecheckMillis;
+
+	// Exact ranking service, also the owner of the loaded category Vectors
+	private MzRankingServiceInMemory exactService;
+
+	// HNSW index of a category and the Vectors it was loaded for, the index is null without a usable index file
+	// and while it is being loaded
+	private static final class IndexEntry {
+		private final MzProductVectors vectors;
+		private final MzHnswIndex index;
+		private final long checkedNanos;
+
+		IndexEntry( MzProductVectors vectors, MzHnswIndex index ) {
+			this.vectors = vectors;
+			this.index = index;
+			this.checkedNanos = System.nanoTime();
+		}
+	}
+
+	// HNSW indexes, loaded once per category generation
+	private final ConcurrentMap<String, IndexEntry> categoryIndexes = new ConcurrentHashMap<String, IndexEntry>();
+
+    /**
+     * Default constructor.
+     */
+    public MzRankingServiceApproximate() {
+    }
+
+    @Inject
+    public void setExactService( @MzInMemoryCosine MzRankingServiceInMemory exactService ) {
+    	this.exactService = exactService;
+    }
+
+	public int getEfSearch() {
+		return efSearch;
+	}
+
+	public void setEfSearch( int efSearch ) {
+		this.efSearch = efSearch;
+	}
+
+	public int getExactSearchThreshold() {
+		return exactSearchThreshold;
+	}
+
+	public void setExactSearchThreshold( int exactSearchThreshold ) {
+		this.exactSearchThreshold = exactSearchThreshold;
+	}
+
+	public long getIndexRecheckMillis() {
+		return indexRecheckMillis;
+	}
+
+	public void setIndexRecheckMillis( long indexRecheckMillis ) {
+		this.indexRecheckMillis = indexRecheckMillis;
+	}
+
+	/**
+     * @see MzRankingService#computeModelNumbersForVector(NamedVector, int)
+     */
+	@Override
+	public List<String> computeModelNumbersForVector(NamedVector searchVector, int numClosest) {
+
+		List<String> modelNumbers = new ArrayList<String>();
+
+		// Check for valid inputs
+    	if (searchVector == null) {
+    		logger.log(Level.SEVERE, "Search Vector specified is NULL!");
+    		return modelNumbers;	// return empty List
+    	}
+    	if (searchVector.getNumNondefaultElements() < 1) {
+    		logger.log(Level.WARNING, "Search Vector has all Zero Values...cannot compute ModelNumbers!");
+    		return modelNumbers;	// return empty List
+    	}
+    	assert exactService != null;
+    	MzProductVectors vectors = exactService.getCategoryVectors(searchVector.getName());
+    	if (vectors == null) {
+    		return modelNumbers;
+    	}
+
+    	MzHnswIndex index = vectors.size() < exactSearchThreshold ? null : getCategoryIndex(vectors);
+    	if (index == null) {
+    		return MzRankingServiceInMemory.computeTopKModelNumbers(vectors, searchVector, numClosest);
+    	}
+    	double[] query = new double[Math.max(searchVector.size(), vectors.getCardinality())];
+    	double queryNorm = MzRankingServiceInMemory.densify(searchVector, query);
+    	int topK = MzRankingServiceInMemory.boundTopK(numClosest);
+		return MzRankingServiceInMemory.getNames(vectors, index.search(vectors, query, queryNorm, topK, efSearch));
+	}
+
+	/**
+     * @see MzRankingService#computeModelNumbersForVectors(List, int)
+     */
+	@Override
+	public List<List<String>> computeModelNumbersForVectors(List<NamedVector> searchVectors, int numClosest) {
+
+		if (searchVectors == null) {
+			logger.log(Level.SEVERE, "List of Search Vectors specified is NULL!");
+			return new ArrayList<List<String>>();
+		}
+		assert exactService != null;
+		List<List<String>> results = MzRankingServiceUtils.createBatchResults(searchVectors.size());
+		Map<String, List<Integer>> categoryPositions = MzRankingServiceUtils.groupByCategory(searchVectors);
+		for (Map.Entry<String, List<Integer>> entry : categoryPositions.entrySet()) {
+			MzProductVectors vectors = exactService.getCategoryVectors(entry.getKey());
+			if (vectors == null) continue;
+
+			// The index is searched per Vector, only the exact scan benefits from batching
+			MzHnswIndex index = vectors.size() < exactSearchThreshold ? null : getCategoryIndex(vectors);
+			if (index == null) {
+				List<NamedVector> categoryVectors = new ArrayList<NamedVector>(entry.getValue().size());
+				for (int position : entry.getValue()) {
+					categoryVectors.add(searchVectors.get(position));
+				}
+				List<List<String>> categoryResults = MzRankingServiceInMemory.computeTopKModelNumbers(vectors, categoryVectors, numClosest);
+				for (int i = 0; i < categoryResults.size(); i++) {
+					results.set(entry.getValue().get(i), categoryResults.get(i));
+				}
+				continue;
+			}
+			int topK = MzRankingServiceInMemory.boundTopK(numClosest);
+			double[] query = new double[vectors.getCardinality()];
+			for (int position : entry.getValue()) {
+				NamedVector searchVector = searchVectors.get(position);
+				if (query.length < searchVector.size()) {
+					query = new double[searchVector.size()];
+				} else {
+					Arrays.fill(query, 0.0);
+				}
+				double queryNorm = MzRankingServiceInMemory.densify(searchVector, query);
+				results.set(position, MzRankingServiceInMemory.getNames(vectors, index.search(vectors, query, queryNorm, topK, efSearch)));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the HNSW index of a category, loading it the first time the category, or a new generation
+	 * of its Vectors, is requested. A category without a usable index File checks it again at most once
+	 * every indexRecheckMillis.
+	 *
+	 * @param vectors - category Vectors
+	 * @return - the index or null if the category has no index or the index does not match the Vectors
+	 */
+	public MzHnswIndex getCategoryIndex( MzProductVectors vectors ) {
+
+		String category = vectors.getCategory();
+		IndexEntry entry = categoryIndexes.get(category);
+		if (entry != null && entry.vectors == vectors && (entry.index != null
+				|| System.nanoTime() - entry.checkedNanos < TimeUnit.MILLISECONDS.toNanos(indexRecheckMillis))) {
+			return entry.index;
+		}
+
+		// Only one caller loads the index of a generation, the others use the exact scan meanwhile
+		IndexEntry loading = new IndexEntry(vectors, null);
+		boolean claimed = entry == null ? categoryIndexes.putIfAbsent(category, loading) == null
+				: categoryIndexes.replace(category, entry, loading);
+		if (!claimed) {
+			return null;
+		}
+		MzHnswIndex index = null;
+		try {
+			index = loadCategoryIndex(vectors);
+		} finally {
+			categoryIndexes.replace(category, loading, new IndexEntry(vectors, index));
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the index File of a category. A stale or unreadable index is not rebuilt on the search path,
+	 * building the graph of a large category takes minutes, see {@link MzHnswIndex#main(String[])}.
+	 *
+	 * @param vectors - category Vectors
+	 * @return - the index or null if the category has no index File or the index does not match the Vectors
+	 */
+	private MzHnswIndex loadCategoryIndex( MzProductVectors vectors ) {
+
+		String category = vectors.getCategory();
+		File indexFile = MzHnswIndex.getCategoryIndexFile(category);
+		if (!indexFile.isFile()) {
+			logger.log(Level.INFO, "No HNSW index for category: {0}, will use exact search", new Object[]{category});
+			return null;
+		}
+		MzHnswIndex index = null;
+		try {
+			index = MzHnswIndex.read(indexFile);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to read HNSW index {0}, will use exact search: {1}",
+					new Object[]{indexFile.getName(), e.getLocalizedMessage()});
+			return null;
+		}
+		if (!index.matches(vectors)) {
+			// Built from another generation of the category Vectors
+			logger.log(Level.WARNING, "HNSW index for category: {0} does not match its Vectors, will use exact search "
+					+ "until the index is rebuilt offline", new Object[]{category});
+			return null;
+		}
+		return index;
+	}
+
+}
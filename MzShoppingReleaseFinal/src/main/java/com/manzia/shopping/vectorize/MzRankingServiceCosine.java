@@ -6,10 +6,9 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,7 +32,6 @@ import org.apache.mahout.common.distance.EuclideanDistanceMeasure;
 import org.apache.mahout.common.distance.TanimotoDistanceMeasure;
 import org.apache.mahout.common.iterator.sequencefile.PathFilters;
 import org.apache.mahout.common.iterator.sequencefile.PathType;
-import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterator;
 import org.apache.mahout.math.NamedVector;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorWritable;
@@ -47,6 +45,14 @@ import org.apache.mahout.math.hadoop.similarity.VectorDistanceSimilarityJob;
  * of the stored Vectors in the SequenceFile
  * 3- uses the Mahout VectorDistanceSimilarityJob class to compute distances
  * 
+ * Two execution modes are supported, neither of which shares any per-search state so
+ * concurrent searches can be served by the bean pool:
+ * - in-memory seed (default): the search Vector is never written to disk, the category
+ * SequenceFile is streamed and each distance computed with the same DistanceMeasure as the job
+ * - job: the search Vector is written to a per-search workspace directory (seeds + output) created
+ * by {@link MzRankingServiceUtils#createSearchWorkspace()}, the VectorDistanceSimilarityJob is run
+ * against it and the workspace is deleted afterwards
+ * 
  * NOTE: we use the name of the Search Vector i.e its Category to determine
  * which SequenceFiles
  */
@@ -61,17 +67,15 @@ public class MzRankingServiceCosine implements MzRankingService {
 						Logger.getLogger(MzRankingServiceCosine.class.getCanonicalName());
 	
 	// String Arguments
-	private String INPUTDIR;			// Input Directory of the VectorDistanceSimilarityJob
-	private String OUTPUTDIR;			// Output Directory of the VectorDistanceSimilarityJob
 	private static final DistanceMeasure DefaultMeasure = new CosineDistanceMeasure();
 	private static final String OUTTYPE = "v";						// Format of output SequenceFile [pw | v]
 	private int topKModelNumbers = 5;					// Number of TopK modelNumbers to return
 	private static final int TopKMaxValue = 25;			// Max number of TopK ModelNumbers
 	private static final String kMergeSeqFileSuffix = "-merge";	// suffix added to indicate file created from merging a bunch of Sequence Files
+	private static final String kSeedFilename = "part-search";	// "part-" prefix is expected by the VectorDistanceSimilarityJob
 	
-		
-	// Name of Sequence File containing Search Vectors
-	private File sequenceFilename;	
+	// Compute distances in-process without writing the search Vector to disk
+	private boolean inMemorySeed = true;
 
     /**
      * Default constructor. 
@@ -96,6 +100,14 @@ public class MzRankingServiceCosine implements MzRankingService {
 		this.topKModelNumbers = topKModelNumbers;
 	}
 
+	// Getter and Setter for the execution mode
+	public final boolean isInMemorySeed() {
+		return inMemorySeed;
+	}
+
+	public final void setInMemorySeed(boolean inMemorySeed) {
+		this.inMemorySeed = inMemorySeed;
+	}
 
 	/**
      * @see MzRankingService#computeModelNumbersForVector(Vector, int)
@@ -116,69 +128,186 @@ public class MzRankingServiceCosine implements MzRankingService {
     	// Bound the integer between 0 and 25 with default of 5.
     	numClosest = numClosest <= 0 ? topKModelNumbers : numClosest;
     	numClosest = numClosest > TopKMaxValue ? TopKMaxValue : numClosest;
-    	    	
-    	// Create the Sequence File that stores the search Vector
-    	List<NamedVector> searchVectorList = new ArrayList<NamedVector>();
-    	searchVectorList.add(searchVector);
     	
-    	// Make sure we have an INPUTDIR
-    	INPUTDIR = MzRankingServiceUtils.createInputDirectory(searchVector.getName()).getAbsolutePath();
-    	assert INPUTDIR != null;
-    	
-    	// Ensure we have a SEED_DIR
-    	File seedDir = MzRankingServiceUtils.createSeedDirectory();
-    	assert seedDir != null;
+    	// Make sure we have an INPUTDIR, shared read-only by all searches of the category
+    	File inputDir = MzRankingServiceUtils.acquireInputDirectory(searchVector.getName());
+    	if (inputDir == null) {
+    		return modelNumbers;
+    	}
+    	try {
+    		return computeModelNumbersForVector(searchVector, inputDir, numClosest);
+    	} finally {
+    		MzRankingServiceUtils.releaseInputDirectory(inputDir);
+    	}
+    }
+    
+    // Ranks a search Vector against a pinned INPUTDIR
+    private List<String> computeModelNumbersForVector(NamedVector searchVector, File inputDir, int numClosest) {
     	
-    	// Note that the temp file created below will be overwritten by the SequenceFile.Writer
-    	sequenceFilename = MzRankingServiceUtils.generateSequenceFilename();
-		
-    	OUTPUTDIR = MzRankingServiceUtils.createOutputDirectory(sequenceFilename);	// name the Output Directory according SequenceFile name
-    	assert OUTPUTDIR != null;
+    	List<String> modelNumbers = new ArrayList<String>();
+    	if (inMemorySeed) {
+    		return computeModelNumbersInMemory(searchVector, inputDir, numClosest);
+    	}
     	
-    	// Create the Sequence File
-    	boolean success = false;
+    	// Per-search workspace, nothing in it is visible to concurrent searches
+    	File workspace = MzRankingServiceUtils.createSearchWorkspace();
+    	File seedDir = new File(workspace, MzRankingServiceUtils.kWorkspaceSeedDir);
+    	File outputDir = new File(workspace, MzRankingServiceUtils.kWorkspaceOutputDir);
+    	File seedFile = new File(seedDir, kSeedFilename);
     	try {
-			success = MzSequenceFileGenerator.writeVectorToSequenceFile(searchVectorList, sequenceFilename.getAbsolutePath());
-			//assert success == true;
-		} catch (Exception e) {
-			logger.log(Level.SEVERE, "Exception while writing Search Vector to Sequence File at Path: {0}", 
-					new Object[] {sequenceFilename.getAbsolutePath()} );
-			MzRankingServiceUtils.cleanUp(sequenceFilename);
-			throw new RuntimeException(e.getLocalizedMessage());
-		}    	
-    	
-    	// We can now compute the ModelNumbers for this Search Vector
-    	boolean didComputeDistances = false;
-    	if (success) {
-    		didComputeDistances = computeVectorDistances(new Path(INPUTDIR), new Path(seedDir.getAbsolutePath()), new Path(OUTPUTDIR), this.getMeasure());
     		
-    		// Get the Output Sequence File that was created by the VectorDistanceSimilarityJob above
-        	Configuration config = new Configuration();
-        	File distanceSeqFile = loadDistanceVectorSequenceFile(OUTPUTDIR, config);
+    		// Create the Sequence File that stores the search Vector
+        	List<NamedVector> searchVectorList = new ArrayList<NamedVector>();
+        	searchVectorList.add(searchVector);
+        	boolean success = false;
+        	try {
+    			success = MzSequenceFileGenerator.writeVectorToSequenceFile(searchVectorList, seedFile.getAbsolutePath());
+    		} catch (Exception e) {
+    			logger.log(Level.SEVERE, "Exception while writing Search Vector to Sequence File at Path: {0}", 
+    					new Object[] {seedFile.getAbsolutePath()} );
+    			throw new RuntimeException(e.getLocalizedMessage());
+    		}
+        	if (!success) {
+        		logger.log(Level.WARNING, "Failed to write Search Vector to Sequence File at Path: {0}", 
+        				new Object[]{seedFile.getAbsolutePath()});
+        		return modelNumbers;
+        	}
+        	
+        	// We can now compute the ModelNumbers for this Search Vector
+        	boolean didComputeDistances = computeVectorDistances(new Path(inputDir.getAbsolutePath()), 
+        			new Path(seedDir.getAbsolutePath()), new Path(outputDir.getAbsolutePath()), this.getMeasure());
+        	if (!didComputeDistances) {
+        		logger.log(Level.WARNING, "Did not compute top ModelNumbers for Search Vector at Path: {0}", 
+    					new Object[]{seedFile.getAbsolutePath()} );
+        		return modelNumbers;
+        	}
+        	
+        	// Get the Output Sequence File that was created by the VectorDistanceSimilarityJob above
+        	File distanceSeqFile = loadDistanceVectorSequenceFile(outputDir.getAbsolutePath(), new Configuration());
         	if (distanceSeqFile == null) {
-        		
         		logger.log(Level.WARNING, "Failed to load Sequence File from OUTPUTDIR at Path: {0}",
-    					new Object[]{OUTPUTDIR});
-        		MzRankingServiceUtils.cleanUp(sequenceFilename);
+    					new Object[]{outputDir.getAbsolutePath()});
         		return modelNumbers;
         	}
-        	
-    		if (didComputeDistances) {
-    			modelNumbers = computeTopKModelNumbers(distanceSeqFile, numClosest);
-    		} else {
-    			logger.log(Level.WARNING, "Did not compute top ModelNumbers for Search Vector at Path: {0}", 
-    					new Object[]{sequenceFilename.getAbsolutePath()} );
+        	modelNumbers = computeTopKModelNumbers(distanceSeqFile, numClosest);
+    	} finally {
+    		
+    		// Clean up this search's workspace only
+    		MzRankingServiceUtils.deleteSearchWorkspace(workspace);
+    	}
+		return modelNumbers;
+    }
+    
+    /**
+     * @see MzRankingService#computeModelNumbersForVectors(List, int)
+     * 
+     * In the in-memory seed mode the category SequenceFile is streamed once for all the search Vectors
+     * of a category. In the job mode one VectorDistanceSimilarityJob is still run per search Vector.
+     */
+    public List<List<String>> computeModelNumbersForVectors(List<NamedVector> searchVectors, int numClosest) {
+    	
+    	if (searchVectors == null) {
+    		logger.log(Level.SEVERE, "List of Search Vectors specified is NULL!");
+    		return new ArrayList<List<String>>();
+    	}
+    	List<List<String>> results = MzRankingServiceUtils.createBatchResults(searchVectors.size());
+    	
+    	// Bound the integer between 0 and 25 with default of 5.
+    	numClosest = numClosest <= 0 ? topKModelNumbers : numClosest;
+    	numClosest = numClosest > TopKMaxValue ? TopKMaxValue : numClosest;
+    	
+    	Map<String, List<Integer>> categoryPositions = MzRankingServiceUtils.groupByCategory(searchVectors);
+    	for (Map.Entry<String, List<Integer>> entry : categoryPositions.entrySet()) {
+    		if (!inMemorySeed) {
+    			for (int position : entry.getValue()) {
+    				results.set(position, computeModelNumbersForVector(searchVectors.get(position), numClosest));
+    			}
+    			continue;
+    		}
+    		File inputDir = MzRankingServiceUtils.acquireInputDirectory(entry.getKey());
+    		if (inputDir == null) continue;
+    		
+    		List<NamedVector> categoryVectors = new ArrayList<NamedVector>(entry.getValue().size());
+    		for (int position : entry.getValue()) {
+    			categoryVectors.add(searchVectors.get(position));
+    		}
+    		List<List<String>> categoryResults;
+    		try {
+    			categoryResults = computeModelNumbersInMemory(categoryVectors, inputDir, numClosest);
+    		} finally {
+    			MzRankingServiceUtils.releaseInputDirectory(inputDir);
+    		}
+    		for (int i = 0; i < categoryResults.size(); i++) {
+    			results.set(entry.getValue().get(i), categoryResults.get(i));
     		}
-    	} else {
-    		logger.log(Level.WARNING, "Failed to write Search Vector to Sequence File at Path: {0}", 
-    				new Object[]{sequenceFilename.getAbsolutePath()});
     	}
+    	return results;
+    }
+    
+    /**
+     * Computes the Top-K "closest" modelNumbers without writing the search Vector to disk. Each category
+     * SequenceFile in the input directory is streamed once and the distance to each Vector computed with
+     * {@link #getMeasure()}, giving the same result as running the VectorDistanceSimilarityJob.
+     * 
+     * @param searchVector - search Vector
+     * @param inputDir - Input Directory holding the category SequenceFile(s)
+     * @param topK - number of K "closest" modelNumbers to return
+     * @return - List of Strings each of the format category:modelNumber:modelBrand, closest first
+     */
+    public List<String> computeModelNumbersInMemory( NamedVector searchVector, File inputDir, int topK ) {
+    	assert searchVector != null;
+    	return computeModelNumbersInMemory(Arrays.asList(searchVector), inputDir, topK).get(0);
+    }
+    
+    /**
+     * Computes the Top-K "closest" modelNumbers of each of a batch of search Vectors, streaming each
+     * category SequenceFile in the input directory once for the whole batch.
+     * 
+     * @param searchVectors - search Vectors of the same category
+     * @param inputDir - Input Directory holding the category SequenceFile(s)
+     * @param topK - number of K "closest" modelNumbers to return per search Vector
+     * @return - one List of Strings per search Vector in the same order, closest first
+     */
+    public List<List<String>> computeModelNumbersInMemory( List<NamedVector> searchVectors, File inputDir, int topK ) {
     	
-    	// Clean up directories for the next run/threads etc.
-    	MzRankingServiceUtils.cleanUp(sequenceFilename);
-    	MzRankingServiceUtils.clearSeedDirectory(seedDir);    	
+    	assert searchVectors != null;
+    	assert inputDir != null;
+    	MzTopKSelector[] selectors = new MzTopKSelector[searchVectors.size()];
+    	for (int i = 0; i < selectors.length; i++) {
+    		selectors[i] = new MzTopKSelector(topK, true);
+    	}
+    	DistanceMeasure measure = this.getMeasure();
     	
-		return modelNumbers;
+    	Configuration conf = new Configuration();
+    	try {
+    		FileSystem fs = FileSystem.getLocal(conf);
+    		FileStatus[] statuses = fs.listStatus(new Path(inputDir.getAbsolutePath()), PathFilters.logsCRCFilter());
+    		for (FileStatus status : statuses) {
+    			if (status.isDir()) continue;
+    			SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(), conf);
+    			try {
+    				Text key = new Text();
+    				VectorWritable value = new VectorWritable();
+    				while (reader.next(key, value)) {
+    					String name = key.toString();
+    					for (int i = 0; i < selectors.length; i++) {
+    						selectors[i].offer(measure.distance(searchVectors.get(i), value.get()), name);
+    					}
+    				}
+    			} finally {
+    				reader.close();
+    			}
+    		}
+    	} catch (IOException e) {
+    		logger.log(Level.SEVERE, "IO Exception while reading category Sequence Files in INPUTDIR at Path: {0}", 
+    				new Object[]{inputDir.getAbsolutePath()});
+    		throw new RuntimeException("IO Exception while reading category Sequence Files " + e.getLocalizedMessage());
+    	}
+    	List<List<String>> modelNumbers = new ArrayList<List<String>>(selectors.length);
+    	for (MzTopKSelector selector : selectors) {
+    		modelNumbers.add(selector.getNames());
+    	}
+    	return modelNumbers;
     }
     
    /**
@@ -271,74 +400,21 @@ public class MzRankingServiceCosine implements MzRankingService {
      * 
      * @param topK - number of K "closest" modelNumbers to return, Default value is 5 and the max is TopKMaxValue constant
      * 
-     * @return - List of Strings each of the format category:modelNumber:modelBrand for the "closest" K Vectors to search Vector.
+     * @return - List of Strings each of the format category:modelNumber:modelBrand for the "closest" K Vectors to search Vector,
+     * closest first. Vectors with equal distances keep their order in the SequenceFile.
      */
     public List<String> computeTopKModelNumbers( File sequenceFile, int topK) {
     	
     	List<String> modelNumbers = new ArrayList<String>();
     	
-    	//note we use a LinkedList becoz we are making alot of insertions and deletions
-		// at any point in the List which are operations typically done in constant time in a LinkedList
-    	List<Pair<String, Double>> modelNumList = Collections.synchronizedList( new LinkedList<Pair<String, Double>>());
-    	
     	// Return top 5 (K = 5) ModelNumber strings by default with a MAX of 25
     	topK = topK <= 0 ? 5 : topK;
     	topK = topK > TopKMaxValue ? TopKMaxValue : topK;
     	
-    	// check inputs and iterate
-    	Configuration conf = new Configuration();
-    	FileSystem fs;
+    	// check inputs and select in a single pass with a bounded heap of the K smallest distances
     	if (sequenceFile.exists() && sequenceFile.isFile()) {
     		try {
-    			fs = FileSystem.get(conf);
-				Path qualifiedSeqFile = fs.makeQualified(new Path( sequenceFile.getAbsolutePath()));
-				assert qualifiedSeqFile != null;
-    			SequenceFileIterator<Text, VectorWritable> seqIterator = 
-						new SequenceFileIterator<Text, VectorWritable>(qualifiedSeqFile, true, conf);
-				assert seqIterator != null;
-				Pair<Text, VectorWritable> currElement;
-				Pair<String, Double> listElement;
-				int count = 0;		// keep track of how many elements we have traversed in the Sequence File				
-				int greaterIndex = -1;		// Index of largest element greater than value in the list
-				
-				/*while (seqIterator.hasNext()) {
-					currElement = seqIterator.computeNext();
-					if (currElement != null) {
-						
-						//assert currElement != null;
-						listElement = 
-								new Pair<String, Double>(currElement.getFirst().toString(), Double.valueOf(currElement.getSecond().get().get(0)));
-						assert listElement != null;
-						if (count < topK) {
-							
-							// we populate our LinkedList, note we use a LinkedList becoz we are making alot of insertions and deletions
-							// at any point in the List which are operations typically done in constant time in a LinkedList
-							modelNumList.add(listElement);
-							//System.out.printf("Added Element to List of Model Numbers with String: %s, Double: %.4f",
-								//	currElement.getFirst().toString(), Double.valueOf(currElement.getSecond().get().get(0)));
-							//System.out.println();
-							count++;
-							
-						} else {
-							assert modelNumList.size() == topK;
-							double distanceValue = currElement.getSecond().get().get(0);
-							Integer computedIndex = indexOfLargestElementGreaterthanValue(distanceValue, modelNumList);
-							if (computedIndex != null) {
-								greaterIndex = computedIndex.intValue();
-							}
-							if (greaterIndex >= 0) {
-								
-								// we can now insert the "closer" Vector in the SequenceFile to our List of ModelNumbers
-								// and delete the "larger" Vector as determined by the indexOfLargestElementGreaterthanValue method
-								modelNumList.remove(greaterIndex);
-								modelNumList.add(listElement);
-								greaterIndex = -1;
-							}
-						}	
-					
-					}
-				}*/
-				seqIterator.close();
+    			modelNumbers = MzTopKSelector.selectFromDistanceFile(sequenceFile, topK);
 			} catch (IOException e) {
 				logger.log(Level.SEVERE, "IO Exception while iterating over Sequence file at Path: {0}", 
 						new Object[] {sequenceFile.getAbsolutePath()});
@@ -348,11 +424,6 @@ public class MzRankingServiceCosine implements MzRankingService {
     		logger.log(Level.INFO, "Success computing ModelNumbers for Sequence File: {0}", new Object[]{sequenceFile.getName()});
     	}
     	
-    	// Iterate over the LinkedList of Pair<String, Double> and populate the modelNumbers List
-    	for (Pair<String, Double> topModelNums : modelNumList) {
-    		modelNumbers.add(topModelNums.getFirst());
-    	}    	
-    	
     	// These are "guaranteed" to be the closest modelNumbers to the Search Vector provided
     	return modelNumbers;
     }
@@ -361,11 +432,14 @@ public class MzRankingServiceCosine implements MzRankingService {
      * Helper method that given a LinkedList of Pair<String, Double) elements will return the index of the element
      * whose Double value has the largest absolute difference. If two elements have the same absolute we randomly
      * choose one of the two.
+     * 
+     * @deprecated - walks the whole List per candidate, use {@link MzTopKSelector} for Top-K selection
      *  
      * @param value - double value we compare to each Double in the List
      * @param theList - the list of Pair<String, Double> elements
      * @return - the index of the largest element greater than the provided value
      */
+    @Deprecated
     public Integer indexOfLargestElementGreaterthanValue( double value, List<Pair<String, Double>>theList )
     {
 		// check inputs
@@ -455,8 +529,8 @@ public class MzRankingServiceCosine implements MzRankingService {
 				VectorDistanceSimilarityJob.run(conf, inputDir, seedsDir, outputDir, measure, OUTTYPE);
 				didCompute = true;
 			} else {
-				logger.log(Level.SEVERE, "Invalid Input Directory! " + INPUTDIR);
-				throw new FileNotFoundException("Input Directory not Found:" + INPUTDIR);
+				logger.log(Level.SEVERE, "Invalid Input Directory! " + inputDir);
+				throw new FileNotFoundException("Input Directory not Found:" + inputDir);
 			}
 		} catch (IOException e) {
 			logger.log(Level.SEVERE, "IO exception while instantiating FileSystem!");
@@ -0,0 +1,339 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Session Bean implementation class MzRankingServiceInMemory
+ * This bean performs the following main tasks:
+ * 1- loads the category Vectors the first time a search Vector of that category
+ * is ranked, from the memory-mapped store (vecStore-category) when present otherwise
+ * from the merged category SequenceFile (seqFile-category), and swaps in a new
+ * generation when those files are regenerated, see {@link MzCategorySnapshots}
+ * 2- computes the Cosine Distance between the searchVector and each of the
+ * category Vectors with a direct dot-product scan
+ * 3- keeps the Top-K "closest" Vectors in a bounded heap, see {@link MzTopKSelector}
+ *
+ * The result is the same List of category:modelNumber:brand strings computed by
+ * {@link MzRankingServiceCosine} without running a VectorDistanceSimilarityJob
+ * or touching the FileSystem per search.
+ *
+ * NOTE: we use the name of the Search Vector i.e its Category to determine
+ * which category Vectors to compare against
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@MzInMemoryCosine
+public class MzRankingServiceInMemory implements MzRankingService {
+
+	//Logger
+	public static final Logger logger =
+				Logger.getLogger(MzRankingServiceInMemory.class.getCanonicalName());
+
+	private static final int DefaultTopK = 5;			// Number of TopK modelNumbers to return
+	private static final int TopKMaxValue = 25;			// Max number of TopK ModelNumbers
+	private static final int kQueryBlockSize = 32;		// Search Vectors scored per pass over the category Vectors
+
+	// Category Vectors, shared by all searches and reloaded when the merge directory changes
+	private final MzCategorySnapshots categorySnapshots = new MzCategorySnapshots();
+
+    /**
+     * Default constructor.
+     */
+    public MzRankingServiceInMemory() {
+    }
+
+    /**
+     * Checks the merge directory for regenerated categories, on a container timer every 30 seconds
+     * i.e {@link MzCategorySnapshots#kDefaultPollMillis}, so no thread of our own outlives the bean
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void refreshSnapshots() {
+    	try {
+    		categorySnapshots.refresh();
+    	} catch (RuntimeException e) {
+    		// never let an exception cancel the timer
+    		logger.log(Level.SEVERE, "Failed to refresh category snapshots: {0}", new Object[]{e.getLocalizedMessage()});
+    	}
+    }
+
+    @PreDestroy
+    public void closeSnapshots() {
+    	categorySnapshots.close();
+    }
+
+    public MzCategorySnapshots getCategorySnapshots() {
+    	return categorySnapshots;
+    }
+
+	/**
+     * @see MzRankingService#computeModelNumbersForVector(NamedVector, int)
+     */
+	@Override
+	public List<String> computeModelNumbersForVector(NamedVector searchVector, int numClosest) {
+
+		List<String> modelNumbers = new ArrayList<String>();
+
+		// Check for valid inputs
+    	if (searchVector == null) {
+    		logger.log(Level.SEVERE, "Search Vector specified is NULL!");
+    		return modelNumbers;	// return empty List
+    	}
+    	if (searchVector.getNumNondefaultElements() < 1) {
+    		logger.log(Level.WARNING, "Search Vector has all Zero Values...cannot compute ModelNumbers!");
+    		return modelNumbers;	// return empty List
+    	}
+
+    	MzProductVectors vectors = getCategoryVectors(searchVector.getName());
+    	if (vectors == null) {
+    		return modelNumbers;
+    	}
+		return computeTopKModelNumbers(vectors, searchVector, numClosest);
+	}
+
+	/**
+     * @see MzRankingService#computeModelNumbersForVectors(List, int)
+     */
+	@Override
+	public List<List<String>> computeModelNumbersForVectors(List<NamedVector> searchVectors, int numClosest) {
+
+		if (searchVectors == null) {
+			logger.log(Level.SEVERE, "List of Search Vectors specified is NULL!");
+			return new ArrayList<List<String>>();
+		}
+		List<List<String>> results = MzRankingServiceUtils.createBatchResults(searchVectors.size());
+		Map<String, List<Integer>> categoryPositions = MzRankingServiceUtils.groupByCategory(searchVectors);
+		for (Map.Entry<String, List<Integer>> entry : categoryPositions.entrySet()) {
+			MzProductVectors vectors = getCategoryVectors(entry.getKey());
+			if (vectors == null) continue;
+
+			List<Vector> categoryVectors = new ArrayList<Vector>(entry.getValue().size());
+			for (int position : entry.getValue()) {
+				categoryVectors.add(searchVectors.get(position));
+			}
+			List<List<String>> categoryResults = computeTopKModelNumbers(vectors, categoryVectors, numClosest);
+			for (int i = 0; i < categoryResults.size(); i++) {
+				results.set(entry.getValue().get(i), categoryResults.get(i));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the current Vectors for a category, loading them the first time the category is requested.
+	 * The returned Vectors never change, a regenerated category is returned by later calls.
+	 *
+	 * @param category - category name, i.e the name of the search Vector
+	 * @return - {@link MzProductVectors} or null if category is invalid
+	 * @see MzCategorySnapshots#getSnapshot(String)
+	 */
+	public MzProductVectors getCategoryVectors( String category ) {
+
+		if (category == null || !MzSequenceFileGenerator.getCategoryList().contains(category)) {
+			logger.log(Level.WARNING, "Invalid category name in provided search Vector name: {0}", new Object[]{category});
+			return null;
+		}
+		try {
+			return categorySnapshots.getSnapshot(category).getVectors();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "IO Exception while loading Vectors for category: {0}", new Object[]{category});
+			throw new RuntimeException("IO Exception while loading category Vectors " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Computes the Top-K "closest" Vectors, by Cosine Distance, of a set of category Vectors to a search Vector.
+	 * Ties in distance are broken in favour of the Vector that appears first in the category.
+	 *
+	 * @param vectors - category Vectors to compare against
+	 * @param searchVector - search Vector
+	 * @param topK - number of K "closest" modelNumbers to return, Default value is 5 and the max is 25
+	 * @return - List of Strings each of the format category:modelNumber:modelBrand, closest first
+	 */
+	public static List<String> computeTopKModelNumbers( MzProductVectors vectors, Vector searchVector, int topK ) {
+
+		assert vectors != null;
+		assert searchVector != null;
+
+		// Bound the integer between 0 and 25 with default of 5.
+		topK = boundTopK(topK);
+
+		// Densify the search Vector so each dot product is a single pass over the sparse category Vector
+		double[] query = new double[Math.max(searchVector.size(), vectors.getCardinality())];
+		double queryNorm = densify(searchVector, query);
+		return getNames(vectors, computeTopKRows(vectors, query, queryNorm, topK));
+	}
+
+	/**
+	 * Computes the Top-K "closest" Vectors, by Cosine Distance, of a set of category Vectors to each of a batch
+	 * of search Vectors. The search Vectors are scored in blocks, each block with a single pass over the category
+	 * Vectors, and each result is the same as {@link #computeTopKModelNumbers(MzProductVectors, Vector, int)}.
+	 *
+	 * @param vectors - category Vectors to compare against
+	 * @param searchVectors - search Vectors
+	 * @param topK - number of K "closest" modelNumbers to return, Default value is 5 and the max is 25
+	 * @return - one List of Strings per search Vector in the same order, closest first
+	 */
+	public static List<List<String>> computeTopKModelNumbers( MzProductVectors vectors, List<? extends Vector> searchVectors, int topK ) {
+
+		assert vectors != null;
+		assert searchVectors != null;
+
+		topK = boundTopK(topK);
+		int features = vectors.getCardinality();
+		for (Vector searchVector : searchVectors) {
+			features = Math.max(features, searchVector.size());
+		}
+
+		List<List<String>> modelNumbers = new ArrayList<List<String>>(searchVectors.size());
+		for (int start = 0; start < searchVectors.size(); start += kQueryBlockSize) {
+			int blockSize = Math.min(kQueryBlockSize, searchVectors.size() - start);
+			double[] block = new double[features * blockSize];
+			double[] queryNorms = new double[blockSize];
+			for (int q = 0; q < blockSize; q++) {
+				queryNorms[q] = densify(searchVectors.get(start + q), block, blockSize, q);
+			}
+			for (int[] rows : computeTopKRows(vectors, block, blockSize, queryNorms, topK)) {
+				modelNumbers.add(getNames(vectors, rows));
+			}
+		}
+		return modelNumbers;
+	}
+
+	/**
+	 * Bounds a requested number of "closest" modelNumbers between 1 and 25 with a default of 5
+	 *
+	 * @param topK - requested number of modelNumbers
+	 * @return - bounded number of modelNumbers
+	 */
+	public static int boundTopK( int topK ) {
+		topK = topK <= 0 ? DefaultTopK : topK;
+		return topK > TopKMaxValue ? TopKMaxValue : topK;
+	}
+
+	/**
+	 * Copies a search Vector into a dense array
+	 *
+	 * @param searchVector - search Vector
+	 * @param denseVector - dense array, at least as long as the search Vector's cardinality
+	 * @return - L2 norm of the search Vector
+	 */
+	public static double densify( Vector searchVector, double[] denseVector ) {
+		double sumSquares = 0.0;
+		Iterator<Vector.Element> elements = searchVector.iterateNonZero();
+		while (elements.hasNext()) {
+			Vector.Element element = elements.next();
+			denseVector[element.index()] = element.get();
+			sumSquares += element.get() * element.get();
+		}
+		return Math.sqrt(sumSquares);
+	}
+
+	/**
+	 * Copies a search Vector into a block of dense search Vectors, see {@link MzProductVectors#dotBlock(int, double[], int, double[])}
+	 *
+	 * @param searchVector - search Vector
+	 * @param denseBlock - feature-major block of dense search Vectors
+	 * @param blockSize - number of search Vectors in the block
+	 * @param position - position of the search Vector in the block
+	 * @return - L2 norm of the search Vector
+	 */
+	public static double densify( Vector searchVector, double[] denseBlock, int blockSize, int position ) {
+		double sumSquares = 0.0;
+		Iterator<Vector.Element> elements = searchVector.iterateNonZero();
+		while (elements.hasNext()) {
+			Vector.Element element = elements.next();
+			denseBlock[element.index() * blockSize + position] = element.get();
+			sumSquares += element.get() * element.get();
+		}
+		return Math.sqrt(sumSquares);
+	}
+
+	/**
+	 * @param vectors - category Vectors
+	 * @param rows - rows of the category Vectors
+	 * @return - names of the Vectors at the given rows, in the same order
+	 */
+	public static List<String> getNames( MzProductVectors vectors, int[] rows ) {
+		List<String> modelNumbers = new ArrayList<String>(rows.length);
+		for (int row : rows) {
+			modelNumbers.add(vectors.getName(row));
+		}
+		return modelNumbers;
+	}
+
+	/**
+	 * Exact brute-force scan for the rows of the Top-K "closest" Vectors to a dense search Vector.
+	 * Ties in distance are broken in favour of the Vector that appears first in the category.
+	 *
+	 * @param vectors - category Vectors to compare against
+	 * @param query - dense search Vector
+	 * @param queryNorm - L2 norm of the search Vector
+	 * @param topK - number of rows to return
+	 * @return - rows of the closest Vectors, closest first
+	 */
+	public static int[] computeTopKRows( MzProductVectors vectors, double[] query, double queryNorm, int topK ) {
+
+		MzTopKSelector selector = new MzTopKSelector(topK, false);
+		if (queryNorm == 0.0) {
+			return selector.getIds();
+		}
+		for (int row = 0; row < vectors.size(); row++) {
+			double norm = vectors.getNorm(row);
+			if (norm == 0.0) continue;
+			selector.offer(vectors.dot(row, query) / (norm * queryNorm), row);
+		}
+		return selector.getIds();
+	}
+
+	/**
+	 * Exact brute-force scan for the rows of the Top-K "closest" Vectors to each of a block of dense search
+	 * Vectors, computing all the dot products of a category Vector in one pass over it.
+	 *
+	 * @param vectors - category Vectors to compare against
+	 * @param denseBlock - feature-major block of dense search Vectors
+	 * @param blockSize - number of search Vectors in the block
+	 * @param queryNorms - L2 norm of each search Vector of the block
+	 * @param topK - number of rows to return per search Vector
+	 * @return - rows of the closest Vectors of each search Vector, closest first
+	 */
+	public static int[][] computeTopKRows( MzProductVectors vectors, double[] denseBlock, int blockSize, double[] queryNorms, int topK ) {
+
+		MzTopKSelector[] selectors = new MzTopKSelector[blockSize];
+		for (int q = 0; q < blockSize; q++) {
+			selectors[q] = new MzTopKSelector(topK, false);
+		}
+		double[] dots = new double[blockSize];
+		for (int row = 0; row < vectors.size(); row++) {
+			double norm = vectors.getNorm(row);
+			if (norm == 0.0) continue;
+			vectors.dotBlock(row, denseBlock, blockSize, dots);
+			for (int q = 0; q < blockSize; q++) {
+				if (queryNorms[q] == 0.0) continue;
+				selectors[q].offer(dots[q] / (norm * queryNorms[q]), row);
+			}
+		}
+		int[][] rows = new int[blockSize][];
+		for (int q = 0; q < blockSize; q++) {
+			rows[q] = selectors[q].getIds();
+		}
+		return rows;
+	}
+
+}
@@ -8,16 +8,25 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.mahout.math.NamedVector;
+
 import com.manzia.shopping.vectorize.MzRankingServiceCosine.MzCategoryFileFilter;
 
 /**
@@ -39,8 +48,20 @@ public final class MzRankingServiceUtils {
 	// Common Directories
 	//public static final String INPUT_DIR = "category-files";	// Input Directory with category-specific SequenceFile
 	public static final String SEED_DIR = "search-files";			// Seed Directory with SequenceFile containing Search Vector
+	public static final String WORKSPACE_DIR = "search-workspaces";	// Parent Directory of the per-search workspaces
+	public static final String kWorkspaceSeedDir = "seeds";			// Seed Directory within a per-search workspace
+	public static final String kWorkspaceOutputDir = "output";		// Output Directory within a per-search workspace
 	private static final String NAMESEPARATOR = "-";
-	private static final List<String> categoryList = MzSequenceFileGenerator.getCategoryList();
+	private static final String GENERATION_PREFIX = "gen-";	// Prefix of the generation directories in an Input Directory
+	private static final Set<String> categorySet = Collections.unmodifiableSet(
+			new HashSet<String>(MzSequenceFileGenerator.getCategoryList()));
+	private static final int kPruning = -1;	// reader count of a generation directory being deleted
+	
+	// Current generation directory of each Input Directory, published once its copy is complete
+	private static final ConcurrentMap<File, File> currentGenerations = new ConcurrentHashMap<File, File>();
+	
+	// Searches reading each generation directory, kPruning while the directory is deleted
+	private static final ConcurrentMap<File, AtomicInteger> generationReaders = new ConcurrentHashMap<File, AtomicInteger>();
 	
 	
 	/**
@@ -49,6 +70,16 @@ public final class MzRankingServiceUtils {
 	 * of the VectorDistanceSimilarityJob. The Input Directory returned is category-specific and is dependent
 	 * on the name of the search Vector being processed by the MzRankingService implementation.
 	 * 
+	 * The category SequenceFile is copied into a generation directory (inputDir-category/gen-lastModified)
+	 * each time the merged SequenceFile is regenerated, so a new catalogue is picked up without a restart.
+	 * A generation directory is never modified once returned; only the current and the previous generations
+	 * are kept, as well as any older generation still pinned by {@link #acquireInputDirectory(String)}.
+	 * Searches should use {@link #acquireInputDirectory(String)} so their generation is not pruned under them.
+	 * 
+	 * NOTE: this method takes no lock. A generation is copied into a temporary directory of its own and
+	 * renamed into place, so concurrent searches never see a half-copied Input Directory; the searches that
+	 * find the current generation already published do no copy and no directory listing of the Input Directory.
+	 * 
 	 * @return - Input Directory as a java.io.File object.
 	 * @throws IOException 
 	 */
@@ -58,8 +89,6 @@ public final class MzRankingServiceUtils {
 		// Iterate over the Category List
 		File inputDir;
 		StringBuffer buffer = new StringBuffer();
-		Set<String> categorySet = Collections.synchronizedSet( new HashSet<String>());
-		categorySet.addAll(categoryList);
 		if (categorySet.contains(vectorName)) {
 			buffer.append("inputDir-").append(vectorName.replaceAll("\\s", ""));
 			inputDir = new File( System.getProperty( "user.dir"), buffer.toString());
@@ -69,52 +98,165 @@ public final class MzRankingServiceUtils {
 		}
 		assert inputDir != null;
 		
-		// Create
-		boolean success = false;
-		if (!inputDir.exists()) {
-			success = inputDir.mkdirs();
-			
-			// Copy the Category-specific SequenceFile that this and similar search Vectors will be compared
-			// against. Ideally, this operation should only happen once when the inputDir is being created
-			if (success) {
-				File mergeSequenceDir = new File (MzSequenceFileGenerator.getMergeFileDirectory());
-		    	if (!mergeSequenceDir.exists() || !mergeSequenceDir.isDirectory()) {
-		    		logger.log(Level.SEVERE, "Directory of Merged Sequence Files does not exist!");
-		    		throw new RuntimeException("Directory of Merged Sequence Files does not exist!");
-		    	}
-		    	FilenameFilter categoryFilter = new MzCategoryFileFilter(vectorName);
-		    	assert categoryFilter != null;
-		    	File categorySeqFile = mergeSequenceDir.listFiles(categoryFilter)[0];	// we assume we always have 1 file so we get first one
-		    	assert categorySeqFile != null;
-		    	
-		    	if (!categorySeqFile.exists() || !categorySeqFile.isFile()) {
-		    		logger.log(Level.SEVERE, "Category-specific Sequence File is invalid!");
-		    		throw new RuntimeException("Category-specific Sequence Files is invalid!");
-		    	}
-		    	
-		    	// copy the SequenceFile to the Input Directory
-		    	File destFile = new File(inputDir, categorySeqFile.getName());
-		    	assert destFile != null;
-		    	try {
-					MzRankingServiceUtils.sequenceFileCopy(categorySeqFile, destFile);
-				} catch (FileNotFoundException e1) {
-					logger.log(Level.SEVERE, "FileNotFound exception while copying category Sequence File to INPUTDIR!");
-					e1.printStackTrace();
-					throw new RuntimeException("FileNotFound Exception while copying Sequence File to INPUTDIR" + e1.getLocalizedMessage());					
-				} catch (IOException e) {
-					logger.log(Level.WARNING, "Failed to copy file {0} to file {1}", 
-							new Object[]{categorySeqFile.getName(), destFile.getName()});					
-					e.printStackTrace();
-					throw new RuntimeException("IO Exception while copying Sequence Files to INPUTDIR" + e.getLocalizedMessage());
-				}		    	
-			} else {
-				logger.log(Level.SEVERE, "Failed to create Input Directory at Path: {0}", new Object[]{inputDir.toString()});
-				inputDir = null;
+		// Find the Category-specific SequenceFile that this and similar search Vectors will be compared against
+		File mergeSequenceDir = new File (MzSequenceFileGenerator.getMergeFileDirectory());
+    	if (!mergeSequenceDir.exists() || !mergeSequenceDir.isDirectory()) {
+    		logger.log(Level.SEVERE, "Directory of Merged Sequence Files does not exist!");
+    		throw new RuntimeException("Directory of Merged Sequence Files does not exist!");
+    	}
+    	FilenameFilter categoryFilter = new MzCategoryFileFilter(vectorName);
+    	assert categoryFilter != null;
+    	File[] categoryFiles = mergeSequenceDir.listFiles(categoryFilter);
+    	File categorySeqFile = categoryFiles != null && categoryFiles.length > 0 ? categoryFiles[0] : null; // we assume we always have 1 file so we get first one
+    	if (categorySeqFile == null || !categorySeqFile.exists() || !categorySeqFile.isFile()) {
+    		logger.log(Level.SEVERE, "Category-specific Sequence File is invalid!");
+    		throw new RuntimeException("Category-specific Sequence Files is invalid!");
+    	}
+    	
+    	// Copy only when the merged SequenceFile has been regenerated since the last copy
+    	File generationDir = new File(inputDir, GENERATION_PREFIX + categorySeqFile.lastModified());
+    	if (generationDir.equals(currentGenerations.get(inputDir))) {
+    		return generationDir;
+    	}
+    	if (generationDir.isDirectory()) {
+    		currentGenerations.put(inputDir, generationDir);
+    		return generationDir;
+    	}
+    	
+    	// Copy into a temporary directory first so a failed copy never leaves a partial generation behind,
+    	// one per copy so that concurrent copies of the same generation do not interfere
+    	File tempDir = new File(inputDir, "tmp" + NAMESEPARATOR + generationDir.getName() + NAMESEPARATOR + UUID.randomUUID());
+    	if (!tempDir.mkdirs()) {
+    		logger.log(Level.SEVERE, "Failed to create Input Directory at Path: {0}", new Object[]{tempDir.toString()});
+    		return null;
+    	}
+    	File destFile = new File(tempDir, categorySeqFile.getName());
+    	assert destFile != null;
+    	try {
+			MzRankingServiceUtils.sequenceFileCopy(categorySeqFile, destFile);
+		} catch (FileNotFoundException e1) {
+			logger.log(Level.SEVERE, "FileNotFound exception while copying category Sequence File to INPUTDIR!");
+			e1.printStackTrace();
+			throw new RuntimeException("FileNotFound Exception while copying Sequence File to INPUTDIR" + e1.getLocalizedMessage());					
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to copy file {0} to file {1}", 
+					new Object[]{categorySeqFile.getName(), destFile.getName()});					
+			e.printStackTrace();
+			throw new RuntimeException("IO Exception while copying Sequence Files to INPUTDIR" + e.getLocalizedMessage());
+		}
+    	if (!tempDir.renameTo(generationDir)) {
+    		deleteRecursively(tempDir);
+    		if (!generationDir.isDirectory()) {
+    			logger.log(Level.SEVERE, "Failed to create Input Directory at Path: {0}", new Object[]{generationDir.toString()});
+    			return null;
+    		}
+    		// a concurrent search published the same generation first
+    	}
+    	currentGenerations.put(inputDir, generationDir);
+    	pruneGenerations(inputDir, generationDir);
+		return generationDir;
+	}
+	
+	/**
+	 * Returns the Input Directory of a category as {@link #createInputDirectory(String)} does, pinned so that
+	 * it is not pruned while the search reads it. Every directory acquired must be released with
+	 * {@link #releaseInputDirectory(File)}.
+	 * 
+	 * @param vectorName - name of the search Vector, i.e its category
+	 * @return - pinned Input Directory, or NULL if there is none
+	 */
+	public static File acquireInputDirectory( String vectorName ) {
+		while (true) {
+			File generationDir = createInputDirectory(vectorName);
+			if (generationDir == null || pinGeneration(generationDir)) {
+				return generationDir;
+			}
+			// pruned before it could be pinned, i.e a newer generation was published meanwhile
+		}
+	}
+	
+	// Counts a reader of a generation directory, false if the directory is being or has been pruned
+	private static boolean pinGeneration( File generationDir ) {
+		while (true) {
+			AtomicInteger readers = generationReaders.get(generationDir);
+			if (readers == null) {
+				AtomicInteger created = new AtomicInteger(0);
+				readers = generationReaders.putIfAbsent(generationDir, created);
+				if (readers == null) readers = created;
+			}
+			int count = readers.get();
+			if (count == kPruning) {
+				return false;
+			}
+			if (!readers.compareAndSet(count, count + 1)) continue;
+			if (generationReaders.get(generationDir) != readers) {
+				// released to 0 and removed meanwhile, count again
+				readers.decrementAndGet();
+				continue;
+			}
+			if (!generationDir.isDirectory()) {
+				// deleted under us, copy the generation again
+				releaseInputDirectory(generationDir);
+				currentGenerations.remove(generationDir.getParentFile(), generationDir);
+				return false;
 			}
+			return true;
 		}
-		return inputDir;
 	}
 	
+	/**
+	 * Unpins an Input Directory returned by {@link #acquireInputDirectory(String)}
+	 * 
+	 * @param generationDir - the Input Directory, NULL is ignored
+	 */
+	public static void releaseInputDirectory( File generationDir ) {
+		if (generationDir == null) return;
+		AtomicInteger readers = generationReaders.get(generationDir);
+		if (readers == null || readers.get() <= 0) {
+			logger.log(Level.WARNING, "Released Input Directory that was not acquired: {0}", new Object[]{generationDir.getAbsolutePath()});
+			return;
+		}
+		if (readers.decrementAndGet() == 0) {
+			generationReaders.remove(generationDir, readers);
+		}
+	}
+	
+	// Deletes the generations in the Input Directory except the current one, the newest previous one
+	// and those still pinned by a search; anything else, e.g the temporary directory of a copy, is left alone
+	private static void pruneGenerations( File inputDir, File currentDir ) {
+		File previousDir = null;
+		List<File> generationDirs = new ArrayList<File>();
+		File[] children = inputDir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.equals(currentDir) || !child.isDirectory() || !child.getName().startsWith(GENERATION_PREFIX)) continue;
+			generationDirs.add(child);
+			if (previousDir == null || child.lastModified() > previousDir.lastModified()) {
+				previousDir = child;
+			}
+		}
+		for (File generationDir : generationDirs) {
+			if (generationDir.equals(previousDir)) continue;
+			
+			// Claim the directory, unless a search pins it first
+			AtomicInteger pruning = new AtomicInteger(kPruning);
+			AtomicInteger readers = generationReaders.putIfAbsent(generationDir, pruning);
+			if (readers != null) {
+				if (!readers.compareAndSet(0, kPruning)) {
+					logger.log(Level.INFO, "Input Directory: {0} is still being read, will prune it later", 
+							new Object[]{generationDir.getAbsolutePath()});
+					continue;
+				}
+				pruning = readers;
+			}
+			if (!deleteRecursively(generationDir)) {
+				logger.log(Level.WARNING, "Clean up FAILED for Input Directory: {0}", new Object[]{generationDir.getAbsolutePath()});
+			}
+			generationReaders.remove(generationDir, pruning);
+		}
+	}
 		
 	// Create SEED_DIR
 	/**
@@ -264,6 +406,91 @@ public final class MzRankingServiceUtils {
 		}
 	}
 	
+	/**
+	 * Creates a new, uniquely named workspace directory for a single search, with an empty Seed Directory
+	 * ({@code kWorkspaceSeedDir}). The Output Directory ({@code kWorkspaceOutputDir}) is not created since
+	 * the VectorDistanceSimilarityJob requires that it does not exist. Unlike the shared SEED_DIR, nothing
+	 * in the workspace is visible to concurrent searches.
+	 * 
+	 * @return - the workspace directory, to be deleted with {@link #deleteSearchWorkspace(File)}
+	 */
+	public static File createSearchWorkspace() {
+		File parentDir = new File( System.getProperty("user.dir"), WORKSPACE_DIR);
+		if (!parentDir.exists()) {
+			parentDir.mkdirs();
+		}
+		File workspace = new File(parentDir, "search-" + UUID.randomUUID().toString());
+		File seedDir = new File(workspace, kWorkspaceSeedDir);
+		if (!seedDir.mkdirs()) {
+			logger.log(Level.SEVERE, "Failed to create search workspace at Path: {0}", new Object[]{workspace.getAbsolutePath()});
+			throw new RuntimeException("Failed to create search workspace at Path: " + workspace.getAbsolutePath());
+		}
+		return workspace;
+	}
+	
+	/**
+	 * Deletes a search workspace created by {@link #createSearchWorkspace()} and everything in it
+	 * 
+	 * @param workspace - the workspace directory
+	 */
+	public static void deleteSearchWorkspace( File workspace ) {
+		assert workspace != null;
+		if (!deleteRecursively(workspace)) {
+			logger.log(Level.WARNING, "Clean up FAILED for search workspace: {0}", new Object[]{workspace.getAbsolutePath()});
+		}
+	}
+	
+	private static boolean deleteRecursively( File file ) {
+		boolean deleted = true;
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleted &= deleteRecursively(child);
+			}
+		}
+		return file.delete() && deleted;
+	}
+	
+	/**
+	 * Groups a batch of search Vectors by category, i.e by Vector name, skipping NULL and all-zero Vectors
+	 * 
+	 * @param searchVectors - batch of search Vectors
+	 * @return - positions in the batch of the valid search Vectors of each category, in batch order
+	 */
+	public static Map<String, List<Integer>> groupByCategory( List<NamedVector> searchVectors ) {
+		assert searchVectors != null;
+		Map<String, List<Integer>> positions = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < searchVectors.size(); i++) {
+			NamedVector searchVector = searchVectors.get(i);
+			if (searchVector == null || searchVector.getNumNondefaultElements() < 1) {
+				logger.log(Level.WARNING, "Search Vector at position {0} is NULL or has all Zero Values...skipping it", 
+						new Object[]{Integer.toString(i)});
+				continue;
+			}
+			List<Integer> categoryPositions = positions.get(searchVector.getName());
+			if (categoryPositions == null) {
+				categoryPositions = new ArrayList<Integer>();
+				positions.put(searchVector.getName(), categoryPositions);
+			}
+			categoryPositions.add(i);
+		}
+		return positions;
+	}
+	
+	/**
+	 * Creates the result List of a batch search, one empty List of ModelNumbers per search Vector
+	 * 
+	 * @param size - number of search Vectors
+	 * @return - List of empty Lists
+	 */
+	public static List<List<String>> createBatchResults( int size ) {
+		List<List<String>> results = new ArrayList<List<String>>(size);
+		for (int i = 0; i < size; i++) {
+			results.add(new ArrayList<String>());
+		}
+		return results;
+	}
+	
 	/**
 	 * Helper utility method to copy a SequenceFile from one location to another on the local fileSystem.
 	 * 
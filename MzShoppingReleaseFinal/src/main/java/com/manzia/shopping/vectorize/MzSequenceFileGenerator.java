@@ -59,6 +59,8 @@ import com.manzia.shopping.bestbuy.Category;
 import com.manzia.shopping.bestbuy.Product;
 import com.manzia.shopping.bestbuy.ProductsResponse;
 import com.manzia.shopping.bestbuy.RemixException;
+import com.manzia.shopping.bestbuy.RemixSnapshotReader;
+import com.manzia.shopping.bestbuy.RemixSnapshotWriter;
 
 
 
@@ -275,16 +277,34 @@ public class MzSequenceFileGenerator {
 		// Now merge the Sequence Files created by Category
 		String seqDir = seqFileDirectory != null ? seqFileDirectory : MzSequenceFileGenerator.SEQUENCEFILE_DIR;
 		assert seqDir != null;
-		boolean success = mergeSequenceFilesByCategory(new File(seqDir));
+		mergeAndWriteStores(new File(seqDir));
+		
+	}
+	
+	/**
+	 * Merges the SequenceFiles in a directory by Category, writes the memory-mapped Vector
+	 * stores used by the in-memory ranking service and deletes the merged SequenceFiles
+	 * 
+	 * @param sequenceFileDir - directory of the SequenceFiles generated for each ProductsResponse
+	 * @return - true if the merge succeeded
+	 * @throws IOException - thrown if the merge fails
+	 * 
+	 * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+	 */
+	public static boolean mergeAndWriteStores( File sequenceFileDir ) throws IOException {
+		
+		boolean success = mergeSequenceFilesByCategory(sequenceFileDir);
 		
 		// Delete the created Sequence Files if the merge succeeded
 		if (success) {
 			logger.log(Level.INFO, "Merging Sequence Files succeeded!");
+			
+			// Write the memory-mapped Vector stores used by the in-memory ranking service
+			int storeCount = MzMappedVectorStore.writeStoresForCategories();
+			logger.log(Level.INFO, "Wrote {0} category Vector stores", new Object[] { storeCount });
 			boolean deleted = false;
 			MzSeqFileFilter seqFilter = new MzSeqFileFilter();
 			assert seqFilter != null;
-			File sequenceFileDir = new File (seqDir);
-			assert sequenceFileDir != null;
 			List<File> sequenceFiles = Arrays.asList(sequenceFileDir.listFiles(seqFilter));
 			assert sequenceFiles != null;
 			int deletedFiles = sequenceFiles.size();
@@ -300,7 +320,7 @@ public class MzSequenceFileGenerator {
 			// Log
 			logger.log(Level.INFO, "Deleted [{0}] files out of [{1}] total files", new Object[] { fileCount, deletedFiles });
 		}
-		
+		return success;
 	}
 	
 	/**
@@ -450,7 +470,6 @@ public class MzSequenceFileGenerator {
 		NamedVector productVector = null;	// Vector that encodes the the Product into a set of features
 		Map<String, String> detailsMap;	// Map with the details.name as Keys and details.value as Values
 		StringBuilder featuresBuilder;	// Builds a string of all the Product's feature values			
-		Set<String> detailsSet;				// Set that holds the Keys of the detailsMap
 		StringBuilder vectorName;
 		//int nonZeroEntries = 0;
 		//Map<String, String> relationsMap;	// Map with combined attributes as Keys and combined attributes values as Values
@@ -511,64 +530,23 @@ public class MzSequenceFileGenerator {
 			assert productVector != null;
 
 			// Assign the detailsMap and relationsMap
-			detailsMap = product.getDetailsMap();
+			detailsMap = product.getDetailsMap();	// read directly, the Product's Map cannot be modified
 			assert detailsMap != null;
-			
-			// Add the Condition feature to the detailsMap
-			if (product.isNew()) {
-				detailsMap.put(kConditionFeature, "New");
-			} else {
-				detailsMap.put(kConditionFeature, "Used");
-			}
 			//relationsMap = Collections.synchronizedMap(new HashMap<String, String>());
 			//assert relationsMap != null;
 
-			// Iterate over detailsMap and encode each entry
-			detailsSet = detailsMap.keySet();
-			assert detailsSet != null;
-			Iterator<String> detailsIterator = detailsSet.iterator();
-			assert detailsIterator != null;
-			while (detailsIterator.hasNext()) {
-
-				// remove the whitespace from each Key 
-				String detailsKey = new String(detailsIterator.next());
-				assert detailsKey != null;
-				String detailsValue = detailsMap.get(detailsKey);
-				assert detailsValue != null;
-				//String replacedKey = detailsKey.replaceAll("\\s", "");
-				//assert replacedKey.isEmpty() == false;
-				String featureName = vectorAttrMap.getProperty(detailsKey);
-				//System.out.printf("BB Attribute: %s\n", replacedKey);
-
-				// Encode only those details.name elements in our vectorMap. Also, map the retailer-specific
-				// detailsValue to one of Manzia attribute values so we are comparing apples to apples as much
-				// as possible.
-				if (featureName != null && featureName.length() > 0) {
-					String newDetailValue = 
-							attributeMapper.mappedValueForAttribute(category.getProductCategory(), featureName, detailsValue);
-					// Testing Only
-					//System.out.printf("Feature Name: %s\t\t Mapped BB Attribute: %s\n", featureName, replacedKey);
-					//System.out.printf("New attributeValue: %s\t\t Old attributeValue: %s\n", newDetailValue, detailsValue);
-					detailsValue = newDetailValue != null ? newDetailValue : detailsValue;
-					//relationsMap.put(featureName, detailsValue);
-					FeatureVectorEncoder encoder = new StaticWordValueEncoder(detailsKey);
-					encoder.setProbes(2);
-					encoder.setTraceDictionary(traceDictionary);
-					
-					// Encode and set the weights
-					if (featureWeights != null && featureWeights.size() > 0) {
-						String weightFeature = featureWeights.getProperty(featureName);						
-						if (weightFeature != null && !weightFeature.isEmpty()) {
-							encoder.addToVector(detailsValue, Double.valueOf(weightFeature).doubleValue(), productVector);
-						} else {
-							encoder.addToVector(detailsValue, kMediumWeight, productVector);
-						}
-					} else {
-						encoder.addToVector(detailsValue, kMediumWeight, productVector);
-					}					
-				}						
+			// Iterate over detailsMap and encode each entry, the Condition feature is encoded separately below
+			for (Map.Entry<String, String> detailsEntry : detailsMap.entrySet()) {
+				if (!detailsEntry.getKey().equals(kConditionFeature)) {
+					encodeDetailFeature(detailsEntry.getKey(), detailsEntry.getValue(), category, attributeMapper,
+							featureWeights, vectorAttrMap, traceDictionary, productVector);
+				}
 			}
 
+			// Add the Condition feature
+			encodeDetailFeature(kConditionFeature, product.isNew() ? "New" : "Used", category, attributeMapper,
+					featureWeights, vectorAttrMap, traceDictionary, productVector);
+
 			// We can now encode the price, brand, category and Product's "features" property
 			// NOTE: we may eventually have to set some weights to these features so they have a 
 			// bigger impact on the distance measure
@@ -783,9 +761,10 @@ public class MzSequenceFileGenerator {
 	
 	/**
 	 * Method that generates a SequenceFile given an XML file representing a ProductsResponse
-	 * specific to the BestBuy API
+	 * specific to the BestBuy API. A {@link RemixSnapshotReader snapshot} of the XML file that is
+	 * not older than it is read instead of the XML, and a snapshot file can also be given directly.
 	 * 
-	 * @param productsResponseFile - XML file representing a ProductsResponse object
+	 * @param productsResponseFile - XML file representing a ProductsResponse object, or its snapshot
 	 * @param vectorAttrMap - Properties file that maps BestBuy attributes to Manzia attributes
 	 * 
 	 * @return - True if SequenceFile was successfully created and False otherwise
@@ -807,7 +786,8 @@ public class MzSequenceFileGenerator {
 		}
 		
 		// Check that we have a valid product XML file
-		if (!productsResponseFile.toString().endsWith("xml")) {
+		boolean isSnapshot = productsResponseFile.toString().endsWith(RemixSnapshotWriter.SUFFIX);
+		if (!isSnapshot && !productsResponseFile.toString().endsWith("xml")) {
 			throw new IllegalArgumentException("First argument must be xml file e.g products011.xml");
 		}
 		
@@ -817,11 +797,44 @@ public class MzSequenceFileGenerator {
 			return false;
 		}
 
-		// Read in the ProductsResponse
-		ProductsResponse productsXML = 
-				new ProductsResponse( productsResponseFile);
+		// Read in the ProductsResponse, from its snapshot when there is an up to date one
+		File snapshot = isSnapshot ? productsResponseFile : RemixSnapshotReader.findSnapshot(productsResponseFile);
+		ProductsResponse productsXML;
+		if (snapshot != null) {
+			productsXML = RemixSnapshotReader.readProducts(snapshot);
+			logger.log(Level.INFO, "Success reading the ProductsResponse snapshot {0}", new Object[]{ snapshot.getName() });
+		} else {
+			productsXML = new ProductsResponse( productsResponseFile);
+			logger.log(Level.INFO, "Success parsing the ProductsResponse XML file!");
+		}
 		assert productsXML != null;
-		logger.log(Level.INFO, "Success parsing the ProductsResponse XML file!");
+		
+		return generateSequenceFile(productsXML, vectorAttrMap, attributeMapper, featureWeights);
+	}
+	
+	/**
+	 * Method that generates a SequenceFile given a ProductsResponse, e.g one page of
+	 * Products streamed from the BestBuy API by {@link MzCatalogueCrawler}
+	 * 
+	 * @param productsXML - ProductsResponse whose Products are vectorized
+	 * @param vectorAttrMap - Properties file that maps BestBuy attributes to Manzia attributes
+	 * 
+	 * @return - True if SequenceFile was successfully created and False otherwise
+	 * @throws IOException - IOException thrown if SequenceFile creation fails
+	 * 
+	 * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+	 */
+	public static boolean generateSequenceFile( ProductsResponse productsXML, Properties vectorAttrMap, 
+			MzAttributeMapper attributeMapper, Properties featureWeights) throws IOException {
+		
+		// Check inputs
+		if (productsXML == null) {
+			throw new IllegalArgumentException("ProductsResponse is NULL!");
+		}
+		if (vectorAttrMap == null || vectorAttrMap.isEmpty()) {
+			logger.log(Level.WARNING, "Invalid Properties File, cannot map BestBuy attributes to Manzia attributes!");
+			return false;
+		}
 		
 		// Create the List of NamedVectors
 		List<NamedVector> namedVectorList = 
@@ -930,6 +943,57 @@ public class MzSequenceFileGenerator {
 		return didCreateSequenceFile;		
 	}
 	
+	/**
+	 * Method that encodes one details.name/details.value pair of a Product into the Product's Vector,
+	 * see {@link #generateVectorFromProduct(Product, MzAttributeMapper, Properties, Properties, Map)} <br>
+	 * Only the details.name elements in the vectorAttrMap are encoded.
+	 * 
+	 * @param detailsKey - details.name of the Product
+	 * @param detailsValue - details.value of the Product
+	 * @param category - the Product's valid category
+	 * @param attributeMapper - maps retailer-specific detailsValues to Manzia attribute values
+	 * @param featureWeights - Map of weights of the Product Vector features
+	 * @param vectorAttrMap - Properties object that maps BestBuy attributes to Manzia attributes
+	 * @param traceDictionary - traceDictionary used to encode the product Vector
+	 * @param productVector - the Product's Vector
+	 */
+	private static void encodeDetailFeature(String detailsKey, String detailsValue, MzValidCategory category,
+			MzAttributeMapper attributeMapper, Properties featureWeights, Properties vectorAttrMap,
+			Map<String, Set<Integer>> traceDictionary, NamedVector productVector) {
+		assert detailsKey != null;
+		assert detailsValue != null;
+		String featureName = vectorAttrMap.getProperty(detailsKey);
+		//System.out.printf("BB Attribute: %s\n", replacedKey);
+
+		// Encode only those details.name elements in our vectorMap. Also, map the retailer-specific
+		// detailsValue to one of Manzia attribute values so we are comparing apples to apples as much
+		// as possible.
+		if (featureName != null && featureName.length() > 0) {
+			String newDetailValue = 
+					attributeMapper.mappedValueForAttribute(category.getProductCategory(), featureName, detailsValue);
+			// Testing Only
+			//System.out.printf("Feature Name: %s\t\t Mapped BB Attribute: %s\n", featureName, replacedKey);
+			//System.out.printf("New attributeValue: %s\t\t Old attributeValue: %s\n", newDetailValue, detailsValue);
+			detailsValue = newDetailValue != null ? newDetailValue : detailsValue;
+			//relationsMap.put(featureName, detailsValue);
+			FeatureVectorEncoder encoder = new StaticWordValueEncoder(detailsKey);
+			encoder.setProbes(2);
+			encoder.setTraceDictionary(traceDictionary);
+			
+			// Encode and set the weights
+			if (featureWeights != null && featureWeights.size() > 0) {
+				String weightFeature = featureWeights.getProperty(featureName);						
+				if (weightFeature != null && !weightFeature.isEmpty()) {
+					encoder.addToVector(detailsValue, Double.valueOf(weightFeature).doubleValue(), productVector);
+				} else {
+					encoder.addToVector(detailsValue, kMediumWeight, productVector);
+				}
+			} else {
+				encoder.addToVector(detailsValue, kMediumWeight, productVector);
+			}					
+		}						
+	}
+	
 	/**
 	 * Compares each string in the secondList to the each string in the firstList
 	 * and returns a MzValidCategory object whose boolean "validCategory" property indicates
@@ -0,0 +1,330 @@
+package com.manzia.shopping.vectorize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ * <p>Streaming Top-K selection over (name or id, score) pairs in a single pass with O(K) memory.
+ * Candidates are kept in a bounded binary heap of primitive doubles whose root is the worst
+ * retained candidate, so each offer costs O(log K) and nothing is boxed.</p>
+ *
+ * <p>Ties are stable: of two candidates with equal scores, the one offered first ranks higher and
+ * is retained over the later one. Depending on the constructor flag the selector keeps the smallest
+ * scores (e.g distances) or the largest scores (e.g similarities, Solr scores).</p>
+ *
+ * <p>Instances are NOT thread-safe, use one per selection.</p>
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public final class MzTopKSelector {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(MzTopKSelector.class.getCanonicalName());
+
+	/**
+	 * Source of (name, score) pairs, e.g a distance SequenceFile, read without allocating a pair per element
+	 */
+	public interface Cursor {
+
+		/**
+		 * Advances to the next pair
+		 * @return - false if there are no more pairs
+		 * @throws IOException - thrown if the underlying source cannot be read
+		 */
+		public boolean next() throws IOException;
+
+		/**
+		 * @return - name of the current pair
+		 */
+		public String getName();
+
+		/**
+		 * @return - score of the current pair
+		 */
+		public double getScore();
+	}
+
+	private final int k;
+	private final boolean keepSmallest;
+	private final double[] scores;
+	private final long[] orders;		// offer sequence number, used to break ties
+	private final int[] ids;
+	private final String[] names;
+	private int size = 0;
+	private long offered = 0;
+
+	/**
+	 * @param k - number of candidates to keep, must be at least 1
+	 * @param keepSmallest - true to keep the smallest scores (distances), false to keep the largest (similarities)
+	 */
+	public MzTopKSelector( int k, boolean keepSmallest ) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Top-K selection requires K >= 1, got: " + k);
+		}
+		this.k = k;
+		this.keepSmallest = keepSmallest;
+		this.scores = new double[k];
+		this.orders = new long[k];
+		this.ids = new int[k];
+		this.names = new String[k];
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return - number of candidates currently retained, at most K
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Offers a candidate identified by an int id, e.g a row index
+	 *
+	 * @param score - score of the candidate, NaN scores are ignored
+	 * @param id - id of the candidate
+	 * @return - true if the candidate is currently among the Top-K
+	 */
+	public boolean offer( double score, int id ) {
+		return offer(score, id, null);
+	}
+
+	/**
+	 * Offers a candidate identified by name. Its id is the number of candidates offered before it.
+	 *
+	 * @param score - score of the candidate, NaN scores are ignored
+	 * @param name - name of the candidate
+	 * @return - true if the candidate is currently among the Top-K
+	 */
+	public boolean offer( double score, String name ) {
+		return offer(score, (int) offered, name);
+	}
+
+	private boolean offer( double score, int id, String name ) {
+		if (Double.isNaN(score)) {
+			return false;
+		}
+		long order = offered++;
+		if (size < k) {
+			set(size, score, order, id, name);
+			siftUp(size++);
+			return true;
+		}
+
+		// The root is the worst retained candidate, a later candidate with an equal score is worse
+		if (isWorse(score, order, scores[0], orders[0])) {
+			return false;
+		}
+		set(0, score, order, id, name);
+		siftDown(0, size);
+		return true;
+	}
+
+	/**
+	 * @return - ids of the retained candidates, best first
+	 */
+	public int[] getIds() {
+		int[] slots = sortedSlots();
+		int[] result = new int[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			result[i] = ids[slots[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * @return - names of the retained candidates, best first
+	 */
+	public List<String> getNames() {
+		int[] slots = sortedSlots();
+		List<String> result = new ArrayList<String>(slots.length);
+		for (int slot : slots) {
+			result.add(names[slot]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return - scores of the retained candidates, best first
+	 */
+	public double[] getScores() {
+		int[] slots = sortedSlots();
+		double[] result = new double[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			result[i] = scores[slots[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * Clears the selector so it can be re-used for another selection
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			names[i] = null;
+		}
+		size = 0;
+		offered = 0;
+	}
+
+	// true if the first candidate ranks below the second
+	private boolean isWorse( double firstScore, long firstOrder, double secondScore, long secondOrder ) {
+		if (firstScore != secondScore) {
+			return keepSmallest ? firstScore > secondScore : firstScore < secondScore;
+		}
+		return firstOrder > secondOrder;
+	}
+
+	private boolean isWorse( int first, int second ) {
+		return isWorse(scores[first], orders[first], scores[second], orders[second]);
+	}
+
+	private void set( int slot, double score, long order, int id, String name ) {
+		scores[slot] = score;
+		orders[slot] = order;
+		ids[slot] = id;
+		names[slot] = name;
+	}
+
+	private void swap( int first, int second ) {
+		double score = scores[first];
+		long order = orders[first];
+		int id = ids[first];
+		String name = names[first];
+		set(first, scores[second], orders[second], ids[second], names[second]);
+		set(second, score, order, id, name);
+	}
+
+	private void siftUp( int slot ) {
+		while (slot > 0) {
+			int parent = (slot - 1) >>> 1;
+			if (!isWorse(slot, parent)) break;
+			swap(slot, parent);
+			slot = parent;
+		}
+	}
+
+	private void siftDown( int slot, int heapSize ) {
+		while (true) {
+			int worst = slot;
+			int left = 2 * slot + 1;
+			int right = left + 1;
+			if (left < heapSize && isWorse(left, worst)) worst = left;
+			if (right < heapSize && isWorse(right, worst)) worst = right;
+			if (worst == slot) break;
+			swap(slot, worst);
+			slot = worst;
+		}
+	}
+
+	// Slots ordered best first, computed on a copy of the heap order so the selector stays usable
+	private int[] sortedSlots() {
+		int[] heap = new int[size];
+		for (int i = 0; i < size; i++) heap[i] = i;
+		int[] result = new int[size];
+		int heapSize = size;
+		while (heapSize > 0) {
+			result[heapSize - 1] = heap[0];		// the worst remaining goes last
+			heap[0] = heap[--heapSize];
+			int slot = 0;
+			while (true) {
+				int worst = slot;
+				int left = 2 * slot + 1;
+				int right = left + 1;
+				if (left < heapSize && isWorse(heap[left], heap[worst])) worst = left;
+				if (right < heapSize && isWorse(heap[right], heap[worst])) worst = right;
+				if (worst == slot) break;
+				int temp = heap[slot];
+				heap[slot] = heap[worst];
+				heap[worst] = temp;
+				slot = worst;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Selects the Top-K names from a {@link Cursor} of (name, score) pairs in one pass
+	 *
+	 * @param cursor - source of the pairs
+	 * @param k - number of names to return
+	 * @param keepSmallest - true to keep the smallest scores (distances), false to keep the largest
+	 * @return - Top-K names, best first
+	 * @throws IOException - thrown if the cursor cannot be read
+	 */
+	public static List<String> select( Cursor cursor, int k, boolean keepSmallest ) throws IOException {
+		MzTopKSelector selector = new MzTopKSelector(k, keepSmallest);
+		while (cursor.next()) {
+			selector.offer(cursor.getScore(), cursor.getName());
+		}
+		return selector.getNames();
+	}
+
+	/**
+	 * Selects the K smallest distances from a SequenceFile of the format &lt;Text, VectorWritable&gt; where
+	 * the first element of each Vector is the distance of the Vector named by the Text key, as written
+	 * by the VectorDistanceSimilarityJob with a single seed Vector.
+	 *
+	 * @param distanceFile - distance SequenceFile
+	 * @param k - number of names to return
+	 * @return - names of the K closest Vectors, closest first
+	 * @throws IOException - thrown if the SequenceFile cannot be read
+	 */
+	public static List<String> selectFromDistanceFile( File distanceFile, int k ) throws IOException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		final SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(distanceFile.getAbsolutePath()), conf);
+		try {
+			Cursor cursor = new Cursor() {
+				private final Text key = new Text();
+				private final VectorWritable value = new VectorWritable();
+
+				@Override
+				public boolean next() throws IOException {
+					return reader.next(key, value);
+				}
+
+				@Override
+				public String getName() {
+					return key.toString();
+				}
+
+				@Override
+				public double getScore() {
+					return value.get().get(0);
+				}
+			};
+
+			// Names are only materialized for candidates that make it into the heap
+			MzTopKSelector selector = new MzTopKSelector(k, true);
+			int count = 0;
+			while (cursor.next()) {
+				count++;
+				double distance = cursor.getScore();
+				if (selector.size() == k && !(distance < selector.scores[0])) continue;
+				selector.offer(distance, cursor.getName());
+			}
+			logger.log(Level.INFO, "Selected {0} of {1} Vectors from distance file: {2}",
+					new Object[]{Integer.toString(selector.size()), Integer.toString(count), distanceFile.getName()});
+			return selector.getNames();
+		} finally {
+			reader.close();
+		}
+	}
+
+}
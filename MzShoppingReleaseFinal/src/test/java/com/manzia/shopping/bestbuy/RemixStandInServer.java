@@ -0,0 +1,457 @@
+package com.manzia.shopping.bestbuy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded stand-in for the Remix API that serves recorded "products", "reviews" and "stores"
+ * collection documents, so the whole BestBuy fetch path can be load tested on one machine.
+ *
+ * Supported requests:
+ * - "products(...)", "reviews(...)" and "stores(...)", paged with the "page" and "pageSize"
+ *   parameters; "sku in(a,b)" and "sku=a" filters are applied, other filters are ignored
+ * - "products/<sku>.xml", answered with 404 when the SKU is not in the fixture
+ *
+ * Each response can be delayed by a random latency and replaced by an error document at a
+ * given rate. Successful responses carry an "ETag", answered with 304 when it matches the
+ * request's "If-None-Match". Bodies are gzip or deflate encoded as the request's "Accept-Encoding"
+ * allows. Point clients at the server with {@link Remix#setEntryPoint(String)} or the
+ * {@link Remix#ENTRY_POINT_PROPERTY} system property set to {@link #getEntryPoint()}.
+ *
+ * Usage: RemixStandInServer <fixtureDir> [port], where fixtureDir holds any of products.xml,
+ * reviews.xml and stores.xml
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ */
+public class RemixStandInServer {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(RemixStandInServer.class.getCanonicalName());
+
+	public static final String[] kCollections = { Remix.PATH_PRODUCTS, Remix.PATH_REVIEWS, Remix.PATH_STORES };
+	private static final String kBasePath = "/v1/";
+	private static final int kDefaultPageSize = 10;
+	private static final int kMaxPageSize = 100;
+
+	// One entity of a collection fixture
+	private static final class Item {
+		final String sku;
+		final String xml;
+
+		Item(String sku, String xml) {
+			this.sku = sku;
+			this.xml = xml;
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, List<Item>> fixtures = new ConcurrentHashMap<String, List<Item>>();
+	private final Random random = new Random();
+
+	private volatile long minLatencyMillis = 0L;
+	private volatile long maxLatencyMillis = 0L;
+	private volatile double errorRate = 0.0;
+	private volatile int errorCode = 503;
+	private volatile String cacheControl = null;
+	private volatile boolean compression = true;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong injectedErrors = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong encodedResponses = new AtomicLong();
+
+	/**
+	 * @param port - port to listen on, 0 for any free port
+	 * @param threads - number of requests served at the same time
+	 */
+	public RemixStandInServer(int port, int threads) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext(kBasePath, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: RemixStandInServer <fixtureDir> [port]");
+			System.exit(1);
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 8089;
+		RemixStandInServer standIn = new RemixStandInServer(port, 64);
+		standIn.loadFixtures(new File(args[0]));
+		standIn.start();
+		System.out.println("Remix stand-in serving at " + standIn.getEntryPoint() + ", run clients with -D"
+				+ Remix.ENTRY_POINT_PROPERTY + "=" + standIn.getEntryPoint());
+	}
+
+	/**
+	 * Loads products.xml, reviews.xml and stores.xml from a directory of recorded responses
+	 */
+	public void loadFixtures(File fixtureDir) throws Exception {
+		for (String collection : kCollections) {
+			File fixture = new File(fixtureDir, collection + ".xml");
+			if (fixture.isFile()) {
+				addFixture(collection, DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(fixture));
+				logger.log(Level.INFO, "Loaded {0} {1} from {2}",
+						new Object[]{ fixtures.get(collection).size(), collection, fixture });
+			}
+		}
+	}
+
+	/**
+	 * @param collection - "products", "reviews" or "stores"
+	 * @param documentXml - recorded collection document
+	 */
+	public void addFixture(String collection, String documentXml) throws Exception {
+		addFixture(collection, DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(documentXml.getBytes("UTF-8"))));
+	}
+
+	private void addFixture(String collection, Document document) throws Exception {
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		List<Item> items = new ArrayList<Item>();
+		NodeList children = document.getDocumentElement().getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			if (child.getNodeType() != Node.ELEMENT_NODE) continue;
+			StringWriter xml = new StringWriter();
+			transformer.transform(new DOMSource(child), new StreamResult(xml));
+			items.add(new Item(childText(child, "sku"), xml.toString()));
+		}
+		fixtures.put(collection, items);
+	}
+
+	private static String childText(Node parent, String name) {
+		NodeList children = parent.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			if (child.getNodeType() == Node.ELEMENT_NODE && name.equals(child.getNodeName())) {
+				return child.getTextContent().trim();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Delays every response by a uniformly random time between the bounds
+	 */
+	public void setLatency(long minMillis, long maxMillis) {
+		if (minMillis < 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Invalid latency bounds");
+		}
+		this.minLatencyMillis = minMillis;
+		this.maxLatencyMillis = maxMillis;
+	}
+
+	/**
+	 * @param rate - share of the requests answered with an error, between 0 and 1
+	 * @param code - HTTP status of the injected errors, e.g. 429 or 503
+	 */
+	public void setErrorRate(double rate, int code) {
+		if (rate < 0.0 || rate > 1.0 || code < 400) {
+			throw new IllegalArgumentException("Invalid error injection");
+		}
+		this.errorRate = rate;
+		this.errorCode = code;
+	}
+
+	/**
+	 * @param cacheControl - "Cache-Control" header of successful responses, e.g "max-age=60",
+	 * or null to send none. Successful responses always carry an "ETag" and honour "If-None-Match".
+	 */
+	public void setCacheControl(String cacheControl) {
+		this.cacheControl = cacheControl;
+	}
+
+	/**
+	 * @param compression - whether responses are gzip or deflate encoded when the request's
+	 * "Accept-Encoding" allows it, on by default
+	 */
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return - entry point to set on {@link Remix} clients
+	 */
+	public String getEntryPoint() {
+		return "http://localhost:" + server.getAddress().getPort() + kBasePath;
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getInjectedErrors() {
+		return injectedErrors.get();
+	}
+
+	public long getNotModified() {
+		return notModified.get();
+	}
+
+	public long getEncodedResponses() {
+		return encodedResponses.get();
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		try {
+			delay();
+			if (errorRate > 0.0 && nextDouble() < errorRate) {
+				injectedErrors.incrementAndGet();
+				reply(exchange, errorCode, errorDocument(errorCode, "Injected error"));
+				return;
+			}
+			String path = URLDecoder.decode(exchange.getRequestURI().getRawPath()
+					.substring(kBasePath.length()).replace("+", "%2B"), "UTF-8");
+			Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			if (path.startsWith(Remix.PATH_PRODUCTS + "/") && path.endsWith(".xml")) {
+				serveProduct(exchange, path.substring(Remix.PATH_PRODUCTS.length() + 1, path.length() - 4));
+			} else {
+				serveCollection(exchange, path, params);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			reply(exchange, 503, errorDocument(503, "Server stopping"));
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Failed to serve " + exchange.getRequestURI(), e);
+			reply(exchange, 500, errorDocument(500, e.getMessage()));
+		}
+	}
+
+	private void serveProduct(HttpExchange exchange, String sku) throws IOException {
+		for (Item item : fixture(Remix.PATH_PRODUCTS)) {
+			if (sku.equals(item.sku)) {
+				reply(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + item.xml);
+				return;
+			}
+		}
+		reply(exchange, 404, errorDocument(404, "Product " + sku + " not found"));
+	}
+
+	private void serveCollection(HttpExchange exchange, String path, Map<String, String> params) throws IOException {
+		int filterStart = path.indexOf('(');
+		String collection = filterStart < 0 ? path : path.substring(0, filterStart);
+		if (!fixtures.containsKey(collection) && !isCollection(collection)) {
+			reply(exchange, 404, errorDocument(404, "Unknown resource " + collection));
+			return;
+		}
+		Set<String> skus = filterStart < 0 ? null : parseSkuFilter(path.substring(filterStart + 1, path.lastIndexOf(')')));
+		List<Item> matches = new ArrayList<Item>();
+		for (Item item : fixture(collection)) {
+			if (skus == null || skus.contains(item.sku)) {
+				matches.add(item);
+			}
+		}
+
+		int pageSize = Math.min(kMaxPageSize, Math.max(1, parseInt(params.get("pageSize"), kDefaultPageSize)));
+		int page = Math.max(1, parseInt(params.get("page"), 1));
+		int total = matches.size();
+		int totalPages = Math.max(1, (total + pageSize - 1) / pageSize);
+		int from = Math.min(total, (page - 1) * pageSize);
+		int to = Math.min(total, from + pageSize);
+
+		StringBuilder document = new StringBuilder(256 + 1024 * (to - from));
+		document.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		document.append('<').append(collection)
+				.append(" currentPage=\"").append(page)
+				.append("\" totalPages=\"").append(totalPages)
+				.append("\" from=\"").append(from < to ? from + 1 : 0)
+				.append("\" to=\"").append(to)
+				.append("\" total=\"").append(total)
+				.append("\" queryTime=\"0.001\" totalTime=\"0.001\" canonicalUrl=\"/v1/")
+				.append(escape(path)).append("\">");
+		for (Item item : matches.subList(from, to)) {
+			document.append(item.xml);
+		}
+		document.append("</").append(collection).append('>');
+		reply(exchange, 200, document.toString());
+	}
+
+	private static boolean isCollection(String collection) {
+		for (String known : kCollections) {
+			if (known.equals(collection)) return true;
+		}
+		return false;
+	}
+
+	private List<Item> fixture(String collection) {
+		List<Item> items = fixtures.get(collection);
+		return items == null ? Collections.<Item>emptyList() : items;
+	}
+
+	// SKUs of a "sku in(a,b)" or "sku=a" term, or null when no term restricts the SKU
+	private static Set<String> parseSkuFilter(String filters) {
+		for (String term : filters.split("&")) {
+			String compact = term.replaceAll("\\s", "");
+			if (compact.startsWith("skuin(") && compact.endsWith(")")) {
+				Set<String> skus = new HashSet<String>();
+				for (String sku : compact.substring(6, compact.length() - 1).split(",")) {
+					skus.add(sku);
+				}
+				return skus;
+			}
+			if (compact.startsWith("sku=")) {
+				return Collections.singleton(compact.substring(4));
+			}
+		}
+		return null;
+	}
+
+	private static Map<String, String> parseQuery(String query) throws IOException {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null) return params;
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		}
+		return params;
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		try {
+			return value == null ? defaultValue : Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private void delay() throws InterruptedException {
+		long min = minLatencyMillis;
+		long max = maxLatencyMillis;
+		if (max > 0) {
+			long latency = min + (max > min ? (long) (nextDouble() * (max - min + 1)) : 0L);
+			Thread.sleep(latency);
+		}
+	}
+
+	private double nextDouble() {
+		synchronized (random) {
+			return random.nextDouble();
+		}
+	}
+
+	private static String errorDocument(int code, String message) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><error><status>" + code + "</status><message>"
+				+ escape(message) + "</message></error>";
+	}
+
+	private static String escape(String text) {
+		return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+	}
+
+	private void reply(HttpExchange exchange, int code, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+		if (code == 200) {
+			String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+			exchange.getResponseHeaders().set("ETag", etag);
+			if (cacheControl != null) {
+				exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+			}
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+		}
+		String encoding = compression ? negotiateEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding")) : null;
+		if (encoding != null) {
+			ByteArrayOutputStream encoded = new ByteArrayOutputStream(bytes.length / 4 + 64);
+			OutputStream encoder = encoding.equals("gzip") ? new GZIPOutputStream(encoded) : new DeflaterOutputStream(encoded);
+			encoder.write(bytes);
+			encoder.close();
+			bytes = encoded.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", encoding);
+			encodedResponses.incrementAndGet();
+		}
+		exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	// "gzip" or "deflate" when the client accepts it, gzip preferred, otherwise null
+	private static String negotiateEncoding(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		boolean deflate = false;
+		for (String coding : acceptEncoding.toLowerCase(Locale.ENGLISH).split(",")) {
+			String name = coding.trim();
+			if (name.endsWith(";q=0") || name.endsWith(";q=0.0")) {
+				continue;
+			}
+			int semicolon = name.indexOf(';');
+			name = semicolon < 0 ? name : name.substring(0, semicolon).trim();
+			if (name.equals("gzip")) {
+				return "gzip";
+			}
+			deflate |= name.equals("deflate");
+		}
+		return deflate ? "deflate" : null;
+	}
+}
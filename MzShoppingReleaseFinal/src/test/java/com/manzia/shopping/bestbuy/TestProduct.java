@@ -0,0 +1,103 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestProduct {
+	
+	private Product product;
+
+	@Before
+	public void setUp() throws Exception {
+		Element root = new Element("product");
+		root.addChild(new Element("sku", "5689198"));
+		root.addChild(new Element("regularPrice", "649.99"));
+		root.addChild(new Element("customerReviewAverage", "four"));
+		Element details = new Element("details");
+		Element detail = new Element("detail");
+		detail.addChild(new Element("name", "Processor Brand"));
+		detail.addChild(new Element("value", "AMD"));
+		details.addChild(detail);
+		root.addChild(details);
+		Element categoryPath = new Element("categoryPath");
+		Element category = new Element("category");
+		category.addChild(new Element("id", "abcat0502000"));
+		category.addChild(new Element("name", "Laptops"));
+		categoryPath.addChild(category);
+		root.addChild(categoryPath);
+		product = new Product(root);
+	}
+
+	@Test
+	public void testDecodedFieldsAreMemoized() {
+		Map<String, String> detailsMap = product.getDetailsMap();
+		assertEquals("Unexpected detail", "AMD", detailsMap.get("Processor Brand"));
+		assertSame("Details Map was decoded twice", detailsMap, product.getDetailsMap());
+		assertSame("Category path was decoded twice", product.getCategoryPath(), product.getCategoryPath());
+		assertEquals("Unexpected category", "Laptops", product.getCategoryPath().get(0).getName());
+		assertEquals("Details List and Map decode the same field independently", 1, product.getDetails().size());
+		assertEquals("Unexpected regular price", 649.99f, product.getRegularPrice(), 0.0f);
+		assertEquals("Missing sale price decodes to 0", 0.0f, product.getSalePrice(), 0.0f);
+		assertTrue("Expected no features", product.getFeatures().isEmpty());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDetailsMapCannotBeModified() {
+		product.getDetailsMap().put("Condition", "New");
+	}
+	
+	@Test
+	public void testInvalidFieldFailsOnEveryRead() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				product.getCustomerReviewAverage();
+				fail("Expected a NumberFormatException for an invalid review average");
+			} catch (NumberFormatException e) {
+				// expected
+			}
+		}
+	}
+	
+	@Test
+	public void testChangedFieldIsDecodedAgain() {
+		assertEquals("Unexpected regular price", 649.99f, product.getRegularPrice(), 0.0f);
+		Map<String, String> detailsMap = product.getDetailsMap();
+		product.setField("regularPrice", "599.99");
+		product.setField("details", new Element("details"));
+		assertEquals("Stale regular price", 599.99f, product.getRegularPrice(), 0.0f);
+		assertNotSame("Stale details Map", detailsMap, product.getDetailsMap());
+		assertTrue("Expected no details", product.getDetailsMap().isEmpty());
+	}
+
+	@Test
+	public void testConcurrentChangeIsNeverStale() throws Exception {
+		final Product shared = product;
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 20000; j++) {
+						shared.getRegularPrice();
+						shared.getSalePrice();
+					}
+				}
+			});
+			readers[i].start();
+		}
+		for (int j = 0; j < 2000; j++) {
+			shared.setField("regularPrice", Integer.toString(j));
+			shared.setField("salePrice", Integer.toString(j));
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertEquals("Stale regular price", 1999.0f, shared.getRegularPrice(), 0.0f);
+		assertEquals("Stale sale price", 1999.0f, shared.getSalePrice(), 0.0f);
+	}
+
+}
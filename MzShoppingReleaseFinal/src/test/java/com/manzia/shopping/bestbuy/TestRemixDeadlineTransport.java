@@ -0,0 +1,84 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRemixDeadlineTransport {
+
+	private RemixStandInServer standIn;
+	private RemixPooledTransport pool;
+
+	@Before
+	public void setUp() throws Exception {
+		standIn = new RemixStandInServer(0, 4);
+		standIn.addFixture(Remix.PATH_PRODUCTS, "<products><product><sku>1001</sku></product></products>");
+		standIn.start();
+		pool = new RemixPooledTransport(4, 4, 5000, 15000, 1000L);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		standIn.stop();
+	}
+
+	private static long deadlineIn( long millis ) {
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	@Test
+	public void testTimeoutsAreBoundedByDeadline() throws Exception {
+		URL url = new URL(standIn.getEntryPoint() + Remix.PATH_PRODUCTS);
+		RemixDeadlineTransport transport = new RemixDeadlineTransport(pool, deadlineIn(300L));
+		HttpURLConnection connection = transport.open("GET", url, new HashMap<String, String>());
+		assertTrue("Connect timeout not bounded", connection.getConnectTimeout() > 0 && connection.getConnectTimeout() <= 300);
+		assertTrue("Read timeout not bounded", connection.getReadTimeout() > 0 && connection.getReadTimeout() <= 300);
+		transport.release(connection);
+		assertEquals("Connection was not released", 0, pool.getInUse());
+
+		// timeouts shorter than the time left are kept
+		connection = new RemixDeadlineTransport(pool, deadlineIn(60000L)).open("GET", url, null);
+		assertEquals("Unexpected connect timeout", 5000, connection.getConnectTimeout());
+		assertEquals("Unexpected read timeout", 15000, connection.getReadTimeout());
+		pool.release(connection);
+	}
+
+	@Test
+	public void testPassedDeadlineReleasesConnection() throws Exception {
+		URL url = new URL(standIn.getEntryPoint() + Remix.PATH_PRODUCTS);
+		try {
+			new RemixDeadlineTransport(pool, deadlineIn(-1L)).open("GET", url, null);
+			fail("Connection opened after the deadline");
+		} catch (SocketTimeoutException e) {
+			assertEquals("Connection was not released", 0, pool.getInUse());
+		}
+	}
+
+	@Test
+	public void testSlowCallEndsAtDeadline() throws Exception {
+		standIn.setLatency(3000L, 3000L);
+		Remix remix = new Remix("deadline-key", new RemixDeadlineTransport(pool, deadlineIn(300L)),
+				new RemixRateLimiter(10000.0, 1000, 32, 32, 5000L)).setEntryPoint(standIn.getEntryPoint());
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("pageSize", "10");
+		long start = System.currentTimeMillis();
+		try {
+			remix.getProducts(params);
+			fail("Slow call outlived the deadline");
+		} catch (RemixException e) {
+			long elapsed = System.currentTimeMillis() - start;
+			assertTrue("Call ended " + elapsed + " ms after it started", elapsed < 2000L);
+		}
+		assertEquals("Connection was not released", 0, pool.getInUse());
+	}
+
+}
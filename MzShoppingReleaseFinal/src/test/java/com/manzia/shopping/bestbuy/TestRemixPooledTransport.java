@@ -0,0 +1,129 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestRemixPooledTransport {
+	
+	private static final String productSKU = "5689198";
+	private static final String productsXML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<products currentPage=\"1\" totalPages=\"1\" from=\"1\" to=\"1\" total=\"1\">"
+			+ "<product><sku>" + productSKU + "</sku><name>HP - Laptop</name></product></products>";
+	private HttpServer server;
+	private URL productsURL;
+	private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+	@Before
+	public void setUp() throws Exception {
+		final byte[] body = productsXML.getBytes("UTF-8");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/v1/products", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				exchange.getResponseHeaders().add("Content-Type", "application/xml; charset=UTF-8");
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		productsURL = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/products?apiKey=test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+	}
+	
+	private ProductsResponse fetch(RemixTransport transport, boolean streaming) throws Exception {
+		Map<String, String> headers = new HashMap<String, String>();
+		headers.put("User-Agent", Remix.USER_AGENT);
+		HttpURLConnection connection = transport.open("GET", productsURL, headers);
+		try {
+			return new ProductsResponse(connection, streaming);
+		} finally {
+			transport.release(connection);
+		}
+	}
+
+	@Test
+	public void testConnectionIsKeptAlive() throws Exception {
+		RemixPooledTransport transport = new RemixPooledTransport(4, 2, 2000, 5000, 1000L);
+		for (int i = 0; i < 3; i++) {
+			ProductsResponse response = fetch(transport, i % 2 == 0);
+			assertFalse("Unexpected error response", response.isError());
+			assertEquals("Unexpected Product SKU", productSKU, response.list().get(0).getSku());
+		}
+		assertEquals("Expected all calls on a single kept-alive connection", 1, clientPorts.size());
+		assertEquals("Unexpected connections in use", 0, transport.getInUse());
+		assertEquals("Unexpected connections acquired", 3L, transport.getAcquired());
+		assertEquals("Unexpected saturations", 0L, transport.getSaturated());
+	}
+
+	@Test
+	public void testPerHostLimit() throws Exception {
+		RemixPooledTransport transport = new RemixPooledTransport(4, 1, 2000, 5000, 100L);
+		HttpURLConnection first = transport.open("GET", productsURL, null);
+		try {
+			transport.open("GET", productsURL, null);
+			fail("Expected the per-host limit to reject the second connection");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals("Unexpected saturations", 1L, transport.getSaturated());
+		assertEquals("Unexpected rejections", 1L, transport.getRejected());
+		assertEquals("Unexpected connections in use", 1, transport.getInUse());
+		
+		// releasing twice must not free a second permit
+		transport.release(first);
+		transport.release(first);
+		HttpURLConnection second = transport.open("GET", productsURL, null);
+		assertEquals("Unexpected connect timeout", 2000, second.getConnectTimeout());
+		assertEquals("Unexpected read timeout", 5000, second.getReadTimeout());
+		assertEquals("Unexpected connections in use", 1, transport.getInUse());
+		assertEquals("Unexpected peak connections in use", 1, transport.getPeakInUse());
+		transport.release(second);
+		assertEquals("Unexpected connections in use", 0, transport.getInUse());
+	}
+
+	@Test
+	public void testKeepAlivePropertyIsNotChanged() throws Exception {
+		String keepAlive = System.getProperty(RemixPooledTransport.kKeepAliveProperty);
+		try {
+			System.clearProperty(RemixPooledTransport.kKeepAliveProperty);
+			new RemixPooledTransport(16, 16, 1000, 1000, 1000L);
+			assertNull("Transport set the JVM-wide keep-alive property", System.getProperty(RemixPooledTransport.kKeepAliveProperty));
+			assertEquals("Unexpected default keep-alive connections", RemixPooledTransport.kDefaultKeepAliveConnections,
+					RemixPooledTransport.getKeepAliveConnections());
+			System.setProperty(RemixPooledTransport.kKeepAliveProperty, " 12 ");
+			assertEquals("Unexpected keep-alive connections", 12, RemixPooledTransport.getKeepAliveConnections());
+		} finally {
+			if (keepAlive == null) {
+				System.clearProperty(RemixPooledTransport.kKeepAliveProperty);
+			} else {
+				System.setProperty(RemixPooledTransport.kKeepAliveProperty, keepAlive);
+			}
+		}
+	}
+
+}
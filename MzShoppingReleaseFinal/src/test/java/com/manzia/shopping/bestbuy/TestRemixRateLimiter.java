@@ -0,0 +1,147 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestRemixRateLimiter {
+
+	@Test
+	public void testTokenBucketPacesCalls() throws Exception {
+		RemixRateLimiter limiter = new RemixRateLimiter(20.0, 2, 4, 4, 2000L);
+		long begin = System.nanoTime();
+		for (int i = 0; i < 6; i++) {
+			limiter.release(limiter.acquire(5000L), 200);
+		}
+		long elapsedMillis = (System.nanoTime() - begin) / 1000000L;
+		// 2 calls from the burst, 4 more at 20 calls per second
+		assertTrue("Calls were not paced: " + elapsedMillis + " ms", elapsedMillis >= 150L);
+		assertEquals("Unexpected granted count", 6L, limiter.getGranted());
+		assertTrue("Paced calls did not queue", limiter.getQueued() > 0);
+	}
+
+	@Test
+	public void testThrottlingHalvesConcurrency() throws Exception {
+		RemixRateLimiter limiter = new RemixRateLimiter(1000.0, 100, 8, 16, 2000L);
+		limiter.release(limiter.acquire(1000L), 429);
+		assertEquals("Concurrency limit was not halved", 4, limiter.getConcurrencyLimit());
+		assertEquals("Unexpected throttled count", 1L, limiter.getThrottled());
+
+		// a second throttle within the same interval counts once
+		limiter.release(limiter.acquire(5000L), 403);
+		assertEquals("Concurrency limit was halved twice", 4, limiter.getConcurrencyLimit());
+	}
+
+	@Test
+	public void testSuccessRaisesConcurrency() throws Exception {
+		RemixRateLimiter limiter = new RemixRateLimiter(1000.0, 100, 1, 4, 2000L);
+		for (int i = 0; i < 4; i++) {
+			limiter.release(limiter.acquire(1000L), 200);
+		}
+		assertTrue("Concurrency limit was not raised", limiter.getConcurrencyLimit() >= 2);
+		assertEquals("Calls still in flight", 0, limiter.getInFlight());
+	}
+
+	@Test
+	public void testCallIsRejectedAtDeadline() throws Exception {
+		RemixRateLimiter limiter = new RemixRateLimiter(1000.0, 100, 1, 1, 2000L);
+		long start = limiter.acquire(1000L);
+		try {
+			limiter.acquire(50L);
+			fail("Call past its deadline was not rejected");
+		} catch (RemixException e) {
+			assertEquals("Unexpected rejected count", 1L, limiter.getRejected());
+		} finally {
+			limiter.release(start, 200);
+		}
+		limiter.release(limiter.acquire(50L), 200);
+	}
+
+	@Test
+	public void testLimiterIsSharedPerKey() {
+		assertSame("Limiter is not shared", RemixRateLimiter.forKey("key-1"), RemixRateLimiter.forKey("key-1"));
+		assertNotSame("Keys share a limiter", RemixRateLimiter.forKey("key-1"), RemixRateLimiter.forKey("key-2"));
+		assertSame("Client does not use the key limiter", RemixRateLimiter.forKey("key-1"),
+				new Remix("key-1").getRateLimiter());
+	}
+
+	@Test
+	public void testLimitsFromSystemProperties() {
+		System.setProperty(RemixRateLimiter.kCallsPerSecondProperty, " 12.5 ");
+		System.setProperty(RemixRateLimiter.kBurstProperty, "7");
+		System.setProperty(RemixRateLimiter.kMaxConcurrencyProperty, "not-a-number");
+		System.setProperty(RemixRateLimiter.kQueueTimeoutProperty, "1500");
+		try {
+			RemixRateLimiter limiter = new RemixRateLimiter();
+			assertEquals("Unexpected call rate", 12.5, limiter.getCallsPerSecond(), 0.0);
+			assertEquals("Unexpected burst", 7, limiter.getBurst());
+			assertEquals("Invalid value did not fall back to the default", RemixRateLimiter.kDefaultMaxConcurrency,
+					limiter.getMaxConcurrency());
+			assertEquals("Unexpected queue timeout", 1500L, RemixRateLimiter.getDefaultQueueTimeoutMillis());
+			assertEquals("Client does not use the queue timeout", 1500L, new Remix("key-3").getQueueTimeoutMillis());
+		} finally {
+			System.clearProperty(RemixRateLimiter.kCallsPerSecondProperty);
+			System.clearProperty(RemixRateLimiter.kBurstProperty);
+			System.clearProperty(RemixRateLimiter.kMaxConcurrencyProperty);
+			System.clearProperty(RemixRateLimiter.kQueueTimeoutProperty);
+		}
+	}
+
+	@Test
+	public void testLimiterSuppliedForKey() {
+		RemixRateLimiter limiter = new RemixRateLimiter(50.0, 10, 2, 8, 1000L);
+		assertSame("Supplied limiter is not shared", limiter, RemixRateLimiter.forKey("key-4", limiter));
+		assertSame("Supplied limiter is not shared", limiter, RemixRateLimiter.forKey("key-4"));
+		assertSame("Key limiter was replaced", limiter,
+				RemixRateLimiter.forKey("key-4", new RemixRateLimiter(1.0, 1, 1, 1, 1000L)));
+	}
+
+	@Test
+	public void testBulkCallsYieldToInteractiveCalls() throws Exception {
+		final RemixRateLimiter limiter = new RemixRateLimiter(1000.0, 100, 1, 1, 2000L);
+		long start = limiter.acquire(1000L);
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		Thread bulk = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					limiter.release(limiter.acquire(5000L, RemixRateLimiter.Priority.BULK), 200);
+					order.add("bulk");
+				} catch (RemixException e) {
+					order.add("bulk rejected");
+				}
+			}
+		});
+		bulk.start();
+		while (limiter.getQueued() < 1) {
+			Thread.sleep(5L);
+		}
+		Thread interactive = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long interactiveStart = limiter.acquire(5000L, RemixRateLimiter.Priority.INTERACTIVE);
+					order.add("interactive");
+					limiter.release(interactiveStart, 200);
+				} catch (RemixException e) {
+					order.add("interactive rejected");
+				}
+			}
+		});
+		interactive.start();
+		while (limiter.getQueued() < 2) {
+			Thread.sleep(5L);
+		}
+		limiter.release(start, 200);
+		bulk.join(5000L);
+		interactive.join(5000L);
+		assertEquals("Interactive call did not go first", Arrays.asList("interactive", "bulk"), order);
+		assertTrue("Bulk call did not yield", limiter.getYielded() > 0);
+	}
+
+}
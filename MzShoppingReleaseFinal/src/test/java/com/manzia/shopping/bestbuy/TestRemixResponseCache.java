@@ -0,0 +1,165 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRemixResponseCache {
+
+	private RemixStandInServer standIn;
+	private File cacheDir;
+	private RemixResponseCache cache;
+	private Remix remix;
+
+	@Before
+	public void setUp() throws Exception {
+		standIn = new RemixStandInServer(0, 4);
+		standIn.addFixture(Remix.PATH_PRODUCTS, "<products><product><sku>1001</sku><name>Laptop</name></product>"
+				+ "<product><sku>1002</sku><name>Tablet</name></product></products>");
+		standIn.start();
+		cacheDir = File.createTempFile("remixCache", "");
+		cacheDir.delete();
+		cache = new RemixResponseCache(cacheDir, 60000L, 100L);
+		remix = createRemix(cache);
+	}
+
+	private Remix createRemix(RemixResponseCache responseCache) {
+		return new Remix("cache-key", Remix.getDefaultTransport(), new RemixRateLimiter(10000.0, 1000, 32, 32, 5000L))
+				.setEntryPoint(standIn.getEntryPoint()).setResponseCache(responseCache);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		standIn.stop();
+		File[] files = cacheDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		cacheDir.delete();
+	}
+
+	private static Map<String, String> params() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("pageSize", "10");
+		params.put("show", "sku,name");
+		return params;
+	}
+
+	@Test
+	public void testKeyIgnoresApiKeyAndParameterOrder() throws Exception {
+		assertEquals("Unexpected cache key",
+				RemixResponseCache.keyFor(new URL("http://API.remix.bestbuy.com/v1/products?show=sku&apiKey=a&pageSize=10")),
+				RemixResponseCache.keyFor(new URL("http://api.remix.bestbuy.com:80/v1/products?pageSize=10&show=sku&apiKey=b")));
+	}
+
+	@Test
+	public void testFreshEntryIsServedWithoutRequest() throws Exception {
+		standIn.setCacheControl("max-age=60");
+		assertEquals("Unexpected products", 2, remix.getProducts(params()).list().size());
+		assertEquals("Unexpected products from cache", 2, remix.getProducts(params()).list().size());
+		assertEquals("Fresh entry was requested again", 1L, standIn.getRequests());
+		assertEquals("Unexpected hit count", 1L, cache.getHits());
+
+		// another client of the same directory finds the entry on disk
+		RemixResponseCache reopened = new RemixResponseCache(cacheDir, 60000L, 100L);
+		assertEquals("Unexpected product from disk", "Laptop",
+				createRemix(reopened).getProducts(params()).list().get(0).getName());
+		assertEquals("Entry was not persisted", 1L, reopened.getHits());
+		assertEquals("Persisted entry was requested again", 1L, standIn.getRequests());
+	}
+
+	@Test
+	public void testStaleEntryIsRevalidated() throws Exception {
+		standIn.setCacheControl("no-cache");
+		remix.getProducts(params());
+		ProductsResponse revalidated = remix.getProducts(params());
+		assertEquals("Unexpected products after revalidation", 2, revalidated.list().size());
+		assertEquals("Conditional GET was not answered with 304", 1L, standIn.getNotModified());
+		assertEquals("Unexpected revalidated count", 1L, cache.getRevalidated());
+	}
+
+	@Test
+	public void testStaleEntryIsServedWhenApiFails() throws Exception {
+		standIn.setCacheControl("no-cache");
+		remix.getProducts(params());
+		standIn.setErrorRate(1.0, 503);
+		ProductsResponse stale = remix.getProducts(params());
+		assertFalse("Error was returned instead of the stale entry", stale.isError());
+		assertEquals("Unexpected stale products", 2, stale.list().size());
+		assertEquals("Unexpected stale count", 1L, cache.getStaleServed());
+	}
+
+	@Test
+	public void testCacheIsBoundedOnDiskAndInMemory() throws Exception {
+		standIn.setCacheControl("max-age=60");
+		RemixResponseCache bounded = new RemixResponseCache(cacheDir, 60000L, 100L, 1000L, 60000L, 2);
+		Remix boundedRemix = createRemix(bounded);
+		for (int page = 1; page <= 10; page++) {
+			Map<String, String> params = params();
+			params.put("pageSize", Integer.toString(10 + page));
+			assertEquals("Unexpected products", 2, boundedRemix.getProducts(params).list().size());
+			assertTrue("Cache exceeds its disk space: " + bounded.getDiskBytes(), bounded.getDiskBytes() <= 1000L);
+		}
+		assertEquals("Unexpected stored count", 10L, bounded.getStored());
+		assertTrue("No entry was evicted", bounded.getEvicted() > 0);
+		assertTrue("Cache exceeds its entries in memory", bounded.size() <= 2);
+
+		// the latest entry is kept and served from disk
+		Map<String, String> params = params();
+		params.put("pageSize", "20");
+		assertEquals("Unexpected cached products", 2, boundedRemix.getProducts(params).list().size());
+		assertEquals("Latest entry was evicted", 1L, bounded.getHits());
+		assertEquals("Unexpected request count", 10L, standIn.getRequests());
+	}
+
+	@Test
+	public void testOldEntriesAreEvicted() throws Exception {
+		standIn.setCacheControl("max-age=60");
+		remix.getProducts(params());
+		assertTrue("Entry was not stored", cache.getDiskBytes() > 0);
+		for (File file : cacheDir.listFiles()) {
+			file.setLastModified(System.currentTimeMillis() - 120000L);
+		}
+
+		// entries past the max-age are deleted when the cache is opened
+		RemixResponseCache reopened = new RemixResponseCache(cacheDir, 60000L, 100L, 1000000L, 60000L, 100);
+		assertEquals("Old entry was not evicted", 1L, reopened.getEvicted());
+		assertEquals("Unexpected disk bytes", 0L, reopened.getDiskBytes());
+		assertEquals("Unexpected products", 2, createRemix(reopened).getProducts(params()).list().size());
+		assertEquals("Evicted entry was served", 2L, standIn.getRequests());
+	}
+
+	@Test
+	public void testOldEntriesAreEvictedBelowTheByteBound() throws Exception {
+		standIn.setCacheControl("max-age=60");
+		RemixResponseCache aging = new RemixResponseCache(cacheDir, 60000L, 100L, 1000000L, 200L, 100);
+		Remix agingRemix = createRemix(aging);
+		agingRemix.getProducts(params());
+		assertTrue("Entry was not stored", aging.getDiskBytes() > 0);
+		Thread.sleep(300L);
+
+		// the next lookup deletes the entry past the max-age although the files fit in the max-bytes
+		assertEquals("Unexpected products", 2, agingRemix.getProducts(params()).list().size());
+		assertEquals("Old entry was not evicted", 1L, aging.getEvicted());
+		assertEquals("Evicted entry was served", 2L, standIn.getRequests());
+	}
+
+	@Test
+	public void testNoStoreIsNotCached() throws Exception {
+		standIn.setCacheControl("no-store");
+		remix.getProducts(params());
+		remix.getProducts(params());
+		assertEquals("no-store response was cached", 0L, cache.getStored());
+		assertEquals("Unexpected request count", 2L, standIn.getRequests());
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRemixSnapshotReader {
+
+	private File xmlFile;
+	private File snapshot;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<products currentPage=\"1\" totalPages=\"1\" from=\"1\" to=\"20\" total=\"20\">");
+		for (int i = 0; i < 20; i++) {
+			xml.append("<product><sku>").append(1000 + i).append("</sku><name>Laptop ").append(i)
+					.append("</name><regularPrice>").append(500 + i).append(".99</regularPrice>")
+					.append("<categoryPath><category><id>abcat0502000</id><name>Laptops</name></category></categoryPath>")
+					.append("<longDescription>");
+			for (int j = 0; j < 30; j++) {
+				xml.append("Long description of laptop ").append(i).append(' ');
+			}
+			xml.append("</longDescription></product>");
+		}
+		xml.append("</products>");
+		xmlFile = File.createTempFile("products", ".xml");
+		OutputStream out = new FileOutputStream(xmlFile);
+		try {
+			out.write(xml.toString().getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		snapshot = RemixSnapshotReader.snapshotFileFor(xmlFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		xmlFile.delete();
+		snapshot.delete();
+	}
+
+	private void assertSameProducts(List<Product> expected, RemixSnapshotReader<Product> reader) throws Exception {
+		assertEquals("Unexpected size", expected.size(), reader.size());
+		List<Product> listed = reader.list();
+		for (int i = expected.size() - 1; i >= 0; i--) {
+			Product product = reader.get(i);
+			assertEquals("Unexpected sku", expected.get(i).getSku(), product.getSku());
+			assertEquals("Unexpected listed sku", expected.get(i).getSku(), listed.get(i).getSku());
+			assertEquals("Unexpected price", expected.get(i).getRegularPrice(), product.getRegularPrice(), 0.001f);
+			assertEquals("Unexpected description", expected.get(i).getField("longDescription"),
+					product.getField("longDescription"));
+			assertEquals("Unexpected category", "Laptops", product.getCategoryPath().get(0).getName());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		List<Product> parsed = new ProductsResponse(xmlFile).list();
+		for (boolean compress : new boolean[] { false, true }) {
+			assertEquals("Unexpected converted count", 20, RemixSnapshotWriter.convert(xmlFile, snapshot, compress));
+			RemixSnapshotReader<Product> reader = RemixSnapshotReader.openProducts(snapshot);
+			try {
+				assertEquals("Unexpected collection", "products", reader.getCollection());
+				assertEquals("Unexpected total", "20", reader.getAttributes().get("total"));
+				assertSameProducts(parsed, reader);
+			} finally {
+				reader.close();
+			}
+		}
+		assertTrue("Compressed snapshot not smaller than XML", snapshot.length() < xmlFile.length() / 4);
+	}
+
+	@Test
+	public void testReadProductsResponse() throws Exception {
+		RemixSnapshotWriter.convert(xmlFile, snapshot, true);
+		ProductsResponse response = RemixSnapshotReader.readProducts(snapshot);
+		assertEquals("Unexpected total", 20, response.total());
+		assertEquals("Unexpected products", 20, response.list().size());
+		assertEquals("Unexpected name", "Laptop 7", response.list().get(7).getName());
+		assertFalse("Snapshot response is an error", response.isError());
+	}
+
+	@Test
+	public void testFindSnapshot() throws Exception {
+		assertNull("Missing snapshot was found", RemixSnapshotReader.findSnapshot(xmlFile));
+		RemixSnapshotWriter.convert(xmlFile, snapshot, false);
+		assertEquals("Snapshot not found", snapshot, RemixSnapshotReader.findSnapshot(xmlFile));
+		assertTrue(xmlFile.setLastModified(snapshot.lastModified() + 60000L));
+		assertNull("Outdated snapshot was found", RemixSnapshotReader.findSnapshot(xmlFile));
+	}
+
+	@Test
+	public void testAbortedSnapshotIsRejected() throws Exception {
+		RemixSnapshotWriter writer = new RemixSnapshotWriter(snapshot, "products", null, false);
+		writer.write(new Entity());
+		writer.abort();
+		writer.close();
+		try {
+			RemixSnapshotReader.openProducts(snapshot);
+			fail("Aborted snapshot was opened");
+		} catch (IOException e) {
+			// no footer
+		}
+	}
+
+	@Test
+	public void testConvertReplacesSnapshot() throws Exception {
+		RemixSnapshotWriter.convert(xmlFile, snapshot, false);
+		RemixSnapshotReader<Product> previous = RemixSnapshotReader.openProducts(snapshot);
+		assertEquals("Unexpected converted count", 20, RemixSnapshotWriter.convert(xmlFile, snapshot, true));
+		assertFalse("Temp file was left behind", new File(snapshot.getParentFile(), snapshot.getName() + ".tmp").exists());
+		RemixSnapshotReader<Product> replaced = RemixSnapshotReader.openProducts(snapshot);
+		try {
+			assertEquals("Replaced snapshot is not readable", 20, replaced.size());
+			assertEquals("Snapshot opened before the conversion changed", "1019", previous.get(19).getSku());
+		} finally {
+			replaced.close();
+			previous.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testWrongCollection() throws Exception {
+		RemixSnapshotWriter.convert(xmlFile, snapshot, false);
+		RemixSnapshotReader.openReviews(snapshot);
+	}
+}
@@ -0,0 +1,133 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.products.MzSkuBatcher;
+
+public class TestRemixStandInServer {
+
+	//Logger
+	public static final Logger logger =
+			Logger.getLogger(TestRemixStandInServer.class.getCanonicalName());
+
+	// Generous bound on the p99 latency of the concurrent fetches, to catch a serialized server
+	private static final long kMaxP99Millis = 2000L;
+
+	private RemixStandInServer standIn;
+	private Remix remix;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuilder products = new StringBuilder("<products>");
+		for (int sku = 1001; sku <= 1025; sku++) {
+			products.append("<product><sku>").append(sku).append("</sku><name>Laptop ").append(sku)
+					.append("</name><regularPrice>499.99</regularPrice></product>");
+		}
+		products.append("</products>");
+		standIn = new RemixStandInServer(0, 8);
+		standIn.addFixture(Remix.PATH_PRODUCTS, products.toString());
+		standIn.addFixture(Remix.PATH_REVIEWS, "<reviews><review><id>1</id><sku>1001</sku><rating>4.0</rating></review>"
+				+ "<review><id>2</id><sku>1002</sku><rating>5.0</rating></review></reviews>");
+		standIn.start();
+		remix = new Remix("stand-in-key", Remix.getDefaultTransport(), new RemixRateLimiter(10000.0, 1000, 32, 32, 5000L))
+				.setEntryPoint(standIn.getEntryPoint());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		standIn.stop();
+	}
+
+	private static Map<String, String> pageParams(int page, int pageSize) {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("page", Integer.toString(page));
+		params.put("pageSize", Integer.toString(pageSize));
+		return params;
+	}
+
+	@Test
+	public void testProductsArePaged() throws Exception {
+		ProductsResponse response = remix.getProducts(pageParams(3, 10));
+		assertFalse("Unexpected error response", response.isError());
+		assertEquals("Unexpected current page", "3", response.getAttribute("currentPage"));
+		assertEquals("Unexpected total pages", "3", response.getAttribute("totalPages"));
+		assertEquals("Unexpected total", "25", response.getAttribute("total"));
+		assertEquals("Unexpected page length", 5, response.list().size());
+		assertEquals("Unexpected first SKU", "1021", response.list().get(0).getSku());
+	}
+
+	@Test
+	public void testSkuFilterAndSingleProduct() throws Exception {
+		ProductsResponse response = remix.getProducts(
+				Collections.singletonList(MzSkuBatcher.createSkuFilter(Arrays.asList("1003", "1007", "9999"))), pageParams(1, 100));
+		assertEquals("Unexpected filtered products", 2, response.list().size());
+
+		ProductResponse single = remix.getProduct("1007");
+		assertEquals("Unexpected product", "Laptop 1007", single.product().getName());
+		assertTrue("Unknown SKU was found", remix.getProduct("9999").isError());
+
+		ReviewsResponse reviews = remix.getReviews(Collections.singletonList("sku=1002"), null);
+		assertEquals("Unexpected reviews", 1, reviews.list().size());
+	}
+
+	@Test
+	public void testInjectedErrors() throws Exception {
+		standIn.setErrorRate(1.0, 429);
+		ProductsResponse response = remix.getProducts(pageParams(1, 10));
+		assertTrue("Injected error was not returned", response.isError());
+		assertEquals("Unexpected error code", 429, response.getResponseCode());
+		assertEquals("Unexpected injected error count", 1L, standIn.getInjectedErrors());
+	}
+
+	@Test
+	public void testConcurrentFetchLatency() throws Exception {
+		standIn.setLatency(5L, 20L);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Long>> calls = new ArrayList<Future<Long>>();
+			for (int i = 0; i < 40; i++) {
+				final int page = 1 + i % 3;
+				calls.add(clients.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						long start = System.nanoTime();
+						assertFalse("Unexpected error response", remix.getProducts(pageParams(page, 10)).isError());
+						return (System.nanoTime() - start) / 1000000L;
+					}
+				}));
+			}
+			List<Long> latencies = new ArrayList<Long>();
+			for (Future<Long> call : calls) {
+				latencies.add(call.get());
+			}
+			Collections.sort(latencies);
+			long p50 = latencies.get(latencies.size() / 2);
+			long p99 = latencies.get(latencies.size() * 99 / 100);
+			logger.log(Level.INFO, "Stand-in latency p50: {0} ms, p99: {1} ms", new Object[]{ p50, p99 });
+			assertTrue("Injected latency was not applied", latencies.get(0) >= 5L);
+			// at most 20 ms injected per call, the rest is queueing behind 8 server threads
+			assertTrue("Stand-in p99 latency too high: " + p99 + " ms", p99 < kMaxP99Millis);
+		} finally {
+			clients.shutdown();
+		}
+		assertEquals("Unexpected request count", 40L, standIn.getRequests());
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRemixStreamBinder {
+	
+	private static final String productsXML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<products currentPage=\"2\" totalPages=\"7\" from=\"11\" to=\"12\" total=\"64\" canonicalUrl=\"/v1/products\">\n"
+			+ "  <product>\n"
+			+ "    <sku>5689198</sku>\n"
+			+ "    <name>HP - 15.6\" Laptop -\n 4GB Memory</name>\n"
+			+ "    <regularPrice>649.99</regularPrice>\n"
+			+ "    <salePrice>599.99</salePrice>\n"
+			+ "    <customerReviewCount>42</customerReviewCount>\n"
+			+ "    <customerReviewAverage>4.5</customerReviewAverage>\n"
+			+ "    <shippingCost></shippingCost>\n"
+			+ "    <categoryPath>\n"
+			+ "      <category><id>abcat0500000</id><name>Computers</name></category>\n"
+			+ "      <category><id>abcat0502000</id><name>Laptops</name></category>\n"
+			+ "    </categoryPath>\n"
+			+ "    <details>\n"
+			+ "      <detail><name>Processor Brand</name><value>AMD</value></detail>\n"
+			+ "      <detail><name>Screen Size</name><value><![CDATA[15.6 inches]]></value></detail>\n"
+			+ "    </details>\n"
+			+ "    <features><feature>Windows 8</feature><feature>500GB hard drive</feature></features>\n"
+			+ "  </product>\n"
+			+ "  <product><sku>1234567</sku><regularPrice>n/a</regularPrice><customerReviewCount>3</customerReviewCount>"
+			+ "<customerReviewAverage>3.0</customerReviewAverage></product>\n"
+			+ "</products>\n";
+	
+	private static final String reviewsXML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<reviews currentPage=\"1\" totalPages=\"1\" from=\"1\" to=\"2\" total=\"2\">"
+			+ "<review><id>101</id><sku>5689198</sku><reviewer><name>Jane</name></reviewer><rating>4.0</rating>"
+			+ "<title>Good</title><comment>Fast &amp; light</comment></review>"
+			+ "<review><id>102</id><sku>5689198</sku><reviewer><name>Sam</name></reviewer><rating>2.5</rating></review>"
+			+ "</reviews>";
+	
+	private File productsFile;
+	private File reviewsFile;
+
+	@Before
+	public void setUp() throws Exception {
+		productsFile = writeFile("test-products", productsXML);
+		reviewsFile = writeFile("test-reviews", reviewsXML);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		productsFile.delete();
+		reviewsFile.delete();
+	}
+	
+	private static File writeFile(String prefix, String content) throws Exception {
+		File file = File.createTempFile(prefix, ".xml");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testProductsMatchElementTree() throws Exception {
+		ProductsResponse treeResponse = new ProductsResponse(productsFile);
+		ProductsResponse streamResponse = new ProductsResponse(productsFile, true);
+		assertEquals("Unexpected current page", 2, streamResponse.currentPage());
+		assertEquals("Unexpected total pages", 7, streamResponse.totalPages());
+		assertEquals("Unexpected total", treeResponse.total(), streamResponse.total());
+		assertEquals("Unexpected canonical URL", "/v1/products", streamResponse.canonicalUrl());
+		
+		List<Product> treeProducts = treeResponse.list();
+		List<Product> streamProducts = streamResponse.list();
+		assertEquals("Unexpected number of Products", 2, streamProducts.size());
+		assertSame("list() must return the same List", streamProducts, streamResponse.list());
+		for (int i = 0; i < treeProducts.size(); i++) {
+			Product expected = treeProducts.get(i);
+			Product actual = streamProducts.get(i);
+			assertEquals("SKUs differ", expected.getSku(), actual.getSku());
+			assertEquals("Names differ", expected.getName(), actual.getName());
+			assertEquals("Sale prices differ", expected.getSalePrice(), actual.getSalePrice(), 0.0f);
+			assertEquals("Review counts differ", expected.getCustomerReviewCount(), actual.getCustomerReviewCount());
+			assertEquals("Review averages differ", expected.getCustomerReviewAverage(), actual.getCustomerReviewAverage(), 0.0f);
+			assertEquals("Details differ", expected.getDetailsMap(), actual.getDetailsMap());
+			assertEquals("Features differ", expected.getFeatures(), actual.getFeatures());
+			assertEquals("Category paths differ", expected.getCategoryPath().size(), actual.getCategoryPath().size());
+			assertEquals("Shipping costs differ", expected.getField("shippingCost"), actual.getField("shippingCost"));
+		}
+		
+		Product laptop = streamProducts.get(0);
+		assertEquals("Unexpected regular price", 649.99f, laptop.getRegularPrice(), 0.0f);
+		assertEquals("Unexpected name", "HP - 15.6\" Laptop - 4GB Memory", laptop.getName());
+		assertEquals("Unexpected detail", "15.6 inches", laptop.getDetailsMap().get("Screen Size"));
+		assertEquals("Unexpected category", "Laptops", laptop.getCategoryPath().get(1).getName());
+		
+		// an unparseable price still fails as it does for the element tree
+		try {
+			streamProducts.get(1).getRegularPrice();
+			fail("Expected a NumberFormatException for an invalid regular price");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testReviews() throws Exception {
+		List<Review> reviews = new ReviewsResponse(reviewsFile, true).list();
+		assertEquals("Unexpected number of Reviews", 2, reviews.size());
+		assertEquals("Unexpected rating", 4.0f, reviews.get(0).getRating(), 0.0f);
+		assertEquals("Unexpected rating", 2.5f, reviews.get(1).getRating(), 0.0f);
+		assertEquals("Unexpected reviewer", "Sam", reviews.get(1).getReviewerName());
+		assertEquals("Unexpected comment", "Fast & light", reviews.get(0).getComment());
+		assertEquals("Unexpected review id", "101", reviews.get(0).getReviewId());
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.manzia.shopping.bestbuy;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRemixTransferStats {
+
+	private RemixStandInServer standIn;
+	private Remix remix;
+
+	@Before
+	public void setUp() throws Exception {
+		standIn = new RemixStandInServer(0, 4);
+		StringBuilder products = new StringBuilder("<products>");
+		for (int i = 0; i < 50; i++) {
+			products.append("<product><sku>").append(1000 + i).append("</sku><name>Laptop ").append(i)
+					.append("</name><shortDescription>Thin and light laptop with a long battery life</shortDescription></product>");
+		}
+		standIn.addFixture(Remix.PATH_PRODUCTS, products.append("</products>").toString());
+		standIn.start();
+		remix = new Remix("transfer-key", Remix.getDefaultTransport(), new RemixRateLimiter(10000.0, 1000, 32, 32, 5000L))
+				.setEntryPoint(standIn.getEntryPoint()).setResponseCache(null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		standIn.stop();
+	}
+
+	private static Map<String, String> params() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("pageSize", "50");
+		return params;
+	}
+
+	@Test
+	public void testCompressedResponseIsDecoded() throws Exception {
+		long responses = RemixTransferStats.getEncodedResponses();
+		ProductsResponse response = remix.getProducts(params());
+		assertEquals("Unexpected products", 50, response.list().size());
+		assertEquals("Unexpected product", "Laptop 49", response.list().get(49).getName());
+		assertEquals("Response was not compressed", 1L, standIn.getEncodedResponses());
+		assertTrue("Wire bytes not below decoded bytes", response.getWireBytes() < response.getDecodedBytes());
+		assertTrue("Response not counted", RemixTransferStats.getEncodedResponses() > responses);
+	}
+
+	@Test
+	public void testIdentityResponse() throws Exception {
+		standIn.setCompression(false);
+		ProductsResponse response = remix.getProducts(params());
+		assertEquals("Unexpected products", 50, response.list().size());
+		assertTrue("Empty response", response.getDecodedBytes() > 0);
+		assertEquals("Identity body bytes differ", response.getDecodedBytes(), response.getWireBytes());
+	}
+
+	@Test
+	public void testCachedResponseReportsWireBytes() throws Exception {
+		File cacheDir = File.createTempFile("remixTransfer", "");
+		cacheDir.delete();
+		try {
+			standIn.setCacheControl("max-age=60");
+			remix.setResponseCache(new RemixResponseCache(cacheDir, 60000L, 100L));
+			ProductsResponse fetched = remix.getProducts(params());
+			assertTrue("Wire bytes not below decoded bytes", fetched.getWireBytes() < fetched.getDecodedBytes());
+			ProductsResponse cached = remix.getProducts(params());
+			assertEquals("Unexpected cached products", 50, cached.list().size());
+			assertEquals("Cache hit counted as wire bytes", 0L, cached.getWireBytes());
+			assertEquals("Unexpected decoded bytes", fetched.getDecodedBytes(), cached.getDecodedBytes());
+		} finally {
+			File[] files = cacheDir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			cacheDir.delete();
+		}
+	}
+
+	@Test
+	public void testZlibAndRawDeflate() throws Exception {
+		byte[] body = "<products><product><sku>1</sku></product></products>".getBytes("UTF-8");
+		for (boolean raw : new boolean[] { false, true }) {
+			ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			DeflaterOutputStream out = new DeflaterOutputStream(encoded, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+			out.write(body);
+			out.close();
+			RemixTransferStats.DecodedBody decoded =
+					RemixTransferStats.decode(new ByteArrayInputStream(encoded.toByteArray()), "deflate");
+			assertArrayEquals("Unexpected body, raw=" + raw, body, readAll(decoded.getStream()));
+			assertEquals("Unexpected wire bytes, raw=" + raw, encoded.size(), decoded.getWireBytes());
+			assertEquals("Unexpected decoded bytes, raw=" + raw, body.length, decoded.getDecodedBytes());
+		}
+	}
+
+	private static byte[] readAll(InputStream stream) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
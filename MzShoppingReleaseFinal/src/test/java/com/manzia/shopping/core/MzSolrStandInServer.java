@@ -0,0 +1,244 @@
+package com.manzia.shopping.core;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * In-memory stand-in for the Solr Server of the ranking requests. Each document is a product SKU with
+ * a score per query text; a document matches the queries it has a score for.
+ *
+ * Supported requests:
+ * - a query text, answered with the SKUs of the matching documents sorted on score, up to "rows"
+ * - the requests of {@link MzBatchRankQuery}: a "{!term f=sku}" query whose "fl" holds "query($rqN,0)"
+ *   function values, and "{!frange}" facet queries over those functions
+ *
+ * A query text can be delayed or made to fail, and function queries can be turned off to stand in for a
+ * server that does not support them.
+ *
+ * @author Roy Manzi Tumubweinee, Oct 18, 2026, Manzia Corporation
+ *
+ */
+public class MzSolrStandInServer extends SolrServer {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String kTermQueryPrefix = "{!term f=sku}";
+	private static final Pattern kFunctionField = Pattern.compile("(\\w+):query\\(\\$(\\w+),0\\)");
+	private static final Pattern kRangeFacet = Pattern.compile("\\{!frange key=(\\w+) l=(\\S+) incl=false\\}query\\(\\$(\\w+),0\\)");
+	private static final Pattern kParsedQuery = Pattern.compile("\\{!type=\\$defType v=\\$(\\w+)\\}");
+
+	// SKU to (query text to score), in index order
+	private final Map<String, Map<String, Float>> documents = new LinkedHashMap<String, Map<String, Float>>();
+	private final Map<String, Long> delays = new HashMap<String, Long>();
+	private final Set<String> failures = new HashSet<String>();
+	private volatile boolean functionsSupported = true;
+
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	/**
+	 * Adds a document for the SKU, or a score to it, matching the query text
+	 */
+	public synchronized MzSolrStandInServer index( String sku, String queryText, float score ) {
+		Map<String, Float> scores = documents.get(sku);
+		if (scores == null) {
+			scores = new HashMap<String, Float>();
+			documents.put(sku, scores);
+		}
+		scores.put(queryText, Float.valueOf(score));
+		return this;
+	}
+
+	/**
+	 * Delays the answer to a query text
+	 */
+	public synchronized void setDelay( String queryText, long delayMillis ) {
+		delays.put(queryText, Long.valueOf(delayMillis));
+	}
+
+	/**
+	 * Fails the requests for a query text
+	 */
+	public synchronized void setFailure( String queryText ) {
+		failures.add(queryText);
+	}
+
+	/**
+	 * Whether "query()" function values and "frange" facet queries are answered
+	 */
+	public void setFunctionsSupported( boolean supported ) {
+		functionsSupported = supported;
+	}
+
+	public int getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return - most requests answered at once
+	 */
+	public int getMaxRunning() {
+		return maxRunning.get();
+	}
+
+	@Override
+	public NamedList<Object> request( SolrRequest request ) throws SolrServerException, IOException {
+		requests.incrementAndGet();
+		int now = running.incrementAndGet();
+		int max;
+		do {
+			max = maxRunning.get();
+		} while (now > max && !maxRunning.compareAndSet(max, now));
+		try {
+			SolrParams params = request.getParams();
+			String query = params.get(CommonParams.Q);
+			Long delay;
+			boolean failure;
+			synchronized (this) {
+				delay = delays.get(query);
+				failure = failures.contains(query);
+			}
+			if (delay != null) {
+				try {
+					Thread.sleep(delay.longValue());
+				} catch (InterruptedException e) {
+					throw new SolrServerException("Interrupted", e);
+				}
+			}
+			if (failure) {
+				throw new SolrServerException("Failed query: " + query);
+			}
+			synchronized (this) {
+				if (query.startsWith(kTermQueryPrefix)) {
+					return scoreProduct(params, query.substring(kTermQueryPrefix.length()));
+				} else if (params.getBool(FacetParams.FACET, false)) {
+					return countHigher(params);
+				}
+				return search(params, query);
+			}
+		} finally {
+			running.decrementAndGet();
+		}
+	}
+
+	private NamedList<Object> search( SolrParams params, String queryText ) {
+		List<Map.Entry<String, Float>> matches = new ArrayList<Map.Entry<String, Float>>();
+		for (Map.Entry<String, Map<String, Float>> document : documents.entrySet()) {
+			Float score = document.getValue().get(queryText);
+			if (score != null) {
+				matches.add(new AbstractMap.SimpleEntry<String, Float>(document.getKey(), score));
+			}
+		}
+		Collections.sort(matches, new Comparator<Map.Entry<String, Float>>() {
+			@Override
+			public int compare( Map.Entry<String, Float> first, Map.Entry<String, Float> second ) {
+				return second.getValue().compareTo(first.getValue());
+			}
+		});
+		SolrDocumentList results = new SolrDocumentList();
+		results.setNumFound(matches.size());
+		int rows = params.getInt(CommonParams.ROWS, 10);
+		for (int i = 0; i < matches.size() && i < rows; i++) {
+			results.add(document(matches.get(i).getKey()));
+		}
+		return response(results);
+	}
+
+	private NamedList<Object> scoreProduct( SolrParams params, String sku ) {
+		SolrDocumentList results = new SolrDocumentList();
+		Map<String, Float> scores = documents.get(sku);
+		if (scores != null) {
+			SolrDocument product = document(sku);
+			if (functionsSupported) {
+				Matcher field = kFunctionField.matcher(params.get(CommonParams.FL, ""));
+				while (field.find()) {
+					Float score = scores.get(queryText(params, field.group(2)));
+					product.setField(field.group(1), score == null ? Float.valueOf(0f) : score);
+				}
+			}
+			results.add(product);
+		}
+		results.setNumFound(results.size());
+		return response(results);
+	}
+
+	private NamedList<Object> countHigher( SolrParams params ) {
+		if (!functionsSupported) {
+			throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Unknown query parser 'frange'");
+		}
+		NamedList<Object> facetQueries = new NamedList<Object>();
+		String[] facets = params.getParams(FacetParams.FACET_QUERY);
+		for (String facet : facets == null ? new String[0] : facets) {
+			Matcher range = kRangeFacet.matcher(facet);
+			if (!range.matches()) {
+				throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Unsupported facet query: " + facet);
+			}
+			float lower = Float.parseFloat(range.group(2));
+			String queryText = queryText(params, range.group(3));
+			int count = 0;
+			for (Map<String, Float> scores : documents.values()) {
+				Float score = scores.get(queryText);
+				if (score != null && score.floatValue() > lower) {
+					count++;
+				}
+			}
+			facetQueries.add(range.group(1), Integer.valueOf(count));
+		}
+		NamedList<Object> facetCounts = new NamedList<Object>();
+		facetCounts.add("facet_queries", facetQueries);
+		SolrDocumentList results = new SolrDocumentList();
+		results.setNumFound(documents.size());
+		NamedList<Object> response = response(results);
+		response.add("facet_counts", facetCounts);
+		return response;
+	}
+
+	// Text of a "{!type=$defType v=$rtN}" query parameter
+	private static String queryText( SolrParams params, String queryParam ) {
+		Matcher parsed = kParsedQuery.matcher(params.get(queryParam, ""));
+		if (!parsed.matches()) {
+			throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Unsupported query: " + params.get(queryParam));
+		}
+		return params.get(parsed.group(1));
+	}
+
+	private static SolrDocument document( String sku ) {
+		SolrDocument document = new SolrDocument();
+		document.setField("sku", sku);
+		return document;
+	}
+
+	private static NamedList<Object> response( SolrDocumentList results ) {
+		NamedList<Object> response = new NamedList<Object>();
+		response.add("response", results);
+		return response;
+	}
+
+	@Override
+	public void shutdown() {
+	}
+}
@@ -0,0 +1,161 @@
+package com.manzia.shopping.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.ranking.RankResultType;
+import com.manzia.shopping.ranking.RankResults;
+import com.manzia.shopping.searches.MzQueryTranslator;
+import com.manzia.shopping.searches.MzSearchQuery;
+
+public class TestMzBatchRankQuery {
+
+	private static final String kProductSku = "6668354";
+
+	private Map<String, String> queryMap;
+	private List<SolrQuery> subQueries;
+	private MzSolrStandInServer server;
+	private MzSolrService solrService;
+
+	@Before
+	public void setUp() throws Exception {
+		queryMap = new HashMap<String, String>();
+		queryMap.put("Category", "Tablets");
+		queryMap.put("sku", kProductSku);
+		queryMap.put("q1", "photos");
+		queryMap.put("q2", "great quality");
+		queryMap.put("q3", "battery");
+		subQueries = new MzQueryTranslator().translateQueryList(MzSearchQuery.generateSearchQuery(queryMap));
+		assertEquals(3, subQueries.size());
+
+		// the product is 3rd for the 1st sub-query, 1st for the 2nd, and does not match the 3rd
+		server = new MzSolrStandInServer();
+		String first = subQueries.get(0).getQuery();
+		String second = subQueries.get(1).getQuery();
+		String third = subQueries.get(2).getQuery();
+		server.index("1001", first, 9f).index("1002", first, 7f).index(kProductSku, first, 5f).index("1003", first, 1f);
+		server.index(kProductSku, second, 3.25f).index("1001", second, 2f);
+		server.index("1001", third, 4f);
+
+		final SolrServer standIn = server;
+		solrService = new MzSolrService() {
+			@Override
+			public SolrServer getSolrServer() {
+				return standIn;
+			}
+		};
+	}
+
+	private static List<Integer> ratings( RankResults rankResults ) {
+		List<Integer> ratings = new ArrayList<Integer>();
+		for (RankResultType rankResult : rankResults.getRankResult()) {
+			ratings.add(Integer.valueOf(rankResult.getRankRating().intValue()));
+		}
+		return ratings;
+	}
+
+	@Test
+	public void testComputeRanks() throws SolrServerException {
+		List<Integer> ranks = new MzBatchRankQuery().computeRanks(server, kProductSku, subQueries);
+		assertNotNull(ranks);
+		assertEquals(Integer.valueOf(2), ranks.get(0));
+		assertEquals(Integer.valueOf(0), ranks.get(1));
+		assertEquals(Integer.valueOf(-1), ranks.get(2));
+		assertEquals(2, server.getRequests());
+	}
+
+	@Test
+	public void testComputeRanksBeyondRows() throws SolrServerException {
+		String first = subQueries.get(0).getQuery();
+		int rows = subQueries.get(0).getInt("rows", 10);
+		for (int i = 0; i < rows; i++) {
+			server.index("2" + i, first, 8f);
+		}
+		List<Integer> ranks = new MzBatchRankQuery().computeRanks(server, kProductSku, subQueries);
+		assertEquals(Integer.valueOf(-1), ranks.get(0));
+		assertEquals(Integer.valueOf(0), ranks.get(1));
+	}
+
+	@Test
+	public void testComputeRanksUnknownProduct() throws SolrServerException {
+		List<Integer> ranks = new MzBatchRankQuery().computeRanks(server, "999", subQueries);
+		assertEquals(3, ranks.size());
+		for (Integer rank : ranks) {
+			assertEquals(Integer.valueOf(-1), rank);
+		}
+		assertEquals(1, server.getRequests());
+	}
+
+	@Test
+	public void testComputeRanksDifferentParams() throws SolrServerException {
+		subQueries.get(1).set("mm", "1");
+		assertNull(new MzBatchRankQuery().computeRanks(server, kProductSku, subQueries));
+		assertEquals(0, server.getRequests());
+	}
+
+	@Test
+	public void testComputeRanksWithinDeadline() throws SolrServerException {
+		MzSubQueryExecutor executor = new MzSubQueryExecutor("test-batch", 2, 4);
+		try {
+			List<Integer> ranks = new MzBatchRankQuery().computeRanks(server, kProductSku, subQueries, executor,
+					System.nanoTime() + TimeUnit.SECONDS.toNanos(5L));
+			assertEquals("[2, 0, -1]", ranks.toString());
+
+			// the score request outlives the deadline, no sub-query is ranked and none is sent again
+			server.setDelay("{!term f=sku}" + kProductSku, 3000L);
+			long start = System.currentTimeMillis();
+			ranks = new MzBatchRankQuery().computeRanks(server, kProductSku, subQueries, executor,
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200L));
+			assertTrue("Batch request outlived its deadline", System.currentTimeMillis() - start < 1500L);
+			assertEquals("[null, null, null]", ranks.toString());
+			assertEquals(1L, executor.getTimedOut());
+			assertEquals(3, server.getRequests());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testBatchRequestMatchesPerQuery() throws SolrServerException {
+		MzRankManagerService rankService = new MzRankManagerService();
+		RankResults perQuery = rankService.getRankingDataForSKU(queryMap, solrService, MzRankMode.PER_QUERY);
+		assertEquals(3, server.getRequests());
+
+		RankResults batched = rankService.getRankingDataForSKU(queryMap, solrService, MzRankMode.BATCH_REQUEST);
+		assertEquals(5, server.getRequests());
+		assertEquals(ratings(perQuery), ratings(batched));
+		assertEquals("[3, 1, 0]", ratings(batched).toString());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(perQuery.getRankResult().get(i).getRankQuality(), batched.getRankResult().get(i).getRankQuality());
+		}
+	}
+
+	@Test
+	public void testBatchRequestFallsBack() throws SolrServerException {
+		server.setFunctionsSupported(false);
+		RankResults rankResults = new MzRankManagerService().getRankingDataForSKU(queryMap, solrService, MzRankMode.BATCH_REQUEST);
+		assertEquals("[3, 1, 0]", ratings(rankResults).toString());
+		assertEquals(1 + 3, server.getRequests());
+	}
+
+	@Test
+	public void testParseRankMode() {
+		assertEquals(MzRankMode.BATCH_REQUEST, MzRankManagerService.parseRankMode(" batch_request "));
+		assertEquals(MzRankMode.PER_QUERY, MzRankManagerService.parseRankMode("Per_Query"));
+		assertEquals(MzRankMode.PER_QUERY, MzRankManagerService.parseRankMode(null));
+		assertEquals(MzRankMode.PER_QUERY, MzRankManagerService.parseRankMode(""));
+		// a typo falls back to the default instead of failing the class initialization
+		assertEquals(MzRankMode.PER_QUERY, MzRankManagerService.parseRankMode("BATCH-REQUEST"));
+	}
+}
@@ -0,0 +1,138 @@
+package com.manzia.shopping.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.ranking.RankResultType;
+import com.manzia.shopping.ranking.RankResults;
+import com.manzia.shopping.searches.MzQueryTranslator;
+import com.manzia.shopping.searches.MzSearchQuery;
+import com.manzia.shopping.searches.MzSimpleQueryValidator;
+
+public class TestMzRankTable {
+
+	private static final String kCategory = "Tablets";
+	private static final String kProductSku = "6668354";
+
+	private File tableFile;
+	private MzSolrStandInServer server;
+
+	// Text of the sub-query of a quality
+	private static String queryText( String quality ) {
+		Map<String, String> queryMap = new HashMap<String, String>();
+		queryMap.put("Category", kCategory);
+		queryMap.put("q1", quality);
+		return new MzQueryTranslator().translateQueryList(MzSearchQuery.generateSearchQuery(queryMap)).get(0).getQuery();
+	}
+
+	// Quality of the sub-query of a quality, as reported in the RankResults
+	private static String quality( String quality ) {
+		return new MzSimpleQueryValidator().extractQueryTerms(queryText(quality));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		tableFile = File.createTempFile("ranks", ".mzrt");
+		server = new MzSolrStandInServer();
+		server.index("1001", queryText("photos"), 9f).index(kProductSku, queryText("photos"), 5f);
+		server.index(kProductSku, queryText("great quality"), 3f);
+		server.index("1001", queryText("battery"), 4f);
+		server.index(kProductSku, queryText("screen"), 2f).index("1002", queryText("screen"), 6f);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MzRankManagerService.setRankTableFile(null);
+		tableFile.delete();
+	}
+
+	private MzRankTable buildTable() throws SolrServerException, IOException {
+		Map<String, List<String>> vocabulary = new LinkedHashMap<String, List<String>>();
+		List<String> qualities = new ArrayList<String>();
+		qualities.add("photos");
+		qualities.add("great quality");
+		qualities.add("battery");
+		vocabulary.put(kCategory, qualities);
+		return MzRankTableBuilder.build(server, vocabulary, tableFile);
+	}
+
+	@Test
+	public void testGetRank() throws SolrServerException, IOException {
+		MzRankTable table = buildTable();
+		assertEquals(3, table.getQualityCount());
+		assertEquals(4, table.getEntryCount());
+
+		String photos = quality("photos");
+		assertEquals(Integer.valueOf(1), table.getRank(kCategory, kProductSku, photos));
+		assertEquals(Integer.valueOf(0), table.getRank(kCategory, "1001", photos.toUpperCase()));
+		assertEquals(Integer.valueOf(MzRankTable.kNotRanked), table.getRank(kCategory, "1002", photos));
+		assertNull(table.getRank(kCategory, kProductSku, quality("screen")));
+		assertNull(table.getRank("Laptops", kProductSku, photos));
+		assertTrue(table.hasQuality(kCategory, photos));
+		assertFalse(table.hasQuality(kCategory, quality("screen")));
+	}
+
+	@Test
+	public void testLoadVocabulary() throws IOException {
+		File vocabularyFile = File.createTempFile("vocabulary", ".txt");
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(vocabularyFile), "UTF-8");
+			writer.write("# qualities\nTablets\tphotos\n\nTablets\tgreat quality\nNotACategory\tphotos\nTablets\n");
+			writer.close();
+			Map<String, List<String>> vocabulary = MzRankTableBuilder.loadVocabulary(vocabularyFile);
+			assertEquals(1, vocabulary.size());
+			assertEquals("[photos, great quality]", vocabulary.get(kCategory).toString());
+		} finally {
+			vocabularyFile.delete();
+		}
+	}
+
+	@Test
+	public void testRankingFromTable() throws SolrServerException, IOException {
+		buildTable();
+		MzRankManagerService.setRankTableFile(tableFile);
+		int built = server.getRequests();
+
+		Map<String, String> queryMap = new HashMap<String, String>();
+		queryMap.put("Category", kCategory);
+		queryMap.put("sku", kProductSku);
+		queryMap.put("q1", "photos");
+		queryMap.put("q2", "great quality");
+		queryMap.put("q3", "screen");
+		final SolrServer standIn = server;
+		MzSolrService solrService = new MzSolrService() {
+			@Override
+			public SolrServer getSolrServer() {
+				return standIn;
+			}
+		};
+		RankResults rankResults = new MzRankManagerService().getRankingDataForSKU(queryMap, solrService, MzRankMode.PER_QUERY);
+
+		// only the quality missing from the table is sent to the server
+		assertEquals(built + 1, server.getRequests());
+		Map<String, Integer> ratings = new HashMap<String, Integer>();
+		for (RankResultType rankResult : rankResults.getRankResult()) {
+			ratings.put(rankResult.getRankQuality(), Integer.valueOf(rankResult.getRankRating().intValue()));
+		}
+		assertEquals(3, ratings.size());
+		assertEquals(Integer.valueOf(2), ratings.get(quality("photos")));
+		assertEquals(Integer.valueOf(1), ratings.get(quality("great quality")));
+		assertEquals(Integer.valueOf(2), ratings.get(quality("screen")));
+	}
+}
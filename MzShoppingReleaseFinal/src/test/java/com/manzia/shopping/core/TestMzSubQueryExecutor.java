@@ -0,0 +1,135 @@
+package com.manzia.shopping.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzSubQueryExecutor {
+
+	private MzSubQueryExecutor executor;
+
+	// Answers each query with the one document whose sku is the query, after a delay
+	private static MzSolrStandInServer createServer( long delayMillis, String... terms ) {
+		MzSolrStandInServer server = new MzSolrStandInServer();
+		for (String term : terms) {
+			server.index(term, term, 1f);
+			server.setDelay(term, delayMillis);
+		}
+		return server;
+	}
+
+	private static SolrDocument document( String sku ) {
+		SolrDocument doc = new SolrDocument();
+		doc.setField("sku", sku);
+		return doc;
+	}
+
+	private static List<SolrQuery> queries( String... terms ) {
+		List<SolrQuery> queries = new ArrayList<SolrQuery>();
+		for (String term : terms) {
+			queries.add(new SolrQuery(term));
+		}
+		return queries;
+	}
+
+	private static long deadline( long millis ) {
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		executor = new MzSubQueryExecutor("TestSubQuery", 4, 8);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testQueryAllKeepsOrderAndRunsConcurrently() throws SolrServerException {
+		MzSolrStandInServer server = createServer(200, "a", "b", "c", "d");
+		long start = System.nanoTime();
+		List<QueryResponse> responses = executor.queryAll(server, queries("a", "b", "c", "d"), deadline(5000));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(4, responses.size());
+		String[] expected = { "a", "b", "c", "d" };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], responses.get(i).getResults().get(0).getFieldValue("sku"));
+		}
+		assertTrue("Sub-queries ran one after another", server.getMaxRunning() > 1);
+		assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 800);
+		assertEquals(4, executor.getSubQueries());
+	}
+
+	@Test
+	public void testQueryAllLeavesOutLateSubQueries() throws SolrServerException {
+		MzSolrStandInServer server = createServer(10, "a", "slow", "c");
+		server.setDelay("slow", 10000);
+		long start = System.nanoTime();
+		List<QueryResponse> responses = executor.queryAll(server, queries("a", "slow", "c"), deadline(300));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(3, responses.size());
+		assertNotNull(responses.get(0));
+		assertNull(responses.get(1));
+		assertNotNull(responses.get(2));
+		assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+		assertEquals(1, executor.getTimedOut());
+	}
+
+	@Test(expected = SolrServerException.class)
+	public void testQueryAllRethrowsFailure() throws SolrServerException {
+		MzSolrStandInServer server = createServer(10, "a", "fail");
+		server.setFailure("fail");
+		executor.queryAll(server, queries("a", "fail"), deadline(5000));
+	}
+
+	@Test
+	public void testQueryAllRejectsWhenSaturated() throws Exception {
+		// 1 thread and a queue of 1, the third and fourth sub-queries are rejected
+		MzSubQueryExecutor small = new MzSubQueryExecutor("TestSmall", 1, 1);
+		try {
+			long start = System.nanoTime();
+			List<QueryResponse> responses = small.queryAll(createServer(1000, "a", "b", "c", "d"), queries("a", "b", "c", "d"), deadline(300));
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertEquals(4, responses.size());
+			for (QueryResponse response : responses) {
+				assertNull(response);
+			}
+			assertEquals(2, small.getRejected());
+			assertEquals(2, small.getTimedOut());
+			// rejected sub-queries never run on the calling thread past the deadline
+			assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 800);
+		} finally {
+			small.shutdown();
+		}
+	}
+
+	@Test
+	public void testComputeRankForQuery() {
+		SolrDocumentList docs = new SolrDocumentList();
+		docs.add(document("111"));
+		docs.add(new SolrDocument());	// no sku
+		docs.add(document("333"));
+		docs.add(document("111"));
+
+		MzRankManagerService rankService = new MzRankManagerService();
+		assertEquals(Integer.valueOf(0), rankService.computeRankForQuery("111", docs));
+		assertEquals(Integer.valueOf(2), rankService.computeRankForQuery("333", docs));
+		assertEquals(Integer.valueOf(-1), rankService.computeRankForQuery("999", docs));
+		assertEquals(2, MzRankManagerService.createSkuPositions(docs).size());
+	}
+}
@@ -0,0 +1,274 @@
+package com.manzia.shopping.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.model.MzProductSkus;
+
+public class TestMzProductSkusCachedDataImpl {
+
+	private CountingDao tableDao;
+	private MzProductSkusCache cache;
+	private MzProductSkusCachedDataImpl cachedDao;
+
+	// In-memory product_skus table that counts the reads
+	private static class CountingDao implements MzProductSkusDao {
+		private final Map<String, MzProductSkus> table = new LinkedHashMap<String, MzProductSkus>();
+		private int reads;
+		private Runnable onRead;	// e.g a concurrent write while a row is read
+
+		public void setEntityManager(EntityManager newEntityManager) {
+		}
+		public List<MzProductSkus> getSkusByModelAndBrand(String prodModel, String prodBrand) {
+			throw new UnsupportedOperationException();
+		}
+		public List<MzProductSkus> getSkusByModels(Collection<String> prodModels) {
+			throw new UnsupportedOperationException();
+		}
+		public List<String> getProductSkusByCategory(String prodCategory) {
+			throw new UnsupportedOperationException();
+		}
+		public String getCategoryForSKU(String productSKU) {
+			if (productSKU == null || productSKU.length() < 1) {
+				throw new IllegalArgumentException("Invalid productSKU");
+			}
+			reads++;
+			MzProductSkus product = table.get(productSKU);
+			return product == null ? null : product.getProductCategory();
+		}
+		public List<String> getAllProductCategories() {
+			throw new UnsupportedOperationException();
+		}
+		public List<MzProductSkus> getAllMzProductSkus() {
+			reads++;
+			return new ArrayList<MzProductSkus>(table.values());
+		}
+		public List<MzProductSkus> getMzProductSkusPage(int firstResult, int maxResults) {
+			reads++;
+			List<MzProductSkus> rows = new ArrayList<MzProductSkus>(table.values());
+			return new ArrayList<MzProductSkus>(
+					rows.subList(Math.min(firstResult, rows.size()), Math.min(firstResult + maxResults, rows.size())));
+		}
+		public MzProductSkus getMzProductSku(String productSKU) {
+			if (productSKU == null || productSKU.length() < 1) {
+				throw new IllegalArgumentException("Invalid productSKU");
+			}
+			reads++;
+			MzProductSkus product = table.get(productSKU);
+			if (onRead != null) {
+				onRead.run();
+			}
+			return product;
+		}
+		public Map<String, MzProductSkus> getMzProductSkus(Collection<String> productSKUs) {
+			reads++;
+			Map<String, MzProductSkus> products = new HashMap<String, MzProductSkus>();
+			for (String productSKU : productSKUs) {
+				if (table.containsKey(productSKU)) {
+					products.put(productSKU, table.get(productSKU));
+				}
+			}
+			return products;
+		}
+		public boolean addMzProductSku(MzProductSkus product) {
+			table.put(product.getProductSku(), product);
+			return true;
+		}
+		public void deleteMzProductSku(String productSKU) {
+			table.remove(productSKU);
+		}
+	}
+
+	// Registry of one active transaction, completed by commit()
+	private static class FakeTransactionRegistry implements TransactionSynchronizationRegistry {
+		private final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+		private int status = Status.STATUS_ACTIVE;
+
+		void commit() {
+			status = Status.STATUS_COMMITTED;
+			for (Synchronization synchronization : synchronizations) {
+				synchronization.afterCompletion(Status.STATUS_COMMITTED);
+			}
+		}
+		public Object getTransactionKey() {
+			return this;
+		}
+		public void putResource(Object key, Object value) {
+		}
+		public Object getResource(Object key) {
+			return null;
+		}
+		public void registerInterposedSynchronization(Synchronization sync) {
+			synchronizations.add(sync);
+		}
+		public int getTransactionStatus() {
+			return status;
+		}
+		public void setRollbackOnly() {
+		}
+		public boolean getRollbackOnly() {
+			return false;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		tableDao = new CountingDao();
+		tableDao.addMzProductSku(new MzProductSkus("1001", "Apple", "Tablets", "MD513LL/A", "Best Buy"));
+		tableDao.addMzProductSku(new MzProductSkus("1002", "HP", "Laptops", "G6-2210US", "Best Buy"));
+		tableDao.addMzProductSku(new MzProductSkus("1003", "Dell", "Laptops", "I15RV-6190BLK", "Amazon"));
+		cache = new MzProductSkusCache(2);
+		cachedDao = new MzProductSkusCachedDataImpl(tableDao, cache);
+	}
+
+	@Test
+	public void testGetCategoryForSKU() {
+		assertEquals("Tablets", cachedDao.getCategoryForSKU("1001"));
+		assertEquals("Tablets", cachedDao.getCategoryForSKU("1001"));
+		assertEquals("Best Buy", cachedDao.getMzProductSku("1001").getRetailerName());
+		assertEquals(1, tableDao.reads);
+
+		// SKUs missing from the table are cached too
+		assertNull(cachedDao.getCategoryForSKU("9999"));
+		assertNull(cachedDao.getMzProductSku("9999"));
+		assertEquals(2, tableDao.reads);
+		assertEquals(3, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0.6, cache.getHitRatio(), 0.0001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetCategoryForInvalidSKU() {
+		cachedDao.getCategoryForSKU("");
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		cachedDao.getMzProductSku("1001");
+		cachedDao.getMzProductSku("1002");
+		cachedDao.getMzProductSku("1001");
+		cachedDao.getMzProductSku("1003");	// evicts 1002
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(3, tableDao.reads);
+
+		cachedDao.getMzProductSku("1001");
+		assertEquals(3, tableDao.reads);
+		cachedDao.getMzProductSku("1002");
+		assertEquals(4, tableDao.reads);
+	}
+
+	@Test
+	public void testGetMzProductSkus() {
+		cachedDao.getMzProductSku("1001");
+		Map<String, MzProductSkus> products = cachedDao.getMzProductSkus(Arrays.asList("1001", "1002", "9999", null, "", "1002"));
+		assertEquals(2, products.size());
+		assertEquals("Laptops", products.get("1002").getProductCategory());
+		assertEquals(2, tableDao.reads);
+
+		// only the SKUs no longer cached are read, and in one request
+		products = cachedDao.getMzProductSkus(Arrays.asList("1002", "9999", "1003"));
+		assertEquals(2, products.size());
+		assertEquals(3, tableDao.reads);
+	}
+
+	@Test
+	public void testInvalidation() {
+		assertNull(cachedDao.getMzProductSku("1004"));
+		assertTrue(cachedDao.addMzProductSku(new MzProductSkus("1004", "Samsung", "TVs", "UN46EH5000", "Best Buy")));
+		assertEquals("TVs", cachedDao.getCategoryForSKU("1004"));
+
+		cachedDao.deleteMzProductSku("1004");
+		assertNull(cachedDao.getCategoryForSKU("1004"));
+		assertEquals(3, tableDao.reads);
+		assertEquals(2, cache.getInvalidations());
+	}
+
+	@Test
+	public void testInvalidatedAgainAfterCommit() {
+		FakeTransactionRegistry transaction = new FakeTransactionRegistry();
+		cachedDao.setTransactionRegistry(transaction);
+		cachedDao.deleteMzProductSku("1001");
+		assertEquals(1, transaction.synchronizations.size());
+
+		// a concurrent lookup before the commit caches the row as it was
+		tableDao.table.put("1001", new MzProductSkus("1001", "Apple", "Tablets", "MD513LL/A", "Best Buy"));
+		assertEquals("Tablets", cachedDao.getCategoryForSKU("1001"));
+		tableDao.table.remove("1001");
+
+		transaction.commit();
+		assertNull(cachedDao.getCategoryForSKU("1001"));
+	}
+
+	@Test
+	public void testInvalidationDuringLoadIsNotCached() {
+		tableDao.onRead = new Runnable() {
+			public void run() {
+				// the row is changed and invalidated while the stale row is on its way to the cache
+				tableDao.onRead = null;
+				tableDao.table.put("1001", new MzProductSkus("1001", "Apple", "Laptops", "MD513LL/A", "Best Buy"));
+				cache.invalidate("1001");
+			}
+		};
+		assertEquals("Tablets", cachedDao.getCategoryForSKU("1001"));
+		assertEquals(1, cache.getStalePuts());
+		assertEquals("Laptops", cachedDao.getCategoryForSKU("1001"));
+		assertEquals("Laptops", cachedDao.getCategoryForSKU("1001"));
+		assertEquals(2, tableDao.reads);
+	}
+
+	@Test
+	public void testEntriesExpire() throws Exception {
+		MzProductSkusCache shortCache = new MzProductSkusCache(10, 200L, 50L);
+		MzProductSkusCachedDataImpl shortDao = new MzProductSkusCachedDataImpl(tableDao, shortCache);
+		assertEquals("Tablets", shortDao.getCategoryForSKU("1001"));
+		assertNull(shortDao.getCategoryForSKU("9999"));
+		assertEquals(2, tableDao.reads);
+
+		// SKUs not in the table expire first, e.g once another process adds them
+		Thread.sleep(100L);
+		tableDao.addMzProductSku(new MzProductSkus("9999", "Sony", "TVs", "KDL-46EX640", "Best Buy"));
+		assertEquals("Tablets", shortDao.getCategoryForSKU("1001"));
+		assertEquals("TVs", shortDao.getCategoryForSKU("9999"));
+		assertEquals(3, tableDao.reads);
+
+		Thread.sleep(250L);
+		assertEquals("Tablets", shortDao.getCategoryForSKU("1001"));
+		assertEquals(4, tableDao.reads);
+		assertTrue(shortCache.getExpirations() >= 2);
+	}
+
+	@Test
+	public void testWarmUp() {
+		MzProductSkusCache largeCache = new MzProductSkusCache(10);
+		MzProductSkusCachedDataImpl warmDao = new MzProductSkusCachedDataImpl(tableDao, largeCache);
+		assertEquals(3, warmDao.warmUp());
+		assertEquals(1, tableDao.reads);
+		assertEquals("Laptops", warmDao.getCategoryForSKU("1003"));
+		assertEquals("Tablets", warmDao.getCategoryForSKU("1001"));
+		assertEquals(1, tableDao.reads);
+		assertEquals(1.0, largeCache.getHitRatio(), 0.0001);
+
+		// no more rows than the cache holds, read a page at a time
+		tableDao.reads = 0;
+		assertEquals(2, cachedDao.warmUp());
+		assertEquals(2, cache.size());
+		assertEquals(1, tableDao.reads);
+	}
+
+}
@@ -2,7 +2,9 @@ package com.manzia.shopping.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.operation.DatabaseOperation;
@@ -121,6 +123,56 @@ public class TestMzProductSkusDataImpl extends MzAbstractJPADbUnitTestCase {
 				productSku.getProductSku().equalsIgnoreCase(prodSKUId));	
 	}
 
+	@Test
+	public void testGetMzProductSkus() throws Exception {
+		// Insert a MzProductSkus instance
+		IDataSet setupDataSet = getDataSet("/TestMzProductSkusFile.xml");
+		assertNotNull("DataSet is null", setupDataSet);
+		DatabaseOperation.INSERT.execute(dbunitConnection, setupDataSet);
+		
+		// more SKUs than fit in one query, with duplicates and unknown SKUs
+		List<String> skuList = new ArrayList<String>();
+		for (int i = 0; i < MzProductSkusDataImpl.kMaxSkusPerQuery + 10; i++) {
+			skuList.add("999" + i);
+		}
+		skuList.add(prodSKUId);
+		skuList.add(prodSKUId);
+		skuList.add("");
+		Map<String, MzProductSkus> productSkus = productSkusImpl.getMzProductSkus(skuList);
+		assertNotNull(productSkus);
+		assertEquals("Unexpected number of MzProductSkus", 1, productSkus.size());
+		assertEquals("Invalid MzProductSkus retrieved", prodSKUId, productSkus.get(prodSKUId).getProductSku());
+
+		// Added so added entry can be removed
+		productSku = manager.find(MzProductSkus.class, prodSKUId);
+		assertNotNull("Retrieved MzProductSkus is null", productSku);
+	}
+
+	@Test
+	public void testGetSkusByModels() throws Exception {
+		// Insert a MzProductSkus instance
+		IDataSet setupDataSet = getDataSet("/TestMzProductSkusFile.xml");
+		assertNotNull("DataSet is null", setupDataSet);
+		DatabaseOperation.INSERT.execute(dbunitConnection, setupDataSet);
+		
+		// more models than fit in one query, with duplicates and unknown models
+		List<String> modelList = new ArrayList<String>();
+		for (int i = 0; i < MzProductSkusDataImpl.kMaxSkusPerQuery + 10; i++) {
+			modelList.add("Z99Y" + i);
+		}
+		modelList.add("A11B22C33");
+		modelList.add("A11B22C33");
+		modelList.add("");
+		List<MzProductSkus> productSkus = productSkusImpl.getSkusByModels(modelList);
+		assertNotNull(productSkus);
+		assertEquals("Unexpected number of MzProductSkus", 1, productSkus.size());
+		assertEquals("Invalid MzProductSkus retrieved", "Manzia", productSkus.get(0).getProductBrand());
+
+		// Added so added entry can be removed
+		productSku = manager.find(MzProductSkus.class, prodSKUId);
+		assertNotNull("Retrieved MzProductSkus is null", productSku);
+	}
+
 	@Test
 	public void testAddDeleteMzProductSku() {
 		String productSkuId = "9253005311";
@@ -0,0 +1,109 @@
+package com.manzia.shopping.products;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzHedgedFetcher {
+
+	// Fetch that answers after a delay per attempt, failing the attempts without a delay
+	private static class FakeFetch implements Callable<String> {
+		final String value;
+		final long[] delays;
+		final AtomicInteger attempts = new AtomicInteger();
+
+		FakeFetch( String value, long... delays ) {
+			this.value = value;
+			this.delays = delays;
+		}
+
+		@Override
+		public String call() throws Exception {
+			int attempt = attempts.getAndIncrement();
+			long delay = delays[Math.min(attempt, delays.length - 1)];
+			if (delay < 0) {
+				throw new Exception("BestBuy API unavailable");
+			}
+			Thread.sleep(delay);
+			return value;
+		}
+	}
+
+	private MzHedgedFetcher fetcher;
+
+	@Before
+	public void setUp() throws Exception {
+		fetcher = new MzHedgedFetcher("TestMzHedgedFetcher", 8, 50L);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fetcher.shutdown();
+	}
+
+	private static long deadlineIn( long millis ) {
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	@Test
+	public void testSlowFetchIsHedged() throws Exception {
+		Map<String, FakeFetch> tasks = new LinkedHashMap<String, FakeFetch>();
+		tasks.put("slow", new FakeFetch("hedged", 5000L, 10L));
+		long start = System.currentTimeMillis();
+		Map<String, String> results = fetcher.fetchAll(tasks, deadlineIn(2000L));
+		assertEquals("Hedge did not answer", "hedged", results.get("slow"));
+		assertTrue("Waited for the slow attempt", System.currentTimeMillis() - start < 1000L);
+		assertEquals("Unexpected hedges", 1L, fetcher.getHedges());
+		assertEquals("Unexpected hedge wins", 1L, fetcher.getHedgeWins());
+	}
+
+	@Test
+	public void testPartialResultsAtDeadline() throws Exception {
+		Map<String, FakeFetch> tasks = new LinkedHashMap<String, FakeFetch>();
+		tasks.put("fast", new FakeFetch("fast", 5L));
+		tasks.put("stuck", new FakeFetch("stuck", 5000L));
+		long start = System.currentTimeMillis();
+		Map<String, String> results = fetcher.fetchAll(tasks, deadlineIn(300L));
+		assertTrue("Did not return at the deadline", System.currentTimeMillis() - start < 1500L);
+		assertEquals("Unexpected results", 1, results.size());
+		assertEquals("Missing fast result", "fast", results.get("fast"));
+		assertEquals("Unexpected deadline misses", 1L, fetcher.getDeadlineMisses());
+	}
+
+	@Test
+	public void testFailedFetchIsSentAgain() throws Exception {
+		Map<String, FakeFetch> tasks = new LinkedHashMap<String, FakeFetch>();
+		tasks.put("flaky", new FakeFetch("retried", -1L, 5L));
+		tasks.put("down", new FakeFetch("down", -1L));
+		Map<String, String> results = fetcher.fetchAll(tasks, deadlineIn(2000L));
+		assertEquals("Retry did not answer", "retried", results.get("flaky"));
+		assertFalse("Failed fetch has a result", results.containsKey("down"));
+		assertEquals("Unexpected retries", 2L, fetcher.getRetries());
+		assertEquals("Unexpected failures", 1L, fetcher.getFailures());
+		assertEquals("Down fetch sent more than twice", 2, tasks.get("down").attempts.get());
+	}
+
+	@Test
+	public void testHedgeDelayFollowsLatencies() throws Exception {
+		MzHedgedFetcher slowDefault = new MzHedgedFetcher("TestMzHedgedFetcher-p95", 8, 10000L);
+		try {
+			Map<Integer, FakeFetch> tasks = new LinkedHashMap<Integer, FakeFetch>();
+			for (int i = 0; i < 64; i++) {
+				tasks.put(i, new FakeFetch("value" + i, 1L));
+			}
+			assertEquals("Unexpected results", 64, slowDefault.fetchAll(tasks, deadlineIn(5000L)).size());
+			assertTrue("Hedge delay not taken from the latencies", slowDefault.getHedgeDelayMillis() < 1000L);
+			assertTrue("Hedge delay below the floor", slowDefault.getHedgeDelayMillis() >= MzHedgedFetcher.kMinHedgeDelayMillis);
+		} finally {
+			slowDefault.shutdown();
+		}
+	}
+}
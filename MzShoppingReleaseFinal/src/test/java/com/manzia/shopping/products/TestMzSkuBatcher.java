@@ -0,0 +1,124 @@
+package com.manzia.shopping.products;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.manzia.shopping.bestbuy.Element;
+import com.manzia.shopping.bestbuy.Product;
+
+public class TestMzSkuBatcher {
+
+	// Fake BestBuy API that returns one Product per SKU and records each request
+	private static class FakeFetcher implements MzSkuBatcher.SkuFetcher {
+		final List<List<String>> requests = new CopyOnWriteArrayList<List<String>>();
+		volatile boolean failing = false;
+
+		@Override
+		public List<Product> fetchProducts(List<String> skus) throws Exception {
+			requests.add(new ArrayList<String>(skus));
+			if (failing) {
+				throw new Exception("BestBuy API unavailable");
+			}
+			List<Product> products = new ArrayList<Product>();
+			for (String sku : skus) {
+				if (!sku.startsWith("missing")) {
+					Element root = new Element("product");
+					root.addChild(new Element("sku", sku));
+					products.add(new Product(root));
+				}
+			}
+			return products;
+		}
+	}
+
+	private FakeFetcher fetcher = new FakeFetcher();
+	private MzSkuBatcher batcher;
+
+	@After
+	public void tearDown() throws Exception {
+		if (batcher != null) {
+			batcher.shutdown();
+		}
+	}
+
+	private static Set<String> skusOf(List<Product> products) {
+		Set<String> skus = new HashSet<String>();
+		for (Product product : products) {
+			skus.add(product.getSku());
+		}
+		return skus;
+	}
+
+	@Test
+	public void testConcurrentLookupsAreCoalesced() throws Exception {
+		batcher = new MzSkuBatcher(fetcher, 200L, 100, 2);
+		Future<List<Product>> first = batcher.fetch(Arrays.asList("1001", "1002"));
+		Future<List<Product>> second = batcher.fetch(Arrays.asList("1002", "1003", "missing-1"));
+
+		assertEquals("Unexpected Products for first lookup",
+				new HashSet<String>(Arrays.asList("1001", "1002")), skusOf(first.get(5, TimeUnit.SECONDS)));
+		assertEquals("Unexpected Products for second lookup",
+				new HashSet<String>(Arrays.asList("1002", "1003")), skusOf(second.get(5, TimeUnit.SECONDS)));
+		assertEquals("Lookups were not coalesced", 1, fetcher.requests.size());
+		assertEquals("SKUs were not deduplicated",
+				Arrays.asList("1001", "1002", "1003", "missing-1"), fetcher.requests.get(0));
+		assertEquals("Unexpected lookup count", 2L, batcher.getLookups());
+		assertEquals("Unexpected requested SKU count", 5L, batcher.getRequestedSkus());
+		assertEquals("Unexpected fetched SKU count", 4L, batcher.getFetchedSkus());
+	}
+
+	@Test
+	public void testBatchesAreSplitAtBatchSize() throws Exception {
+		batcher = new MzSkuBatcher(fetcher, 10000L, 3, 2);
+		List<String> skus = Arrays.asList("1", "2", "3", "4", "5", "6", "7");
+		List<Product> products = batcher.fetch(skus).get(5, TimeUnit.SECONDS);
+
+		assertEquals("Unexpected Products", new HashSet<String>(skus), skusOf(products));
+		assertEquals("Unexpected number of requests", 3, fetcher.requests.size());
+		for (List<String> request : fetcher.requests) {
+			assertTrue("Request exceeds batch size", request.size() <= 3);
+		}
+	}
+
+	@Test
+	public void testFailedRequestFailsItsLookups() throws Exception {
+		fetcher.failing = true;
+		batcher = new MzSkuBatcher(fetcher, 1L, 100, 1);
+		Future<List<Product>> lookup = batcher.fetch(Collections.singletonList("1001"));
+		try {
+			lookup.get(5, TimeUnit.SECONDS);
+			fail("Lookup of a failed request did not fail");
+		} catch (ExecutionException e) {
+			assertEquals("Unexpected cause", "BestBuy API unavailable", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testEmptyLookupIsNotSent() throws Exception {
+		batcher = new MzSkuBatcher(fetcher, 1L, 100, 1);
+		Future<List<Product>> lookup = batcher.fetch(Arrays.asList(" ", null));
+		assertTrue("Empty lookup is not done", lookup.isDone());
+		assertTrue("Empty lookup has Products", lookup.get().isEmpty());
+		assertEquals("Empty lookup was sent", 0, fetcher.requests.size());
+	}
+
+	@Test
+	public void testCreateSkuFilter() {
+		assertEquals("Unexpected SKU filter", "sku%20in(5067889,4647789)",
+				MzSkuBatcher.createSkuFilter(Arrays.asList("5067889", "4647789")));
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.manzia.shopping.searches;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+public class TestMzRankedProductsCache {
+
+	private static SortedMap<String, String> createKey( String brand ) {
+		Map<String, String> queryParams = new HashMap<String, String>();
+		queryParams.put("Category", "Laptops");
+		queryParams.put("Brand", brand);
+		return MzSearchVectorCache.canonicalize(queryParams);
+	}
+
+	private static Map<String, String> createStamps( String... skuStamps ) {
+		Map<String, String> stamps = new HashMap<String, String>();
+		for (int i = 0; i < skuStamps.length; i += 2) {
+			stamps.put(skuStamps[i], skuStamps[i + 1]);
+		}
+		return stamps;
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		MzRankedProductsCache cache = new MzRankedProductsCache(60000L, 1024L);
+		assertNull("Expected a miss", cache.getBytes(createKey("HP")));
+		cache.putBytes(createKey("HP"), new byte[100], createStamps("1001", "a|b"));
+		assertNotNull("Expected a hit", cache.getBytes(createKey("HP")));
+		assertEquals("Unexpected hits", 1L, cache.getHits());
+		assertEquals("Unexpected misses", 1L, cache.getMisses());
+		assertEquals("Unexpected size in bytes", 100L, cache.getTotalBytes());
+	}
+
+	@Test
+	public void testExpiry() throws InterruptedException {
+		MzRankedProductsCache cache = new MzRankedProductsCache(20L, 1024L);
+		cache.putBytes(createKey("HP"), new byte[10], createStamps("1001", "a|b"));
+		Thread.sleep(50L);
+		assertNull("Expected the entry to expire", cache.getBytes(createKey("HP")));
+		assertEquals("Unexpected expirations", 1L, cache.getExpirations());
+		assertEquals("Expired entry still counted", 0L, cache.getTotalBytes());
+	}
+
+	@Test
+	public void testByteBoundEvictsLeastRecentlyUsed() {
+		MzRankedProductsCache cache = new MzRankedProductsCache(60000L, 250L);
+		cache.putBytes(createKey("HP"), new byte[100], createStamps("1001", "a|b"));
+		cache.putBytes(createKey("Dell"), new byte[100], createStamps("1002", "a|b"));
+		assertNotNull("Expected a hit", cache.getBytes(createKey("HP")));	// Dell is now the least recently used
+		cache.putBytes(createKey("Sony"), new byte[100], createStamps("1003", "a|b"));
+		assertEquals("Unexpected evictions", 1L, cache.getEvictions());
+		assertNull("Least recently used entry was not evicted", cache.getBytes(createKey("Dell")));
+		assertNotNull("Recently used entry was evicted", cache.getBytes(createKey("HP")));
+		assertTrue("Byte bound exceeded", cache.getTotalBytes() <= cache.getMaxBytes());
+
+		cache.putBytes(createKey("Acer"), new byte[300], createStamps("1004", "a|b"));
+		assertNull("Oversized response must not be cached", cache.getBytes(createKey("Acer")));
+	}
+
+	@Test
+	public void testInvalidationOnUpdatedProducts() {
+		MzRankedProductsCache cache = new MzRankedProductsCache(60000L, 1024L);
+		cache.putBytes(createKey("HP"), new byte[10], createStamps("1001", "price1|item1", "1002", "price1|item1"));
+		cache.putBytes(createKey("Dell"), new byte[10], createStamps("1003", "price1|item1"));
+
+		assertEquals("Unchanged Products must not invalidate", 0, cache.observeStamps(createStamps("1001", "price1|item1")));
+		assertEquals("Expected one invalidated entry", 1, cache.observeStamps(createStamps("1002", "price2|item1", "9999", "x|y")));
+		assertNull("Entry with an updated Product was not invalidated", cache.getBytes(createKey("HP")));
+		assertNotNull("Unrelated entry was invalidated", cache.getBytes(createKey("Dell")));
+		assertEquals("Unexpected invalidations", 1L, cache.getInvalidations());
+		assertEquals("Unexpected size in bytes", 10L, cache.getTotalBytes());
+	}
+
+	@Test
+	public void testTimeToLiveProperty() {
+		assertTrue("Default TTL must bound staleness to a minute",
+				new MzRankedProductsCache().getTimeToLiveMillis() <= 60000L);
+		System.setProperty(MzRankedProductsCache.kTtlProperty, "5000");
+		try {
+			assertEquals("TTL property ignored", 5000L, new MzRankedProductsCache().getTimeToLiveMillis());
+		} finally {
+			System.clearProperty(MzRankedProductsCache.kTtlProperty);
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.manzia.shopping.searches;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.vectorize.MzSequenceFileGenerator;
+
+public class TestMzSearchVectorCache {
+
+	private File propertiesFile;
+
+	@Before
+	public void setUp() throws Exception {
+		propertiesFile = new File(System.getProperty("user.dir"), MzSequenceFileGenerator.getPropertiesFileName());
+		assertFalse("Properties File already exists: " + propertiesFile, propertiesFile.exists());
+		FileWriter writer = new FileWriter(propertiesFile);
+		try {
+			writer.write("category=Category\nbrand=Brand\nregularPrice=Regular Price\nscreenSize=Screen Size\n");
+		} finally {
+			writer.close();
+		}
+		MzSearchServiceImmediate.getSearchVectorCache().clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		propertiesFile.delete();
+		MzSearchServiceImmediate.getSearchVectorCache().clear();
+	}
+
+	private static Map<String, String> createQuery() {
+		Map<String, String> queryParams = new LinkedHashMap<String, String>();
+		queryParams.put("Category", "Laptops");
+		queryParams.put("Brand", "HP");
+		queryParams.put("Regular Price", "650.00");
+		queryParams.put("Screen Size", "15.6 inches");
+		return queryParams;
+	}
+
+	@Test
+	public void testCanonicalize() {
+		Map<String, String> reordered = new HashMap<String, String>();
+		reordered.put("Screen Size", "15.6 inches");
+		reordered.put("Regular Price", "650.00");
+		reordered.put("Brand", "HP");
+		reordered.put("Category", "Laptops");
+		reordered.put("Color", null);
+		assertEquals("Canonical forms differ", MzSearchVectorCache.canonicalize(createQuery()),
+				MzSearchVectorCache.canonicalize(reordered));
+	}
+
+	@Test
+	public void testCanonicalizeKeepsWhitespace() {
+		// values are encoded as given, so whitespace must not be trimmed away from the key
+		Map<String, String> padded = createQuery();
+		padded.put("Brand", " HP");
+		assertFalse("Padded value shares the canonical form", MzSearchVectorCache.canonicalize(createQuery())
+				.equals(MzSearchVectorCache.canonicalize(padded)));
+		assertEquals("Padded value was trimmed", " HP", MzSearchVectorCache.canonicalize(padded).get("Brand"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		MzSearchVectorCache cache = new MzSearchVectorCache(2);
+		SortedMap<String, String> first = MzSearchVectorCache.canonicalize(createQuery());
+		Map<String, String> query = createQuery();
+		query.put("Brand", "Dell");
+		SortedMap<String, String> second = MzSearchVectorCache.canonicalize(query);
+		query.put("Brand", "Sony");
+		SortedMap<String, String> third = MzSearchVectorCache.canonicalize(query);
+
+		NamedVector vector = new NamedVector(new SequentialAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE), "Laptops");
+		cache.put(first, vector);
+		cache.put(second, vector);
+		assertNotNull("Expected a hit", cache.get(first));	// second is now the least recently used
+		cache.put(third, vector);
+		assertEquals("Unexpected size", 2, cache.size());
+		assertNull("Least recently used entry was not evicted", cache.get(second));
+		assertNotNull("Recently used entry was evicted", cache.get(first));
+		assertEquals("Unexpected hits", 2L, cache.getHits());
+		assertEquals("Unexpected misses", 1L, cache.getMisses());
+	}
+
+	@Test
+	public void testRepeatedQueryIsServedFromCache() {
+		MzSearchServiceImmediate searchService = new MzSearchServiceImmediate();
+		MzSearchVectorCache cache = MzSearchServiceImmediate.getSearchVectorCache();
+		NamedVector encoded = searchService.createSearchVector(createQuery());
+		assertNotNull("Failed to encode search Vector", encoded);
+		assertEquals("Unexpected search Vector name", "Laptops", encoded.getName());
+		assertTrue("Expected a non-zero search Vector", encoded.getNumNondefaultElements() > 0);
+		assertEquals("Expected a miss for the first query", 0L, cache.getHits());
+
+		Map<String, String> reordered = new HashMap<String, String>(createQuery());
+		NamedVector cached = searchService.createSearchVector(reordered);
+		assertEquals("Expected a hit for the repeated query", 1L, cache.getHits());
+		assertEquals("Cached search Vector differs", 0.0, encoded.minus(cached).norm(1), 0.0);
+
+		// callers get their own copy
+		cached.set(0, 42.0);
+		assertEquals("Cached search Vector was modified", 0.0,
+				encoded.minus(searchService.createSearchVector(createQuery())).norm(1), 0.0);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.manzia.shopping.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestMzDaemonThreadFactory {
+
+	private static final Runnable noop = new Runnable() {
+		@Override
+		public void run() {}
+	};
+
+	@Test
+	public void testThreadsAreNamedDaemons() {
+		MzDaemonThreadFactory factory = new MzDaemonThreadFactory("MzTest-pool");
+		Thread first = factory.newThread(noop);
+		Thread second = factory.newThread(noop);
+
+		assertTrue(first.isDaemon());
+		assertTrue(second.isDaemon());
+		assertEquals("MzTest-pool-1", first.getName());
+		assertEquals("MzTest-pool-2", second.getName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNameIsRequired() {
+		new MzDaemonThreadFactory("");
+	}
+}
@@ -0,0 +1,118 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.manzia.shopping.bestbuy.Product;
+import com.manzia.shopping.bestbuy.ProductsResponse;
+import com.manzia.shopping.bestbuy.Remix;
+import com.manzia.shopping.bestbuy.RemixRateLimiter;
+import com.manzia.shopping.bestbuy.RemixStandInServer;
+
+public class TestMzCatalogueCrawler {
+
+	private RemixStandInServer standIn;
+	private Remix remix;
+	private File checkpoint;
+
+	// Sink that records the SKUs of each page and can fail on one page
+	private static class RecordingSink implements MzCatalogueCrawler.PageSink {
+		final List<Integer> pages = new ArrayList<Integer>();
+		final List<String> skus = new ArrayList<String>();
+		int failOnPage = -1;
+
+		@Override
+		public void consume(int page, ProductsResponse response) throws Exception {
+			if (page == failOnPage) {
+				throw new Exception("Sink failure");
+			}
+			pages.add(page);
+			for (Product product : response.list()) {
+				skus.add(product.getSku());
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuilder products = new StringBuilder("<products>");
+		for (int sku = 1001; sku <= 1047; sku++) {
+			products.append("<product><sku>").append(sku).append("</sku></product>");
+		}
+		products.append("</products>");
+		standIn = new RemixStandInServer(0, 8);
+		standIn.addFixture(Remix.PATH_PRODUCTS, products.toString());
+		standIn.setLatency(1L, 10L);
+		standIn.start();
+		remix = new Remix("crawler-key", Remix.getDefaultTransport(), new RemixRateLimiter(10000.0, 1000, 32, 32, 5000L))
+				.setEntryPoint(standIn.getEntryPoint());
+		checkpoint = File.createTempFile("crawl", ".properties");
+		checkpoint.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		standIn.stop();
+		checkpoint.delete();
+	}
+
+	private MzCatalogueCrawler createCrawler() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("pageSize", "5");
+		return new MzCatalogueCrawler(remix, Collections.singletonList("categoryPath.id=abcat0502000"), params, 3, checkpoint);
+	}
+
+	@Test
+	public void testCrawlVisitsPagesInOrder() throws Exception {
+		MzCatalogueCrawler crawler = createCrawler();
+		RecordingSink sink = new RecordingSink();
+		assertEquals("Unexpected page count", 10, crawler.crawl(sink));
+		assertEquals("Unexpected total pages", 10, crawler.getTotalPages());
+		for (int page = 1; page <= 10; page++) {
+			assertEquals("Pages out of order", Integer.valueOf(page), sink.pages.get(page - 1));
+		}
+		assertEquals("Unexpected products", 47, sink.skus.size());
+		assertEquals("Unexpected first SKU", "1001", sink.skus.get(0));
+		assertEquals("Unexpected last SKU", "1047", sink.skus.get(46));
+		assertEquals("Missing page timings", 10, crawler.getPageTimings().size());
+		assertEquals("Unexpected page timing", 2, crawler.getPageTimings().get(9).getProducts());
+
+		// completed crawl is not repeated
+		assertEquals("Completed crawl was repeated", 0, createCrawler().crawl(new RecordingSink()));
+	}
+
+	@Test
+	public void testCrawlResumesAfterLastCompletedPage() throws Exception {
+		RecordingSink failing = new RecordingSink();
+		failing.failOnPage = 4;
+		try {
+			createCrawler().crawl(failing);
+			fail("Sink failure did not stop the crawl");
+		} catch (IOException e) {
+			assertEquals("Unexpected pages before failure", 3, failing.pages.size());
+		}
+
+		RecordingSink resumed = new RecordingSink();
+		assertEquals("Unexpected resumed page count", 7, createCrawler().crawl(resumed));
+		assertEquals("Crawl did not resume at page 4", Integer.valueOf(4), resumed.pages.get(0));
+		assertEquals("Unexpected first resumed SKU", "1016", resumed.skus.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMainRequiresApiKey() throws Exception {
+		System.clearProperty(MzCatalogueCrawler.kApiKeyProperty);
+		MzCatalogueCrawler.main(new String[]{ "abcat0502000", checkpoint.getParent(), "3" });
+	}
+
+}
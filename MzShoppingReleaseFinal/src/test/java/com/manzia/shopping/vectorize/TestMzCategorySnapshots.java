@@ -0,0 +1,109 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzCategorySnapshots {
+
+	private static final String kCategory = "Cameras";
+	private File mergeDir;
+	private File seqFile;
+
+	@Before
+	public void setUp() throws Exception {
+		mergeDir = new File(System.getProperty("java.io.tmpdir"), "test-snapshot-seqFiles-" + System.nanoTime());
+		assertTrue("Failed to create merge directory", mergeDir.mkdirs());
+		MzSequenceFileGenerator.setMergeFileDirectory(mergeDir.getAbsolutePath());
+		seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		writeCategoryFile(10, System.currentTimeMillis() - 120000L);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MzSequenceFileGenerator.setMergeFileDirectory(MzSequenceFileGenerator.MERGE_SEQFILE_DIR);
+		File[] files = mergeDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		mergeDir.delete();
+	}
+
+	private void writeCategoryFile( int numVectors, long lastModified ) throws Exception {
+		List<NamedVector> vectors = new ArrayList<NamedVector>();
+		for (int i = 0; i < numVectors; i++) {
+			Vector vector = new RandomAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+			vector.set(i, 1.0);
+			vectors.add(new NamedVector(vector, "Cameras:C" + i + ":Brand"));
+		}
+		assertTrue("Failed to write category SequenceFile",
+				MzSequenceFileGenerator.writeVectorToSequenceFile(vectors, seqFile.getAbsolutePath()));
+		assertTrue("Failed to set lastModified", seqFile.setLastModified(lastModified));
+	}
+
+	@Test
+	public void testSwapOnRegeneratedCategory() throws Exception {
+		MzCategorySnapshots snapshots = new MzCategorySnapshots(1000L);
+		MzCategorySnapshots.Snapshot first = snapshots.getSnapshot(kCategory);
+		assertEquals("Unexpected generation", 1L, first.getGeneration());
+		assertEquals("Unexpected size", 10, first.getVectors().size());
+		assertEquals("Nothing changed, nothing to swap", 0, snapshots.refresh());
+
+		writeCategoryFile(20, System.currentTimeMillis() - 60000L);
+		assertEquals("Expected one swapped category", 1, snapshots.refresh());
+		MzCategorySnapshots.Snapshot second = snapshots.getSnapshot(kCategory);
+		assertEquals("Unexpected generation", 2L, second.getGeneration());
+		assertEquals("Unexpected size", 20, second.getVectors().size());
+
+		// searches holding the previous generation still see the same Vectors
+		assertEquals("Previous generation changed", 10, first.getVectors().size());
+		assertEquals("Previous generation changed", "Cameras:C9:Brand", first.getVectors().getName(9));
+	}
+
+	@Test
+	public void testUnsettledFilesAreNotLoaded() throws Exception {
+		MzCategorySnapshots snapshots = new MzCategorySnapshots(60000L);
+		MzCategorySnapshots.Snapshot first = snapshots.getSnapshot(kCategory);
+		writeCategoryFile(20, System.currentTimeMillis());
+		assertEquals("Files still being written must not be loaded", 0, snapshots.refresh());
+		assertSame("Unexpected swap", first, snapshots.getSnapshot(kCategory));
+	}
+
+	@Test
+	public void testCloseStopsPolling() throws Exception {
+		MzCategorySnapshots snapshots = new MzCategorySnapshots(0L);
+		snapshots.start(10L);
+		assertTrue("Poller was not started", snapshots.isPolling());
+		snapshots.close();
+		assertFalse("Poller was not stopped", snapshots.isPolling());
+		assertEquals("Snapshots must stay usable", 10, snapshots.getSnapshot(kCategory).getVectors().size());
+	}
+
+	@Test
+	public void testFailedLoadKeepsCurrentGeneration() throws Exception {
+		MzCategorySnapshots snapshots = new MzCategorySnapshots(0L);
+		MzCategorySnapshots.Snapshot first = snapshots.getSnapshot(kCategory);
+		FileOutputStream out = new FileOutputStream(seqFile);	// truncated, i.e corrupt, SequenceFile
+		try {
+			out.write(new byte[]{ 'S', 'E', 'Q' });
+		} finally {
+			out.close();
+		}
+		assertTrue("Failed to set lastModified", seqFile.setLastModified(System.currentTimeMillis() - 1000L));
+		assertEquals("Corrupt files must not be swapped in", 0, snapshots.refresh());
+		assertSame("Unexpected swap", first, snapshots.getSnapshot(kCategory));
+	}
+
+}
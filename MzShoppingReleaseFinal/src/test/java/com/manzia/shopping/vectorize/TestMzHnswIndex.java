@@ -0,0 +1,132 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzHnswIndex {
+
+	private static final String kCategory = "Printers";
+	private static final int kNumVectors = 600;
+	private MzCategoryVectors vectors;
+	private File indexFile;
+
+	private static MzCategoryVectors createVectors( long seed ) {
+		Random random = new Random(seed);
+		MzCategoryVectors.Builder builder = new MzCategoryVectors.Builder(kCategory);
+		for (int i = 0; i < kNumVectors; i++) {
+			Vector vector = new RandomAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+			int cluster = i % 12;
+			for (int j = 0; j < 15; j++) {
+				vector.set(cluster * 50 + random.nextInt(60), 1.0 + random.nextDouble());
+			}
+			builder.add("Printers:P" + i + ":Brand" + cluster, vector);
+		}
+		return builder.build();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		vectors = createVectors(42L);
+		indexFile = File.createTempFile("hnswIndex-", kCategory);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		indexFile.delete();
+	}
+
+	@Test
+	public void testRecallAgainstExactSearch() {
+		MzHnswIndex index = MzHnswIndex.build(vectors, MzHnswIndex.kDefaultM, MzHnswIndex.kDefaultEfConstruction, 7L);
+		assertEquals("Unexpected index size", kNumVectors, index.size());
+		double recall = index.measureRecall(vectors, 100, 5, 100);
+		assertTrue("Recall too low: " + recall, recall >= 0.9);
+		assertTrue("Recall cannot increase when efSearch decreases",
+				index.measureRecall(vectors, 100, 5, 5) <= recall + 1e-9);
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		MzHnswIndex index = MzHnswIndex.build(vectors, 8, 40, 11L);
+		index.write(indexFile);
+		MzHnswIndex readIndex = MzHnswIndex.read(indexFile);
+		assertEquals("Unexpected M", 8, readIndex.getM());
+
+		double[] query = new double[MzSequenceFileGenerator.VECTOR_SIZE];
+		vectors.copyInto(17, query);
+		int[] expected = index.search(vectors, query, vectors.getNorm(17), 5, 50);
+		assertTrue("Expected the search Vector itself first", expected.length > 0 && expected[0] == 17);
+		assertTrue("Read index searches differently",
+				Arrays.equals(expected, readIndex.search(vectors, query, vectors.getNorm(17), 5, 50)));
+	}
+
+	@Test
+	public void testFingerprintDetectsRegeneratedVectors() throws Exception {
+		MzHnswIndex index = MzHnswIndex.build(vectors, 8, 40, 11L);
+		index.write(indexFile);
+		MzHnswIndex readIndex = MzHnswIndex.read(indexFile);
+		assertEquals(MzHnswIndex.fingerprint(vectors), readIndex.getSourceFingerprint());
+		assertTrue(readIndex.matches(vectors));
+		assertTrue(readIndex.matches(createVectors(42L)));
+
+		// same names and number of products, different Vectors
+		MzCategoryVectors regenerated = createVectors(43L);
+		assertEquals(vectors.size(), regenerated.size());
+		assertFalse("Index matches regenerated Vectors", readIndex.matches(regenerated));
+	}
+
+	@Test
+	public void testStaleIndexIsNotUsed() throws Exception {
+		File mergeDir = indexFile.getParentFile();
+		MzSequenceFileGenerator.setMergeFileDirectory(mergeDir.getAbsolutePath());
+		File categoryIndexFile = MzHnswIndex.getCategoryIndexFile(kCategory);
+		try {
+			MzHnswIndex.build(vectors, 8, 40, 11L).write(categoryIndexFile);
+			long staleFingerprint = MzHnswIndex.read(categoryIndexFile).getSourceFingerprint();
+			MzCategoryVectors regenerated = createVectors(43L);
+
+			// the search path falls back to the exact scan and leaves the index File alone
+			MzRankingServiceApproximate service = new MzRankingServiceApproximate();
+			assertNull("Stale index was used", service.getCategoryIndex(regenerated));
+			assertEquals("Stale index was rebuilt on the search path", staleFingerprint,
+					MzHnswIndex.read(categoryIndexFile).getSourceFingerprint());
+
+			// an index rebuilt offline is picked up once the index File is checked again
+			MzHnswIndex.build(regenerated, 8, 40, 11L).write(categoryIndexFile);
+			assertNull("Index File checked again too soon", service.getCategoryIndex(regenerated));
+			service.setIndexRecheckMillis(0L);
+			MzHnswIndex index = service.getCategoryIndex(regenerated);
+			assertNotNull("Rebuilt index was not loaded", index);
+			assertTrue(index.matches(regenerated));
+			assertSame("Loaded index is not cached", index, service.getCategoryIndex(regenerated));
+		} finally {
+			categoryIndexFile.delete();
+			MzSequenceFileGenerator.setMergeFileDirectory(MzSequenceFileGenerator.MERGE_SEQFILE_DIR);
+		}
+	}
+
+	@Test
+	public void testRecallLeavesOutSearchVector() {
+		// with K = 1 the search Vector itself would be found by both searches even in a poor graph
+		double recall = MzHnswIndex.build(vectors, 2, 2, 7L).measureRecall(vectors, 100, 1, 1);
+		assertTrue("Recall not measured on the other rows: " + recall, recall < 0.5);
+		recall = MzHnswIndex.build(vectors, MzHnswIndex.kDefaultM, MzHnswIndex.kDefaultEfConstruction, 7L)
+				.measureRecall(vectors, 100, 1, 50);
+		assertTrue("Recall too low: " + recall, recall >= 0.9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParameters() {
+		MzHnswIndex.build(vectors, 1, 10, 1L);
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzMappedVectorStore {
+
+	private static final String kCategory = "Tablets";
+	private File mergeDir;
+	private MzCategoryVectors categoryVectors;
+
+	@Before
+	public void setUp() throws Exception {
+		mergeDir = new File(System.getProperty("java.io.tmpdir"), "test-vecStore-" + System.nanoTime());
+		assertTrue("Failed to create merge directory", mergeDir.mkdirs());
+		MzSequenceFileGenerator.setMergeFileDirectory(mergeDir.getAbsolutePath());
+
+		// RandomAccessSparseVector iterates out of index order, the store must still be sorted by index
+		List<NamedVector> vectors = new ArrayList<NamedVector>();
+		for (int i = 0; i < 20; i++) {
+			Vector vector = new RandomAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+			vector.set((i * 37) % MzSequenceFileGenerator.VECTOR_SIZE, 1.0 + i);
+			vector.set((i * 91 + 5) % MzSequenceFileGenerator.VECTOR_SIZE, 2.0);
+			vector.set(999, 0.5);
+			vectors.add(new NamedVector(vector, "Tablets:MODEL" + (i % 10) + ":Brand"));	// duplicate names
+		}
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		assertTrue("Failed to write category SequenceFile",
+				MzSequenceFileGenerator.writeVectorToSequenceFile(vectors, seqFile.getAbsolutePath()));
+		categoryVectors = MzCategoryVectors.loadFromSequenceFile(kCategory, seqFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MzSequenceFileGenerator.setMergeFileDirectory(MzSequenceFileGenerator.MERGE_SEQFILE_DIR);
+		for (File file : mergeDir.listFiles()) {
+			file.delete();
+		}
+		mergeDir.delete();
+	}
+
+	@Test
+	public void testWriteAndOpen() throws Exception {
+		File storeFile = MzMappedVectorStore.getCategoryStoreFile(kCategory);
+		MzMappedVectorStore.write(categoryVectors, storeFile);
+		assertTrue("Store File was not written", storeFile.isFile());
+
+		MzMappedVectorStore store = MzMappedVectorStore.open(kCategory, storeFile);
+		assertEquals("Unexpected number of Vectors", categoryVectors.size(), store.size());
+		assertEquals("Unexpected cardinality", categoryVectors.getCardinality(), store.getCardinality());
+
+		double[] query = new double[MzSequenceFileGenerator.VECTOR_SIZE];
+		for (int i = 0; i < query.length; i++) {
+			query[i] = (i % 7) * 0.25;
+		}
+		for (int row = 0; row < store.size(); row++) {
+			assertEquals("Unexpected name", categoryVectors.getName(row), store.getName(row));
+			assertEquals("Unexpected norm", categoryVectors.getNorm(row), store.getNorm(row), 0.0);
+			assertEquals("Unexpected dot product", categoryVectors.dot(row, query), store.dot(row, query), 0.0);
+		}
+	}
+
+	@Test
+	public void testRewriteReplacesStore() throws Exception {
+		File storeFile = MzMappedVectorStore.getCategoryStoreFile(kCategory);
+		MzMappedVectorStore.write(categoryVectors, storeFile);
+		MzMappedVectorStore mapped = MzMappedVectorStore.open(kCategory, storeFile);
+
+		MzMappedVectorStore.write(categoryVectors, storeFile);
+		assertFalse("Temp File was left behind", new File(storeFile.getParentFile(), storeFile.getName() + ".tmp").exists());
+		assertEquals("Replaced store is not readable", categoryVectors.size(),
+				MzMappedVectorStore.open(kCategory, storeFile).size());
+		assertEquals("Store mapped before the rewrite changed", categoryVectors.getName(3), mapped.getName(3));
+	}
+
+	@Test
+	public void testLoadCategoryPrefersStore() throws Exception {
+		assertTrue("Expected SequenceFile Vectors without a store",
+				MzMappedVectorStore.loadCategory(kCategory) instanceof MzCategoryVectors);
+		assertEquals("Unexpected number of stores written", 1, MzMappedVectorStore.writeStoresForCategories());
+		MzProductVectors vectors = MzMappedVectorStore.loadCategory(kCategory);
+		assertTrue("Expected the mapped store", vectors instanceof MzMappedVectorStore);
+
+		Vector searchVector = new RandomAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+		searchVector.set(37, 1.0);
+		searchVector.set(999, 0.5);
+		assertEquals("Mapped store ranks differently from the SequenceFile",
+				MzRankingServiceInMemory.computeTopKModelNumbers(categoryVectors, searchVector, 5),
+				MzRankingServiceInMemory.computeTopKModelNumbers(vectors, searchVector, 5));
+	}
+
+}
@@ -0,0 +1,221 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzRankingServiceCosine {
+
+	private static final String kCategory = "TVs";
+	private File mergeDir;
+	private File inputDir;
+
+	@Before
+	public void setUp() throws Exception {
+		mergeDir = new File(System.getProperty("java.io.tmpdir"), "test-cosine-seqFiles-" + System.nanoTime());
+		assertTrue("Failed to create merge directory", mergeDir.mkdirs());
+		MzSequenceFileGenerator.setMergeFileDirectory(mergeDir.getAbsolutePath());
+		inputDir = new File(System.getProperty("user.dir"), "inputDir-" + kCategory);
+		assertFalse("Input Directory already exists: " + inputDir, inputDir.exists());
+
+		writeCategoryFile("Brand", 0L);
+	}
+
+	private static void writeCategoryFile( String brand, long lastModified ) throws Exception {
+		List<NamedVector> vectors = new ArrayList<NamedVector>();
+		for (int i = 0; i < 50; i++) {
+			Vector vector = new SequentialAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+			vector.set(i % 10, 1.0);
+			vector.set(100 + i, 0.5);
+			vectors.add(new NamedVector(vector, "TVs:TV" + i + ":" + brand));
+		}
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		assertTrue("Failed to write category SequenceFile",
+				MzSequenceFileGenerator.writeVectorToSequenceFile(vectors, seqFile.getAbsolutePath()));
+		if (lastModified > 0L) {
+			assertTrue("Failed to set lastModified", seqFile.setLastModified(lastModified));
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MzSequenceFileGenerator.setMergeFileDirectory(MzSequenceFileGenerator.MERGE_SEQFILE_DIR);
+		delete(mergeDir);
+		delete(inputDir);
+	}
+
+	private static void delete( File file ) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static NamedVector createSearchVector(int feature) {
+		Vector vector = new SequentialAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+		vector.set(feature, 1.0);
+		vector.set(100 + feature, 0.1);
+		return new NamedVector(vector, kCategory);
+	}
+
+	@Test
+	public void testInMemorySeedMatchesInMemoryRanking() throws Exception {
+		MzRankingServiceCosine rankingService = new MzRankingServiceCosine();
+		assertTrue("In-memory seed should be the default mode", rankingService.isInMemorySeed());
+		NamedVector searchVector = createSearchVector(3);
+		List<String> modelNumbers = rankingService.computeModelNumbersForVector(searchVector, 5);
+		assertEquals("Unexpected number of ModelNumbers", 5, modelNumbers.size());
+		assertEquals("Unexpected closest ModelNumber", "TVs:TV3:Brand", modelNumbers.get(0));
+		assertEquals("Cosine bean and in-memory bean disagree",
+				new MzRankingServiceInMemory().computeModelNumbersForVector(searchVector, 5), modelNumbers);
+	}
+
+	@Test
+	public void testComputeModelNumbersForVectors() throws Exception {
+		MzRankingServiceCosine rankingService = new MzRankingServiceCosine();
+		List<NamedVector> searchVectors = new ArrayList<NamedVector>();
+		for (int i = 0; i < 10; i++) {
+			searchVectors.add(createSearchVector(i));
+		}
+		List<List<String>> results = rankingService.computeModelNumbersForVectors(searchVectors, 3);
+		assertEquals("Expected one result per search Vector", searchVectors.size(), results.size());
+		for (int i = 0; i < searchVectors.size(); i++) {
+			assertEquals("Batch and single results differ at position " + i,
+					rankingService.computeModelNumbersForVector(searchVectors.get(i), 3), results.get(i));
+		}
+	}
+
+	@Test
+	public void testConcurrentSearches() throws Exception {
+		final MzRankingServiceCosine rankingService = new MzRankingServiceCosine();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+		for (int i = 0; i < 32; i++) {
+			final int feature = i % 10;
+			futures.add(executor.submit(new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws Exception {
+					return rankingService.computeModelNumbersForVector(createSearchVector(feature), 3);
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			List<String> modelNumbers = futures.get(i).get();
+			assertEquals("Unexpected closest ModelNumber for search " + i, "TVs:TV" + (i % 10) + ":Brand", modelNumbers.get(0));
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testRegeneratedCategoryIsPickedUp() throws Exception {
+		MzRankingServiceCosine rankingService = new MzRankingServiceCosine();
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		assertTrue("Failed to set lastModified", seqFile.setLastModified(seqFile.lastModified() - 60000L));
+		File firstInputDir = MzRankingServiceUtils.createInputDirectory(kCategory);
+		assertEquals("Unexpected closest ModelNumber", "TVs:TV3:Brand",
+				rankingService.computeModelNumbersForVector(createSearchVector(3), 1).get(0));
+
+		writeCategoryFile("NewBrand", seqFile.lastModified() + 30000L);
+		File secondInputDir = MzRankingServiceUtils.createInputDirectory(kCategory);
+		assertFalse("Expected a new generation directory", firstInputDir.equals(secondInputDir));
+		assertTrue("Previous generation must be kept for running searches", firstInputDir.isDirectory());
+		assertEquals("Regenerated category was not picked up", "TVs:TV3:NewBrand",
+				rankingService.computeModelNumbersForVector(createSearchVector(3), 1).get(0));
+		assertEquals("Unchanged category must re-use its generation", secondInputDir,
+				MzRankingServiceUtils.createInputDirectory(kCategory));
+	}
+
+	@Test
+	public void testPruneKeepsPinnedGenerations() throws Exception {
+		File seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		long modified = seqFile.lastModified() - 600000L;
+		assertTrue("Failed to set lastModified", seqFile.setLastModified(modified));
+		File firstInputDir = MzRankingServiceUtils.acquireInputDirectory(kCategory);
+		File otherDir = new File(inputDir, "tmp-gen-publishing");
+		assertTrue("Failed to create directory", otherDir.mkdirs());
+		try {
+			writeCategoryFile("Brand2", modified + 60000L);
+			File secondInputDir = MzRankingServiceUtils.createInputDirectory(kCategory);
+			writeCategoryFile("Brand3", modified + 120000L);
+			File thirdInputDir = MzRankingServiceUtils.createInputDirectory(kCategory);
+			assertFalse(secondInputDir.equals(thirdInputDir));
+
+			// the first generation is older than the previous one but still being read
+			assertTrue("Pinned generation was pruned", firstInputDir.isDirectory());
+			assertTrue("Only generation directories may be pruned", otherDir.isDirectory());
+		} finally {
+			MzRankingServiceUtils.releaseInputDirectory(firstInputDir);
+		}
+		writeCategoryFile("Brand4", modified + 180000L);
+		MzRankingServiceUtils.createInputDirectory(kCategory);
+		assertFalse("Released generation was not pruned", firstInputDir.exists());
+		assertTrue("Only generation directories may be pruned", otherDir.isDirectory());
+	}
+
+	@Test
+	public void testConcurrentAcquireWhileRegenerating() throws Exception {
+		final File seqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		final long modified = seqFile.lastModified() - 600000L;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					for (int j = 0; j < 200; j++) {
+						File generationDir = MzRankingServiceUtils.acquireInputDirectory(kCategory);
+						try {
+							if (generationDir == null || !new File(generationDir, seqFile.getName()).isFile()) {
+								return Boolean.FALSE;
+							}
+						} finally {
+							MzRankingServiceUtils.releaseInputDirectory(generationDir);
+						}
+					}
+					return Boolean.TRUE;
+				}
+			}));
+		}
+		// new generations are published and older ones pruned while the searches pin them
+		for (int i = 1; i <= 10; i++) {
+			assertTrue("Failed to set lastModified", seqFile.setLastModified(modified + i * 60000L));
+			Thread.sleep(5L);
+		}
+		for (Future<Boolean> future : futures) {
+			assertTrue("Acquired a missing or partial generation", future.get().booleanValue());
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testSearchWorkspace() {
+		File workspace = MzRankingServiceUtils.createSearchWorkspace();
+		File otherWorkspace = MzRankingServiceUtils.createSearchWorkspace();
+		assertFalse("Workspaces must be unique", workspace.equals(otherWorkspace));
+		assertTrue("Missing seed directory", new File(workspace, MzRankingServiceUtils.kWorkspaceSeedDir).isDirectory());
+		assertFalse("Output directory must not be pre-created", new File(workspace, MzRankingServiceUtils.kWorkspaceOutputDir).exists());
+
+		MzRankingServiceUtils.deleteSearchWorkspace(workspace);
+		MzRankingServiceUtils.deleteSearchWorkspace(otherWorkspace);
+		assertFalse("Workspace was not deleted", workspace.exists());
+		assertFalse("Workspace was not deleted", otherWorkspace.exists());
+		workspace.getParentFile().delete();	// only succeeds if no other workspace is left
+	}
+
+}
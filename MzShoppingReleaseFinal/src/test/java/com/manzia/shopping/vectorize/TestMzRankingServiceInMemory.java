@@ -0,0 +1,105 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzRankingServiceInMemory {
+
+	private static final String kCategory = "Laptops";
+	private File mergeDir;
+	private File categorySeqFile;
+
+	@Before
+	public void setUp() throws Exception {
+		mergeDir = new File(System.getProperty("java.io.tmpdir"), "test-merge-seqFiles-" + System.nanoTime());
+		assertTrue("Failed to create merge directory", mergeDir.mkdirs());
+		MzSequenceFileGenerator.setMergeFileDirectory(mergeDir.getAbsolutePath());
+
+		List<NamedVector> vectors = new ArrayList<NamedVector>();
+		vectors.add(createVector("Laptops:A100:Dell", 1.0, 0.0, 0.0));
+		vectors.add(createVector("Laptops:B200:HP", 0.9, 0.1, 0.0));
+		vectors.add(createVector("Laptops:C300:Acer", 0.0, 1.0, 0.0));
+		vectors.add(createVector("Laptops:D400:Asus", 0.0, 0.0, 1.0));
+		vectors.add(createVector("Laptops:E500:Sony", 2.0, 0.0, 0.0));	// same direction as A100
+		categorySeqFile = MzCategoryVectors.getCategorySequenceFile(kCategory);
+		assertTrue("Failed to write category SequenceFile",
+				MzSequenceFileGenerator.writeVectorToSequenceFile(vectors, categorySeqFile.getAbsolutePath()));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MzSequenceFileGenerator.setMergeFileDirectory(MzSequenceFileGenerator.MERGE_SEQFILE_DIR);
+		for (File file : mergeDir.listFiles()) {
+			file.delete();
+		}
+		mergeDir.delete();
+	}
+
+	private static NamedVector createVector(String name, double x, double y, double z) {
+		Vector vector = new SequentialAccessSparseVector(MzSequenceFileGenerator.VECTOR_SIZE);
+		if (x != 0.0) vector.set(3, x);
+		if (y != 0.0) vector.set(500, y);
+		if (z != 0.0) vector.set(999, z);
+		return new NamedVector(vector, name);
+	}
+
+	@Test
+	public void testLoadFromSequenceFile() throws Exception {
+		MzCategoryVectors vectors = MzCategoryVectors.loadFromSequenceFile(kCategory, categorySeqFile);
+		assertEquals("Unexpected number of Vectors", 5, vectors.size());
+		assertEquals("Unexpected Vector name", "Laptops:C300:Acer", vectors.getName(2));
+		assertEquals("Unexpected Vector norm", 2.0, vectors.getNorm(4), 1e-9);
+	}
+
+	@Test
+	public void testComputeModelNumbersForVector() {
+		MzRankingServiceInMemory rankingService = new MzRankingServiceInMemory();
+		List<String> modelNumbers = rankingService.computeModelNumbersForVector(createVector(kCategory, 1.0, 0.05, 0.0), 3);
+		assertNotNull(modelNumbers);
+		assertEquals("Unexpected number of ModelNumbers", 3, modelNumbers.size());
+
+		// A100 and E500 are equally close, the earlier Vector wins the tie
+		assertEquals("Unexpected closest ModelNumber", "Laptops:A100:Dell", modelNumbers.get(0));
+		assertEquals("Unexpected second ModelNumber", "Laptops:E500:Sony", modelNumbers.get(1));
+		assertEquals("Unexpected third ModelNumber", "Laptops:B200:HP", modelNumbers.get(2));
+	}
+
+	@Test
+	public void testInvalidSearchVectors() {
+		MzRankingServiceInMemory rankingService = new MzRankingServiceInMemory();
+		assertTrue("Expected empty List for NULL Vector", rankingService.computeModelNumbersForVector(null, 5).isEmpty());
+		assertTrue("Expected empty List for invalid category",
+				rankingService.computeModelNumbersForVector(createVector("Toasters", 1.0, 0.0, 0.0), 5).isEmpty());
+	}
+
+	@Test
+	public void testComputeModelNumbersForVectors() {
+		MzRankingServiceInMemory rankingService = new MzRankingServiceInMemory();
+		List<NamedVector> searchVectors = new ArrayList<NamedVector>();
+		for (int i = 0; i < 40; i++) {	// more than one block of search Vectors
+			searchVectors.add(createVector(kCategory, (i % 5) * 0.25, (i % 3) * 0.5, (i % 7) * 0.1));
+		}
+		searchVectors.set(5, null);
+		searchVectors.set(6, createVector("Toasters", 1.0, 0.0, 0.0));
+
+		List<List<String>> results = rankingService.computeModelNumbersForVectors(searchVectors, 3);
+		assertEquals("Expected one result per search Vector", searchVectors.size(), results.size());
+		for (int i = 0; i < searchVectors.size(); i++) {
+			List<String> expected = rankingService.computeModelNumbersForVector(searchVectors.get(i), 3);
+			assertEquals("Batch and single results differ at position " + i, expected, results.get(i));
+		}
+		assertTrue("Expected empty List for NULL Vector", results.get(5).isEmpty());
+		assertTrue("Expected empty List for invalid category", results.get(6).isEmpty());
+	}
+
+}
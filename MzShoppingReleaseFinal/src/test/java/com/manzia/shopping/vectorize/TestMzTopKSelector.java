@@ -0,0 +1,116 @@
+package com.manzia.shopping.vectorize;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.NamedVector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMzTopKSelector {
+
+	private File distanceFile;
+
+	@Before
+	public void setUp() throws Exception {
+		distanceFile = File.createTempFile("part-", "distances");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		distanceFile.delete();
+		new File(distanceFile.getParentFile(), "." + distanceFile.getName() + ".crc").delete();
+	}
+
+	@Test
+	public void testKeepSmallest() {
+		MzTopKSelector selector = new MzTopKSelector(3, true);
+		double[] distances = { 0.9, 0.1, 0.5, 0.3, 1.7, 0.2 };
+		for (int i = 0; i < distances.length; i++) {
+			selector.offer(distances[i], i);
+		}
+		assertEquals("Unexpected size", 3, selector.size());
+		assertTrue("Unexpected ids", Arrays.equals(new int[]{ 1, 5, 3 }, selector.getIds()));
+		assertTrue("Unexpected scores", Arrays.equals(new double[]{ 0.1, 0.2, 0.3 }, selector.getScores()));
+	}
+
+	@Test
+	public void testKeepLargestWithStableTies() {
+		MzTopKSelector selector = new MzTopKSelector(3, false);
+		selector.offer(0.5, "first");
+		selector.offer(0.8, "second");
+		selector.offer(0.5, "third");
+		selector.offer(0.5, "fourth");	// tie with the retained 0.5s but offered later
+		selector.offer(Double.NaN, "nan");
+		assertEquals("Unexpected names", Arrays.asList("second", "first", "third"), selector.getNames());
+
+		// results can be read more than once
+		assertEquals("Unexpected names on second read", Arrays.asList("second", "first", "third"), selector.getNames());
+	}
+
+	@Test
+	public void testFewerCandidatesThanK() {
+		MzTopKSelector selector = new MzTopKSelector(25, true);
+		selector.offer(2.0, "b");
+		selector.offer(1.0, "a");
+		assertEquals("Unexpected names", Arrays.asList("a", "b"), selector.getNames());
+		selector.clear();
+		assertEquals("Expected empty selector after clear", 0, selector.getIds().length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidK() {
+		new MzTopKSelector(0, true);
+	}
+
+	@Test
+	public void testSelectFromCursor() throws IOException {
+		final String[] names = { "w", "x", "y", "z" };
+		final double[] scores = { 4.0, 1.0, 3.0, 2.0 };
+		MzTopKSelector.Cursor cursor = new MzTopKSelector.Cursor() {
+			private int position = -1;
+
+			@Override
+			public boolean next() {
+				return ++position < names.length;
+			}
+
+			@Override
+			public String getName() {
+				return names[position];
+			}
+
+			@Override
+			public double getScore() {
+				return scores[position];
+			}
+		};
+		assertEquals("Unexpected names", Arrays.asList("w", "y"), MzTopKSelector.select(cursor, 2, false));
+	}
+
+	@Test
+	public void testSelectFromDistanceFile() throws Exception {
+		List<NamedVector> distances = new ArrayList<NamedVector>();
+		double[] values = { 0.7, 0.05, 1.2, 0.05, 0.3, 2.0 };
+		for (int i = 0; i < values.length; i++) {
+			distances.add(new NamedVector(new DenseVector(new double[]{ values[i] }), "Laptops:M" + i + ":Brand"));
+		}
+		assertTrue("Failed to write distance file",
+				MzSequenceFileGenerator.writeVectorToSequenceFile(distances, distanceFile.getAbsolutePath()));
+
+		List<String> closest = MzTopKSelector.selectFromDistanceFile(distanceFile, 3);
+		assertEquals("Unexpected closest ModelNumbers",
+				Arrays.asList("Laptops:M1:Brand", "Laptops:M3:Brand", "Laptops:M4:Brand"), closest);
+
+		MzRankingServiceCosine rankingService = new MzRankingServiceCosine();
+		assertEquals("Unexpected ModelNumbers from ranking bean", closest, rankingService.computeTopKModelNumbers(distanceFile, 3));
+	}
+
+}